@@ -0,0 +1,185 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Transactions of an account, in the order they were notified, indexed by recipient name and by timestamp.
+ * Each account has its own lock, so writes on an account don't block the others; reads share the lock and always
+ * see the transactions and the indexes consistent with each other.
+ */
+class AccountTransactions {
+
+    private static final Comparator<IndexedTransaction> BY_TIMESTAMP = Comparator
+            .comparingLong(IndexedTransaction::epochMillis)
+            .thenComparingInt(IndexedTransaction::position);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Transaction> transactions = new ArrayList<>();
+    private final RecipientNameIndex recipientNameIndex = new RecipientNameIndex();
+    // sorted by timestamp, then by position for the transactions with the same timestamp
+    private final List<IndexedTransaction> timestampIndex = new ArrayList<>();
+
+    /**
+     * A transaction with the values the queries filter and sort on, parsed once when it's added.
+     */
+    private record IndexedTransaction(Transaction transaction, long epochMillis, int position, BigDecimal amount) {
+
+        TransactionQuery.Cursor cursor() {
+            return new TransactionQuery.Cursor(epochMillis, position);
+        }
+    }
+
+    void add(Transaction transaction) {
+        addAll(List.of(transaction));
+    }
+
+    /**
+     * Adds the transactions in a single acquisition of the lock, so that a batch is seen whole by the readers.
+     */
+    void addAll(List<Transaction> batch) {
+        long[] epochMillis = new long[batch.size()];
+        BigDecimal[] amounts = new BigDecimal[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            epochMillis[i] = TransactionTimestamps.epochMillisOf(batch.get(i).timestamp());
+            amounts[i] = amountOf(batch.get(i).amount());
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                Transaction transaction = batch.get(i);
+                int position = transactions.size();
+                recipientNameIndex.add(transaction.recipientName(), position);
+                transactions.add(transaction);
+                timestampIndex.add(insertionPoint(epochMillis[i], position),
+                        new IndexedTransaction(transaction, epochMillis[i], position, amounts[i]));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<Transaction> findByRecipientName(String recipientName) {
+        lock.readLock().lock();
+        try {
+            int[] positions = recipientNameIndex.search(recipientName);
+            List<Transaction> result = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                result.add(transactions.get(position));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a page of the transactions matching the query. The date range and the cursor are looked up in the
+     * timestamp index, the other filters are checked on the transactions in the range only.
+     */
+    TransactionPage query(TransactionQuery query) {
+        lock.readLock().lock();
+        try {
+            long from = query.fromEpochMillis() != null ? query.fromEpochMillis() : Long.MIN_VALUE;
+            long to = query.toEpochMillis() != null ? query.toEpochMillis() : Long.MAX_VALUE;
+            // range of the index between the bounds, start inclusive and end exclusive
+            int start = insertionPoint(from, -1);
+            int end = to == Long.MAX_VALUE ? timestampIndex.size() : insertionPoint(to + 1, -1);
+
+            boolean ascending = query.sortOrder() == TransactionQuery.SortOrder.ASC;
+            TransactionQuery.Cursor cursor = query.cursor();
+            if (cursor != null) {
+                // the page starts after the last transaction of the previous page
+                if (ascending) {
+                    start = Math.max(start, insertionPoint(cursor.epochMillis(), cursor.position() + 1));
+                } else {
+                    end = Math.min(end, insertionPoint(cursor.epochMillis(), cursor.position()));
+                }
+            }
+
+            List<Transaction> page = new ArrayList<>(Math.min(query.limit(), Math.max(0, end - start)));
+            IndexedTransaction last = null;
+            boolean more = false;
+            for (int i = ascending ? start : end - 1; ascending ? i < end : i >= start; i += ascending ? 1 : -1) {
+                IndexedTransaction indexed = timestampIndex.get(i);
+                if (!matches(indexed, query)) {
+                    continue;
+                }
+                if (page.size() == query.limit()) {
+                    more = true;
+                    break;
+                }
+                page.add(indexed.transaction());
+                last = indexed;
+            }
+            return new TransactionPage(page, more ? last.cursor().encode() : null);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<Transaction> all() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(transactions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean matches(IndexedTransaction indexed, TransactionQuery query) {
+        if (query.paymentType() != null && !query.paymentType().equalsIgnoreCase(indexed.transaction().paymentType())) {
+            return false;
+        }
+        if (query.minAmount() == null && query.maxAmount() == null) {
+            return true;
+        }
+        BigDecimal amount = indexed.amount();
+        if (amount == null) {
+            return false;
+        }
+        return (query.minAmount() == null || amount.compareTo(query.minAmount()) >= 0)
+                && (query.maxAmount() == null || amount.compareTo(query.maxAmount()) <= 0);
+    }
+
+    /**
+     * Returns the index of the first entry of the timestamp index with a key greater than or equal to the given one.
+     */
+    private int insertionPoint(long epochMillis, int position) {
+        IndexedTransaction key = key(epochMillis, position);
+        int low = 0;
+        int high = timestampIndex.size();
+        // transactions are mostly notified in time order, the insertion point is usually the end
+        if (high > 0 && BY_TIMESTAMP.compare(timestampIndex.get(high - 1), key) < 0) {
+            return high;
+        }
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (BY_TIMESTAMP.compare(timestampIndex.get(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static IndexedTransaction key(long epochMillis, int position) {
+        return new IndexedTransaction(null, epochMillis, position, null);
+    }
+
+    private static BigDecimal amountOf(String amount) {
+        if (amount == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(amount.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * Result of a bulk notification of transactions.
+ *
+ * @param accepted the number of transactions stored
+ * @param rejected the number of transactions rejected
+ * @param results  the result of each transaction, in the order of the request
+ */
+public record BulkIngestionResult(
+        @JsonProperty("accepted") int accepted,
+        @JsonProperty("rejected") int rejected,
+        @JsonProperty("results") List<Item> results
+) {
+
+    public static final String ACCEPTED = "accepted";
+    public static final String REJECTED = "rejected";
+
+    /**
+     * @param index  the position of the transaction in the request, from 0
+     * @param id     the id of the transaction, when it could be read
+     * @param status accepted or rejected
+     * @param error  why the transaction was rejected
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Item(
+            @JsonProperty("index") int index,
+            @JsonProperty("id") String id,
+            @JsonProperty("status") String status,
+            @JsonProperty("error") String error
+    ) {}
+}
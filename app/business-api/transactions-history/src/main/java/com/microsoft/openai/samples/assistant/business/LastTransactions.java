@@ -0,0 +1,68 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The most recent transactions of an account, from the most recent to the oldest, bounded to a fixed capacity.
+ * Transactions are ordered by their timestamp rather than by the order they are notified in; when the buffer is full
+ * the oldest one is evicted, or the new one is discarded when it is older than all the kept ones.
+ * Writers are serialized and publish a new immutable snapshot, readers only read the current snapshot without
+ * locking, so reading the last transactions costs the same whatever the size of the history.
+ */
+class LastTransactions {
+
+    private record Entry(Transaction transaction, long epochMillis) {
+    }
+
+    private final int capacity;
+    private volatile Entry[] snapshot = new Entry[0];
+
+    LastTransactions(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        this.capacity = capacity;
+    }
+
+    synchronized void add(Transaction transaction) {
+        Entry entry = new Entry(transaction, TransactionTimestamps.epochMillisOf(transaction.timestamp()));
+        Entry[] current = snapshot;
+
+        // insertion point after the transactions with the same or a more recent timestamp
+        int position = 0;
+        while (position < current.length && current[position].epochMillis() >= entry.epochMillis()) {
+            position++;
+        }
+        if (position >= capacity) {
+            return;
+        }
+
+        Entry[] next = new Entry[Math.min(current.length + 1, capacity)];
+        System.arraycopy(current, 0, next, 0, position);
+        next[position] = entry;
+        System.arraycopy(current, position, next, position + 1, next.length - position - 1);
+        snapshot = next;
+    }
+
+    /**
+     * Adds the transactions and publishes a single snapshot. Like {@link #add(Transaction)}, a transaction is kept after
+     * the ones with the same timestamp already in the buffer.
+     */
+    synchronized void addAll(List<Transaction> batch) {
+        Entry[] current = snapshot;
+        Entry[] merged = Arrays.copyOf(current, current.length + batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Transaction transaction = batch.get(i);
+            merged[current.length + i] = new Entry(transaction, TransactionTimestamps.epochMillisOf(transaction.timestamp()));
+        }
+        // stable sort, the entries with the same timestamp keep the order they were added in
+        Arrays.sort(merged, Comparator.comparingLong(Entry::epochMillis).reversed());
+        snapshot = merged.length > capacity ? Arrays.copyOf(merged, capacity) : merged;
+    }
+
+    List<Transaction> list() {
+        return Arrays.stream(snapshot).map(Entry::transaction).toList();
+    }
+}
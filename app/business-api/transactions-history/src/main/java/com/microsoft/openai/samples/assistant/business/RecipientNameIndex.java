@@ -0,0 +1,104 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Index of the recipient names of an account, used to find the transactions whose recipient name contains a text.
+ * Names are normalized (trimmed, lower case) and stored once: each name keeps the positions of its transactions, and
+ * each trigram of the names keeps the names containing it. A search intersects the trigrams of the text and checks
+ * only the names found, so it doesn't depend on the number of transactions.
+ * Not thread safe: {@link AccountTransactions} guards it with its lock.
+ */
+class RecipientNameIndex {
+
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Positions> positionsByName = new ArrayList<>();
+    private final Map<String, BitSet> namesByTrigram = new HashMap<>();
+
+    static String normalize(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    void add(String recipientName, int position) {
+        String name = normalize(recipientName);
+        Integer nameId = nameIds.get(name);
+        if (nameId == null) {
+            nameId = names.size();
+            nameIds.put(name, nameId);
+            names.add(name);
+            positionsByName.add(new Positions());
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                namesByTrigram.computeIfAbsent(name.substring(i, i + 3), trigram -> new BitSet()).set(nameId);
+            }
+        }
+        positionsByName.get(nameId).add(position);
+    }
+
+    /**
+     * Returns the positions of the transactions whose recipient name contains the text, in ascending order.
+     */
+    int[] search(String text) {
+        String query = normalize(text);
+
+        BitSet candidates;
+        if (query.length() < 3) {
+            candidates = new BitSet();
+            candidates.set(0, names.size());
+        } else {
+            candidates = null;
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                BitSet trigramNames = namesByTrigram.get(query.substring(i, i + 3));
+                if (trigramNames == null) {
+                    return new int[0];
+                }
+                if (candidates == null) {
+                    candidates = (BitSet) trigramNames.clone();
+                } else {
+                    candidates.and(trigramNames);
+                }
+            }
+        }
+
+        List<Positions> matches = new ArrayList<>();
+        int size = 0;
+        for (int nameId = candidates.nextSetBit(0); nameId >= 0; nameId = candidates.nextSetBit(nameId + 1)) {
+            // trigrams can match out of order, the name is checked
+            if (names.get(nameId).contains(query)) {
+                Positions positions = positionsByName.get(nameId);
+                matches.add(positions);
+                size += positions.size;
+            }
+        }
+
+        int[] result = new int[size];
+        int offset = 0;
+        for (Positions positions : matches) {
+            System.arraycopy(positions.values, 0, result, offset, positions.size);
+            offset += positions.size;
+        }
+        // positions of each name are ascending, the names are merged back in the order of the transactions
+        if (matches.size() > 1) {
+            Arrays.sort(result);
+        }
+        return result;
+    }
+
+    private static class Positions {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int position) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = position;
+        }
+    }
+}
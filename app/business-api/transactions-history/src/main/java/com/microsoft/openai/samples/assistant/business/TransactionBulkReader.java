@@ -0,0 +1,89 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the transactions of a bulk notification, either a json array or a stream of json objects, one per line.
+ * Each transaction is read on its own: one that can't be mapped is reported in its item and doesn't fail the others.
+ * A body that isn't a json array, or a line that isn't json, can't be split into transactions and fails the request.
+ */
+class TransactionBulkReader {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * A transaction read from the request, or the error that prevented reading it.
+     */
+    record Item(Transaction transaction, String error) {
+    }
+
+    private TransactionBulkReader() {
+    }
+
+    static List<Item> readJsonArray(InputStream body, int maxItems) throws IOException {
+        List<Item> items = new ArrayList<>();
+        try (JsonParser parser = OBJECT_MAPPER.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Request body is not a json array of transactions");
+            }
+            for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                if (token == null) {
+                    throw new IllegalArgumentException("Request body ends before the end of the json array");
+                }
+                checkSize(items, maxItems);
+                items.add(itemOf(parser.readValueAsTree()));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Request body is not valid json: " + e.getOriginalMessage());
+        }
+        return items;
+    }
+
+    static List<Item> readNdjson(InputStream body, int maxItems) throws IOException {
+        List<Item> items = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        int lineNumber = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            checkSize(items, maxItems);
+            try {
+                items.add(itemOf(OBJECT_MAPPER.readTree(line)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + " is not valid json: " + e.getOriginalMessage());
+            }
+        }
+        return items;
+    }
+
+    private static Item itemOf(JsonNode node) {
+        if (node == null || !node.isObject()) {
+            return new Item(null, "Transaction is not a json object");
+        }
+        try {
+            return new Item(OBJECT_MAPPER.treeToValue(node, Transaction.class), null);
+        } catch (JsonProcessingException e) {
+            return new Item(null, "Transaction is not valid: " + e.getOriginalMessage());
+        }
+    }
+
+    private static void checkSize(List<Item> items, int maxItems) {
+        if (items.size() == maxItems) {
+            throw new IllegalArgumentException("Request has more than " + maxItems + " transactions");
+        }
+    }
+}
@@ -2,8 +2,14 @@ package com.microsoft.openai.samples.assistant.business;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -11,9 +17,11 @@ import java.util.List;
 public class TransactionController {
 
     private final TransactionService transactionService;
+    private final int bulkMaxItems;
     private static final Logger logger = LoggerFactory.getLogger(TransactionController.class);
-    public TransactionController(TransactionService transactionService) {
+    public TransactionController(TransactionService transactionService, @Value("${transactions.bulk.max-items:10000}") int bulkMaxItems) {
         this.transactionService = transactionService;
+        this.bulkMaxItems = bulkMaxItems;
     }
 
     @GetMapping("/{accountId}")
@@ -26,11 +34,52 @@ public class TransactionController {
             return transactionService.getlastTransactions(accountId);
     }
 
+    @GetMapping("/{accountId}/query")
+    public TransactionPage queryTransactions(@PathVariable String accountId,
+                                             @RequestParam(name = "from_date", required = false) String fromDate,
+                                             @RequestParam(name = "to_date", required = false) String toDate,
+                                             @RequestParam(name = "min_amount", required = false) String minAmount,
+                                             @RequestParam(name = "max_amount", required = false) String maxAmount,
+                                             @RequestParam(name = "payment_type", required = false) String paymentType,
+                                             @RequestParam(name = "sort", required = false) String sortOrder,
+                                             @RequestParam(name = "limit", required = false) Integer limit,
+                                             @RequestParam(name = "cursor", required = false) String cursor){
+        logger.info("Received request to query transactions for accountid[{}]. Date range is[{} - {}], amount range is[{} - {}], payment type is[{}]",
+                accountId, fromDate, toDate, minAmount, maxAmount, paymentType);
+        var query = TransactionQuery.of(fromDate, toDate, minAmount, maxAmount, paymentType, sortOrder, limit, cursor);
+        return transactionService.queryTransactions(accountId, query);
+    }
+
     @PostMapping("/{accountId}")
     public void notifyTransaction(@PathVariable String accountId, @RequestBody Transaction transaction){
         logger.info("Received request to notify transaction for accountid[{}]. {}", accountId,transaction);
         transactionService.notifyTransaction(accountId, transaction);
     }
 
+    @PostMapping(value = "/{accountId}/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public BulkIngestionResult notifyTransactions(@PathVariable String accountId, InputStream body) throws IOException {
+        logger.info("Received request to notify a json array of transactions for accountid[{}]", accountId);
+        List<TransactionBulkReader.Item> items;
+        try {
+            items = TransactionBulkReader.readJsonArray(body, bulkMaxItems);
+        } catch (IllegalArgumentException e) {
+            // a body that can't be split into transactions, or with too many of them
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return transactionService.notifyTransactions(accountId, items);
+    }
+
+    @PostMapping(value = "/{accountId}/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public BulkIngestionResult notifyTransactionStream(@PathVariable String accountId, InputStream body) throws IOException {
+        logger.info("Received request to notify a ndjson stream of transactions for accountid[{}]", accountId);
+        List<TransactionBulkReader.Item> items;
+        try {
+            items = TransactionBulkReader.readNdjson(body, bulkMaxItems);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        }
+        return transactionService.notifyTransactions(accountId, items);
+    }
+
 
 }
\ No newline at end of file
@@ -0,0 +1,540 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the notified transactions, so that they survive a restart without an external database.
+ * <p>
+ * Transactions are written as fixed-width records in segment files of a fixed number of records, memory-mapped so
+ * that an append is a copy in the page cache; {@link #awaitFlushed(long)} forces them to the disk. Each record
+ * starts with a CRC32 and the length of its payload, the account id and the fields of the transaction, so a record
+ * torn by a crash is detected when the journal is opened and the journal ends before it.
+ * <p>
+ * Every checkpoint interval a flush writes a checkpoint with the number of records forced to the disk. Records
+ * before it were acknowledged, so an invalid one is reported as a corruption instead of being read as the end of the
+ * journal. The checkpoint only holds that count, the state of the indexes is in a {@link TransactionSnapshot}: opening
+ * the journal replays the records after the sequence of the snapshot.
+ * <p>
+ * Appends are serialized on the journal, while the records are forced outside of its lock by one of the writers
+ * waiting for them, for all the records appended so far: the writers appending during a flush are made durable
+ * together by the next one (group commit). A failed flush stops the journal: the records that weren't flushed are
+ * invalidated and the later appends are rejected, so that a transaction reported as failed is never replayed.
+ * <p>
+ * Each segment starts with a header holding its number of records, which can't change once the journal has been
+ * written: opening it with another number fails instead of reading the records at the wrong offsets. The directory is
+ * locked while the journal is open, so that a second process can't append to the same segments.
+ */
+class TransactionJournal implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionJournal.class);
+
+    static final int RECORD_SIZE = 1024;
+    // crc32, then payload length
+    private static final int HEADER_SIZE = 8;
+    private static final int CHECKPOINT_SIZE = 16;
+    private static final int CHECKPOINT_MAGIC = 0x544a4e4c;
+    private static final String CHECKPOINT_FILE = "journal.checkpoint";
+    // magic, records per segment, record size, crc32
+    static final int SEGMENT_HEADER_SIZE = 16;
+    private static final int SEGMENT_MAGIC = 0x544a5347;
+    private static final String LOCK_FILE = "journal.lock";
+
+    private final Path directory;
+    private final int recordsPerSegment;
+    private final int checkpointInterval;
+    // holds the lock of the directory until the journal is closed
+    private final FileChannel lockChannel;
+    private MappedByteBuffer segment;
+    private long segmentNumber;
+    // full segments with records appended since the last flush
+    private final List<FullSegment> fullSegments = new ArrayList<>();
+    private long recordCount;
+    // written under the lock, read without it by the writers applying the flushed transactions
+    private volatile long flushedCount;
+    private long checkpointCount;
+    private boolean flushing;
+    // set by a failed flush, the journal is stopped
+    private volatile IOException failure;
+
+    private TransactionJournal(Path directory, int recordsPerSegment, int checkpointInterval, FileChannel lockChannel) {
+        this.directory = directory;
+        this.recordsPerSegment = recordsPerSegment;
+        this.checkpointInterval = checkpointInterval;
+        this.lockChannel = lockChannel;
+    }
+
+    /**
+     * Receives the records replayed when the journal is opened, in the order they were appended.
+     */
+    interface Replay {
+
+        void accept(long sequence, String accountId, Transaction transaction);
+    }
+
+    /**
+     * Opens the journal in the given directory, creating it when it doesn't exist, and replays its records.
+     *
+     * @param fromSequence the sequence of the snapshot of the indexes, the records up to it are neither read nor replayed
+     * @throws IOException when the directory is locked by another journal, its segments were written with another
+     *                     number of records per segment, or it ends before the snapshot
+     */
+    static TransactionJournal open(Path directory, int recordsPerSegment, int checkpointInterval, long fromSequence,
+                                   Replay replay) throws IOException {
+        if (recordsPerSegment <= 0) {
+            throw new IllegalArgumentException("recordsPerSegment must be greater than 0");
+        }
+        if (checkpointInterval <= 0) {
+            throw new IllegalArgumentException("checkpointInterval must be greater than 0");
+        }
+        if (fromSequence < 0) {
+            throw new IllegalArgumentException("fromSequence cannot be negative");
+        }
+        Files.createDirectories(directory);
+        FileChannel lockChannel = lock(directory);
+        TransactionJournal journal = new TransactionJournal(directory, recordsPerSegment, checkpointInterval, lockChannel);
+        try {
+            journal.recover(fromSequence, replay);
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    /**
+     * Appends a transaction. It's durable only once {@link #awaitFlushed(long)} returns for its sequence.
+     *
+     * @return the sequence of the record, starting from 1
+     * @throws IllegalArgumentException when the transaction doesn't fit in a record
+     */
+    synchronized long append(String accountId, Transaction transaction) throws IOException {
+        checkNotStopped();
+        byte[] record = encode(accountId, transaction);
+        int slot = (int) (recordCount - segmentNumber * recordsPerSegment);
+        if (slot == recordsPerSegment) {
+            // the segment is full, its records are forced by the next flush
+            MappedByteBuffer next = map(segmentPath(segmentNumber + 1));
+            fullSegments.add(new FullSegment(segmentNumber, segment));
+            segmentNumber++;
+            segment = next;
+            slot = 0;
+        }
+        segment.put(offsetOf(slot), record);
+        return ++recordCount;
+    }
+
+    /**
+     * Waits until the records up to the given sequence are forced to the disk. When no flush is running, the caller
+     * forces all the records appended so far, outside of the lock so that the others keep appending, then writes a
+     * checkpoint when the checkpoint interval is reached.
+     */
+    void awaitFlushed(long sequence) throws IOException {
+        PendingFlush pending;
+        synchronized (this) {
+            while (flushing && flushedCount < sequence) {
+                waitForFlush();
+            }
+            if (flushedCount >= sequence) {
+                return;
+            }
+            checkNotStopped();
+            flushing = true;
+            pending = pendingFlush();
+        }
+        try {
+            pending.force();
+        } catch (UncheckedIOException e) {
+            synchronized (this) {
+                stop(e.getCause(), pending);
+                flushing = false;
+                notifyAll();
+            }
+            throw failure;
+        }
+        // only the flushing writer, or close once it's done, writes the checkpoint. The records are durable whether it's
+        // written or not, it's only needed to tell a corrupted record from a torn one
+        if (pending.target() - checkpointCount >= checkpointInterval) {
+            try {
+                writeCheckpoint(pending.target());
+            } catch (IOException e) {
+                LOGGER.warn("Cannot write the checkpoint of the transaction journal in {}", directory, e);
+            }
+        }
+        synchronized (this) {
+            flushedCount = pending.target();
+            flushing = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Returns the sequence of the last record forced to the disk.
+     */
+    long flushedSequence() {
+        return flushedCount;
+    }
+
+    /**
+     * Returns whether a failed flush stopped the journal.
+     */
+    boolean isStopped() {
+        return failure != null;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        while (flushing) {
+            waitForFlush();
+        }
+        try {
+            if (failure == null) {
+                pendingFlush().force();
+                flushedCount = recordCount;
+                if (checkpointCount != flushedCount) {
+                    writeCheckpoint(flushedCount);
+                }
+            }
+        } finally {
+            // closing the channel releases the lock
+            lockChannel.close();
+        }
+    }
+
+    /**
+     * Checks that the transaction fits in a record, without appending it.
+     *
+     * @throws IllegalArgumentException when it doesn't
+     */
+    static void checkRecordSize(String accountId, Transaction transaction) {
+        encode(accountId, transaction);
+    }
+
+    private void recover(long fromSequence, Replay replay) throws IOException {
+        long acknowledged = readCheckpoint();
+        // the records of the snapshot were flushed before it was written, they are skipped without being checked
+        if (fromSequence > 0 && !Files.exists(segmentPath((fromSequence - 1) / recordsPerSegment))) {
+            throw new IOException("Journal ends before record " + fromSequence + " of the snapshot");
+        }
+        long count = fromSequence;
+        boolean end = false;
+        long number = fromSequence / recordsPerSegment;
+        while (!end && Files.exists(segmentPath(number))) {
+            MappedByteBuffer buffer = map(segmentPath(number));
+            for (int slot = (int) (count - number * recordsPerSegment); slot < recordsPerSegment; slot++) {
+                Decoded decoded = decode(buffer, slot);
+                if (decoded == null) {
+                    if (count < acknowledged) {
+                        throw new IOException("Journal record " + count + " is corrupted, the checkpoint has "
+                                + acknowledged + " records");
+                    }
+                    end = true;
+                    break;
+                }
+                count++;
+                replay.accept(count, decoded.accountId(), decoded.transaction());
+            }
+            if (end) {
+                segment = buffer;
+                segmentNumber = number;
+            } else {
+                number++;
+            }
+        }
+        if (count < acknowledged) {
+            throw new IOException("Journal has " + count + " records, the checkpoint has " + acknowledged);
+        }
+
+        if (segment == null) {
+            // no segment or all of them full
+            segmentNumber = count / recordsPerSegment;
+            segment = map(segmentPath(segmentNumber));
+        }
+        discardTail(count);
+
+        recordCount = count;
+        flushedCount = count;
+        checkpointCount = acknowledged;
+        LOGGER.info("Transaction journal in {} opened with {} records, {} replayed after the snapshot", directory, count,
+                count - fromSequence);
+    }
+
+    /**
+     * Invalidates the records after the end of the journal. The page cache doesn't write the pages in order, so
+     * records written after a torn one may be valid: they would be read again once the torn one is overwritten.
+     */
+    private void discardTail(long count) throws IOException {
+        int firstSlot = (int) (count - segmentNumber * recordsPerSegment);
+        boolean discarded = false;
+        for (int slot = firstSlot; slot < recordsPerSegment; slot++) {
+            if (segment.getInt(offsetOf(slot) + 4) != 0) {
+                segment.putLong(offsetOf(slot), 0L);
+                discarded = true;
+            }
+        }
+        if (discarded) {
+            segment.force();
+            LOGGER.warn("Transaction journal in {} had a partial write after record {}, discarded", directory, count);
+        }
+        for (long number = segmentNumber + 1; Files.exists(segmentPath(number)); number++) {
+            Files.delete(segmentPath(number));
+        }
+    }
+
+    /**
+     * The records appended since the last flush: the full segments where they start, if any, and the range of the
+     * current segment.
+     */
+    private PendingFlush pendingFlush() {
+        List<FullSegment> full = List.copyOf(fullSegments);
+        fullSegments.clear();
+        long segmentStart = segmentNumber * recordsPerSegment;
+        int from = (int) (Math.max(flushedCount, segmentStart) - segmentStart);
+        int to = (int) (recordCount - segmentStart);
+        return new PendingFlush(full, segment, from, to, recordCount);
+    }
+
+    private record FullSegment(long number, MappedByteBuffer buffer) {
+    }
+
+    private record PendingFlush(List<FullSegment> fullSegments, MappedByteBuffer segment, int from, int to,
+                                long target) {
+
+        void force() {
+            fullSegments.forEach(fullSegment -> fullSegment.buffer().force());
+            if (to > from) {
+                segment.force(offsetOf(from), (to - from) * RECORD_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Stops the journal and invalidates the records that weren't flushed, as their writers are told they failed. It's
+     * done on the mapped pages, so it's lost if the failed flush wrote them after all and the process crashes.
+     */
+    private void stop(IOException cause, PendingFlush failed) {
+        failure = cause;
+        failed.fullSegments().forEach(fullSegment -> invalidate(fullSegment.number(), fullSegment.buffer()));
+        fullSegments.forEach(fullSegment -> invalidate(fullSegment.number(), fullSegment.buffer()));
+        invalidate(segmentNumber, segment);
+        LOGGER.error("Flush of the transaction journal in {} failed, the journal is stopped and {} records are discarded",
+                directory, recordCount - flushedCount, cause);
+    }
+
+    private void invalidate(long number, MappedByteBuffer buffer) {
+        long segmentStart = number * recordsPerSegment;
+        long end = Math.min(recordCount, segmentStart + recordsPerSegment);
+        for (long sequence = Math.max(flushedCount, segmentStart); sequence < end; sequence++) {
+            buffer.putLong(offsetOf((int) (sequence - segmentStart)), 0L);
+        }
+    }
+
+    private void checkNotStopped() throws IOException {
+        if (failure != null) {
+            throw new IOException("Transaction journal in " + directory + " is stopped after a failed flush", failure);
+        }
+    }
+
+    private void waitForFlush() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the flush of the transaction journal");
+        }
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(path)) {
+            return 0;
+        }
+        ByteBuffer checkpoint = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (checkpoint.capacity() != CHECKPOINT_SIZE || checkpoint.getInt(0) != CHECKPOINT_MAGIC
+                || checkpoint.getInt(12) != crcOf(checkpoint.array(), 0, 12)) {
+            LOGGER.warn("Checkpoint of the transaction journal in {} is not valid, ignored", directory);
+            return 0;
+        }
+        return checkpoint.getLong(4);
+    }
+
+    private void writeCheckpoint(long count) throws IOException {
+        ByteBuffer checkpoint = ByteBuffer.allocate(CHECKPOINT_SIZE)
+                .putInt(CHECKPOINT_MAGIC)
+                .putLong(count);
+        checkpoint.putInt(crcOf(checkpoint.array(), 0, 12));
+
+        Path temporary = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(checkpoint.flip());
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        checkpointCount = count;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve("segment-%08d.journal".formatted(number));
+    }
+
+    /**
+     * Takes the lock of the directory, released when the returned channel is closed.
+     */
+    private static FileChannel lock(Path directory) throws IOException {
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // locked by another journal of this process
+            lock = null;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("Transaction journal in " + directory + " is locked by another journal");
+        }
+        return channel;
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        long size = SEGMENT_HEADER_SIZE + (long) recordsPerSegment * RECORD_SIZE;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            if (channel.size() < SEGMENT_HEADER_SIZE) {
+                // a new segment, or one whose creation was interrupted before any record. Its header is durable
+                // before its records, so that they are never read with another number of records per segment
+                channel.write(segmentHeader(recordsPerSegment), 0);
+                channel.force(true);
+            } else {
+                checkSegmentHeader(path, channel);
+                if (channel.size() > size) {
+                    throw new IOException("Journal segment " + path + " has " + channel.size() + " bytes, expected "
+                            + size);
+                }
+            }
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void checkSegmentHeader(Path path, FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+            // read until the header is complete
+        }
+        if (header.hasRemaining() || header.getInt(0) != SEGMENT_MAGIC
+                || header.getInt(12) != crcOf(header.array(), 0, 12)) {
+            throw new IOException("Journal segment " + path + " doesn't have a valid header");
+        }
+        int segmentRecords = header.getInt(4);
+        int recordSize = header.getInt(8);
+        if (segmentRecords != recordsPerSegment || recordSize != RECORD_SIZE) {
+            throw new IOException("Journal segment " + path + " has " + segmentRecords + " records of " + recordSize
+                    + " bytes, the journal is opened with " + recordsPerSegment + " records of " + RECORD_SIZE
+                    + " bytes");
+        }
+    }
+
+    private static ByteBuffer segmentHeader(int recordsPerSegment) {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE)
+                .putInt(SEGMENT_MAGIC)
+                .putInt(recordsPerSegment)
+                .putInt(RECORD_SIZE);
+        header.putInt(crcOf(header.array(), 0, 12));
+        return header.flip();
+    }
+
+    private static int offsetOf(int slot) {
+        return SEGMENT_HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private record Decoded(String accountId, Transaction transaction) {
+    }
+
+    private static byte[] encode(String accountId, Transaction transaction) {
+        ByteBuffer payload = ByteBuffer.allocate(RECORD_SIZE);
+        payload.position(HEADER_SIZE);
+        try {
+            for (String field : new String[]{accountId, transaction.id(), transaction.description(), transaction.type(),
+                    transaction.recipientName(), transaction.recipientBankReference(), transaction.accountId(),
+                    transaction.paymentType(), transaction.amount(), transaction.timestamp()}) {
+                if (field == null) {
+                    payload.putShort((short) -1);
+                } else {
+                    byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+                    payload.putShort((short) bytes.length).put(bytes);
+                }
+            }
+        } catch (BufferOverflowException e) {
+            throw new IllegalArgumentException("Transaction is larger than the journal record size of "
+                    + RECORD_SIZE + " bytes");
+        }
+        int length = payload.position() - HEADER_SIZE;
+        payload.putInt(4, length);
+        payload.putInt(0, crcOf(payload.array(), 4, length + 4));
+        byte[] record = new byte[HEADER_SIZE + length];
+        payload.get(0, record);
+        return record;
+    }
+
+    private static Decoded decode(MappedByteBuffer buffer, int slot) {
+        int offset = offsetOf(slot);
+        int length = buffer.getInt(offset + 4);
+        if (length <= 0 || length > RECORD_SIZE - HEADER_SIZE) {
+            return null;
+        }
+        byte[] record = new byte[HEADER_SIZE + length];
+        buffer.get(offset, record);
+        if (ByteBuffer.wrap(record).getInt(0) != crcOf(record, 4, length + 4)) {
+            return null;
+        }
+        ByteBuffer payload = ByteBuffer.wrap(record, HEADER_SIZE, length);
+        try {
+            String[] fields = new String[10];
+            for (int i = 0; i < fields.length; i++) {
+                short size = payload.getShort();
+                if (size >= 0) {
+                    byte[] bytes = new byte[size];
+                    payload.get(bytes);
+                    fields[i] = new String(bytes, StandardCharsets.UTF_8);
+                }
+            }
+            return new Decoded(fields[0], new Transaction(fields[1], fields[2], fields[3], fields[4], fields[5],
+                    fields[6], fields[7], fields[8], fields[9]));
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+
+    private static int crcOf(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+}
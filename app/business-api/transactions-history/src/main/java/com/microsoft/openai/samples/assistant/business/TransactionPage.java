@@ -0,0 +1,16 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.List;
+
+/**
+ * A page of the transactions matching a {@link TransactionQuery}.
+ *
+ * @param transactions the transactions of the page
+ * @param nextCursor   the cursor of the next page, null when there are no more transactions
+ */
+public record TransactionPage(
+        @JsonProperty("transactions") List<Transaction> transactions,
+        @JsonProperty("nextCursor") String nextCursor
+) {}
@@ -0,0 +1,103 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Query on the transactions of an account. All the filters are optional; the date range and the amount range are
+ * inclusive.
+ *
+ * @param fromEpochMillis start of the date range, or null
+ * @param toEpochMillis   end of the date range, or null
+ * @param minAmount       min amount, or null
+ * @param maxAmount       max amount, or null
+ * @param paymentType     payment type, compared ignoring case, or null
+ * @param sortOrder       order of the transactions by timestamp
+ * @param limit           max number of transactions returned
+ * @param cursor          position after which the page starts, or null for the first page
+ */
+public record TransactionQuery(Long fromEpochMillis, Long toEpochMillis, BigDecimal minAmount, BigDecimal maxAmount,
+                               String paymentType, SortOrder sortOrder, int limit, Cursor cursor) {
+
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    public enum SortOrder {
+        ASC, DESC
+    }
+
+    /**
+     * Key of a transaction in the timestamp index of its account: the timestamp, then the order of notification for
+     * the transactions with the same timestamp. Encoded as an opaque token in the pages.
+     */
+    public record Cursor(long epochMillis, int position) {
+
+        public String encode() {
+            String key = epochMillis + ":" + position;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String token) {
+            try {
+                String key = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+                int separator = key.indexOf(':');
+                return new Cursor(Long.parseLong(key.substring(0, separator)), Integer.parseInt(key.substring(separator + 1)));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Cursor is not valid");
+            }
+        }
+    }
+
+    public TransactionQuery {
+        if (sortOrder == null) {
+            throw new IllegalArgumentException("sortOrder cannot be null");
+        }
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_LIMIT);
+        }
+        if (fromEpochMillis != null && toEpochMillis != null && fromEpochMillis > toEpochMillis) {
+            throw new IllegalArgumentException("fromDate must be before toDate");
+        }
+        if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+            throw new IllegalArgumentException("minAmount must be less than maxAmount");
+        }
+    }
+
+    /**
+     * Builds a query from the parameters of the REST and MCP endpoints. Blank parameters are ignored.
+     */
+    public static TransactionQuery of(String fromDate, String toDate, String minAmount, String maxAmount,
+                                      String paymentType, String sortOrder, Integer limit, String cursor) {
+        return new TransactionQuery(
+                isBlank(fromDate) ? null : TransactionTimestamps.parseBound(fromDate, false),
+                isBlank(toDate) ? null : TransactionTimestamps.parseBound(toDate, true),
+                isBlank(minAmount) ? null : parseAmount("minAmount", minAmount),
+                isBlank(maxAmount) ? null : parseAmount("maxAmount", maxAmount),
+                isBlank(paymentType) ? null : paymentType.trim(),
+                isBlank(sortOrder) ? SortOrder.DESC : parseSortOrder(sortOrder),
+                limit == null ? DEFAULT_LIMIT : limit,
+                isBlank(cursor) ? null : Cursor.decode(cursor));
+    }
+
+    private static BigDecimal parseAmount(String name, String value) {
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a valid amount");
+        }
+    }
+
+    private static SortOrder parseSortOrder(String value) {
+        try {
+            return SortOrder.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("sortOrder must be asc or desc");
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -1,28 +1,64 @@
 package com.microsoft.openai.samples.assistant.business;
 
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Transactions of the accounts, notified concurrently by the payments through the REST and MCP endpoints.
+ * The history of each account is kept in an {@link AccountTransactions}, with its own lock and a recipient name index,
+ * and its most recent transactions in a bounded {@link LastTransactions}, ordered by timestamp.
+ * When enabled with a directory, notified transactions are written to the {@link TransactionJournal} before they are
+ * applied, and replayed from it on startup on top of the sample transactions. The writers only hold the journal lock to append their records and share
+ * its flushes; once flushed, the transactions are applied to the indexes of their account in the order of the journal.
+ * Every snapshot interval of applied transactions, and on shutdown, the indexes are written to a
+ * {@link TransactionSnapshot}, so that a restart restores them and only replays the records after it.
+ */
 @Service
 public class TransactionService {
 
-    private Map<String,List<Transaction>> lastTransactions= new HashMap<>();
-    private Map<String,List<Transaction>> allTransactions= new HashMap<>();
+    private final Map<String,LastTransactions> lastTransactions= new ConcurrentHashMap<>();
+    private final Map<String,AccountTransactions> allTransactions= new ConcurrentHashMap<>();
+    private final TransactionJournal journal;
+    // journaled transactions waiting for the flush of their records to be applied, by account id
+    private final Map<String,Queue<Journaled>> journaled= new ConcurrentHashMap<>();
+    private final Path journalPath;
+    private final int snapshotInterval;
+    private final AtomicLong appliedSinceSnapshot = new AtomicLong();
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+    private static final Logger logger = LoggerFactory.getLogger(TransactionService.class);
 
-     public TransactionService(){
+     public TransactionService(@Value("${transactions.last-transactions.capacity:10}") int lastTransactionsCapacity,
+                               @Value("${transactions.journal.enabled:false}") boolean journalEnabled,
+                               @Value("${transactions.journal.directory:}") String journalDirectory,
+                               @Value("${transactions.journal.segment-records:16384}") int journalSegmentRecords,
+                               @Value("${transactions.journal.checkpoint-interval:1000}") int journalCheckpointInterval,
+                               @Value("${transactions.journal.snapshot-interval:10000}") int journalSnapshotInterval){
 
-         lastTransactions.put("1010",new ArrayList<> (Arrays.asList(
+         var accountLastTransactions = new LastTransactions(lastTransactionsCapacity);
+         Arrays.asList(
                 new Transaction("11", "Payment of the bill 334398", "outcome","acme", "0001", "1010", "BankTransfer", "100.00", "2024-4-01T12:00:00Z"),
                 new Transaction("22", "Payment of the bill 4613","outcome", "contoso", "0002", "1010", "CreditCard", "200.00", "2024-3-02T12:00:00Z"),
                 new Transaction("33", "Payment of the bill 724563","outcome", "duff", "0003", "1010", "BankTransfer", "300.00", "2023-10-03T12:00:00Z"),
                 new Transaction("43", "Payment of the bill 8898943","outcome", "wayne enterprises", "0004", "1010", "DirectDebit", "400.00", "2023-8-04T12:00:00Z"),
-                new Transaction("53", "Payment of the bill 19dee","outcome", "oscorp", "0005", "1010", "BankTransfer", "500.00", "2023-4-05T12:00:00Z"))
-         ));
+                new Transaction("53", "Payment of the bill 19dee","outcome", "oscorp", "0005", "1010", "BankTransfer", "500.00", "2023-4-05T12:00:00Z")
+         ).forEach(accountLastTransactions::add);
+         lastTransactions.put("1010", accountLastTransactions);
 
 
-         allTransactions.put("1010",new ArrayList<>(Arrays.asList(
+         var accountTransactions = new AccountTransactions();
+         Arrays.asList(
                 new Transaction("11", "payment of bill id with 0001","outcome", "acme", "A012TABTYT156!", "1010", "BankTransfer", "100.00", "2024-4-01T12:00:00Z"),
                 new Transaction("21", "Payment of the bill 4200","outcome", "acme", "0002", "1010", "BankTransfer", "200.00", "2024-1-02T12:00:00Z"),
                 new Transaction("31", "Payment of the bill 3743","outcome", "acme", "0003", "1010", "DirectDebit", "300.00", "2023-10-03T12:00:00Z"),
@@ -34,7 +70,35 @@ public class TransactionService {
                 new Transaction("32", "Payment of the bill 94112","outcome", "contoso", "0003", "1010", "Transfer", "300.00", "2022-10-03T12:00:00Z"),
                 new Transaction("42", "Payment of the bill 23122","outcome", "contoso", "0004", "1010", "Transfer", "400.00", "2022-8-04T12:00:00Z"),
                 new Transaction("52", "Payment of the bill 171443","outcome", "contoso", "0005", "1010", "Transfer", "500.00", "2020-4-05T12:00:00Z")
-         )));
+         ).forEach(accountTransactions::add);
+         allTransactions.put("1010", accountTransactions);
+
+         if (journalEnabled) {
+             // no default directory: a temporary one would be lost with the transactions it's meant to keep
+             if (journalDirectory.isBlank())
+                 throw new IllegalArgumentException("transactions.journal.directory is required when the journal is enabled");
+             if (journalSnapshotInterval <= 0)
+                 throw new IllegalArgumentException("transactions.journal.snapshot-interval must be greater than 0");
+             journalPath = Path.of(journalDirectory);
+             snapshotInterval = journalSnapshotInterval;
+             try {
+                 var snapshot = TransactionSnapshot.read(journalPath);
+                 var snapshotSequences = snapshot != null ? restore(snapshot, lastTransactionsCapacity) : Map.<String,Long>of();
+                 // the snapshot has the records of each account up to its sequence, the journal is read from the lowest one
+                 journal = TransactionJournal.open(journalPath, journalSegmentRecords, journalCheckpointInterval,
+                         snapshot != null ? snapshot.sequence() : 0,
+                         (sequence, accountId, transaction) -> {
+                             if (sequence > snapshotSequences.getOrDefault(accountId, 0L))
+                                 replay(accountId, transaction);
+                         });
+             } catch (IOException e) {
+                 throw new RuntimeException("Cannot open the transaction journal in " + journalDirectory, e);
+             }
+         } else {
+             journal = null;
+             journalPath = null;
+             snapshotInterval = 0;
+         }
 
 
 
@@ -49,14 +113,30 @@ public class TransactionService {
             throw new IllegalArgumentException("AccountId is not a valid number");
         }
 
-    if ( allTransactions.get(accountId) == null) return new ArrayList<>();
+        var accountTransactions = allTransactions.get(accountId);
+        if ( accountTransactions == null) return new ArrayList<>();
         else
-      return  allTransactions.get(accountId).stream()
-                .filter(transaction -> transaction.recipientName().toLowerCase().contains(name.toLowerCase()))
-                .collect(Collectors.toList());
+        return accountTransactions.findByRecipientName(name);
 
     }
 
+    public TransactionPage queryTransactions(String accountId, TransactionQuery query) {
+        if (accountId == null || accountId.isEmpty())
+            throw new IllegalArgumentException("AccountId is empty or null");
+        try {
+            Integer.parseInt(accountId);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("AccountId is not a valid number");
+        }
+        if (query == null)
+            throw new IllegalArgumentException("Query is null");
+
+        var accountTransactions = allTransactions.get(accountId);
+        if ( accountTransactions == null) return new TransactionPage(new ArrayList<>(), null);
+        else
+        return accountTransactions.query(query);
+    }
+
     public List<Transaction> getlastTransactions(String accountId) {
         if (accountId == null || accountId.isEmpty())
             throw new IllegalArgumentException("AccountId is empty or null");
@@ -66,9 +146,10 @@ public class TransactionService {
             throw new IllegalArgumentException("AccountId is not a valid number");
         }
 
-        if ( lastTransactions.get(accountId) == null) return new ArrayList<>();
+        var accountLastTransactions = lastTransactions.get(accountId);
+        if ( accountLastTransactions == null) return new ArrayList<>();
         else
-        return lastTransactions.get(accountId);
+        return accountLastTransactions.list();
     }
 
     public void notifyTransaction(String accountId,Transaction transaction){
@@ -80,16 +161,266 @@ public class TransactionService {
             throw new IllegalArgumentException("AccountId is not a valid number");
         }
 
-         var transactionsList = allTransactions.get(accountId);
-         if ( transactionsList == null)
-             throw new RuntimeException("Cannot find all transactions for account id: "+accountId);
-        transactionsList.add(transaction);
+        var accountTransactions = allTransactions.get(accountId);
+        if ( accountTransactions == null)
+            throw new RuntimeException("Cannot find all transactions for account id: "+accountId);
+        var accountLastTransactions = lastTransactions.get(accountId);
+        if ( accountLastTransactions == null)
+            throw new RuntimeException("Cannot find last transactions for account id: "+accountId);
+
+        transaction = withResolvedTimestamp(transaction);
 
-        var lastTransactionsList = lastTransactions.get(accountId);
-        if ( lastTransactionsList == null)
+        if (journal == null) {
+            accountTransactions.add(transaction);
+            accountLastTransactions.add(transaction);
+            return;
+        }
+        var queue = journaled.computeIfAbsent(accountId, id -> new ConcurrentLinkedQueue<>());
+        try {
+            long sequence;
+            // queued in the order of the journal, so that a restart rebuilds the same history
+            synchronized (journal) {
+                sequence = journal.append(accountId, transaction);
+                queue.add(new Journaled(sequence, List.of(transaction)));
+            }
+            journal.awaitFlushed(sequence);
+        } catch (IOException e) {
+            dropUnflushed();
+            throw new RuntimeException("Cannot write the transaction to the journal for account id: "+accountId, e);
+        }
+        snapshotIfDue(applyJournaled(queue, accountTransactions, accountLastTransactions));
+    }
+
+    /**
+     * Validates and stores a batch of transactions of the account. The valid ones are written to the journal with a
+     * single flush and added to the indexes in a single acquisition of their locks; the invalid ones are reported in
+     * their item of the result and don't prevent the others from being stored.
+     */
+    BulkIngestionResult notifyTransactions(String accountId, List<TransactionBulkReader.Item> items){
+        if (accountId == null || accountId.isEmpty())
+            throw new IllegalArgumentException("AccountId is empty or null");
+        try {
+            Integer.parseInt(accountId);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("AccountId is not a valid number");
+        }
+
+        var accountTransactions = allTransactions.get(accountId);
+        if ( accountTransactions == null)
+            throw new RuntimeException("Cannot find all transactions for account id: "+accountId);
+        var accountLastTransactions = lastTransactions.get(accountId);
+        if ( accountLastTransactions == null)
             throw new RuntimeException("Cannot find last transactions for account id: "+accountId);
-        lastTransactionsList.add(transaction);
 
+        List<BulkIngestionResult.Item> results = new ArrayList<>(items.size());
+        List<Transaction> accepted = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            var transaction = items.get(i).transaction();
+            if (transaction != null)
+                transaction = withResolvedTimestamp(transaction);
+            var error = items.get(i).error() != null ? items.get(i).error() : validate(accountId, transaction);
+            var id = transaction != null ? transaction.id() : null;
+            if (error == null) {
+                accepted.add(transaction);
+                results.add(new BulkIngestionResult.Item(i, id, BulkIngestionResult.ACCEPTED, null));
+            } else {
+                results.add(new BulkIngestionResult.Item(i, id, BulkIngestionResult.REJECTED, error));
+            }
+        }
+        logger.info("Bulk notification for account id [{}]: {} transactions accepted, {} rejected", accountId, accepted.size(), items.size() - accepted.size());
+        if (accepted.isEmpty())
+            return new BulkIngestionResult(0, results.size(), results);
+
+        if (journal == null) {
+            accountTransactions.addAll(accepted);
+            accountLastTransactions.addAll(accepted);
+        } else {
+            var queue = journaled.computeIfAbsent(accountId, id -> new ConcurrentLinkedQueue<>());
+            try {
+                long sequence = 0;
+                synchronized (journal) {
+                    for (Transaction transaction : accepted) {
+                        sequence = journal.append(accountId, transaction);
+                    }
+                    queue.add(new Journaled(sequence, accepted));
+                }
+                journal.awaitFlushed(sequence);
+            } catch (IOException e) {
+                dropUnflushed();
+                throw new RuntimeException("Cannot write the transactions to the journal for account id: "+accountId, e);
+            }
+            snapshotIfDue(applyJournaled(queue, accountTransactions, accountLastTransactions));
+        }
+        return new BulkIngestionResult(accepted.size(), results.size() - accepted.size(), results);
+    }
 
+    @PreDestroy
+    public void close() {
+        if (journal == null) return;
+        snapshotLock.lock();
+        try {
+            writeSnapshot();
+        } finally {
+            snapshotLock.unlock();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.warn("Cannot close the transaction journal", e);
+        }
+    }
+
+    /**
+     * Applies the queued transactions of the account whose records have been flushed, in the order of the journal.
+     * Whoever drains the queue applies the transactions of the other writers too, so the ones of the caller, already
+     * flushed, are applied when it returns.
+     *
+     * @return the number of transactions applied
+     */
+    private int applyJournaled(Queue<Journaled> queue, AccountTransactions accountTransactions, LastTransactions accountLastTransactions) {
+        int applied = 0;
+        synchronized (queue) {
+            long flushed = journal.flushedSequence();
+            for (var next = queue.peek(); next != null && next.sequence() <= flushed; next = queue.peek()) {
+                queue.remove();
+                applied += next.transactions().size();
+                if (next.transactions().size() == 1) {
+                    accountTransactions.add(next.transactions().get(0));
+                    accountLastTransactions.add(next.transactions().get(0));
+                } else {
+                    accountTransactions.addAll(next.transactions());
+                    accountLastTransactions.addAll(next.transactions());
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Writes a snapshot once the snapshot interval of transactions has been applied since the last one. It's written by
+     * the writer reaching the interval, the others don't wait for it.
+     */
+    private void snapshotIfDue(int applied) {
+        if (appliedSinceSnapshot.addAndGet(applied) < snapshotInterval || !snapshotLock.tryLock()) return;
+        try {
+            // unless another writer has just written it
+            if (appliedSinceSnapshot.get() >= snapshotInterval) {
+                appliedSinceSnapshot.set(0);
+                writeSnapshot();
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Copies the indexes of the accounts one at a time, each one with the sequence of the journal it's up to. A failed
+     * write is only logged, the next restart replays more records.
+     */
+    private void writeSnapshot() {
+        List<TransactionSnapshot.Account> accounts = new ArrayList<>();
+        for (var accountId : allTransactions.keySet()) {
+            var accountTransactions = allTransactions.get(accountId);
+            var accountLastTransactions = lastTransactions.get(accountId);
+            var queue = journaled.computeIfAbsent(accountId, id -> new ConcurrentLinkedQueue<>());
+            synchronized (queue) {
+                applyJournaled(queue, accountTransactions, accountLastTransactions);
+                // the records of the account up to the flushed one were queued before they were flushed, so the indexes
+                // are up to it unless one of them is still queued
+                long flushed = journal.flushedSequence();
+                var head = queue.peek();
+                long sequence = head == null ? flushed : head.sequence() - head.transactions().size();
+                accounts.add(new TransactionSnapshot.Account(accountId, sequence, accountTransactions.all(), accountLastTransactions.list()));
+            }
+        }
+        try {
+            new TransactionSnapshot(accounts).write(journalPath);
+            logger.info("Snapshot of the transactions written in {}", journalPath);
+        } catch (IOException e) {
+            logger.warn("Cannot write the snapshot of the transactions in {}", journalPath, e);
+        }
+    }
+
+    /**
+     * Replaces the indexes of the accounts in the snapshot.
+     *
+     * @return the sequence of each account in the snapshot
+     */
+    private Map<String,Long> restore(TransactionSnapshot snapshot, int lastTransactionsCapacity) {
+        Map<String,Long> sequences = new HashMap<>();
+        for (var account : snapshot.accounts()) {
+            var accountTransactions = new AccountTransactions();
+            accountTransactions.addAll(account.transactions());
+            var accountLastTransactions = new LastTransactions(lastTransactionsCapacity);
+            accountLastTransactions.addAll(account.lastTransactions());
+            allTransactions.put(account.accountId(), accountTransactions);
+            lastTransactions.put(account.accountId(), accountLastTransactions);
+            sequences.put(account.accountId(), account.sequence());
+        }
+        return sequences;
+    }
+
+    /**
+     * Replaces a missing or invalid timestamp with the time of the notification, before the transaction is journaled,
+     * so that a restart orders it the same way.
+     */
+    private static Transaction withResolvedTimestamp(Transaction transaction) {
+        var timestamp = TransactionTimestamps.resolve(transaction.timestamp());
+        if (timestamp.equals(transaction.timestamp()))
+            return transaction;
+        return new Transaction(transaction.id(), transaction.description(), transaction.type(), transaction.recipientName(),
+                transaction.recipientBankReference(), transaction.accountId(), transaction.paymentType(), transaction.amount(), timestamp);
+    }
+
+    // stricter than a single notification, as batches come from jobs rather than from payments
+    private String validate(String accountId, Transaction transaction) {
+        if (transaction.id() == null || transaction.id().isBlank())
+            return "Transaction id is empty or null";
+        if (transaction.accountId() != null && !transaction.accountId().isEmpty() && !transaction.accountId().equals(accountId))
+            return "Transaction accountId " + transaction.accountId() + " doesn't match the account id " + accountId;
+        if (transaction.amount() == null)
+            return "Amount is null";
+        try {
+            new BigDecimal(transaction.amount().trim());
+        } catch (NumberFormatException e) {
+            return "Amount is not a valid number";
+        }
+        if (journal != null) {
+            try {
+                TransactionJournal.checkRecordSize(accountId, transaction);
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drops the queued transactions that won't be flushed once the journal is stopped, as their writers are told they
+     * failed. The ones already flushed are kept, to be applied by the writers waiting for them.
+     */
+    private void dropUnflushed() {
+        if (!journal.isStopped()) return;
+        long flushed = journal.flushedSequence();
+        journaled.values().forEach(queue -> queue.removeIf(entry -> entry.sequence() > flushed));
+    }
+
+    /**
+     * Transactions appended to the journal together.
+     *
+     * @param sequence the sequence of the last record, the records are contiguous
+     */
+    private record Journaled(long sequence, List<Transaction> transactions) {
+    }
+
+    private void replay(String accountId, Transaction transaction) {
+        var accountTransactions = allTransactions.get(accountId);
+        var accountLastTransactions = lastTransactions.get(accountId);
+        if (accountTransactions == null || accountLastTransactions == null) {
+            logger.warn("Cannot find account id [{}] of journaled transaction [{}], skipped", accountId, transaction.id());
+            return;
+        }
+        accountTransactions.add(transaction);
+        accountLastTransactions.add(transaction);
     }
 }
@@ -0,0 +1,141 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot of the indexes of the accounts, written next to the {@link TransactionJournal} so that a restart restores
+ * them and only replays the records after it.
+ * <p>
+ * The accounts are copied one at a time while the others keep being notified, so each one has the sequence of the
+ * journal its indexes are up to: the records of the account after it are replayed, and the journal is read from the
+ * lowest one. The journal keeps all its records, so an invalid snapshot is ignored and the whole journal replayed.
+ *
+ * @param accounts the accounts with their sequence, all their transactions in the order they were added and their
+ *                 last transactions
+ */
+record TransactionSnapshot(List<Account> accounts) {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TransactionSnapshot.class);
+
+    private static final int MAGIC = 0x54534e50;
+    private static final int VERSION = 1;
+    private static final String FILE = "transactions.snapshot";
+
+    record Account(String accountId, long sequence, List<Transaction> transactions, List<Transaction> lastTransactions) {
+    }
+
+    /**
+     * Returns the sequence the journal is read from, the lowest one of the accounts.
+     */
+    long sequence() {
+        return accounts.stream().mapToLong(Account::sequence).min().orElse(0);
+    }
+
+    /**
+     * Reads the snapshot in the directory of the journal.
+     *
+     * @return the snapshot, or null when there is none or it isn't valid
+     */
+    static TransactionSnapshot read(Path directory) throws IOException {
+        Path path = directory.resolve(FILE);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < 12 || ByteBuffer.wrap(bytes).getInt(bytes.length - 4) != crcOf(bytes, bytes.length - 4)) {
+            LOGGER.warn("Snapshot of the transactions in {} is not valid, ignored", directory);
+            return null;
+        }
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+        if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+            LOGGER.warn("Snapshot of the transactions in {} has another format, ignored", directory);
+            return null;
+        }
+        int accountCount = input.readInt();
+        List<Account> accounts = new ArrayList<>(accountCount);
+        for (int i = 0; i < accountCount; i++) {
+            accounts.add(new Account(input.readUTF(), input.readLong(), readTransactions(input), readTransactions(input)));
+        }
+        return new TransactionSnapshot(accounts);
+    }
+
+    /**
+     * Writes the snapshot in the directory of the journal, replacing the previous one once it's durable.
+     */
+    void write(Path directory) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeInt(accounts.size());
+        for (Account account : accounts) {
+            output.writeUTF(account.accountId());
+            output.writeLong(account.sequence());
+            writeTransactions(output, account.transactions());
+            writeTransactions(output, account.lastTransactions());
+        }
+        output.writeInt(crcOf(bytes.toByteArray(), bytes.size()));
+
+        Path temporary = directory.resolve(FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeTransactions(DataOutputStream output, List<Transaction> transactions) throws IOException {
+        output.writeInt(transactions.size());
+        for (Transaction transaction : transactions) {
+            for (String field : new String[]{transaction.id(), transaction.description(), transaction.type(),
+                    transaction.recipientName(), transaction.recipientBankReference(), transaction.accountId(),
+                    transaction.paymentType(), transaction.amount(), transaction.timestamp()}) {
+                output.writeBoolean(field != null);
+                if (field != null) {
+                    output.writeUTF(field);
+                }
+            }
+        }
+    }
+
+    private static List<Transaction> readTransactions(DataInputStream input) throws IOException {
+        int count = input.readInt();
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] fields = new String[9];
+            for (int j = 0; j < fields.length; j++) {
+                fields[j] = input.readBoolean() ? input.readUTF() : null;
+            }
+            transactions.add(new Transaction(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5],
+                    fields[6], fields[7], fields[8]));
+        }
+        return transactions;
+    }
+
+    private static int crcOf(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return (int) crc.getValue();
+    }
+}
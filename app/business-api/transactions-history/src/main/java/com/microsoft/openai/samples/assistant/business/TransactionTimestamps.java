@@ -0,0 +1,97 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.SignStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Parses the timestamps of the transactions, which are written without padding, e.g. 2024-4-01T12:00:00Z.
+ */
+final class TransactionTimestamps {
+
+    private static final DateTimeFormatter DATE_FORMATTER = new DateTimeFormatterBuilder()
+            .appendValue(ChronoField.YEAR, 4)
+            .appendLiteral('-')
+            .appendValue(ChronoField.MONTH_OF_YEAR, 1, 2, SignStyle.NOT_NEGATIVE)
+            .appendLiteral('-')
+            .appendValue(ChronoField.DAY_OF_MONTH, 1, 2, SignStyle.NOT_NEGATIVE)
+            .toFormatter();
+
+    private static final DateTimeFormatter TIMESTAMP_FORMATTER = new DateTimeFormatterBuilder()
+            .append(DATE_FORMATTER)
+            .appendLiteral('T')
+            .append(DateTimeFormatter.ISO_LOCAL_TIME)
+            .appendOffsetId()
+            .toFormatter();
+
+    private TransactionTimestamps() {
+    }
+
+    /**
+     * Parses the timestamp of a transaction, with or without padding. The notified transactions have their timestamp
+     * resolved before they are journaled, see {@link #resolve(String)}, so only the records journaled by earlier
+     * versions can miss it: they are read as the epoch, so that the order doesn't depend on when they are replayed.
+     */
+    static long epochMillisOf(String timestamp) {
+        if (timestamp != null) {
+            try {
+                return OffsetDateTime.parse(timestamp.trim(), TIMESTAMP_FORMATTER).toInstant().toEpochMilli();
+            } catch (DateTimeException e) {
+                // read as the epoch
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the timestamp of a notified transaction when it can be parsed, otherwise the current time, as the
+     * transaction has just been made.
+     */
+    static String resolve(String timestamp) {
+        return isValid(timestamp) ? timestamp : Instant.now().truncatedTo(ChronoUnit.MILLIS).toString();
+    }
+
+    /**
+     * Returns whether the timestamp of a transaction can be parsed, with or without padding.
+     */
+    static boolean isValid(String timestamp) {
+        if (timestamp == null) {
+            return false;
+        }
+        try {
+            OffsetDateTime.parse(timestamp.trim(), TIMESTAMP_FORMATTER);
+            return true;
+        } catch (DateTimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses a bound of a date range, either a timestamp or a date. A date starts the range at the beginning of the
+     * day (UTC) and ends it at the end of the day, so that both bounds are inclusive.
+     *
+     * @param end whether the value is the end of the range
+     * @return the epoch millis of the bound, inclusive
+     */
+    static long parseBound(String value, boolean end) {
+        String text = value.trim();
+        try {
+            if (text.indexOf('T') < 0) {
+                LocalDate date = LocalDate.parse(text, DATE_FORMATTER);
+                return end
+                        ? date.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli() - 1
+                        : date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+            }
+            return OffsetDateTime.parse(text, TIMESTAMP_FORMATTER).toInstant().toEpochMilli();
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException(value + " is not a valid date or timestamp");
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.microsoft.openai.samples.assistant.business.mcp.server;
 
 import com.microsoft.openai.samples.assistant.business.Transaction;
+import com.microsoft.openai.samples.assistant.business.TransactionPage;
+import com.microsoft.openai.samples.assistant.business.TransactionQuery;
 import com.microsoft.openai.samples.assistant.business.TransactionService;
 import org.springframework.stereotype.Service;
 import org.springframework.ai.tool.annotation.Tool;
@@ -29,4 +31,19 @@ public class TransactionMCPService {
             @ToolParam(description = "The account ID") String accountId) {
         return transactionService.getlastTransactions(accountId);
     }
+
+    @Tool(description = "Query the transactions of an account by date range, amount range and payment type, sorted by date. Results are paginated: when nextCursor is returned, pass it as cursor to get the next page")
+    public TransactionPage queryTransactions(
+            @ToolParam(description = "The account ID") String accountId,
+            @ToolParam(description = "Start of the date range, inclusive, as a date (2024-04-01) or a timestamp", required = false) String fromDate,
+            @ToolParam(description = "End of the date range, inclusive, as a date (2024-04-30) or a timestamp", required = false) String toDate,
+            @ToolParam(description = "The min amount, inclusive", required = false) String minAmount,
+            @ToolParam(description = "The max amount, inclusive", required = false) String maxAmount,
+            @ToolParam(description = "The payment type: BankTransfer, CreditCard, DirectDebit, Transfer", required = false) String paymentType,
+            @ToolParam(description = "Sort order by date: asc or desc. Default desc, most recent first", required = false) String sortOrder,
+            @ToolParam(description = "Max number of transactions returned, from 1 to 100. Default 20", required = false) Integer limit,
+            @ToolParam(description = "The nextCursor returned by the previous page", required = false) String cursor) {
+        var query = TransactionQuery.of(fromDate, toDate, minAmount, maxAmount, paymentType, sortOrder, limit, cursor);
+        return transactionService.queryTransactions(accountId, query);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionBulkReaderTest {
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void readsAJsonArray() throws IOException {
+        var items = TransactionBulkReader.readJsonArray(body("""
+                [{"id": "1", "amount": "100.00", "timestamp": "2024-4-01T12:00:00Z"},
+                 {"id": "2", "amount": "200.00"}]
+                """), 10);
+
+        assertThat(items).hasSize(2);
+        assertThat(items.get(0).transaction().id()).isEqualTo("1");
+        assertThat(items.get(0).transaction().timestamp()).isEqualTo("2024-4-01T12:00:00Z");
+        assertThat(items.get(1).transaction().amount()).isEqualTo("200.00");
+        assertThat(items).allMatch(item -> item.error() == null);
+    }
+
+    @Test
+    void readsAnNdjsonStreamSkippingBlankLines() throws IOException {
+        var items = TransactionBulkReader.readNdjson(body("""
+                {"id": "1", "amount": "100.00"}
+
+                {"id": "2", "amount": "200.00"}
+                """), 10);
+
+        assertThat(items).extracting(item -> item.transaction().id()).containsExactly("1", "2");
+    }
+
+    @Test
+    void transactionThatCannotBeMappedIsReportedInItsItem() throws IOException {
+        var items = TransactionBulkReader.readJsonArray(body("""
+                [{"id": "1"}, "not an object", {"id": {"nested": true}}, {"id": "4"}]
+                """), 10);
+
+        assertThat(items).hasSize(4);
+        assertThat(items.get(0).error()).isNull();
+        assertThat(items.get(1).transaction()).isNull();
+        assertThat(items.get(1).error()).isEqualTo("Transaction is not a json object");
+        assertThat(items.get(2).transaction()).isNull();
+        assertThat(items.get(2).error()).startsWith("Transaction is not valid");
+        assertThat(items.get(3).transaction().id()).isEqualTo("4");
+
+        var lines = TransactionBulkReader.readNdjson(body("""
+                {"id": "1"}
+                [1, 2]
+                """), 10);
+        assertThat(lines.get(1).error()).isEqualTo("Transaction is not a json object");
+    }
+
+    @Test
+    void malformedBodyFailsTheRequest() {
+        assertThatThrownBy(() -> TransactionBulkReader.readJsonArray(body("{\"id\": \"1\"}"), 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("not a json array");
+        assertThatThrownBy(() -> TransactionBulkReader.readJsonArray(body("[{\"id\": \"1\"}"), 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TransactionBulkReader.readNdjson(body("{\"id\": \"1\"}\n{\"id\":"), 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Line 2");
+    }
+
+    @Test
+    void moreThanTheMaxItemsFailsTheRequest() throws IOException {
+        assertThat(TransactionBulkReader.readJsonArray(body("[{\"id\": \"1\"}, {\"id\": \"2\"}]"), 2)).hasSize(2);
+
+        assertThatThrownBy(() -> TransactionBulkReader.readJsonArray(body("[{\"id\": \"1\"}, {\"id\": \"2\"}, {\"id\": \"3\"}]"), 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("more than 2");
+        assertThatThrownBy(() -> TransactionBulkReader.readNdjson(body("{\"id\": \"1\"}\n{\"id\": \"2\"}\n{\"id\": \"3\"}\n"), 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("more than 2");
+    }
+}
@@ -0,0 +1,45 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionControllerTest {
+
+    private final TransactionService transactionService = new TransactionService(10, false, "", 16, 100, 1000);
+    private final TransactionController controller = new TransactionController(transactionService, 2);
+
+    private static InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void bulkTransactionsWithoutAValidTimestampAreAccepted() throws IOException {
+        var result = controller.notifyTransactions("1010", body("""
+                [{"id": "n1", "recipientName": "bulk", "amount": "10.00"},
+                 {"id": "n2", "recipientName": "bulk", "amount": "20.00", "timestamp": "yesterday"}]
+                """));
+
+        assertThat(result.accepted()).isEqualTo(2);
+        assertThat(transactionService.getTransactionsByRecipientName("1010", "bulk"))
+                .allMatch(transaction -> TransactionTimestamps.isValid(transaction.timestamp()));
+    }
+
+    @Test
+    void bodyThatCannotBeReadIsABadRequest() {
+        assertThatThrownBy(() -> controller.notifyTransactions("1010", body("{\"id\": \"1\"}")))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+        assertThatThrownBy(() -> controller.notifyTransactionStream("1010", body("{\"id\": \"1\"}\n{\"id\": \"2\"}\n{\"id\": \"3\"}\n")))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+    }
+}
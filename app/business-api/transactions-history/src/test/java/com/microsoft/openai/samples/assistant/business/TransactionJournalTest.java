@@ -0,0 +1,179 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<Transaction> replayed = new ArrayList<>();
+    private final List<Long> replayedSequences = new ArrayList<>();
+
+    private static Transaction transaction(String id) {
+        return new Transaction(id, "Payment of the bill " + id, "outcome", "acme", "0001", "1010", "BankTransfer",
+                "100.00", "2024-04-01T12:00:00Z");
+    }
+
+    private TransactionJournal open(int recordsPerSegment, int checkpointInterval) throws IOException {
+        return open(recordsPerSegment, checkpointInterval, 0);
+    }
+
+    private TransactionJournal open(int recordsPerSegment, int checkpointInterval, long fromSequence) throws IOException {
+        replayed.clear();
+        replayedSequences.clear();
+        return TransactionJournal.open(directory, recordsPerSegment, checkpointInterval, fromSequence,
+                (sequence, accountId, transaction) -> {
+                    replayedSequences.add(sequence);
+                    replayed.add(transaction);
+                });
+    }
+
+    private void append(TransactionJournal journal, String... ids) throws IOException {
+        long sequence = 0;
+        for (String id : ids) {
+            sequence = journal.append("1010", transaction(id));
+        }
+        journal.awaitFlushed(sequence);
+    }
+
+    // flips a byte of the account id of the record, so that its crc no longer matches
+    private void corrupt(long segmentNumber, int slot) throws IOException {
+        Path segment = directory.resolve("segment-%08d.journal".formatted(segmentNumber));
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long offset = TransactionJournal.SEGMENT_HEADER_SIZE + (long) slot * TransactionJournal.RECORD_SIZE + 10;
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0xff);
+        }
+    }
+
+    private List<String> replayedIds() {
+        return replayed.stream().map(Transaction::id).toList();
+    }
+
+    @Test
+    void flushedRecordsAreReplayedAfterReopening() throws IOException {
+        try (var journal = open(16, 100)) {
+            append(journal, "1", "2", "3");
+            assertThat(journal.flushedSequence()).isEqualTo(3);
+        }
+
+        try (var journal = open(16, 100)) {
+            assertThat(replayed).containsExactly(transaction("1"), transaction("2"), transaction("3"));
+            assertThat(journal.append("1010", transaction("4"))).isEqualTo(4);
+        }
+    }
+
+    @Test
+    void tornLastRecordEndsTheJournal() throws IOException {
+        try (var journal = open(16, 100)) {
+            append(journal, "1", "2", "3");
+        }
+        // a crash before the checkpoint of the last records, with the last one torn
+        Files.delete(directory.resolve("journal.checkpoint"));
+        corrupt(0, 2);
+
+        try (var journal = open(16, 100)) {
+            assertThat(replayedIds()).containsExactly("1", "2");
+            // the torn record is overwritten by the next append
+            assertThat(journal.append("1010", transaction("4"))).isEqualTo(3);
+            journal.awaitFlushed(3);
+        }
+
+        try (var ignored = open(16, 100)) {
+            assertThat(replayedIds()).containsExactly("1", "2", "4");
+        }
+    }
+
+    @Test
+    void corruptedRecordBeforeTheCheckpointIsReported() throws IOException {
+        try (var journal = open(16, 100)) {
+            append(journal, "1", "2", "3");
+        }
+        corrupt(0, 1);
+
+        assertThatThrownBy(() -> open(16, 100))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("corrupted");
+    }
+
+    @Test
+    void appendsRollOverFullSegments() throws IOException {
+        try (var journal = open(2, 100)) {
+            append(journal, "1", "2", "3");
+            append(journal, "4", "5");
+        }
+        assertThat(directory.resolve("segment-00000002.journal")).exists();
+
+        try (var journal = open(2, 100)) {
+            assertThat(replayedIds()).containsExactly("1", "2", "3", "4", "5");
+            assertThat(journal.append("1010", transaction("6"))).isEqualTo(6);
+        }
+    }
+
+    @Test
+    void replayStartsAfterTheSnapshot() throws IOException {
+        try (var journal = open(2, 100)) {
+            append(journal, "1", "2", "3", "4", "5");
+        }
+        // the records of the snapshot aren't read, even corrupted
+        corrupt(0, 1);
+
+        try (var journal = open(2, 100, 3)) {
+            assertThat(replayedIds()).containsExactly("4", "5");
+            assertThat(replayedSequences).containsExactly(4L, 5L);
+            assertThat(journal.append("1010", transaction("6"))).isEqualTo(6);
+        }
+    }
+
+    @Test
+    void snapshotAfterTheEndOfTheJournalIsRejected() throws IOException {
+        try (var journal = open(2, 100)) {
+            append(journal, "1", "2", "3");
+        }
+
+        assertThatThrownBy(() -> open(2, 100, 5))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("snapshot");
+    }
+
+    @Test
+    void anotherNumberOfRecordsPerSegmentIsRejected() throws IOException {
+        try (var journal = open(2, 100)) {
+            append(journal, "1", "2", "3");
+        }
+
+        assertThatThrownBy(() -> open(4, 100))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("2 records");
+
+        // the segments are left as they were
+        try (var ignored = open(2, 100)) {
+            assertThat(replayedIds()).containsExactly("1", "2", "3");
+        }
+    }
+
+    @Test
+    void directoryIsLockedWhileTheJournalIsOpen() throws IOException {
+        try (var ignored = open(16, 100)) {
+            assertThatThrownBy(() -> open(16, 100))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("locked");
+        }
+
+        open(16, 100).close();
+    }
+}
@@ -0,0 +1,83 @@
+package com.microsoft.openai.samples.assistant.business;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransactionServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private TransactionService open() {
+        return new TransactionService(10, true, directory.toString(), 16, 100, 2);
+    }
+
+    private static void notify(TransactionService service, String id, String timestamp) {
+        service.notifyTransaction("1010", new Transaction(id, "Payment of the bill " + id, "outcome", "acme", "0001",
+                "1010", "BankTransfer", "100.00", timestamp));
+    }
+
+    private static List<String> allIds(TransactionService service) {
+        return service.queryTransactions("1010", TransactionQuery.of(null, null, null, null, null, "DESC", 100, null))
+                .transactions().stream().map(Transaction::id).toList();
+    }
+
+    private static List<String> lastIds(TransactionService service) {
+        return service.getlastTransactions("1010").stream().map(Transaction::id).toList();
+    }
+
+    @Test
+    void restartRestoresTheSnapshotAndReplaysTheRecordsAfterIt() throws IOException {
+        var service = open();
+        notify(service, "n1", "2025-01-01T12:00:00Z");
+        notify(service, "n2", "2025-01-02T12:00:00Z");
+        // written once the snapshot interval of transactions has been applied
+        Path snapshot = directory.resolve("transactions.snapshot");
+        assertThat(snapshot).exists();
+        Path earlier = Files.copy(snapshot, directory.resolve("earlier.snapshot"));
+        notify(service, "n3", "2025-01-03T12:00:00Z");
+        var all = allIds(service);
+        var last = lastIds(service);
+        service.close();
+
+        // a crash after the first snapshot: the last transaction is only in the journal
+        Files.move(earlier, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        var restarted = open();
+        assertThat(allIds(restarted)).isEqualTo(all).contains("n1", "n2", "n3");
+        assertThat(lastIds(restarted)).isEqualTo(last);
+        restarted.close();
+    }
+
+    @Test
+    void invalidSnapshotReplaysTheWholeJournal() throws IOException {
+        var service = open();
+        notify(service, "n1", "2025-01-01T12:00:00Z");
+        notify(service, "n2", "2025-01-02T12:00:00Z");
+        notify(service, "n3", "2025-01-03T12:00:00Z");
+        var all = allIds(service);
+        var last = lastIds(service);
+        service.close();
+
+        Files.write(directory.resolve("transactions.snapshot"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        var restarted = open();
+        assertThat(allIds(restarted)).isEqualTo(all);
+        assertThat(lastIds(restarted)).isEqualTo(last);
+        restarted.close();
+    }
+
+    @Test
+    void journalRequiresADirectory() {
+        assertThatThrownBy(() -> new TransactionService(10, true, "", 16, 100, 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("transactions.journal.directory");
+    }
+}
@@ -1,6 +1,7 @@
 // Copyright (c) Microsoft. All rights reserved.
 package com.microsoft.openai.samples.assistant;
 
+import com.microsoft.openai.samples.assistant.config.HttpClientPoolInitializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
@@ -17,6 +18,8 @@ public class CopilotApplication {
         LOG.info(
                 "Application profile from system property is [{}]",
                 System.getProperty("spring.profiles.active"));
-        new SpringApplication(CopilotApplication.class).run(args);
+        var application = new SpringApplication(CopilotApplication.class);
+        application.addListeners(new HttpClientPoolInitializer());
+        application.run(args);
     }
 }
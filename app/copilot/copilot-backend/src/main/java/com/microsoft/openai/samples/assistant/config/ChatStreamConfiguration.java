@@ -0,0 +1,38 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.openai.samples.assistant.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor running the agents of the streamed chat responses. A stream holds its thread for the whole agent turn, so
+ * the pool is sized for the expected concurrent streams and its queue is bounded: when both are full the stream is
+ * rejected with a 503 rather than waiting for minutes behind the others.
+ */
+@Configuration
+public class ChatStreamConfiguration {
+
+    @Value("${chat.stream.executor.core-size:16}")
+    private int coreSize;
+
+    @Value("${chat.stream.executor.max-size:64}")
+    private int maxSize;
+
+    @Value("${chat.stream.executor.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Bean
+    public ThreadPoolTaskExecutor chatStreamExecutor() {
+        var executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("chat-stream-");
+        // a stream can't be completed once the application context is closed
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+}
@@ -0,0 +1,27 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.openai.samples.assistant.config;
+
+import dev.langchain4j.openapi.PooledHttpClients;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Configures the JDK connection pool from the http.client.pool properties. The pool is shared by all the JDK http
+ * clients of the JVM and its settings are read when the first client is created, so they are applied as soon as the
+ * environment is ready, before any bean is created. The properties that aren't set keep the jdk.httpclient system
+ * properties given on the command line, or the defaults.
+ */
+public class HttpClientPoolInitializer implements ApplicationListener<ApplicationEnvironmentPreparedEvent> {
+
+    @Override
+    public void onApplicationEvent(ApplicationEnvironmentPreparedEvent event) {
+        Environment environment = event.getEnvironment();
+        Long keepAliveSeconds = environment.getProperty("http.client.pool.keep-alive-seconds", Long.class);
+        PooledHttpClients.configurePool(
+                keepAliveSeconds == null ? null : Duration.ofSeconds(keepAliveSeconds),
+                environment.getProperty("http.client.pool.max-idle-connections", Integer.class));
+    }
+}
@@ -1,15 +1,18 @@
 // Copyright (c) Microsoft. All rights reserved.
 package com.microsoft.openai.samples.assistant.config;
 
-import com.microsoft.langchain4j.agent.AbstractReActAgent;
+import com.microsoft.langchain4j.agent.ToolResultCache;
+import com.microsoft.langchain4j.agent.ToolResultShaper;
+import com.microsoft.langchain4j.agent.UserBoundAgentCache;
+import com.microsoft.langchain4j.agent.mcp.MCPClientRegistry;
+import com.microsoft.langchain4j.agent.routing.IntentRouter;
 import com.microsoft.openai.samples.assistant.invoice.DocumentIntelligenceInvoiceScanHelper;
 import com.microsoft.openai.samples.assistant.langchain4j.agent.SupervisorRoutingAgent;
-import com.microsoft.openai.samples.assistant.langgraph4j.SupervisorAgent;
 import com.microsoft.openai.samples.assistant.langchain4j.agent.mcp.AccountMCPAgent;
 import com.microsoft.openai.samples.assistant.langchain4j.agent.mcp.PaymentMCPAgent;
 import com.microsoft.openai.samples.assistant.langchain4j.agent.mcp.TransactionHistoryMCPAgent;
-import com.microsoft.openai.samples.assistant.security.LoggedUserService;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -17,6 +20,7 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
 import java.util.List;
 
 @Configuration
@@ -25,39 +29,76 @@ public class Langchain4JAgentsConfiguration {
     @Value("${transactions.api.url}") String transactionsMCPServerUrl;
     @Value("${accounts.api.url}") String accountsMCPServerUrl;
     @Value("${payments.api.url}") String paymentsMCPServerUrl;
+    @Value("${agent.user-cache.max-size:10000}") int userCacheMaxSize;
+    @Value("${agent.user-cache.ttl-minutes:30}") long userCacheTtlMinutes;
+    @Value("${agent.memory.max-tokens:12000}") int memoryMaxTokens;
 
     private static final Logger logger = LoggerFactory.getLogger(Langchain4JAgentsConfiguration.class);
     private final ChatLanguageModel chatLanguageModel;
-    private final LoggedUserService loggedUserService;
+    private final StreamingChatLanguageModel streamingChatLanguageModel;
     private final DocumentIntelligenceInvoiceScanHelper documentIntelligenceInvoiceScanHelper;
+    private final MCPClientRegistry mcpClientRegistry;
+    private final ToolResultCache toolResultCache;
+    private final ToolResultShaper toolResultShaper;
 
-    public Langchain4JAgentsConfiguration(ChatLanguageModel chatLanguageModel, LoggedUserService loggedUserService, DocumentIntelligenceInvoiceScanHelper documentIntelligenceInvoiceScanHelper) {
+    public Langchain4JAgentsConfiguration(ChatLanguageModel chatLanguageModel, StreamingChatLanguageModel streamingChatLanguageModel, DocumentIntelligenceInvoiceScanHelper documentIntelligenceInvoiceScanHelper, MCPClientRegistry mcpClientRegistry, ToolResultCache toolResultCache, ToolResultShaper toolResultShaper) {
         this.chatLanguageModel = chatLanguageModel;
-        this.loggedUserService = loggedUserService;
+        this.streamingChatLanguageModel = streamingChatLanguageModel;
         this.documentIntelligenceInvoiceScanHelper = documentIntelligenceInvoiceScanHelper;
+        this.mcpClientRegistry = mcpClientRegistry;
+        this.toolResultCache = toolResultCache;
+        this.toolResultShaper = toolResultShaper;
     }
+
+    // The agents below are shared by all the users: they own the MCP connections but are not bound to any logged user.
     @Bean
     public AccountMCPAgent accountMCPAgent() {
-        return new AccountMCPAgent(chatLanguageModel, loggedUserService.getLoggedUser().username(), accountsMCPServerUrl);
+        var agent = new AccountMCPAgent(chatLanguageModel, mcpClientRegistry, accountsMCPServerUrl);
+        agent.setStreamingChatModel(streamingChatLanguageModel);
+        agent.setToolResultCache(toolResultCache);
+        agent.setToolResultShaper(toolResultShaper);
+        agent.setMemoryMaxTokens(memoryMaxTokens);
+        return agent;
     }
 
     @Bean
     public TransactionHistoryMCPAgent transactionHistoryMCPAgent() {
-        return new TransactionHistoryMCPAgent(chatLanguageModel, loggedUserService.getLoggedUser().username(), transactionsMCPServerUrl,accountsMCPServerUrl);
+        var agent = new TransactionHistoryMCPAgent(chatLanguageModel, mcpClientRegistry, transactionsMCPServerUrl,accountsMCPServerUrl);
+        agent.setStreamingChatModel(streamingChatLanguageModel);
+        agent.setToolResultCache(toolResultCache);
+        agent.setToolResultShaper(toolResultShaper);
+        agent.setMemoryMaxTokens(memoryMaxTokens);
+        return agent;
     }
 
     @Bean
     public PaymentMCPAgent paymentMCPAgent() {
-        return new PaymentMCPAgent(chatLanguageModel,documentIntelligenceInvoiceScanHelper, loggedUserService.getLoggedUser().username(),transactionsMCPServerUrl,accountsMCPServerUrl, paymentsMCPServerUrl);
+        var agent = new PaymentMCPAgent(chatLanguageModel,documentIntelligenceInvoiceScanHelper, mcpClientRegistry,transactionsMCPServerUrl,accountsMCPServerUrl, paymentsMCPServerUrl);
+        agent.setStreamingChatModel(streamingChatLanguageModel);
+        agent.setToolResultCache(toolResultCache);
+        agent.setToolResultShaper(toolResultShaper);
+        agent.setMemoryMaxTokens(memoryMaxTokens);
+        return agent;
     }
 
     @Bean
-    public SupervisorRoutingAgent supervisorAgent(ChatLanguageModel chatLanguageModel){
+    public UserBoundAgentCache<SupervisorRoutingAgent> supervisorAgentCache(ChatLanguageModel chatLanguageModel, IntentRouter intentRouter){
        logger.info("Activating plain langchain4j multi-agent strategy!");
-        return new SupervisorRoutingAgent(chatLanguageModel,
-                List.of(accountMCPAgent(),
-                        transactionHistoryMCPAgent(),
-                        paymentMCPAgent()));
+        var accountAgent = accountMCPAgent();
+        var transactionHistoryAgent = transactionHistoryMCPAgent();
+        var paymentAgent = paymentMCPAgent();
+
+        return new UserBoundAgentCache<>(
+                loggedUserName -> {
+                    var supervisorAgent = new SupervisorRoutingAgent(chatLanguageModel,
+                            List.of(accountAgent.forUser(loggedUserName),
+                                    transactionHistoryAgent.forUser(loggedUserName),
+                                    paymentAgent.forUser(loggedUserName)));
+                    supervisorAgent.setIntentRouter(intentRouter);
+                    return supervisorAgent;
+                },
+                userCacheMaxSize,
+                Duration.ofMinutes(userCacheTtlMinutes));
 
     }
 
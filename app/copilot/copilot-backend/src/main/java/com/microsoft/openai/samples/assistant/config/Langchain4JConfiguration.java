@@ -2,20 +2,86 @@
 package com.microsoft.openai.samples.assistant.config;
 
 
+import com.azure.ai.openai.OpenAIAsyncClient;
 import com.azure.ai.openai.OpenAIClient;
 
+import com.microsoft.langchain4j.agent.ToolResultCache;
+import com.microsoft.langchain4j.agent.ToolResultShaper;
+import com.microsoft.langchain4j.agent.mcp.MCPClientRegistry;
+import com.microsoft.langchain4j.agent.routing.IntentRouter;
+import com.microsoft.langchain4j.agent.routing.LocalIntentRouter;
+
 import dev.langchain4j.model.azure.AzureOpenAiChatModel;
+import dev.langchain4j.model.azure.AzureOpenAiStreamingChatModel;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 public class Langchain4JConfiguration {
 
     @Value("${openai.chatgpt.deployment}")
     private String gptChatDeploymentModelId;
 
+    @Value("${agent.intent-router.enabled:true}")
+    private boolean intentRouterEnabled;
+
+    @Value("${agent.intent-router.training-resource:banking-intents.tsv}")
+    private String intentRouterTrainingResource;
+
+    @Value("${agent.intent-router.min-confidence:0.9}")
+    private double intentRouterMinConfidence;
+
+    @Value("${mcp.client.sse-timeout-minutes:180}")
+    private long mcpSseTimeoutMinutes;
+
+    @Value("${mcp.client.tool-execution-timeout-seconds:60}")
+    private long mcpToolExecutionTimeoutSeconds;
+
+    @Value("${mcp.client.health-check-interval-seconds:60}")
+    private long mcpHealthCheckIntervalSeconds;
+
+    @Value("${mcp.client.health-check-timeout-seconds:10}")
+    private long mcpHealthCheckTimeoutSeconds;
+
+    @Value("${mcp.client.log-traffic:true}")
+    private boolean mcpLogTraffic;
+
+    @Value("${agent.tool-cache.enabled:true}")
+    private boolean toolCacheEnabled;
+
+    @Value("${agent.tool-cache.max-size:10000}")
+    private int toolCacheMaxSize;
+
+    //ttl of the read-only tools whose results are cached. User accounts and beneficiaries change rarely, balances more often
+    @Value("#{${agent.tool-cache.ttl-seconds:{getAccountsByUserName:600,getRegisteredBeneficiary:300,getAccountDetails:60,getPaymentMethodDetails:60}}}")
+    private Map<String, Long> toolCacheTtlSeconds;
+
+    //tools changing the data of the user: when they succeed the cached results of the user are dropped
+    @Value("${agent.tool-cache.invalidating-tools:processPayment,submitPayment}")
+    private List<String> toolCacheInvalidatingTools;
+
+    @Value("${agent.tool-result.max-characters:8000}")
+    private int toolResultMaxCharacters;
+
+    @Value("${agent.tool-result.transactions.max-rows:20}")
+    private int transactionsMaxRows;
+
+    //fields of the transactions sent to the model. The account id is already known by the agent
+    @Value("${agent.tool-result.transactions.fields:id,description,type,recipientName,recipientBankReference,paymentType,amount,timestamp}")
+    private List<String> transactionsFields;
+
+    //when set, the MCP tools listed at startup are stored here and reused at next startup
+    @Value("${mcp.client.tool-snapshot-dir:}")
+    private String mcpToolSnapshotDir;
+
     @Bean
     public ChatLanguageModel chatLanguageModel(OpenAIClient azureOpenAICLient) {
 
@@ -27,5 +93,68 @@ public class Langchain4JConfiguration {
                 .build();
     }
 
+    @Bean
+    public StreamingChatLanguageModel streamingChatLanguageModel(OpenAIAsyncClient azureOpenAIAsyncClient) {
+
+        return AzureOpenAiStreamingChatModel.builder()
+                .openAIAsyncClient(azureOpenAIAsyncClient)
+                .deploymentName(gptChatDeploymentModelId)
+                .temperature(0.3)
+                .logRequestsAndResponses(true)
+                .build();
+    }
+
+    //resolves the clear intents locally, so that the supervisors call the model only for the ambiguous ones
+    @Bean
+    public IntentRouter intentRouter() {
+        if (!intentRouterEnabled) {
+            return IntentRouter.NONE;
+        }
+
+        return LocalIntentRouter.builder()
+                .withTrainingResource(intentRouterTrainingResource)
+                .withMinConfidence(intentRouterMinConfidence)
+                .build();
+    }
+
+    //one connection per MCP server, shared by all the agents
+    @Bean
+    public MCPClientRegistry mcpClientRegistry() {
+
+        return MCPClientRegistry.builder()
+                .withSseTimeout(Duration.ofMinutes(mcpSseTimeoutMinutes))
+                .withToolExecutionTimeout(Duration.ofSeconds(mcpToolExecutionTimeoutSeconds))
+                .withHealthCheckInterval(Duration.ofSeconds(mcpHealthCheckIntervalSeconds))
+                .withHealthCheckTimeout(Duration.ofSeconds(mcpHealthCheckTimeoutSeconds))
+                .withLogTraffic(mcpLogTraffic)
+                .withToolSnapshotDir(mcpToolSnapshotDir.isBlank() ? null : Path.of(mcpToolSnapshotDir))
+                .build();
+    }
+
+    //results of the read-only tools, shared by all the agents so that a payment invalidates the lookups of the others.
+    //When disabled no tool is cached
+    @Bean
+    public ToolResultCache toolResultCache() {
+        var builder = ToolResultCache.builder()
+                .withMaxSize(toolCacheMaxSize)
+                .withErrorResultPrefix(MCPClientRegistry.TOOL_EXECUTION_TIMEOUT_MESSAGE)
+                .withErrorResultPrefix("There was an error executing the tool");
+        if (toolCacheEnabled) {
+            toolCacheTtlSeconds.forEach((toolName, ttlSeconds) -> builder.withToolTtl(toolName, Duration.ofSeconds(ttlSeconds)));
+            toolCacheInvalidatingTools.forEach(builder::withInvalidatingTool);
+        }
+        return builder.build();
+    }
+
+    //transaction lists are the largest tool results: they are projected, limited and sent as compact tables
+    @Bean
+    public ToolResultShaper toolResultShaper() {
+        var transactionsShape = new ToolResultShaper.ToolResultShape(transactionsFields, transactionsMaxRows, true);
+        return ToolResultShaper.builder()
+                .withMaxCharacters(toolResultMaxCharacters)
+                .withToolShape("getTransactionsByRecipientName", transactionsShape)
+                .withToolShape("getLastTransactions", transactionsShape)
+                .build();
+    }
 
 }
@@ -1,24 +1,35 @@
 // Copyright (c) Microsoft. All rights reserved.
 package com.microsoft.openai.samples.assistant.config;
 
+import com.microsoft.langchain4j.agent.ToolResultCache;
+import com.microsoft.langchain4j.agent.ToolResultShaper;
+import com.microsoft.langchain4j.agent.UserBoundAgentCache;
+import com.microsoft.langchain4j.agent.mcp.MCPClientRegistry;
+import com.microsoft.langchain4j.agent.routing.IntentRouter;
+import com.microsoft.openai.samples.assistant.langgraph4j.ActiveAgentRoute;
+import com.microsoft.openai.samples.assistant.langgraph4j.AgentEventListenerRegistry;
 import com.microsoft.openai.samples.assistant.langgraph4j.AgentNode;
 import com.microsoft.openai.samples.assistant.langgraph4j.AgentWorkflowState;
 import com.microsoft.openai.samples.assistant.langgraph4j.Intent;
 import com.microsoft.openai.samples.assistant.langgraph4j.SupervisorAgentNode;
+import com.microsoft.openai.samples.assistant.langgraph4j.checkpoint.BoundedMemorySaver;
+import com.microsoft.openai.samples.assistant.langgraph4j.checkpoint.FileCheckpointSaver;
+import com.microsoft.openai.samples.assistant.langgraph4j.serializer.BinaryStateSerializer;
 import com.microsoft.openai.samples.assistant.invoice.DocumentIntelligenceInvoiceScanHelper;
 import com.microsoft.openai.samples.assistant.langgraph4j.SupervisorAgent;
 import com.microsoft.openai.samples.assistant.langchain4j.agent.mcp.AccountMCPAgent;
 import com.microsoft.openai.samples.assistant.langchain4j.agent.mcp.PaymentMCPAgent;
 import com.microsoft.openai.samples.assistant.langchain4j.agent.mcp.TransactionHistoryMCPAgent;
-import com.microsoft.openai.samples.assistant.security.LoggedUserService;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import org.bsc.langgraph4j.CompileConfig;
 import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.GraphStateException;
 import org.bsc.langgraph4j.StateGraph;
 import org.bsc.langgraph4j.action.AsyncEdgeAction;
-import org.bsc.langgraph4j.checkpoint.MemorySaver;
+import org.bsc.langgraph4j.checkpoint.BaseCheckpointSaver;
 import org.bsc.langgraph4j.langchain4j.serializer.jackson.LC4jJacksonStateSerializer;
+import org.bsc.langgraph4j.serializer.StateSerializer;
 import org.bsc.langgraph4j.utils.EdgeMappings;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +38,8 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Objects;
 
@@ -40,28 +53,109 @@ public class Langgraph4JAgentsConfiguration {
     @Value("${transactions.api.url}") String transactionsMCPServerUrl;
     @Value("${accounts.api.url}") String accountsMCPServerUrl;
     @Value("${payments.api.url}") String paymentsMCPServerUrl;
+    @Value("${agent.user-cache.max-size:10000}") int userCacheMaxSize;
+    @Value("${agent.user-cache.ttl-minutes:30}") long userCacheTtlMinutes;
+    @Value("${agent.memory.max-tokens:12000}") int memoryMaxTokens;
+    @Value("${agent.checkpoint.store:file}") String checkpointStore;
+    @Value("${agent.checkpoint.serializer:binary}") String checkpointSerializer;
+    @Value("${agent.checkpoint.compression-threshold:1024}") int checkpointCompressionThreshold;
+    @Value("${agent.checkpoint.dir:${java.io.tmpdir}/copilot-checkpoints}") String checkpointDir;
+    @Value("${agent.checkpoint.ttl-hours:24}") long checkpointTtlHours;
+    @Value("${agent.checkpoint.max-per-thread:10}") int checkpointsPerThread;
+    @Value("${agent.checkpoint.memory.max-threads:10000}") int checkpointMaxThreads;
+    @Value("${agent.checkpoint.memory.max-megabytes:256}") long checkpointMaxMegabytes;
 
     private static final Logger logger = LoggerFactory.getLogger(Langgraph4JAgentsConfiguration.class);
     private final ChatLanguageModel chatLanguageModel;
-    private final LoggedUserService loggedUserService;
+    private final StreamingChatLanguageModel streamingChatLanguageModel;
     private final DocumentIntelligenceInvoiceScanHelper documentIntelligenceInvoiceScanHelper;
+    private final MCPClientRegistry mcpClientRegistry;
 
-    public Langgraph4JAgentsConfiguration(ChatLanguageModel chatLanguageModel, LoggedUserService loggedUserService, DocumentIntelligenceInvoiceScanHelper documentIntelligenceInvoiceScanHelper) {
+    public Langgraph4JAgentsConfiguration(ChatLanguageModel chatLanguageModel, StreamingChatLanguageModel streamingChatLanguageModel, DocumentIntelligenceInvoiceScanHelper documentIntelligenceInvoiceScanHelper, MCPClientRegistry mcpClientRegistry) {
         this.chatLanguageModel = chatLanguageModel;
-        this.loggedUserService = loggedUserService;
+        this.streamingChatLanguageModel = streamingChatLanguageModel;
+        this.mcpClientRegistry = mcpClientRegistry;
         this.documentIntelligenceInvoiceScanHelper = documentIntelligenceInvoiceScanHelper;
     }
 
+    @Bean
+    public AgentEventListenerRegistry agentEventListenerRegistry() {
+        return new AgentEventListenerRegistry();
+    }
+
+    /**
+     * Serializer cloning the workflow state at each step. The clone stays in memory, so the binary state is never
+     * compressed.
+     */
+    @Bean
+    public StateSerializer<AgentWorkflowState> langgraph4jStateSerializer() {
+        return stateSerializerOf( -1 );
+    }
+
+    /**
+     * Serializer of the workflow state, deflating the binary states larger than the compression threshold.
+     */
+    private StateSerializer<AgentWorkflowState> stateSerializerOf(int compressionThreshold) {
+        return switch (checkpointSerializer) {
+            case "binary" -> new BinaryStateSerializer( compressionThreshold );
+            case "json" -> new LC4jJacksonStateSerializer<>( AgentWorkflowState::new );
+            default -> throw new IllegalArgumentException("Unsupported agent.checkpoint.serializer [%s]. Use binary or json".formatted(checkpointSerializer));
+        };
+    }
 
+    /**
+     * Saver of the chat conversation history per threadId. The file store keeps the conversations across restarts
+     * and can be shared by several replicas mounting the same directory. The memory store is bounded both in number
+     * of threads and in estimated size; idle threads are evicted from both stores after the ttl.
+     */
     @Bean
-    public CompiledGraph<AgentWorkflowState> langgraph4jWorkflow() throws GraphStateException {
+    public BaseCheckpointSaver langgraph4jCheckpointSaver() {
+        if ("memory".equals(checkpointStore)) {
+            return BoundedMemorySaver.builder()
+                    .withMaxThreads(checkpointMaxThreads)
+                    .withMaxBytes(checkpointMaxMegabytes * 1024 * 1024)
+                    .withIdleTtl(Duration.ofHours(checkpointTtlHours))
+                    .withMaxCheckpointsPerThread(checkpointsPerThread)
+                    .build();
+        }
+        if (!"file".equals(checkpointStore)) {
+            throw new IllegalArgumentException("Unsupported agent.checkpoint.store [%s]. Use memory or file".formatted(checkpointStore));
+        }
+        logger.info("Storing workflow checkpoints in [{}]", checkpointDir);
+        return new FileCheckpointSaver(Path.of(checkpointDir),
+                stateSerializerOf(checkpointCompressionThreshold),
+                Duration.ofHours(checkpointTtlHours),
+                checkpointsPerThread);
+    }
+
+    @Bean
+    public CompiledGraph<AgentWorkflowState> langgraph4jWorkflow(AgentEventListenerRegistry agentEventListenerRegistry, IntentRouter intentRouter, StateSerializer<AgentWorkflowState> stateSerializer, BaseCheckpointSaver checkPointSaver, ToolResultCache toolResultCache, ToolResultShaper toolResultShaper) throws GraphStateException {
         logger.info("Activating langgraph4j multi-agent strategy!");
-        var accountAgent = new AccountMCPAgent(chatLanguageModel, loggedUserService.getLoggedUser().username(), accountsMCPServerUrl);
-        var transactionHistoryAgent = new TransactionHistoryMCPAgent(chatLanguageModel, loggedUserService.getLoggedUser().username(), transactionsMCPServerUrl, accountsMCPServerUrl);
-        var paymentAgent = new PaymentMCPAgent(chatLanguageModel, documentIntelligenceInvoiceScanHelper, loggedUserService.getLoggedUser().username(), transactionsMCPServerUrl, accountsMCPServerUrl, paymentsMCPServerUrl);
+        // shared agents owning the MCP connections. The nodes bind them to the "loggedUserName" of the workflow state.
+        var accountAgent = new AccountMCPAgent(chatLanguageModel, mcpClientRegistry, accountsMCPServerUrl);
+        var transactionHistoryAgent = new TransactionHistoryMCPAgent(chatLanguageModel, mcpClientRegistry, transactionsMCPServerUrl, accountsMCPServerUrl);
+        var paymentAgent = new PaymentMCPAgent(chatLanguageModel, documentIntelligenceInvoiceScanHelper, mcpClientRegistry, transactionsMCPServerUrl, accountsMCPServerUrl, paymentsMCPServerUrl);
+        accountAgent.setStreamingChatModel(streamingChatLanguageModel);
+        transactionHistoryAgent.setStreamingChatModel(streamingChatLanguageModel);
+        paymentAgent.setStreamingChatModel(streamingChatLanguageModel);
+        accountAgent.setToolResultCache(toolResultCache);
+        transactionHistoryAgent.setToolResultCache(toolResultCache);
+        paymentAgent.setToolResultCache(toolResultCache);
+        accountAgent.setToolResultShaper(toolResultShaper);
+        transactionHistoryAgent.setToolResultShaper(toolResultShaper);
+        paymentAgent.setToolResultShaper(toolResultShaper);
+        accountAgent.setMemoryMaxTokens(memoryMaxTokens);
+        transactionHistoryAgent.setMemoryMaxTokens(memoryMaxTokens);
+        paymentAgent.setMemoryMaxTokens(memoryMaxTokens);
+
+        var userCacheTtl = Duration.ofMinutes(userCacheTtlMinutes);
+        var accountAgentCache = new UserBoundAgentCache<>(accountAgent::forUser, userCacheMaxSize, userCacheTtl);
+        var transactionHistoryAgentCache = new UserBoundAgentCache<>(transactionHistoryAgent::forUser, userCacheMaxSize, userCacheTtl);
+        var paymentAgentCache = new UserBoundAgentCache<>(paymentAgent::forUser, userCacheMaxSize, userCacheTtl);
 
         var supervisorAgent = new SupervisorAgent( chatLanguageModel,
                 List.of( accountAgent, transactionHistoryAgent, paymentAgent ) );
+        supervisorAgent.setIntentRouter( intentRouter );
 
         AsyncEdgeAction<AgentWorkflowState> supervisorRoute =  edge_async((state ) -> {
 
@@ -72,14 +166,18 @@ public class Langgraph4JAgentsConfiguration {
                     .orElse( "end" );
         });
 
-        var serializer = new LC4jJacksonStateSerializer<>( AgentWorkflowState::new );
-
-        var graph = new StateGraph<>( AgentWorkflowState.SCHEMA, serializer )
-                .addNode( "Supervisor", SupervisorAgentNode.of( supervisorAgent ) )
-                .addNode( Intent.AccountAgent.name(), AgentNode.of( accountAgent ) )
-                .addNode( Intent.TransactionHistoryAgent.name(), AgentNode.of(  transactionHistoryAgent ) )
-                .addNode( Intent.PaymentAgent.name(), AgentNode.of( paymentAgent ) )
-                .addEdge(  START, "Supervisor" )
+        var graph = new StateGraph<>( AgentWorkflowState.SCHEMA, stateSerializer )
+                .addNode( "Supervisor", SupervisorAgentNode.of( supervisorAgent, agentEventListenerRegistry ) )
+                .addNode( Intent.AccountAgent.name(), AgentNode.perUser( accountAgentCache::get, agentEventListenerRegistry ) )
+                .addNode( Intent.TransactionHistoryAgent.name(), AgentNode.perUser( transactionHistoryAgentCache::get, agentEventListenerRegistry ) )
+                .addNode( Intent.PaymentAgent.name(), AgentNode.perUser( paymentAgentCache::get, agentEventListenerRegistry ) )
+                // follow-up turns of a thread go straight to the active agent, unless the topic changed
+                .addConditionalEdges(  START,
+                        ActiveAgentRoute.of( "Supervisor", intentRouter ),
+                        EdgeMappings.builder()
+                                .to( Intent.names() )
+                                .to( "Supervisor" )
+                                .build())
                 .addConditionalEdges( "Supervisor",
                         supervisorRoute,
                         EdgeMappings.builder()
@@ -91,9 +189,6 @@ public class Langgraph4JAgentsConfiguration {
                 .addEdge( Intent.PaymentAgent.name(), END )
         ;
 
-        //this will manage the chat conversation history per threadId
-        var checkPointSaver = new MemorySaver();
-
         var config = CompileConfig.builder()
                 .checkpointSaver( checkPointSaver )
                 .build();
@@ -2,22 +2,30 @@
 package com.microsoft.openai.samples.assistant.controller;
 
 
+import com.microsoft.langchain4j.agent.UserBoundAgentCache;
 import com.microsoft.openai.samples.assistant.langchain4j.agent.SupervisorRoutingAgent;
-import com.microsoft.openai.samples.assistant.langgraph4j.SupervisorAgent;
+import com.microsoft.openai.samples.assistant.security.LoggedUserService;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.UserMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -28,10 +36,17 @@ import java.util.UUID;
 public class ChatController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ChatController.class);
-    private final SupervisorRoutingAgent supervisorRoutingAgent;
+    private final UserBoundAgentCache<SupervisorRoutingAgent> supervisorAgentCache;
+    private final LoggedUserService loggedUserService;
+    private final AsyncTaskExecutor taskExecutor;
 
-    public ChatController(SupervisorRoutingAgent supervisorRoutingAgent){
-        this.supervisorRoutingAgent = supervisorRoutingAgent;
+    @Value("${chat.stream.timeout-ms:300000}")
+    long streamTimeoutMillis;
+
+    public ChatController(UserBoundAgentCache<SupervisorRoutingAgent> supervisorAgentCache, LoggedUserService loggedUserService, @Qualifier("chatStreamExecutor") AsyncTaskExecutor taskExecutor){
+        this.supervisorAgentCache = supervisorAgentCache;
+        this.loggedUserService = loggedUserService;
+        this.taskExecutor = taskExecutor;
     }
 
 
@@ -57,6 +72,7 @@ public class ChatController {
 
         LOGGER.debug("Processing chat conversation..", chatHistory.get(chatHistory.size()-1));
 
+        var supervisorRoutingAgent = supervisorAgentCache.get(loggedUserService.getLoggedUser().username());
         List<ChatMessage> agentsResponse = supervisorRoutingAgent.invoke(chatHistory);
 
         AiMessage generatedResponse = (AiMessage) agentsResponse.get(agentsResponse.size()-1);
@@ -64,6 +80,40 @@ public class ChatController {
                 ChatResponse.buildChatResponse(generatedResponse, UUID.randomUUID().toString()));
     }
 
+    @PostMapping(value = "/api/chat", produces = {MediaType.APPLICATION_NDJSON_VALUE, ChatStreamEmitter.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<ResponseBodyEmitter> openAIAskStream(@RequestBody ChatAppRequest chatRequest,
+                                                              @RequestHeader(HttpHeaders.ACCEPT) String accept) {
+        if (chatRequest.messages() == null || chatRequest.messages().isEmpty()) {
+            LOGGER.warn("history cannot be null in Chat request");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        List<ChatMessage> chatHistory = convertToLangchain4j(chatRequest);
+
+        LOGGER.debug("Processing streamed chat conversation..", chatHistory.get(chatHistory.size()-1));
+
+        // the logged user is resolved on the request thread, where the security context is available
+        var supervisorRoutingAgent = supervisorAgentCache.get(loggedUserService.getLoggedUser().username());
+        var streamEmitter = ChatStreamEmitter.create(accept, UUID.randomUUID().toString(), streamTimeoutMillis);
+
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    streamEmitter.start();
+                    supervisorRoutingAgent.invoke(chatHistory, streamEmitter);
+                    streamEmitter.complete();
+                } catch (Exception e) {
+                    streamEmitter.completeWithError(e);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            LOGGER.warn("Too many chat streams running, rejected request");
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many chat streams running, retry later");
+        }
+
+        return streamEmitter.toResponseEntity();
+    }
+
     private List<ChatMessage> convertToLangchain4j(ChatAppRequest chatAppRequest) {
        List<ChatMessage> chatHistory = new ArrayList<>();
          chatAppRequest.messages().forEach(
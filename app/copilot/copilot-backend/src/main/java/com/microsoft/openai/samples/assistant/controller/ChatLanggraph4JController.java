@@ -2,7 +2,9 @@
 package com.microsoft.openai.samples.assistant.controller;
 
 
+import com.microsoft.openai.samples.assistant.langgraph4j.AgentEventListenerRegistry;
 import com.microsoft.openai.samples.assistant.langgraph4j.AgentWorkflowState;
+import com.microsoft.openai.samples.assistant.security.LoggedUserService;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.UserMessage;
@@ -10,14 +12,21 @@ import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.RunnableConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -30,9 +39,18 @@ public class ChatLanggraph4JController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ChatLanggraph4JController.class);
     private final CompiledGraph<AgentWorkflowState> langgraph4jWorflow;
+    private final AgentEventListenerRegistry agentEventListenerRegistry;
+    private final LoggedUserService loggedUserService;
+    private final AsyncTaskExecutor taskExecutor;
 
-    public ChatLanggraph4JController(CompiledGraph<AgentWorkflowState> langgraph4jWorflow){
+    @Value("${chat.stream.timeout-ms:300000}")
+    long streamTimeoutMillis;
+
+    public ChatLanggraph4JController(CompiledGraph<AgentWorkflowState> langgraph4jWorflow, AgentEventListenerRegistry agentEventListenerRegistry, LoggedUserService loggedUserService, @Qualifier("chatStreamExecutor") AsyncTaskExecutor taskExecutor){
         this.langgraph4jWorflow = langgraph4jWorflow;
+        this.agentEventListenerRegistry = agentEventListenerRegistry;
+        this.loggedUserService = loggedUserService;
+        this.taskExecutor = taskExecutor;
     }
 
 
@@ -68,7 +86,7 @@ public class ChatLanggraph4JController {
                 .threadId(threadId)
                 .build();
 
-        var state = langgraph4jWorflow.invoke(Map.of("messages", chatHistory),config);
+        var state = langgraph4jWorflow.invoke(workflowInput(chatHistory),config);
 
         AiMessage generatedResponse = state.get().lastMessage()
                 .map(AiMessage.class::cast)
@@ -79,6 +97,64 @@ public class ChatLanggraph4JController {
                 ChatResponse.buildChatResponse(generatedResponse,threadId));
     }
 
+    @PostMapping(value = "/api/chat", produces = {MediaType.APPLICATION_NDJSON_VALUE, ChatStreamEmitter.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<ResponseBodyEmitter> openAIAskStream(@RequestBody ChatAppRequest chatRequest,
+                                                              @RequestHeader(HttpHeaders.ACCEPT) String accept) {
+        if (chatRequest.messages() == null || chatRequest.messages().isEmpty()) {
+            LOGGER.warn("history cannot be null in Chat request");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+
+        List<ChatMessage> chatHistory = convertToLangchain4j(chatRequest);
+
+        //It contains only the last user message
+        LOGGER.debug("Processing streamed user message..", chatHistory.get(chatHistory.size()-1));
+
+        String threadId = chatRequest.threadId();
+        if(chatRequest.threadId() == null || chatRequest.threadId().isEmpty()){
+            threadId = UUID.randomUUID().toString();
+        }
+
+        RunnableConfig config = RunnableConfig.builder()
+                .threadId(threadId)
+                .build();
+
+        // the logged user is resolved on the request thread, where the security context is available
+        var workflowInput = workflowInput(chatHistory);
+        var streamEmitter = ChatStreamEmitter.create(accept, threadId, streamTimeoutMillis);
+        final String streamThreadId = threadId;
+
+        if (!agentEventListenerRegistry.register(streamThreadId, streamEmitter)) {
+            LOGGER.warn("Thread [{}] is already streaming a response", streamThreadId);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A response is already being streamed for this thread");
+        }
+
+        try {
+            taskExecutor.execute(() -> {
+                try {
+                    streamEmitter.start();
+                    langgraph4jWorflow.invoke(workflowInput, config);
+                    streamEmitter.complete();
+                } catch (Exception e) {
+                    streamEmitter.completeWithError(e);
+                } finally {
+                    agentEventListenerRegistry.remove(streamThreadId, streamEmitter);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            agentEventListenerRegistry.remove(streamThreadId, streamEmitter);
+            LOGGER.warn("Too many chat streams running, rejected thread [{}]", streamThreadId);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many chat streams running, retry later");
+        }
+
+        return streamEmitter.toResponseEntity();
+    }
+
+    private Map<String, Object> workflowInput(List<ChatMessage> chatHistory) {
+        return Map.of("messages", chatHistory,
+                "loggedUserName", loggedUserService.getLoggedUser().username());
+    }
+
     private List<ChatMessage> convertToLangchain4j(ChatAppRequest chatAppRequest) {
        List<ChatMessage> chatHistory = new ArrayList<>();
          chatAppRequest.messages().forEach(
@@ -3,17 +3,26 @@ package com.microsoft.openai.samples.assistant.controller;
 
 
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.microsoft.openai.samples.assistant.common.ChatGPTMessage;
 import dev.langchain4j.data.message.AiMessage;
 
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * @param error set only on the last chunk of a streamed answer that failed
+ */
 public record ChatResponse(
         List<ResponseChoice> choices,
-        String threadId
+        String threadId,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String error
 ) {
 
+    public ChatResponse(List<ResponseChoice> choices, String threadId) {
+        this(choices, threadId, null);
+    }
+
     public static ChatResponse buildChatResponse(AiMessage aiMessage, String threadId) {
         List<String> dataPoints = Collections.emptyList();
         String thoughts = "";
@@ -39,4 +48,66 @@ public record ChatResponse(
         );
     }
 
+    /**
+     * First chunk of a streamed answer. It carries the threadId and the context, the following chunks only carry deltas.
+     */
+    public static ChatResponse buildStreamStartChunk(String threadId) {
+        return new ChatResponse(
+                List.of(
+                        new ResponseChoice(
+                                0,
+                                null,
+                                new ResponseContext("", Collections.emptyList()),
+                                new ResponseMessage(
+                                        "",
+                                        ChatGPTMessage.ChatRole.ASSISTANT.toString(),
+                                        Collections.emptyList())
+                        )
+                ),
+                threadId
+        );
+    }
+
+    public static ChatResponse buildThoughtsChunk(String thoughts, String threadId) {
+        return new ChatResponse(
+                List.of(
+                        new ResponseChoice(
+                                0,
+                                null,
+                                new ResponseContext(thoughts, null),
+                                new ResponseMessage(
+                                        null,
+                                        ChatGPTMessage.ChatRole.ASSISTANT.toString(),
+                                        Collections.emptyList())
+                        )
+                ),
+                threadId
+        );
+    }
+
+    public static ChatResponse buildContentChunk(String content, String threadId) {
+        return new ChatResponse(
+                List.of(
+                        new ResponseChoice(
+                                0,
+                                null,
+                                null,
+                                new ResponseMessage(
+                                        content,
+                                        ChatGPTMessage.ChatRole.ASSISTANT.toString(),
+                                        Collections.emptyList())
+                        )
+                ),
+                threadId
+        );
+    }
+
+    /**
+     * Last chunk of a streamed answer that failed once the response was already committed, so it can't be
+     * reported with an http status.
+     */
+    public static ChatResponse buildErrorChunk(String error, String threadId) {
+        return new ChatResponse(Collections.emptyList(), threadId, error);
+    }
+
 }
@@ -0,0 +1,122 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.openai.samples.assistant.controller;
+
+import com.microsoft.langchain4j.agent.AgentEventListener;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Bridges the agents events to the http response, writing each event as soon as it's produced.
+ * Chunks are {@link ChatResponse} objects written as newline delimited json or as server sent events
+ * depending on the content type accepted by the client. A failed answer ends with a chunk carrying the error, sent as
+ * an {@code error} event with server sent events.
+ */
+public class ChatStreamEmitter implements AgentEventListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChatStreamEmitter.class);
+
+    static final String APPLICATION_NDJSON_VALUE = "application/ndjson";
+
+    // the details of the error are only logged, they may contain internals of the agents and their tools
+    static final String ERROR_MESSAGE = "The answer could not be completed, please retry";
+
+    private final ResponseBodyEmitter emitter;
+    private final MediaType contentType;
+    private final boolean serverSentEvents;
+    private final String threadId;
+
+    private ChatStreamEmitter(ResponseBodyEmitter emitter, MediaType contentType, String threadId) {
+        this.emitter = emitter;
+        this.contentType = contentType;
+        this.serverSentEvents = emitter instanceof SseEmitter;
+        this.threadId = threadId;
+    }
+
+    public static ChatStreamEmitter create(String acceptHeader, String threadId, long timeoutMillis) {
+        List<MediaType> acceptedTypes = MediaType.parseMediaTypes(acceptHeader);
+        boolean serverSentEvents = acceptedTypes.stream()
+                .anyMatch(mediaType -> mediaType.isCompatibleWith(MediaType.TEXT_EVENT_STREAM) && !mediaType.isWildcardType());
+
+        if (serverSentEvents) {
+            return new ChatStreamEmitter(new SseEmitter(timeoutMillis), MediaType.TEXT_EVENT_STREAM, threadId);
+        }
+        MediaType ndjsonType = acceptedTypes.stream()
+                .anyMatch(mediaType -> APPLICATION_NDJSON_VALUE.equals(mediaType.toString())) ?
+                MediaType.parseMediaType(APPLICATION_NDJSON_VALUE) : MediaType.APPLICATION_NDJSON;
+
+        return new ChatStreamEmitter(new ResponseBodyEmitter(timeoutMillis), ndjsonType, threadId);
+    }
+
+    public ResponseEntity<ResponseBodyEmitter> toResponseEntity() {
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header("Cache-Control", "no-cache")
+                .header("X-Accel-Buffering", "no")
+                .body(emitter);
+    }
+
+    public void start() {
+        send("start", ChatResponse.buildStreamStartChunk(threadId));
+    }
+
+    @Override
+    public void onAgentSelected(String agentName) {
+        send("routing", ChatResponse.buildThoughtsChunk("Routing request to " + agentName, threadId));
+    }
+
+    @Override
+    public void onToolExecutionRequest(ToolExecutionRequest toolExecutionRequest) {
+        send("tool", ChatResponse.buildThoughtsChunk("Calling " + toolExecutionRequest.name(), threadId));
+    }
+
+    @Override
+    public void onToolExecutionResult(ToolExecutionRequest toolExecutionRequest, String result) {
+        send("tool", ChatResponse.buildThoughtsChunk(toolExecutionRequest.name() + " completed", threadId));
+    }
+
+    @Override
+    public void onPartialResponse(String partialResponse) {
+        if (partialResponse == null || partialResponse.isEmpty()) {
+            return;
+        }
+        send("token", ChatResponse.buildContentChunk(partialResponse, threadId));
+    }
+
+    public void complete() {
+        emitter.complete();
+    }
+
+    /**
+     * Ends the stream with an error chunk. The response is already committed, so the error can't be reported with an
+     * http status and the stream is completed normally once the chunk is sent, for the client to read it.
+     */
+    public void completeWithError(Throwable error) {
+        LOGGER.error("Error while streaming chat response for thread [{}]", threadId, error);
+        send("error", ChatResponse.buildErrorChunk(ERROR_MESSAGE, threadId));
+        emitter.complete();
+    }
+
+    private void send(String eventName, ChatResponse chunk) {
+        try {
+            if (serverSentEvents) {
+                ((SseEmitter) emitter).send(SseEmitter.event()
+                        .name(eventName)
+                        .data(chunk, MediaType.APPLICATION_JSON));
+            } else {
+                emitter.send(chunk, MediaType.APPLICATION_JSON);
+                emitter.send("\n", MediaType.TEXT_PLAIN);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the client went away. Let the agent complete its turn so that the conversation state is consistent.
+            LOGGER.debug("Cannot send [{}] chunk for thread [{}]: {}", eventName, threadId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.openai.samples.assistant.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultBootstrapContext;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationEnvironmentPreparedEvent;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientPoolInitializerTest {
+
+    private static void prepare(MockEnvironment environment) {
+        new HttpClientPoolInitializer().onApplicationEvent(new ApplicationEnvironmentPreparedEvent(
+                new DefaultBootstrapContext(), new SpringApplication(), new String[0], environment));
+    }
+
+    // the pool is configured once per JVM, so the whole scenario is a single test
+    @Test
+    void systemPropertiesAreKeptWhenThePoolPropertiesAreNotSet() {
+        System.setProperty("jdk.httpclient.keepalive.timeout", "120");
+        System.setProperty("jdk.httpclient.connectionPoolSize", "7");
+
+        assertDoesNotThrow(() -> prepare(new MockEnvironment()));
+        assertEquals("120", System.getProperty("jdk.httpclient.keepalive.timeout"));
+        assertEquals("7", System.getProperty("jdk.httpclient.connectionPoolSize"));
+
+        assertDoesNotThrow(() -> prepare(new MockEnvironment().withProperty("http.client.pool.keep-alive-seconds", "120")));
+        assertThrows(IllegalStateException.class,
+                () -> prepare(new MockEnvironment().withProperty("http.client.pool.max-idle-connections", "8")));
+    }
+}
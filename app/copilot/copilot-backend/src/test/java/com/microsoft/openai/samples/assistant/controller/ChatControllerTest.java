@@ -0,0 +1,171 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.openai.samples.assistant.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.langchain4j.agent.AgentEventListener;
+import com.microsoft.langchain4j.agent.UserBoundAgentCache;
+import com.microsoft.openai.samples.assistant.langchain4j.agent.SupervisorRoutingAgent;
+import com.microsoft.openai.samples.assistant.security.LoggedUserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ChatControllerTest {
+
+    private static final String CHAT_REQUEST = """
+            {"messages":[{"content":"What is my balance?","role":"user","attachments":[]}],"stream":true}
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SupervisorRoutingAgent supervisorAgent = mock(SupervisorRoutingAgent.class);
+
+    private MockMvc mockMvc(AsyncTaskExecutor taskExecutor) {
+        var controller = new ChatController(new UserBoundAgentCache<>(user -> supervisorAgent, 10, Duration.ofMinutes(5)),
+                new LoggedUserService(), taskExecutor);
+        controller.streamTimeoutMillis = 10000;
+        return MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    private void agentAnswers(boolean fails) {
+        when(supervisorAgent.invoke(anyList(), any(AgentEventListener.class))).thenAnswer(invocation -> {
+            AgentEventListener listener = invocation.getArgument(1);
+            listener.onAgentSelected("AccountAgent");
+            listener.onPartialResponse("Your balance");
+            if (fails) {
+                throw new IllegalStateException("account service unavailable");
+            }
+            listener.onPartialResponse(" is 100 EUR");
+            return List.of();
+        });
+    }
+
+    private MvcResult stream(MediaType accept) throws Exception {
+        MvcResult result = mockMvc(new SimpleAsyncTaskExecutor()).perform(post("/api/chat")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(accept)
+                        .content(CHAT_REQUEST))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        // the emitter dispatches once completed
+        result.getAsyncResult(10000);
+        return result;
+    }
+
+    private List<JsonNode> ndjsonChunks(MvcResult result) throws Exception {
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.endsWith("\n"));
+        List<JsonNode> chunks = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            chunks.add(objectMapper.readTree(line));
+        }
+        return chunks;
+    }
+
+    // each event is made of an event line and a data line, followed by an empty line
+    private static List<String[]> serverSentEvents(MvcResult result) throws Exception {
+        String body = result.getResponse().getContentAsString();
+        assertTrue(body.endsWith("\n\n"));
+        return Arrays.stream(body.split("\n\n"))
+                .map(event -> event.split("\n"))
+                .toList();
+    }
+
+    @Test
+    void ndjsonStreamWritesOneChunkPerLine() throws Exception {
+        agentAnswers(false);
+
+        MvcResult result = stream(MediaType.APPLICATION_NDJSON);
+        assertTrue(result.getResponse().getContentType().startsWith(MediaType.APPLICATION_NDJSON_VALUE));
+
+        List<JsonNode> chunks = ndjsonChunks(result);
+        assertEquals(4, chunks.size());
+        String threadId = chunks.get(0).get("threadId").asText();
+        assertFalse(threadId.isEmpty());
+        assertTrue(chunks.get(0).get("choices").get(0).has("context"));
+        assertEquals("Routing request to AccountAgent", chunks.get(1).get("choices").get(0).get("context").get("thoughts").asText());
+        assertEquals("Your balance", chunks.get(2).get("choices").get(0).get("delta").get("content").asText());
+        assertEquals(" is 100 EUR", chunks.get(3).get("choices").get(0).get("delta").get("content").asText());
+        chunks.forEach(chunk -> {
+            assertEquals(threadId, chunk.get("threadId").asText());
+            assertFalse(chunk.has("error"));
+        });
+    }
+
+    @Test
+    void ndjsonStreamEndsWithAnErrorChunkWhenTheAgentFails() throws Exception {
+        agentAnswers(true);
+
+        MvcResult result = stream(MediaType.APPLICATION_NDJSON);
+
+        List<JsonNode> chunks = ndjsonChunks(result);
+        assertEquals(4, chunks.size());
+        assertEquals("Your balance", chunks.get(2).get("choices").get(0).get("delta").get("content").asText());
+        assertEquals(ChatStreamEmitter.ERROR_MESSAGE, chunks.get(3).get("error").asText());
+        // the details of the error aren't sent to the client
+        assertFalse(result.getResponse().getContentAsString().contains("account service unavailable"));
+    }
+
+    @Test
+    void serverSentEventsStreamWritesNamedEvents() throws Exception {
+        agentAnswers(false);
+
+        MvcResult result = stream(MediaType.TEXT_EVENT_STREAM);
+        assertTrue(result.getResponse().getContentType().startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+
+        List<String[]> events = serverSentEvents(result);
+        assertEquals(List.of("event:start", "event:routing", "event:token", "event:token"),
+                events.stream().map(event -> event[0]).toList());
+        for (String[] event : events) {
+            assertEquals(2, event.length);
+            assertTrue(event[1].startsWith("data:"));
+        }
+        JsonNode lastChunk = objectMapper.readTree(events.get(3)[1].substring("data:".length()));
+        assertEquals(" is 100 EUR", lastChunk.get("choices").get(0).get("delta").get("content").asText());
+    }
+
+    @Test
+    void serverSentEventsStreamEndsWithAnErrorEventWhenTheAgentFails() throws Exception {
+        agentAnswers(true);
+
+        MvcResult result = stream(MediaType.TEXT_EVENT_STREAM);
+
+        List<String[]> events = serverSentEvents(result);
+        assertEquals(List.of("event:start", "event:routing", "event:token", "event:error"),
+                events.stream().map(event -> event[0]).toList());
+        JsonNode errorChunk = objectMapper.readTree(events.get(3)[1].substring("data:".length()));
+        assertEquals(ChatStreamEmitter.ERROR_MESSAGE, errorChunk.get("error").asText());
+    }
+
+    @Test
+    void streamIsRejectedWith503WhenTheExecutorIsSaturated() throws Exception {
+        AsyncTaskExecutor saturatedExecutor = mock(AsyncTaskExecutor.class);
+        doThrow(new TaskRejectedException("saturated")).when(saturatedExecutor).execute(any(Runnable.class));
+
+        mockMvc(saturatedExecutor).perform(post("/api/chat")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content(CHAT_REQUEST))
+                .andExpect(status().isServiceUnavailable());
+
+        verify(supervisorAgent, never()).invoke(anyList(), any(AgentEventListener.class));
+    }
+}
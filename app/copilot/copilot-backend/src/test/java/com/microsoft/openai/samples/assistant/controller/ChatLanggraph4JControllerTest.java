@@ -0,0 +1,69 @@
+// Copyright (c) Microsoft. All rights reserved.
+package com.microsoft.openai.samples.assistant.controller;
+
+import com.microsoft.langchain4j.agent.AgentEventListener;
+import com.microsoft.openai.samples.assistant.langgraph4j.AgentEventListenerRegistry;
+import com.microsoft.openai.samples.assistant.langgraph4j.AgentWorkflowState;
+import com.microsoft.openai.samples.assistant.security.LoggedUserService;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ChatLanggraph4JControllerTest {
+
+    private static final String CHAT_REQUEST = """
+            {"messages":[{"content":"What is my balance?","role":"user","attachments":[]}],"stream":true,"threadId":"thread-1"}
+            """;
+
+    private final AgentEventListenerRegistry agentEventListenerRegistry = new AgentEventListenerRegistry();
+    private final AsyncTaskExecutor taskExecutor = mock(AsyncTaskExecutor.class);
+
+    @SuppressWarnings("unchecked")
+    private MockMvc mockMvc() {
+        var controller = new ChatLanggraph4JController(mock(CompiledGraph.class), agentEventListenerRegistry,
+                new LoggedUserService(), taskExecutor);
+        controller.streamTimeoutMillis = 10000;
+        return MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void streamOfAThreadAlreadyStreamingIsRejectedWith409() throws Exception {
+        AgentEventListener runningStream = new AgentEventListener() {};
+        assertTrue(agentEventListenerRegistry.register("thread-1", runningStream));
+
+        mockMvc().perform(post("/api/chat")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .content(CHAT_REQUEST))
+                .andExpect(status().isConflict());
+
+        verifyNoInteractions(taskExecutor);
+        // the running stream keeps the thread
+        assertFalse(agentEventListenerRegistry.register("thread-1", AgentEventListener.NOOP));
+        agentEventListenerRegistry.remove("thread-1", runningStream);
+        assertTrue(agentEventListenerRegistry.register("thread-1", AgentEventListener.NOOP));
+    }
+
+    @Test
+    void rejectedStreamIsAnswered503AndReleasesTheThread() throws Exception {
+        doThrow(new TaskRejectedException("saturated")).when(taskExecutor).execute(any(Runnable.class));
+
+        mockMvc().perform(post("/api/chat")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .content(CHAT_REQUEST))
+                .andExpect(status().isServiceUnavailable());
+
+        assertTrue(agentEventListenerRegistry.register("thread-1", AgentEventListener.NOOP));
+    }
+}
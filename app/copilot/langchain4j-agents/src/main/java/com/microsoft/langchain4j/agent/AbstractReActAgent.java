@@ -4,18 +4,24 @@ import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
 import dev.langchain4j.memory.ChatMemory;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.chat.request.ChatRequest;
 import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.openapi.AsyncToolExecutor;
 import dev.langchain4j.service.tool.ToolExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 
@@ -24,6 +30,17 @@ public abstract class AbstractReActAgent implements Agent {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractReActAgent.class);
 
     protected final ChatLanguageModel chatModel;
+    //optional. When set, it's used to stream the answer tokens to the AgentEventListener
+    protected StreamingChatLanguageModel streamingChatModel;
+    protected ParallelToolExecutor parallelToolExecutor = ParallelToolExecutor.shared();
+    //optional. When set, the results of the read-only tools are reused across the invocations of the logged user
+    protected ToolResultCache toolResultCache;
+    //the user the agent is bound to, which scopes the cached tool results
+    protected String loggedUserName;
+    //shapes the tool results before they are added to the chat. By default they are added as they are
+    protected ToolResultShaper toolResultShaper = ToolResultShaper.NONE;
+    //estimated tokens of the chat sent to the model, see TokenBudgetChatMemory
+    protected int memoryMaxTokens = 12_000;
 
     protected AbstractReActAgent(ChatLanguageModel chatModel) {
         if (chatModel == null) {
@@ -32,12 +49,61 @@ public abstract class AbstractReActAgent implements Agent {
         this.chatModel = chatModel;
     }
 
+    /**
+     * Creates an agent sharing the models and the tool executor of the given one.
+     * Used by subclasses to bind a new instance to a different user without reconnecting its tools.
+     */
+    protected AbstractReActAgent(AbstractReActAgent prototype) {
+        this(prototype.chatModel);
+        this.streamingChatModel = prototype.streamingChatModel;
+        this.parallelToolExecutor = prototype.parallelToolExecutor;
+        this.toolResultCache = prototype.toolResultCache;
+        this.toolResultShaper = prototype.toolResultShaper;
+        this.memoryMaxTokens = prototype.memoryMaxTokens;
+    }
+
+    public void setStreamingChatModel(StreamingChatLanguageModel streamingChatModel) {
+        this.streamingChatModel = streamingChatModel;
+    }
+
+    public void setParallelToolExecutor(ParallelToolExecutor parallelToolExecutor) {
+        if (parallelToolExecutor == null) {
+            throw new IllegalArgumentException("parallelToolExecutor cannot be null");
+        }
+        this.parallelToolExecutor = parallelToolExecutor;
+    }
+
+    public void setToolResultCache(ToolResultCache toolResultCache) {
+        this.toolResultCache = toolResultCache;
+    }
+
+    public void setToolResultShaper(ToolResultShaper toolResultShaper) {
+        if (toolResultShaper == null) {
+            throw new IllegalArgumentException("toolResultShaper cannot be null");
+        }
+        this.toolResultShaper = toolResultShaper;
+    }
+
+    public void setMemoryMaxTokens(int memoryMaxTokens) {
+        if (memoryMaxTokens <= 0) {
+            throw new IllegalArgumentException("memoryMaxTokens must be greater than 0");
+        }
+        this.memoryMaxTokens = memoryMaxTokens;
+    }
+
     @Override
     public List<ChatMessage> invoke(List<ChatMessage> chatHistory) throws AgentExecutionException {
+        return invoke(chatHistory, AgentEventListener.NOOP);
+    }
+
+    @Override
+    public List<ChatMessage> invoke(List<ChatMessage> chatHistory, AgentEventListener listener) throws AgentExecutionException {
         LOGGER.info("------------- {} -------------", this.getName());
 
         try {
             var internalChatMemory = buildInternalChat(chatHistory);
+            // messages of this turn as they are, while the internal chat memory may compact them for the model
+            List<ChatMessage> turnMessages = new ArrayList<>();
 
             ChatRequestParameters parameters = ChatRequestParameters.builder()
                 .toolSpecifications(getToolSpecifications())
@@ -48,60 +114,148 @@ public abstract class AbstractReActAgent implements Agent {
                 .parameters(parameters)
                 .build();
 
-            var aiMessage = chatModel.chat(request).aiMessage();
+            var aiMessage = chat(request, listener);
 
             // ReAct planning with tools
             while (aiMessage != null && aiMessage.hasToolExecutionRequests()) {
+                aiMessage.toolExecutionRequests().forEach(listener::onToolExecutionRequest);
                 List<ToolExecutionResultMessage> toolExecutionResultMessages = executeToolRequests(aiMessage.toolExecutionRequests());
+                for (int i = 0; i < toolExecutionResultMessages.size(); i++) {
+                    listener.onToolExecutionResult(aiMessage.toolExecutionRequests().get(i), toolExecutionResultMessages.get(i).text());
+                }
 
                 internalChatMemory.add(aiMessage);
                 toolExecutionResultMessages.forEach(internalChatMemory::add);
+                turnMessages.add(aiMessage);
+                turnMessages.addAll(toolExecutionResultMessages);
 
                 ChatRequest toolExecutionResultResponseRequest = ChatRequest.builder()
                     .messages(internalChatMemory.messages())
                     .parameters(parameters)
                     .build();
 
-                aiMessage = chatModel.chat(toolExecutionResultResponseRequest).aiMessage();
+                aiMessage = chat(toolExecutionResultResponseRequest, listener);
             }
 
             LOGGER.info("Agent response: {}", aiMessage.text());
 
-            // add last ai message to agent internal memory
-            internalChatMemory.add(aiMessage);
-            return buildResponse(chatHistory, internalChatMemory);
+            turnMessages.add(aiMessage);
+            return buildResponse(chatHistory, turnMessages);
         } catch (Exception e) {
             throw new AgentExecutionException("Error during agent [%s] invocation".formatted(this.getName()), e);
         }
     }
 
-    protected List<ChatMessage> buildResponse(List<ChatMessage> chatHistory, ChatMemory internalChatMemory) {
-        return internalChatMemory.messages()
-            .stream()
+    /**
+     * Sends the request to the model. When a streaming model is available and someone is listening, the answer
+     * tokens are forwarded as they are produced, otherwise the final answer is notified as a single chunk.
+     */
+    protected AiMessage chat(ChatRequest request, AgentEventListener listener) {
+        if (streamingChatModel == null || listener == AgentEventListener.NOOP) {
+            AiMessage aiMessage = chatModel.chat(request).aiMessage();
+            if (aiMessage != null && !aiMessage.hasToolExecutionRequests() && aiMessage.text() != null) {
+                listener.onPartialResponse(aiMessage.text());
+            }
+            return aiMessage;
+        }
+
+        CompletableFuture<ChatResponse> futureResponse = new CompletableFuture<>();
+        streamingChatModel.chat(request, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                listener.onPartialResponse(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                futureResponse.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                futureResponse.completeExceptionally(error);
+            }
+        });
+
+        try {
+            return futureResponse.join().aiMessage();
+        } catch (CompletionException e) {
+            throw new AgentExecutionException("Streaming chat request failed for agent [%s]".formatted(this.getName()), e.getCause());
+        }
+    }
+
+    /**
+     * Returns the chat history followed by the messages of this turn. The internal chat memory isn't returned, as it
+     * only fits the chat to the budget of the model: its compacted tool results and dropped turns must not replace
+     * the messages of the conversation.
+     */
+    protected List<ChatMessage> buildResponse(List<ChatMessage> chatHistory, List<ChatMessage> turnMessages) {
+        List<ChatMessage> response = chatHistory.stream()
             .filter(m -> !(m instanceof SystemMessage))
             .collect(Collectors.toList());
+        response.addAll(turnMessages);
+        return response;
     }
 
+    /**
+     * Executes the tool requests concurrently. The returned results have the same order of the requests and are
+     * shaped by the {@link ToolResultShaper}.
+     */
     protected List<ToolExecutionResultMessage> executeToolRequests(List<ToolExecutionRequest> toolExecutionRequests) {
+        List<String> results = parallelToolExecutor.executeAllAsync(toolExecutionRequests, this::executeCachedToolRequestAsync);
+
         List<ToolExecutionResultMessage> toolExecutionResultMessages = new ArrayList<>();
-        for (ToolExecutionRequest toolExecutionRequest : toolExecutionRequests) {
-            var toolExecutor = getToolExecutor(toolExecutionRequest.name());
-            LOGGER.info("Executing {} with params {}", toolExecutionRequest.name(), toolExecutionRequest.arguments());
-            String result = toolExecutor.execute(toolExecutionRequest, null);
-            LOGGER.info("Response from {}: {}", toolExecutionRequest.name(), result);
+        for (int i = 0; i < toolExecutionRequests.size(); i++) {
+            ToolExecutionRequest toolExecutionRequest = toolExecutionRequests.get(i);
+            String result = results.get(i);
             if (result == null || result.isEmpty()) {
                 LOGGER.warn("Tool {} returned empty result but successfully completed. Setting result=ok.", toolExecutionRequest.name());
                 result = "ok";
             }
+            result = toolResultShaper.shape(toolExecutionRequest.name(), result);
             toolExecutionResultMessages.add(ToolExecutionResultMessage.from(toolExecutionRequest, result));
         }
         return toolExecutionResultMessages;
     }
 
+    private CompletableFuture<String> executeCachedToolRequestAsync(ToolExecutionRequest toolExecutionRequest) {
+        if (toolResultCache == null) {
+            return executeToolRequestAsync(toolExecutionRequest);
+        }
+        return toolResultCache.execute(loggedUserName, toolExecutionRequest, this::executeToolRequestAsync);
+    }
+
+    /**
+     * Starts the execution of the tool request. Asynchronous executors are called directly, so that the remote call
+     * doesn't hold a thread, while the blocking ones are executed on the tool pool.
+     */
+    protected CompletableFuture<String> executeToolRequestAsync(ToolExecutionRequest toolExecutionRequest) {
+        var toolExecutor = getToolExecutor(toolExecutionRequest.name());
+        if (!(toolExecutor instanceof AsyncToolExecutor asyncToolExecutor)) {
+            return parallelToolExecutor.submit(() -> executeToolRequest(toolExecutionRequest));
+        }
+
+        LOGGER.info("Executing {} with params {}", toolExecutionRequest.name(), toolExecutionRequest.arguments());
+        CompletableFuture<String> execution = asyncToolExecutor.executeAsync(toolExecutionRequest, null);
+        return ParallelToolExecutor.cancellingSource(execution, execution.whenComplete((result, e) -> {
+            if (e == null) {
+                LOGGER.info("Response from {}: {}", toolExecutionRequest.name(), result);
+            }
+        }));
+    }
+
+    protected String executeToolRequest(ToolExecutionRequest toolExecutionRequest) {
+        var toolExecutor = getToolExecutor(toolExecutionRequest.name());
+        LOGGER.info("Executing {} with params {}", toolExecutionRequest.name(), toolExecutionRequest.arguments());
+        String result = toolExecutor.execute(toolExecutionRequest, null);
+        LOGGER.info("Response from {}: {}", toolExecutionRequest.name(), result);
+        return result;
+    }
+
     protected ChatMemory buildInternalChat(List<ChatMessage> chatHistory) {
-        var internalChatMemory = MessageWindowChatMemory.builder()
-            .id("default")
-            .maxMessages(20)
+        var internalChatMemory = TokenBudgetChatMemory.builder()
+            .withId("default")
+            .withMaxTokens(memoryMaxTokens)
             .build();
 
         internalChatMemory.add(SystemMessage.from(getSystemMessage()));
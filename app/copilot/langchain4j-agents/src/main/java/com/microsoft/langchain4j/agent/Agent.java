@@ -9,4 +9,8 @@ public interface Agent {
     String getName();
     AgentMetadata getMetadata();
     List<ChatMessage> invoke(List<ChatMessage> chatHistory) throws AgentExecutionException;
+
+    default List<ChatMessage> invoke(List<ChatMessage> chatHistory, AgentEventListener listener) throws AgentExecutionException {
+        return invoke(chatHistory);
+    }
 }
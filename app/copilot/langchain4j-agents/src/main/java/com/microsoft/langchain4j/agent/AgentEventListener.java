@@ -0,0 +1,25 @@
+package com.microsoft.langchain4j.agent;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+
+/**
+ * Receives progress events while an agent turn is executing, so that callers can stream
+ * routing decisions, tool calls and answer tokens instead of waiting for the whole ReAct loop.
+ * All methods are invoked on the thread executing the agent.
+ */
+public interface AgentEventListener {
+
+    AgentEventListener NOOP = new AgentEventListener() {};
+
+    default void onAgentSelected(String agentName) {
+    }
+
+    default void onToolExecutionRequest(ToolExecutionRequest toolExecutionRequest) {
+    }
+
+    default void onToolExecutionResult(ToolExecutionRequest toolExecutionRequest, String result) {
+    }
+
+    default void onPartialResponse(String partialResponse) {
+    }
+}
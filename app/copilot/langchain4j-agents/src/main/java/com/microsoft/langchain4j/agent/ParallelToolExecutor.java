@@ -0,0 +1,175 @@
+package com.microsoft.langchain4j.agent;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Executes the tool requests returned by the model in a single {@code AiMessage} concurrently on a bounded pool,
+ * so that a ReAct step costs the latency of the slowest tool instead of the sum of all of them.
+ * Results are returned in the same order of the requests.
+ * Tools able to run asynchronously don't take a thread of the pool while their remote call is in flight, see
+ * {@link #executeAllAsync(List, Function)}. Each tool has its own timeout; a tool timing out, or still running when
+ * another one fails, is cancelled and the blocking ones are interrupted.
+ */
+public class ParallelToolExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelToolExecutor.class);
+
+    public static final Duration DEFAULT_TOOL_TIMEOUT = Duration.ofSeconds(60);
+
+    private static final class SharedInstanceHolder {
+        private static final ParallelToolExecutor INSTANCE = new ParallelToolExecutor(
+                Math.max(4, Runtime.getRuntime().availableProcessors() * 2),
+                DEFAULT_TOOL_TIMEOUT);
+    }
+
+    private final ExecutorService executorService;
+    private final Duration toolTimeout;
+
+    public ParallelToolExecutor(int maxThreads, Duration toolTimeout) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("maxThreads must be greater than 0");
+        }
+        if (toolTimeout == null || toolTimeout.isNegative() || toolTimeout.isZero()) {
+            throw new IllegalArgumentException("toolTimeout must be a positive duration");
+        }
+        this.toolTimeout = toolTimeout;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                maxThreads,
+                maxThreads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxThreads * 16),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "agent-tool-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // when saturated the tool fails instead of running on the agent thread, where it couldn't time out
+                new ThreadPoolExecutor.AbortPolicy());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        this.executorService = threadPoolExecutor;
+    }
+
+    /**
+     * @return the process wide executor used by the agents when none is provided.
+     */
+    public static ParallelToolExecutor shared() {
+        return SharedInstanceHolder.INSTANCE;
+    }
+
+    public Duration getToolTimeout() {
+        return toolTimeout;
+    }
+
+    /**
+     * Starts all the tool requests and waits for their results. The function starting a request is called on the
+     * caller thread and it's expected to return without waiting for the tool, e.g. with a future completed by the
+     * http client. Blocking tools can be started with {@link #submit(Supplier)}.
+     *
+     * @param toolExecutionRequests the requests to execute
+     * @param asyncToolExecution the function starting the execution of a single request
+     * @return the results, in the same order of the requests
+     */
+    public List<String> executeAllAsync(List<ToolExecutionRequest> toolExecutionRequests,
+                                        Function<ToolExecutionRequest, CompletableFuture<String>> asyncToolExecution) {
+
+        List<CompletableFuture<String>> futures = new ArrayList<>(toolExecutionRequests.size());
+        for (ToolExecutionRequest toolExecutionRequest : toolExecutionRequests) {
+            CompletableFuture<String> future;
+            try {
+                future = asyncToolExecution.apply(toolExecutionRequest);
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            futures.add(future.orTimeout(toolTimeout.toNanos(), TimeUnit.NANOSECONDS));
+        }
+
+        List<String> results = new ArrayList<>(futures.size());
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                results.add(awaitResult(futures.get(i), toolExecutionRequests.get(i)));
+            }
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    /**
+     * Executes a blocking tool on the pool. Cancelling the returned future interrupts the tool.
+     *
+     * @return the result of the tool, failed with an {@link AgentExecutionException} when the pool is saturated
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> toolExecution) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executorService.submit(() -> {
+                try {
+                    result.complete(toolExecution.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Tool pool is saturated, tool execution rejected");
+            return CompletableFuture.failedFuture(new AgentExecutionException("Too many tools are running, tool execution rejected", e));
+        }
+        result.whenComplete((value, e) -> {
+            if (e != null) {
+                task.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the dependent future, cancelling its source when it doesn't complete normally, e.g. when it's cancelled
+     * or times out, since cancelling a future doesn't cancel the one it depends on.
+     */
+    static <T> CompletableFuture<T> cancellingSource(CompletableFuture<?> source, CompletableFuture<T> dependent) {
+        dependent.whenComplete((value, e) -> {
+            if (e != null) {
+                source.cancel(true);
+            }
+        });
+        return dependent;
+    }
+
+    private String awaitResult(Future<String> future, ToolExecutionRequest toolExecutionRequest) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AgentExecutionException("Interrupted while waiting for tool [%s]".formatted(toolExecutionRequest.name()), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                LOGGER.warn("Tool {} didn't complete within {}", toolExecutionRequest.name(), toolTimeout);
+                throw new AgentExecutionException("Tool [%s] didn't complete within %s".formatted(toolExecutionRequest.name(), toolTimeout), e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new AgentExecutionException("Error executing tool [%s]".formatted(toolExecutionRequest.name()), e.getCause());
+        }
+    }
+}
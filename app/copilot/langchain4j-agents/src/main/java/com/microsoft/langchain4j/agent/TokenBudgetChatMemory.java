@@ -0,0 +1,241 @@
+package com.microsoft.langchain4j.agent;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Chat memory of an agent invocation bounded by an estimated number of tokens rather than by number of messages.
+ * The system message and the current turn, i.e. the last user message and the tool calls following it, are always
+ * kept. When the budget is exceeded:
+ * <ol>
+ *     <li>the tool results of the previous turns, oldest first, are replaced by a digest made of their head and
+ *     their original size</li>
+ *     <li>the oldest turns are dropped whole, so that a tool result is never sent without the tool request
+ *     preceding it</li>
+ *     <li>the tool results of the current turn are compacted too, except the last ones that the model is about to
+ *     read</li>
+ * </ol>
+ * When the current turn alone doesn't fit, the budget is exceeded rather than dropping messages the model needs.
+ * <p>
+ * The messages are compacted for the model only: the digests replace the tool results in this memory, not in the
+ * chat history it was filled from.
+ */
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TokenBudgetChatMemory.class);
+
+    // rough estimate for the GPT tokenizers on english text and json, with the per message overhead of the chat format
+    static final ToIntFunction<ChatMessage> ESTIMATED_TOKENS = message -> 4 + (textLength(message) + 3) / 4;
+
+    private final Object id;
+    private final int maxTokens;
+    private final int toolResultDigestTokens;
+    private final ToIntFunction<ChatMessage> tokenCounter;
+    private SystemMessage systemMessage;
+    private final List<ChatMessage> messages = new ArrayList<>();
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private Object id = "default";
+        private int maxTokens = 12_000;
+        private int toolResultDigestTokens = 150;
+        private ToIntFunction<ChatMessage> tokenCounter = ESTIMATED_TOKENS;
+
+        public Builder withId(Object id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder withMaxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * Size of the digests replacing the compacted tool results.
+         */
+        public Builder withToolResultDigestTokens(int toolResultDigestTokens) {
+            this.toolResultDigestTokens = toolResultDigestTokens;
+            return this;
+        }
+
+        /**
+         * Counts the tokens of a message. By default they are estimated from the length of the text.
+         */
+        public Builder withTokenCounter(ToIntFunction<ChatMessage> tokenCounter) {
+            this.tokenCounter = tokenCounter;
+            return this;
+        }
+
+        public TokenBudgetChatMemory build() {
+            return new TokenBudgetChatMemory(this);
+        }
+    }
+
+    private TokenBudgetChatMemory(Builder builder) {
+        if (builder.maxTokens <= 0) {
+            throw new IllegalArgumentException("maxTokens must be greater than 0");
+        }
+        if (builder.toolResultDigestTokens <= 0) {
+            throw new IllegalArgumentException("toolResultDigestTokens must be greater than 0");
+        }
+        if (builder.tokenCounter == null) {
+            throw new IllegalArgumentException("tokenCounter cannot be null");
+        }
+        this.id = builder.id;
+        this.maxTokens = builder.maxTokens;
+        this.toolResultDigestTokens = builder.toolResultDigestTokens;
+        this.tokenCounter = builder.tokenCounter;
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        if (message instanceof SystemMessage newSystemMessage) {
+            this.systemMessage = newSystemMessage;
+        } else {
+            messages.add(message);
+        }
+        compact();
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        List<ChatMessage> result = new ArrayList<>(messages.size() + 1);
+        if (systemMessage != null) {
+            result.add(systemMessage);
+        }
+        result.addAll(messages);
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        systemMessage = null;
+        messages.clear();
+    }
+
+    int tokens() {
+        int tokens = systemMessage != null ? tokenCounter.applyAsInt(systemMessage) : 0;
+        for (ChatMessage message : messages) {
+            tokens += tokenCounter.applyAsInt(message);
+        }
+        return tokens;
+    }
+
+    private void compact() {
+        int tokens = tokens();
+        if (tokens <= maxTokens) {
+            return;
+        }
+        int before = tokens;
+
+        // tool results of the previous turns, already answered by the model
+        int currentTurnStart = lastIndexOf(UserMessage.class);
+        tokens = compactToolResults(0, currentTurnStart, tokens);
+
+        int dropped = 0;
+        while (tokens > maxTokens && dropped < currentTurnStart) {
+            // drop the whole turn, up to the next user message
+            int turnEnd = dropped + 1;
+            while (turnEnd < currentTurnStart && !(messages.get(turnEnd) instanceof UserMessage)) {
+                turnEnd++;
+            }
+            for (int i = dropped; i < turnEnd; i++) {
+                tokens -= tokenCounter.applyAsInt(messages.get(i));
+            }
+            dropped = turnEnd;
+        }
+        if (dropped > 0) {
+            messages.subList(0, dropped).clear();
+        }
+
+        // tool results of the current turn, except the last ones that the model is about to read
+        tokens = compactToolResults(0, lastIndexOf(AiMessage.class), tokens);
+
+        LOGGER.debug("Chat memory compacted from {} to {} estimated tokens, {} messages dropped", before, tokens, dropped);
+        if (tokens > maxTokens) {
+            LOGGER.warn("Current turn takes {} estimated tokens, over the memory budget of {}", tokens, maxTokens);
+        }
+    }
+
+    /**
+     * Replaces the tool results between from and to with their digest, oldest first, until the budget is met.
+     *
+     * @return the tokens after the compaction
+     */
+    private int compactToolResults(int from, int to, int tokens) {
+        for (int i = from; i < to && tokens > maxTokens; i++) {
+            if (messages.get(i) instanceof ToolExecutionResultMessage toolResult) {
+                int toolResultTokens = tokenCounter.applyAsInt(toolResult);
+                if (toolResultTokens > toolResultDigestTokens) {
+                    ToolExecutionResultMessage digest = digestOf(toolResult);
+                    messages.set(i, digest);
+                    tokens += tokenCounter.applyAsInt(digest) - toolResultTokens;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private int lastIndexOf(Class<? extends ChatMessage> messageType) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messageType.isInstance(messages.get(i))) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    private ToolExecutionResultMessage digestOf(ToolExecutionResultMessage toolResult) {
+        String text = toolResult.text();
+        int headLength = Math.max(0, (toolResultDigestTokens - 20) * 4);
+        if (text.length() <= headLength) {
+            return toolResult;
+        }
+        String digest = text.substring(0, headLength)
+                + "... [truncated, %d of %d characters omitted]".formatted(text.length() - headLength, text.length());
+        return ToolExecutionResultMessage.from(toolResult.id(), toolResult.toolName(), digest);
+    }
+
+    private static int textLength(ChatMessage message) {
+        if (message instanceof SystemMessage systemMessage) {
+            return systemMessage.text().length();
+        }
+        if (message instanceof UserMessage userMessage) {
+            return userMessage.hasSingleText() ? userMessage.singleText().length() : userMessage.contents().toString().length();
+        }
+        if (message instanceof ToolExecutionResultMessage toolResult) {
+            return toolResult.text().length();
+        }
+        if (message instanceof AiMessage aiMessage) {
+            int length = aiMessage.text() != null ? aiMessage.text().length() : 0;
+            if (aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    length += request.name().length() + (request.arguments() != null ? request.arguments().length() : 0);
+                }
+            }
+            return length;
+        }
+        return message.toString().length();
+    }
+}
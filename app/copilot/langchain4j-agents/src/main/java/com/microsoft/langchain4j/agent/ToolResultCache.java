@@ -0,0 +1,227 @@
+package com.microsoft.langchain4j.agent;
+
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Caches the results of the read-only tools, so that the lookups repeated by the agents in a conversation, and on
+ * each turn, are answered without calling the business APIs again.
+ * Results are keyed by logged user, tool name and arguments, normalized so that the order of the fields and the
+ * formatting generated by the model don't matter. Each cached tool has its own ttl; the least recently used entries
+ * are evicted when the cache grows over the max size. When an invalidating tool, e.g. processPayment, succeeds all
+ * the results cached for the user are dropped, as balances and transactions are changed.
+ * Tools are matched by operation name, so both the MCP tool getAccountDetails and the OpenAPI tool
+ * account-api-getAccountDetails use the settings of getAccountDetails. Failed executions and error results are not
+ * cached.
+ */
+public class ToolResultCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ToolResultCache.class);
+
+    private static final ObjectMapper ARGUMENTS_MAPPER = JsonMapper.builder()
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    private final Map<String, Duration> ttlByTool;
+    private final Set<String> invalidatingTools;
+    private final List<String> errorResultPrefixes;
+    private final int maxSize;
+    private final Clock clock;
+    private final LinkedHashMap<Key, Entry> entries;
+    // incremented on each invalidation, so that results read before it are not stored after it
+    private long invalidations;
+
+    private record Key(String loggedUserName, String toolName, String arguments) {
+    }
+
+    private record Entry(String result, Instant expiresAt) {
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private final Map<String, Duration> ttlByTool = new HashMap<>();
+        private final Set<String> invalidatingTools = new HashSet<>();
+        private final List<String> errorResultPrefixes = new ArrayList<>();
+        private int maxSize = 10_000;
+        private Clock clock = Clock.systemUTC();
+
+        /**
+         * Caches the results of the given tool for the ttl. The tool must be read-only.
+         */
+        public Builder withToolTtl(String toolName, Duration ttl) {
+            if (toolName == null || toolName.isEmpty()) {
+                throw new IllegalArgumentException("toolName cannot be null or empty");
+            }
+            if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+                throw new IllegalArgumentException("ttl must be a positive duration");
+            }
+            this.ttlByTool.put(toolName, ttl);
+            return this;
+        }
+
+        /**
+         * When the given tool succeeds, the results cached for the user are dropped.
+         */
+        public Builder withInvalidatingTool(String toolName) {
+            if (toolName == null || toolName.isEmpty()) {
+                throw new IllegalArgumentException("toolName cannot be null or empty");
+            }
+            this.invalidatingTools.add(toolName);
+            return this;
+        }
+
+        /**
+         * Results starting with the given prefix are not cached. Used for the errors that the MCP client returns as
+         * tool results, e.g. the execution timeout.
+         */
+        public Builder withErrorResultPrefix(String prefix) {
+            if (prefix == null || prefix.isEmpty()) {
+                throw new IllegalArgumentException("prefix cannot be null or empty");
+            }
+            this.errorResultPrefixes.add(prefix);
+            return this;
+        }
+
+        public Builder withMaxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        Builder withClock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public ToolResultCache build() {
+            return new ToolResultCache(this);
+        }
+    }
+
+    private ToolResultCache(Builder builder) {
+        if (builder.maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0");
+        }
+        this.ttlByTool = Map.copyOf(builder.ttlByTool);
+        this.invalidatingTools = Set.copyOf(builder.invalidatingTools);
+        this.errorResultPrefixes = List.copyOf(builder.errorResultPrefixes);
+        this.maxSize = builder.maxSize;
+        this.clock = builder.clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > ToolResultCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached result of the tool request or starts its execution with the given executor.
+     *
+     * @param loggedUserName the user the agent is bound to. Results are never shared among users
+     */
+    public CompletableFuture<String> execute(String loggedUserName, ToolExecutionRequest toolExecutionRequest,
+                                             Function<ToolExecutionRequest, CompletableFuture<String>> executor) {
+        String operationName = operationName(toolExecutionRequest.name());
+
+        if (invalidatingTools.contains(operationName)) {
+            CompletableFuture<String> execution = executor.apply(toolExecutionRequest);
+            return ParallelToolExecutor.cancellingSource(execution, execution.thenApply(result -> {
+                invalidate(loggedUserName);
+                return result;
+            }));
+        }
+
+        Duration ttl = ttlByTool.get(operationName);
+        if (ttl == null) {
+            return executor.apply(toolExecutionRequest);
+        }
+
+        Key key = new Key(loggedUserName, toolExecutionRequest.name(), normalizeArguments(toolExecutionRequest.arguments()));
+        long invalidationsBefore;
+        synchronized (entries) {
+            invalidationsBefore = invalidations;
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt().isAfter(clock.instant())) {
+                LOGGER.debug("Using cached result of {} with params {}", toolExecutionRequest.name(), toolExecutionRequest.arguments());
+                return CompletableFuture.completedFuture(entry.result());
+            }
+        }
+
+        CompletableFuture<String> execution = executor.apply(toolExecutionRequest);
+        return ParallelToolExecutor.cancellingSource(execution, execution.thenApply(result -> {
+            if (isCacheable(result)) {
+                synchronized (entries) {
+                    if (invalidations == invalidationsBefore) {
+                        entries.put(key, new Entry(result, clock.instant().plus(ttl)));
+                    }
+                }
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * Drops all the results cached for the given user.
+     */
+    public void invalidate(String loggedUserName) {
+        synchronized (entries) {
+            invalidations++;
+            entries.keySet().removeIf(key -> Objects.equals(key.loggedUserName(), loggedUserName));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private boolean isCacheable(String result) {
+        if (result == null || result.isBlank()) {
+            return false;
+        }
+        return errorResultPrefixes.stream().noneMatch(result::startsWith);
+    }
+
+    // OpenAPI tools are prefixed with the api name, e.g. account-api-getAccountDetails
+    static String operationName(String toolName) {
+        return toolName.substring(toolName.lastIndexOf('-') + 1);
+    }
+
+    private static String normalizeArguments(String arguments) {
+        if (arguments == null || arguments.isBlank()) {
+            return "{}";
+        }
+        try {
+            return ARGUMENTS_MAPPER.writeValueAsString(ARGUMENTS_MAPPER.readValue(arguments, Object.class));
+        } catch (IOException e) {
+            // not json, the executor will report the error. Only an identical request can hit the entry
+            return arguments.strip();
+        }
+    }
+}
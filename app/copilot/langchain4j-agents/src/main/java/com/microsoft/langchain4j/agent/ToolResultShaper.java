@@ -0,0 +1,224 @@
+package com.microsoft.langchain4j.agent;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shapes the tool results before they are added to the chat, so that large results, e.g. all the transactions of
+ * an account, don't take the prompt tokens of every following ReAct step.
+ * For each configured tool the json results can be projected on the fields the agent needs, limited to a number of
+ * rows and encoded as a compact table, a header line with the field names followed by a line of values for each row.
+ * Results of any tool, shaped or not, are capped to a max number of characters. Rows and characters left out are
+ * reported with a marker, so that the model knows the result is partial.
+ * Tools are matched by operation name, like in {@link ToolResultCache}. Results that are not json are only capped.
+ */
+public class ToolResultShaper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ToolResultShaper.class);
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+            .enable(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+            .build();
+
+    /**
+     * Passes the results through, as they were before the shaping.
+     */
+    public static final ToolResultShaper NONE = builder().withMaxCharacters(Integer.MAX_VALUE).build();
+
+    private final Map<String, ToolResultShape> shapeByTool;
+    private final int maxCharacters;
+
+    /**
+     * How the results of a tool are shaped.
+     *
+     * @param fields  the fields kept in the objects, in this order. Empty to keep all the fields
+     * @param maxRows the max number of rows kept in array results
+     * @param tabular whether array results are encoded as a table rather than as json
+     */
+    public record ToolResultShape(List<String> fields, int maxRows, boolean tabular) {
+
+        public ToolResultShape {
+            if (fields == null) {
+                throw new IllegalArgumentException("fields cannot be null");
+            }
+            if (maxRows <= 0) {
+                throw new IllegalArgumentException("maxRows must be greater than 0");
+            }
+            fields = List.copyOf(fields);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private final Map<String, ToolResultShape> shapeByTool = new HashMap<>();
+        private int maxCharacters = 8_000;
+
+        public Builder withToolShape(String toolName, ToolResultShape shape) {
+            if (toolName == null || toolName.isEmpty()) {
+                throw new IllegalArgumentException("toolName cannot be null or empty");
+            }
+            if (shape == null) {
+                throw new IllegalArgumentException("shape cannot be null");
+            }
+            this.shapeByTool.put(toolName, shape);
+            return this;
+        }
+
+        /**
+         * Max characters of the results of any tool.
+         */
+        public Builder withMaxCharacters(int maxCharacters) {
+            this.maxCharacters = maxCharacters;
+            return this;
+        }
+
+        public ToolResultShaper build() {
+            return new ToolResultShaper(this);
+        }
+    }
+
+    private ToolResultShaper(Builder builder) {
+        if (builder.maxCharacters <= 0) {
+            throw new IllegalArgumentException("maxCharacters must be greater than 0");
+        }
+        this.shapeByTool = Map.copyOf(builder.shapeByTool);
+        this.maxCharacters = builder.maxCharacters;
+    }
+
+    /**
+     * Returns the result of the tool as it should be sent to the model.
+     */
+    public String shape(String toolName, String result) {
+        if (result == null) {
+            return null;
+        }
+        String shaped = result;
+        ToolResultShape shape = shapeByTool.get(ToolResultCache.operationName(toolName));
+        if (shape != null) {
+            shaped = shape(shape, result);
+        }
+        shaped = cap(shaped);
+        if (shaped.length() < result.length()) {
+            LOGGER.debug("Result of {} shaped from {} to {} characters", toolName, result.length(), shaped.length());
+        }
+        return shaped;
+    }
+
+    private String shape(ToolResultShape shape, String result) {
+        JsonNode json;
+        try {
+            json = OBJECT_MAPPER.readTree(result);
+        } catch (JsonProcessingException e) {
+            return result;
+        }
+        if (json == null || json.isMissingNode()) {
+            return result;
+        }
+
+        try {
+            if (json.isArray()) {
+                return shapeRows(shape, (ArrayNode) json);
+            }
+            if (json.isObject()) {
+                return OBJECT_MAPPER.writeValueAsString(project(shape.fields(), json));
+            }
+            return OBJECT_MAPPER.writeValueAsString(json);
+        } catch (JsonProcessingException e) {
+            return result;
+        }
+    }
+
+    private String shapeRows(ToolResultShape shape, ArrayNode rows) throws JsonProcessingException {
+        int keptRows = Math.min(rows.size(), shape.maxRows());
+        String moreRows = rows.size() > keptRows ? "\n... %d more rows".formatted(rows.size() - keptRows) : "";
+
+        boolean tabular = shape.tabular();
+        for (int i = 0; i < keptRows && tabular; i++) {
+            tabular = rows.get(i).isObject();
+        }
+        if (!tabular) {
+            ArrayNode kept = OBJECT_MAPPER.createArrayNode();
+            for (int i = 0; i < keptRows; i++) {
+                kept.add(project(shape.fields(), rows.get(i)));
+            }
+            return OBJECT_MAPPER.writeValueAsString(kept) + moreRows;
+        }
+
+        List<String> columns = new ArrayList<>(shape.fields());
+        if (columns.isEmpty()) {
+            Set<String> names = new LinkedHashSet<>();
+            for (int i = 0; i < keptRows; i++) {
+                rows.get(i).fieldNames().forEachRemaining(names::add);
+            }
+            columns.addAll(names);
+        }
+
+        StringBuilder table = new StringBuilder();
+        appendLine(table, columns);
+        for (int i = 0; i < keptRows; i++) {
+            JsonNode row = rows.get(i);
+            List<String> values = new ArrayList<>(columns.size());
+            for (String column : columns) {
+                values.add(cellOf(row.get(column)));
+            }
+            table.append('\n');
+            appendLine(table, values);
+        }
+        return table.append(moreRows).toString();
+    }
+
+    private static JsonNode project(List<String> fields, JsonNode node) {
+        if (fields.isEmpty() || !node.isObject()) {
+            return node;
+        }
+        ObjectNode projected = OBJECT_MAPPER.createObjectNode();
+        for (String field : fields) {
+            if (node.has(field)) {
+                projected.set(field, node.get(field));
+            }
+        }
+        return projected;
+    }
+
+    private static String cellOf(JsonNode value) {
+        if (value == null || value.isNull()) {
+            return "";
+        }
+        return value.isValueNode() ? value.asText() : value.toString();
+    }
+
+    // values are separated by '|', which is escaped, like the line breaks, when found in the values
+    private static void appendLine(StringBuilder table, List<String> values) {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                table.append('|');
+            }
+            table.append(values.get(i).replace("|", "\\|").replace("\n", " "));
+        }
+    }
+
+    private String cap(String result) {
+        if (result.length() <= maxCharacters) {
+            return result;
+        }
+        return result.substring(0, maxCharacters)
+                + "\n... [%d more characters]".formatted(result.length() - maxCharacters);
+    }
+}
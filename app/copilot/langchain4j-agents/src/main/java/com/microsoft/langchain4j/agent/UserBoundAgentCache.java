@@ -0,0 +1,87 @@
+package com.microsoft.langchain4j.agent;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Caches the agents bound to a specific user, so that the per user prompt binding is done once and not for each request.
+ * Entries are evicted when the cache grows over the max size (least recently used first) and when they are older than
+ * the ttl, which also keeps the timestamps rendered in the agent prompts reasonably fresh.
+ */
+public class UserBoundAgentCache<A> {
+
+    private final Function<String, A> agentFactory;
+    private final int maxSize;
+    private final Duration ttl;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry<A>> entries;
+
+    private record Entry<A>(A agent, Instant createdAt) {
+    }
+
+    public UserBoundAgentCache(Function<String, A> agentFactory, int maxSize, Duration ttl) {
+        this(agentFactory, maxSize, ttl, Clock.systemUTC());
+    }
+
+    UserBoundAgentCache(Function<String, A> agentFactory, int maxSize, Duration ttl, Clock clock) {
+        if (agentFactory == null) {
+            throw new IllegalArgumentException("agentFactory cannot be null");
+        }
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be a positive duration");
+        }
+        this.agentFactory = agentFactory;
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<A>> eldest) {
+                return size() > UserBoundAgentCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the agent bound to the given user, creating it when missing or expired.
+     */
+    public A get(String loggedUserName) {
+        if (loggedUserName == null || loggedUserName.isEmpty()) {
+            throw new IllegalArgumentException("loggedUserName cannot be null or empty");
+        }
+
+        Instant now = clock.instant();
+        synchronized (entries) {
+            Entry<A> entry = entries.get(loggedUserName);
+            if (entry != null && entry.createdAt().plus(ttl).isAfter(now)) {
+                return entry.agent();
+            }
+        }
+
+        // binding is cheap, in the worst case two concurrent requests of the same user build it twice
+        A agent = agentFactory.apply(loggedUserName);
+        synchronized (entries) {
+            entries.put(loggedUserName, new Entry<>(agent, now));
+        }
+        return agent;
+    }
+
+    public void evict(String loggedUserName) {
+        synchronized (entries) {
+            entries.remove(loggedUserName);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
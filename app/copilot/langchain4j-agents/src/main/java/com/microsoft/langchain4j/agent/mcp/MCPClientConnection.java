@@ -0,0 +1,194 @@
+package com.microsoft.langchain4j.agent.mcp;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.mcp.client.McpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * A connection to a MCP server shared by all the agents using it. The underlying client is created lazily and it's
+ * replaced when it fails, so a dropped SSE stream is recovered on the next call instead of wedging the agents.
+ * The server tools are discovered in background and, when a snapshot is available, the agents start with the
+ * tools of the snapshot while they are listed again from the server.
+ * Instances are created by {@link MCPClientRegistry}.
+ */
+public class MCPClientConnection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MCPClientConnection.class);
+
+    private final String sseUrl;
+    private final Supplier<McpClient> connector;
+    private final String toolExecutionTimeoutMessage;
+    private final Executor discoveryExecutor;
+    private final MCPToolSnapshotStore snapshotStore;
+    private McpClient client;
+    private volatile List<ToolSpecification> tools;
+    private CompletableFuture<List<ToolSpecification>> discovery;
+
+    MCPClientConnection(String sseUrl, Supplier<McpClient> connector, String toolExecutionTimeoutMessage,
+                        Executor discoveryExecutor, MCPToolSnapshotStore snapshotStore) {
+        this.sseUrl = sseUrl;
+        this.connector = connector;
+        this.toolExecutionTimeoutMessage = toolExecutionTimeoutMessage;
+        this.discoveryExecutor = discoveryExecutor;
+        this.snapshotStore = snapshotStore;
+    }
+
+    public String sseUrl() {
+        return sseUrl;
+    }
+
+    /**
+     * Starts the discovery of the server tools, unless it's already started, without waiting for it.
+     * When a snapshot of the tools is available the returned future is already completed with it and the tools are
+     * refreshed in background. A failed discovery is started again on next call.
+     */
+    public synchronized CompletableFuture<List<ToolSpecification>> discoverTools() {
+        if (discovery != null) {
+            return discovery;
+        }
+
+        List<ToolSpecification> snapshot = snapshotStore != null ? snapshotStore.read(sseUrl) : null;
+        CompletableFuture<List<ToolSpecification>> refresh = CompletableFuture.supplyAsync(this::refreshTools, discoveryExecutor);
+
+        if (snapshot != null) {
+            LOGGER.info("Using {} tools from snapshot for MCP server [{}]", snapshot.size(), sseUrl);
+            tools = List.copyOf(snapshot);
+            discovery = CompletableFuture.completedFuture(tools);
+            refresh.exceptionally(e -> {
+                LOGGER.warn("Background refresh of the tools of MCP server [{}] failed. Keeping the snapshot", sseUrl, e);
+                return tools;
+            });
+        } else {
+            discovery = refresh;
+            refresh.whenComplete((result, e) -> {
+                if (e != null) {
+                    resetDiscovery(refresh);
+                }
+            });
+        }
+        return discovery;
+    }
+
+    /**
+     * Returns the tools of the server, waiting for the discovery when they are not known yet.
+     */
+    public List<ToolSpecification> tools() {
+        List<ToolSpecification> current = tools;
+        if (current != null) {
+            return current;
+        }
+        try {
+            return discoverTools().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the tools discovered so far, without waiting for the discovery. Null when they are not known yet.
+     */
+    List<ToolSpecification> discoveredTools() {
+        return tools;
+    }
+
+    private List<ToolSpecification> refreshTools() {
+        List<ToolSpecification> listed = List.copyOf(listTools());
+        LOGGER.info("Discovered {} tools from MCP server [{}]", listed.size(), sseUrl);
+        tools = listed;
+        if (snapshotStore != null) {
+            snapshotStore.write(sseUrl, listed);
+        }
+        return listed;
+    }
+
+    private synchronized void resetDiscovery(CompletableFuture<List<ToolSpecification>> failed) {
+        if (discovery == failed) {
+            discovery = null;
+        }
+    }
+
+    /**
+     * Lists the tools of the server. Listing is idempotent, so it's retried once on a new connection when it fails.
+     */
+    public List<ToolSpecification> listTools() {
+        McpClient current = client();
+        try {
+            return current.listTools();
+        } catch (RuntimeException e) {
+            LOGGER.warn("Listing tools from MCP server [{}] failed. Reconnecting..", sseUrl, e);
+            invalidate(current);
+            return client().listTools();
+        }
+    }
+
+    /**
+     * Executes the tool on the server. Tool calls are not retried since they may not be idempotent (e.g. payments):
+     * when the call fails the connection is dropped and the next call opens a new one.
+     */
+    public String executeTool(ToolExecutionRequest toolExecutionRequest) {
+        McpClient current = client();
+        String result;
+        try {
+            result = current.executeTool(toolExecutionRequest);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Executing tool {} on MCP server [{}] failed. The connection will be reopened on next call", toolExecutionRequest.name(), sseUrl);
+            invalidate(current);
+            throw e;
+        }
+
+        if (toolExecutionTimeoutMessage.equals(result)) {
+            LOGGER.warn("Tool {} timed out on MCP server [{}]. The connection will be reopened on next call", toolExecutionRequest.name(), sseUrl);
+            invalidate(current);
+        }
+        return result;
+    }
+
+    synchronized McpClient client() {
+        if (client == null) {
+            LOGGER.info("Connecting to MCP server [{}]", sseUrl);
+            client = connector.get();
+        }
+        return client;
+    }
+
+    synchronized boolean isConnected() {
+        return client != null;
+    }
+
+    /**
+     * Drops the given client if it's still the current one. Concurrent callers failing on the same broken client
+     * close it once and don't drop the client reopened in the meantime.
+     */
+    synchronized void invalidate(McpClient broken) {
+        if (client == broken) {
+            client = null;
+            closeQuietly(broken);
+        }
+    }
+
+    synchronized void close() {
+        if (client != null) {
+            closeQuietly(client);
+            client = null;
+        }
+    }
+
+    private void closeQuietly(McpClient mcpClient) {
+        try {
+            mcpClient.close();
+        } catch (Exception e) {
+            LOGGER.debug("Error closing MCP client for server [{}]", sseUrl, e);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.microsoft.langchain4j.agent.mcp;
+
+import dev.langchain4j.mcp.client.DefaultMcpClient;
+import dev.langchain4j.mcp.client.McpClient;
+import dev.langchain4j.mcp.client.transport.McpTransport;
+import dev.langchain4j.mcp.client.transport.http.HttpMcpTransport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process wide registry of the MCP server connections, keyed by SSE url. Agents using the same MCP server share
+ * the same connection, so the number of connections depends on the number of servers and not on the number of agents.
+ * When enabled, a background health check probes the connections and reopens the broken ones.
+ * Tools are discovered in parallel on a dedicated pool and, when a snapshot directory is configured, the last listed
+ * tools are stored on disk and used at next startup while the servers are listed again.
+ */
+public class MCPClientRegistry implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MCPClientRegistry.class);
+
+    public static final String TOOL_EXECUTION_TIMEOUT_MESSAGE = "There was a timeout executing the tool";
+
+    private final Map<String, MCPClientConnection> connections = new ConcurrentHashMap<>();
+    private final Duration sseTimeout;
+    private final Duration toolExecutionTimeout;
+    private final Duration healthCheckTimeout;
+    private final boolean logTraffic;
+    private final ScheduledExecutorService healthCheckScheduler;
+    private final ExecutorService healthCheckProbes;
+    private final ExecutorService toolDiscovery;
+    private final MCPToolSnapshotStore toolSnapshotStore;
+
+    private static class SharedHolder {
+        private static final MCPClientRegistry INSTANCE = MCPClientRegistry.builder().build();
+    }
+
+    /**
+     * Registry with default settings, used by the agents that are not given one explicitly.
+     */
+    public static MCPClientRegistry shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private Duration sseTimeout = Duration.ofHours(3);
+        private Duration toolExecutionTimeout = Duration.ofSeconds(60);
+        private Duration healthCheckInterval = Duration.ofSeconds(60);
+        private Duration healthCheckTimeout = Duration.ofSeconds(10);
+        private boolean logTraffic = true;
+        private Path toolSnapshotDir;
+
+        /**
+         * Timeout of the HTTP calls, including the read timeout of the SSE stream when the server is idle.
+         */
+        public Builder withSseTimeout(Duration sseTimeout) {
+            this.sseTimeout = sseTimeout;
+            return this;
+        }
+
+        public Builder withToolExecutionTimeout(Duration toolExecutionTimeout) {
+            this.toolExecutionTimeout = toolExecutionTimeout;
+            return this;
+        }
+
+        /**
+         * Interval between two health checks of the open connections. Zero disables the health check.
+         */
+        public Builder withHealthCheckInterval(Duration healthCheckInterval) {
+            this.healthCheckInterval = healthCheckInterval;
+            return this;
+        }
+
+        public Builder withHealthCheckTimeout(Duration healthCheckTimeout) {
+            this.healthCheckTimeout = healthCheckTimeout;
+            return this;
+        }
+
+        public Builder withLogTraffic(boolean logTraffic) {
+            this.logTraffic = logTraffic;
+            return this;
+        }
+
+        /**
+         * Directory where the tools listed from the servers are stored. When null, no snapshot is used.
+         */
+        public Builder withToolSnapshotDir(Path toolSnapshotDir) {
+            this.toolSnapshotDir = toolSnapshotDir;
+            return this;
+        }
+
+        public MCPClientRegistry build() {
+            return new MCPClientRegistry(this);
+        }
+    }
+
+    private MCPClientRegistry(Builder builder) {
+        if (builder.sseTimeout == null || builder.toolExecutionTimeout == null
+                || builder.healthCheckInterval == null || builder.healthCheckTimeout == null) {
+            throw new IllegalArgumentException("MCP client timeouts cannot be null");
+        }
+        this.sseTimeout = builder.sseTimeout;
+        this.toolExecutionTimeout = builder.toolExecutionTimeout;
+        this.healthCheckTimeout = builder.healthCheckTimeout;
+        this.logTraffic = builder.logTraffic;
+        this.toolDiscovery = Executors.newCachedThreadPool(daemonThreadFactory("mcp-tool-discovery"));
+        this.toolSnapshotStore = builder.toolSnapshotDir != null ? new MCPToolSnapshotStore(builder.toolSnapshotDir) : null;
+
+        if (builder.healthCheckInterval.isZero() || builder.healthCheckInterval.isNegative()) {
+            this.healthCheckScheduler = null;
+            this.healthCheckProbes = null;
+        } else {
+            this.healthCheckScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("mcp-health-check"));
+            this.healthCheckProbes = Executors.newCachedThreadPool(daemonThreadFactory("mcp-health-probe"));
+            long intervalMillis = builder.healthCheckInterval.toMillis();
+            this.healthCheckScheduler.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns the connection to the given MCP server, creating it when it's the first time the server is used.
+     */
+    public MCPClientConnection connectionFor(String sseUrl) {
+        if (sseUrl == null || sseUrl.isEmpty()) {
+            throw new IllegalArgumentException("sseUrl cannot be null or empty");
+        }
+        return connections.computeIfAbsent(sseUrl, url -> new MCPClientConnection(url, () -> connect(url), TOOL_EXECUTION_TIMEOUT_MESSAGE, toolDiscovery, toolSnapshotStore));
+    }
+
+    /**
+     * Probes the open connections listing their tools. Connections not answering within the health check timeout
+     * are dropped and reopened.
+     */
+    public void checkHealth() {
+        connections.values().forEach(connection -> {
+            if (!connection.isConnected()) {
+                return;
+            }
+            McpClient client = connection.client();
+            try {
+                CompletableFuture.runAsync(client::listTools, healthCheckProbes)
+                        .get(healthCheckTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException | RuntimeException e) {
+                LOGGER.warn("MCP server [{}] is not healthy. Reconnecting..", connection.sseUrl(), e);
+                connection.invalidate(client);
+                try {
+                    connection.client();
+                } catch (RuntimeException reconnectError) {
+                    LOGGER.warn("Reconnection to MCP server [{}] failed. It will be retried on next call", connection.sseUrl(), reconnectError);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void close() {
+        if (healthCheckScheduler != null) {
+            healthCheckScheduler.shutdownNow();
+            healthCheckProbes.shutdownNow();
+        }
+        toolDiscovery.shutdownNow();
+        connections.values().forEach(MCPClientConnection::close);
+        connections.clear();
+    }
+
+    private McpClient connect(String sseUrl) {
+        McpTransport transport = new HttpMcpTransport.Builder()
+                .sseUrl(sseUrl)
+                .logRequests(logTraffic)
+                .logResponses(logTraffic)
+                .timeout(sseTimeout)
+                .build();
+
+        return new DefaultMcpClient.Builder()
+                .transport(transport)
+                .toolExecutionTimeout(toolExecutionTimeout)
+                .toolExecutionTimeoutErrorMessage(TOOL_EXECUTION_TIMEOUT_MESSAGE)
+                .build();
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -5,12 +5,7 @@ import com.microsoft.langchain4j.agent.AbstractReActAgent;
 import com.microsoft.langchain4j.agent.AgentExecutionException;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.agent.tool.ToolSpecification;
-import dev.langchain4j.data.message.ToolExecutionResultMessage;
 
-import dev.langchain4j.mcp.client.DefaultMcpClient;
-import dev.langchain4j.mcp.client.McpClient;
-import dev.langchain4j.mcp.client.transport.McpTransport;
-import dev.langchain4j.mcp.client.transport.http.HttpMcpTransport;
 import dev.langchain4j.model.chat.ChatLanguageModel;
 
 import dev.langchain4j.service.tool.ToolExecutor;
@@ -18,58 +13,89 @@ import dev.langchain4j.service.tool.ToolExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 public abstract class MCPToolAgent extends AbstractReActAgent {
     private static final Logger LOGGER = LoggerFactory.getLogger(MCPToolAgent.class);
 
-    protected  List<ToolSpecification> toolSpecifications;
+    //tools executed locally by the agent, in addition to the MCP ones
+    protected  List<ToolSpecification> extendedToolSpecifications;
     protected  Map<String, ToolExecutor> extendedExecutorMap;
-    protected List<McpClient> mcpClients;
-    protected Map<String, McpClient> tool2ClientMap;
+    protected List<MCPClientConnection> mcpClients;
+    // connection serving each tool, rebuilt from the tools discovered so far. Shared with the per user agents
+    private final AtomicReference<Map<String, MCPClientConnection>> toolConnections;
 
     protected MCPToolAgent(ChatLanguageModel chatModel, List<MCPServerMetadata> mcpServerMetadata) {
+        this(chatModel, mcpServerMetadata, MCPClientRegistry.shared());
+    }
+
+    /**
+     * The connections to the MCP servers are taken from the registry, so agents using the same server share them.
+     * Tool discovery is started here for all the servers in parallel, without waiting for it: the agent waits for the
+     * tools only when it's invoked the first time.
+     */
+    protected MCPToolAgent(ChatLanguageModel chatModel, List<MCPServerMetadata> mcpServerMetadata, MCPClientRegistry mcpClientRegistry) {
         super(chatModel);
+        if (mcpClientRegistry == null) {
+            throw new IllegalArgumentException("mcpClientRegistry cannot be null");
+        }
         this.mcpClients = new ArrayList<>();
-        this.tool2ClientMap = new HashMap<>();
-        this.toolSpecifications = new ArrayList<>();
+        this.extendedToolSpecifications = new ArrayList<>();
         this.extendedExecutorMap = new HashMap<>();
+        this.toolConnections = new AtomicReference<>(Map.of());
 
         mcpServerMetadata.forEach(metadata -> {
             //only SSE is supported
             if(metadata.protocolType().equals(MCPProtocolType.SSE)){
-                McpTransport transport = new HttpMcpTransport.Builder()
-                        .sseUrl(metadata.url())
-                        .logRequests(true) // if you want to see the traffic in the log
-                        .logResponses(true)
-                        .timeout(Duration.ofHours(3))
-                        .build();
-
-                McpClient mcpClient = new DefaultMcpClient.Builder()
-                        .transport(transport)
-                        .build();
-                mcpClient
-                        .listTools()
-                        .forEach(toolSpecification -> {
-                            this.tool2ClientMap.put(toolSpecification.name(),mcpClient);
-                            this.toolSpecifications.add(toolSpecification);
-                            }
-                        );
+                MCPClientConnection mcpClient = mcpClientRegistry.connectionFor(metadata.url());
                 this.mcpClients.add(mcpClient);
 
             }
 
         });
+        this.mcpClients.forEach(mcpClient -> mcpClient.discoverTools().thenRun(this::refreshToolConnections));
+    }
 
+    /**
+     * Creates an agent sharing the MCP clients and the tool specifications of the given one.
+     * No connection is opened, so it's cheap enough to be done per user.
+     */
+    protected MCPToolAgent(MCPToolAgent prototype) {
+        super(prototype);
+        this.mcpClients = prototype.mcpClients;
+        this.extendedToolSpecifications = prototype.extendedToolSpecifications;
+        this.extendedExecutorMap = prototype.extendedExecutorMap;
+        this.toolConnections = prototype.toolConnections;
     }
 
+    /**
+     * Returns the tools of the MCP servers and the extended ones. A server whose tools can't be discovered is left out,
+     * so that the agent still works with the tools of the healthy servers; its discovery is retried on next call.
+     */
     @Override
     protected List<ToolSpecification> getToolSpecifications() {
-        return this.toolSpecifications;
+        List<ToolSpecification> toolSpecifications = new ArrayList<>();
+        Map<String, MCPClientConnection> connections = new HashMap<>();
+        for (MCPClientConnection mcpClient : this.mcpClients) {
+            List<ToolSpecification> tools;
+            try {
+                tools = mcpClient.tools();
+            } catch (RuntimeException e) {
+                LOGGER.warn("Tools of MCP server [{}] are not available. Continuing without them", mcpClient.sseUrl(), e);
+                continue;
+            }
+            toolSpecifications.addAll(tools);
+            // when more servers expose the same tool, the last one wins
+            tools.forEach(tool -> connections.put(tool.name(), mcpClient));
+        }
+        this.toolConnections.set(Map.copyOf(connections));
+        toolSpecifications.addAll(this.extendedToolSpecifications);
+        return toolSpecifications;
     }
 
 
@@ -78,35 +104,53 @@ public abstract class MCPToolAgent extends AbstractReActAgent {
         throw new AgentExecutionException("getToolExecutor not required when using MCP. if you landed here please review your agent code");
     }
 
-    protected List<ToolExecutionResultMessage> executeToolRequests(List<ToolExecutionRequest> toolExecutionRequests) {
-        List<ToolExecutionResultMessage> toolExecutionResultMessages = new ArrayList<>();
-        for (ToolExecutionRequest toolExecutionRequest : toolExecutionRequests) {
-
-            String result = "ko";
-
-            // try first the extended executors
-            var toolExecutor = extendedExecutorMap.get(toolExecutionRequest.name());
-            if( toolExecutor != null){
-                LOGGER.info("Executing {} with params {}", toolExecutionRequest.name(), toolExecutionRequest.arguments());
-                 result = toolExecutor.execute(toolExecutionRequest,null);
-                LOGGER.info("Response from {}: {}", toolExecutionRequest.name(), result);
-
-            }else{
-                var mcpClient = tool2ClientMap.get(toolExecutionRequest.name());
-                if (mcpClient == null) {
-                    throw new IllegalArgumentException("No MCP executor found for tool name: " + toolExecutionRequest.name());
-                }
-                LOGGER.info("Executing {} with params {}", toolExecutionRequest.name(), toolExecutionRequest.arguments());
-                result =  mcpClient.executeTool(toolExecutionRequest);
-                LOGGER.info("Response from {}: {}", toolExecutionRequest.name(), result);
+    /**
+     * The langchain4j MCP client only exposes blocking tool calls, so both the MCP and the extended tools are executed
+     * on the tool pool.
+     */
+    @Override
+    protected CompletableFuture<String> executeToolRequestAsync(ToolExecutionRequest toolExecutionRequest) {
+        return parallelToolExecutor.submit(() -> executeToolRequest(toolExecutionRequest));
+    }
+
+    @Override
+    protected String executeToolRequest(ToolExecutionRequest toolExecutionRequest) {
+        String result;
+
+        // try first the extended executors
+        var toolExecutor = extendedExecutorMap.get(toolExecutionRequest.name());
+        if( toolExecutor != null){
+            LOGGER.info("Executing {} with params {}", toolExecutionRequest.name(), toolExecutionRequest.arguments());
+            result = toolExecutor.execute(toolExecutionRequest,null);
+            LOGGER.info("Response from {}: {}", toolExecutionRequest.name(), result);
+
+        }else{
+            var mcpClient = mcpClientOf(toolExecutionRequest.name());
+            if (mcpClient == null) {
+                throw new IllegalArgumentException("No MCP executor found for tool name: " + toolExecutionRequest.name());
             }
+            LOGGER.info("Executing {} with params {}", toolExecutionRequest.name(), toolExecutionRequest.arguments());
+            result =  mcpClient.executeTool(toolExecutionRequest);
+            LOGGER.info("Response from {}: {}", toolExecutionRequest.name(), result);
+        }
+        return result;
+    }
+
+    private MCPClientConnection mcpClientOf(String toolName) {
+        return this.toolConnections.get().get(toolName);
+    }
 
-            if (result == null || result.isEmpty()) {
-                LOGGER.warn("Tool {} returned empty result but successfully completed. Setting result=ok.", toolExecutionRequest.name());
-                result = "ok";
+    /**
+     * Maps the tools to the connections, without waiting for the servers whose discovery is still running or failed.
+     */
+    private void refreshToolConnections() {
+        Map<String, MCPClientConnection> connections = new HashMap<>();
+        for (MCPClientConnection mcpClient : this.mcpClients) {
+            List<ToolSpecification> tools = mcpClient.discoveredTools();
+            if (tools != null) {
+                tools.forEach(tool -> connections.put(tool.name(), mcpClient));
             }
-            toolExecutionResultMessages.add(ToolExecutionResultMessage.from(toolExecutionRequest, result));
         }
-        return toolExecutionResultMessages;
+        this.toolConnections.set(Map.copyOf(connections));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+package com.microsoft.langchain4j.agent.mcp;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.openapi.ToolSpecificationJson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores on disk the last tool specifications listed from each MCP server, so that agents can start with them
+ * without waiting for the servers. One json file per server is written in the snapshot directory.
+ * Schemas using elements not supported here are not stored, rather than stored partially.
+ */
+class MCPToolSnapshotStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MCPToolSnapshotStore.class);
+
+    private final Path snapshotDir;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    MCPToolSnapshotStore(Path snapshotDir) {
+        if (snapshotDir == null) {
+            throw new IllegalArgumentException("snapshotDir cannot be null");
+        }
+        this.snapshotDir = snapshotDir;
+    }
+
+    /**
+     * Returns the tools stored for the given server or null when there is no usable snapshot.
+     */
+    List<ToolSpecification> read(String sseUrl) {
+        Path snapshotFile = snapshotFile(sseUrl);
+        if (!Files.exists(snapshotFile)) {
+            return null;
+        }
+        try {
+            JsonNode snapshot = objectMapper.readTree(snapshotFile.toFile());
+            List<ToolSpecification> tools = new ArrayList<>();
+            for (JsonNode tool : snapshot.path("tools")) {
+                tools.add(ToolSpecificationJson.fromJson(tool));
+            }
+            return tools;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to read MCP tools snapshot [{}]. It will be ignored", snapshotFile, e);
+            return null;
+        }
+    }
+
+    void write(String sseUrl, List<ToolSpecification> tools) {
+        Path snapshotFile = snapshotFile(sseUrl);
+        try {
+            ObjectNode snapshot = objectMapper.createObjectNode();
+            snapshot.put("sseUrl", sseUrl);
+            ArrayNode toolsNode = snapshot.putArray("tools");
+            for (ToolSpecification tool : tools) {
+                toolsNode.add(ToolSpecificationJson.toJson(objectMapper, tool));
+            }
+
+            Files.createDirectories(snapshotDir);
+            Path tempFile = Files.createTempFile(snapshotDir, snapshotFile.getFileName().toString(), ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(tempFile.toFile(), snapshot);
+            Files.move(tempFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to write MCP tools snapshot [{}]", snapshotFile, e);
+        }
+    }
+
+    Path snapshotFile(String sseUrl) {
+        return snapshotDir.resolve(sseUrl.replaceAll("[^A-Za-z0-9.-]", "_") + ".json");
+    }
+}
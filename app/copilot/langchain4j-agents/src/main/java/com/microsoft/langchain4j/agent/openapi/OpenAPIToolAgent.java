@@ -3,6 +3,7 @@ package com.microsoft.langchain4j.agent.openapi;
 import com.microsoft.langchain4j.agent.AbstractReActAgent;
 import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.openapi.OpenAPISpecCache;
 import dev.langchain4j.openapi.OpenAPIToolsImporter;
 import dev.langchain4j.service.tool.ToolExecutor;
 import java.util.ArrayList;
@@ -16,7 +17,17 @@ public abstract class OpenAPIToolAgent extends AbstractReActAgent {
     protected  Map<String, ToolExecutor> toolExecutorMap;
 
     protected OpenAPIToolAgent(ChatLanguageModel chatModel, List<OpenAPIImporterMetadata> metadataList) {
+        this(chatModel, metadataList, OpenAPISpecCache.shared());
+    }
+
+    /**
+     * The specs are parsed through the given cache, so agents importing the same spec parse it once.
+     */
+    protected OpenAPIToolAgent(ChatLanguageModel chatModel, List<OpenAPIImporterMetadata> metadataList, OpenAPISpecCache specCache) {
         super(chatModel);
+        if (specCache == null) {
+            throw new IllegalArgumentException("specCache cannot be null");
+        }
         this.toolSpecifications = new ArrayList<>();
         this.toolExecutorMap = new HashMap<>();
 
@@ -25,6 +36,7 @@ public abstract class OpenAPIToolAgent extends AbstractReActAgent {
                 .withToolName(metadata.toolName())
                 .withSpecPath(metadata.openApiFileName())
                 .withServerUrl(metadata.openApiUrl())
+                .withSpecCache(specCache)
                 .build();
 
             toolSpecifications.addAll(importer.getToolSpecifications());
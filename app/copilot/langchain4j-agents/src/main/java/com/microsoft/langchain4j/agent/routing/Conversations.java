@@ -0,0 +1,48 @@
+package com.microsoft.langchain4j.agent.routing;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Helpers to inspect a chat history when routing it.
+ */
+public final class Conversations {
+
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+
+    private Conversations() {
+    }
+
+    /**
+     * Returns the text of the last user message, or null when there is no user message with a single text.
+     */
+    public static String lastUserText(List<ChatMessage> chatHistory) {
+        for (int i = chatHistory.size() - 1; i >= 0; i--) {
+            if (chatHistory.get(i) instanceof UserMessage userMessage) {
+                return userMessage.hasSingleText() ? userMessage.singleText() : null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns true when the assistant answer preceding the last user message ends with a question, meaning that the
+     * user message is likely an answer to it. Html tags of the answer are ignored.
+     */
+    public static boolean assistantAskedQuestion(List<ChatMessage> chatHistory) {
+        boolean userMessageFound = false;
+        for (int i = chatHistory.size() - 1; i >= 0; i--) {
+            ChatMessage message = chatHistory.get(i);
+            if (message instanceof UserMessage) {
+                userMessageFound = true;
+            } else if (userMessageFound && message instanceof AiMessage aiMessage && aiMessage.text() != null) {
+                return HTML_TAG.matcher(aiMessage.text()).replaceAll("").strip().endsWith("?");
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,20 @@
+package com.microsoft.langchain4j.agent.routing;
+
+import dev.langchain4j.data.message.ChatMessage;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Resolves the agent that should handle the conversation without calling the model.
+ * Supervisors use it as a fast path and fall back to the model when no agent is returned.
+ */
+public interface IntentRouter {
+
+    IntentRouter NONE = chatHistory -> Optional.empty();
+
+    /**
+     * Returns the name of the agent handling the last user message, or empty when the intent is not clear enough.
+     */
+    Optional<String> route(List<ChatMessage> chatHistory);
+}
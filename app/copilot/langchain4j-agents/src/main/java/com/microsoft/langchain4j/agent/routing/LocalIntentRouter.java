@@ -0,0 +1,234 @@
+package com.microsoft.langchain4j.agent.routing;
+
+import dev.langchain4j.data.message.ChatMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In process intent router combining keyword/regex rules with a naive bayes text classifier trained on labelled
+ * utterances. Rules are evaluated first: when they all point to the same agent that agent is returned, when they point
+ * to different agents the message is ambiguous and nothing is returned. The rules of an agent are ignored when one
+ * of its exceptions is found in the message, e.g. "when did I pay the gas bill" is about the history and not a payment.
+ * When no rule matches the classifier is used and its answer is returned only when its confidence is above the
+ * configured threshold.
+ * The last user message is not routed when the assistant asked a question in its previous answer, since in that
+ * case the user message can't be understood without the conversation.
+ */
+public class LocalIntentRouter implements IntentRouter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalIntentRouter.class);
+    private static final Pattern TOKEN = Pattern.compile("[a-z0-9]+");
+
+    private final Map<String, List<Pattern>> rules;
+    private final Map<String, List<Pattern>> ruleExceptions;
+    private final double minConfidence;
+    private final Map<String, Map<String, Integer>> tokenCounts = new HashMap<>();
+    private final Map<String, Integer> labelTokens = new HashMap<>();
+    private final Map<String, Integer> labelExamples = new HashMap<>();
+    private final Set<String> vocabulary = new HashSet<>();
+    private int examples;
+
+    public record Classification(String label, double confidence) {
+    }
+
+    private LocalIntentRouter(Builder builder) {
+        if (builder.minConfidence <= 0 || builder.minConfidence > 1) {
+            throw new IllegalArgumentException("minConfidence must be in the (0,1] range");
+        }
+        this.rules = builder.rules;
+        this.ruleExceptions = builder.ruleExceptions;
+        this.minConfidence = builder.minConfidence;
+        builder.examples.forEach(example -> train(example.label(), example.text()));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private record Example(String label, String text) {
+    }
+
+    public static class Builder {
+
+        private final Map<String, List<Pattern>> rules = new LinkedHashMap<>();
+        private final Map<String, List<Pattern>> ruleExceptions = new HashMap<>();
+        private final List<Example> examples = new ArrayList<>();
+        private double minConfidence = 0.9;
+
+        /**
+         * Adds a case insensitive regex that, when found in the user message, routes it to the given agent.
+         */
+        public Builder withRule(String agentName, String regex) {
+            rules.computeIfAbsent(agentName, k -> new ArrayList<>())
+                    .add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
+            return this;
+        }
+
+        /**
+         * Adds a case insensitive regex that, when found in the user message, disables the rules of the given agent.
+         * The message is then left to the classifier.
+         */
+        public Builder withRuleException(String agentName, String regex) {
+            ruleExceptions.computeIfAbsent(agentName, k -> new ArrayList<>())
+                    .add(Pattern.compile(regex, Pattern.CASE_INSENSITIVE));
+            return this;
+        }
+
+        public Builder withExample(String agentName, String utterance) {
+            examples.add(new Example(agentName, utterance));
+            return this;
+        }
+
+        /**
+         * Loads rules and examples from a classpath resource. Each line has three tab separated columns:
+         * the agent name, the kind of entry (rule, unless or example) and the regex or the utterance.
+         * An unless entry is an exception to the rules of the agent.
+         * Empty lines and lines starting with # are skipped.
+         */
+        public Builder withTrainingResource(String resourceName) {
+            InputStream resource = LocalIntentRouter.class.getClassLoader().getResourceAsStream(resourceName);
+            if (resource == null) {
+                throw new IllegalArgumentException("Intent training resource not found: " + resourceName);
+            }
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank() || line.startsWith("#")) {
+                        continue;
+                    }
+                    String[] columns = line.split("\t", 3);
+                    if (columns.length != 3) {
+                        throw new IllegalArgumentException("Invalid line %d in intent training resource %s".formatted(lineNumber, resourceName));
+                    }
+                    switch (columns[1].trim()) {
+                        case "rule" -> withRule(columns[0].trim(), columns[2].trim());
+                        case "unless" -> withRuleException(columns[0].trim(), columns[2].trim());
+                        case "example" -> withExample(columns[0].trim(), columns[2].trim());
+                        default -> throw new IllegalArgumentException("Invalid entry kind [%s] at line %d in intent training resource %s".formatted(columns[1], lineNumber, resourceName));
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Unable to read intent training resource: " + resourceName, e);
+            }
+            return this;
+        }
+
+        public Builder withMinConfidence(double minConfidence) {
+            this.minConfidence = minConfidence;
+            return this;
+        }
+
+        public LocalIntentRouter build() {
+            return new LocalIntentRouter(this);
+        }
+    }
+
+    @Override
+    public Optional<String> route(List<ChatMessage> chatHistory) {
+        String userText = Conversations.lastUserText(chatHistory);
+        if (userText == null || userText.isBlank() || Conversations.assistantAskedQuestion(chatHistory)) {
+            return Optional.empty();
+        }
+
+        List<String> ruleMatches = matchRules(userText);
+        if (ruleMatches.size() == 1) {
+            LOGGER.debug("Intent [{}] resolved by rules", ruleMatches.get(0));
+            return Optional.of(ruleMatches.get(0));
+        }
+        if (ruleMatches.size() > 1) {
+            LOGGER.debug("Rules of different agents {} matched. Intent is ambiguous", ruleMatches);
+            return Optional.empty();
+        }
+
+        return classify(userText)
+                .filter(classification -> classification.confidence() >= minConfidence)
+                .map(classification -> {
+                    LOGGER.debug("Intent [{}] resolved by classifier with confidence {}", classification.label(), classification.confidence());
+                    return classification.label();
+                });
+    }
+
+    /**
+     * Returns the agents having at least one rule matching the text and none of their exceptions.
+     */
+    List<String> matchRules(String text) {
+        List<String> matched = new ArrayList<>();
+        for (Map.Entry<String, List<Pattern>> agentRules : rules.entrySet()) {
+            if (agentRules.getValue().stream().anyMatch(pattern -> pattern.matcher(text).find())
+                    && ruleExceptions.getOrDefault(agentRules.getKey(), List.of()).stream()
+                    .noneMatch(pattern -> pattern.matcher(text).find())) {
+                matched.add(agentRules.getKey());
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * Returns the most likely label with its posterior probability, or empty when the text has no known word.
+     */
+    public Optional<Classification> classify(String text) {
+        List<String> tokens = tokenize(text).stream().filter(vocabulary::contains).toList();
+        if (tokens.isEmpty() || examples == 0) {
+            return Optional.empty();
+        }
+
+        Map<String, Double> logScores = new HashMap<>();
+        for (String label : labelExamples.keySet()) {
+            double score = Math.log((double) labelExamples.get(label) / examples);
+            Map<String, Integer> counts = tokenCounts.get(label);
+            double denominator = labelTokens.get(label) + vocabulary.size();
+            for (String token : tokens) {
+                score += Math.log((counts.getOrDefault(token, 0) + 1) / denominator);
+            }
+            logScores.put(label, score);
+        }
+
+        double maxScore = logScores.values().stream().mapToDouble(Double::doubleValue).max().orElseThrow();
+        double normalizer = logScores.values().stream().mapToDouble(score -> Math.exp(score - maxScore)).sum();
+        return logScores.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(best -> new Classification(best.getKey(), Math.exp(best.getValue() - maxScore) / normalizer));
+    }
+
+    private void train(String label, String utterance) {
+        examples++;
+        labelExamples.merge(label, 1, Integer::sum);
+        Map<String, Integer> counts = tokenCounts.computeIfAbsent(label, k -> new HashMap<>());
+        for (String token : tokenize(utterance)) {
+            counts.merge(token, 1, Integer::sum);
+            labelTokens.merge(label, 1, Integer::sum);
+            vocabulary.add(token);
+        }
+        labelTokens.putIfAbsent(label, 0);
+    }
+
+    private static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        while (matcher.find()) {
+            if (matcher.group().length() > 1) {
+                tokens.add(matcher.group());
+            }
+        }
+        return tokens;
+    }
+}
@@ -1,8 +1,10 @@
 package com.microsoft.openai.samples.assistant.langchain4j.agent;
 
 import com.microsoft.langchain4j.agent.Agent;
+import com.microsoft.langchain4j.agent.AgentEventListener;
 import com.microsoft.langchain4j.agent.AgentExecutionException;
 import com.microsoft.langchain4j.agent.AgentMetadata;
+import com.microsoft.langchain4j.agent.routing.IntentRouter;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
@@ -26,6 +28,8 @@ public class SupervisorRoutingAgent {
     private final List<Agent> agents;
     private final Map<String, AgentMetadata> agentsMetadata;
     private final Prompt agentPrompt;
+    //optional fast path resolving the next agent without calling the model
+    private IntentRouter intentRouter = IntentRouter.NONE;
     //When false only detect the next agent but doesn't route to it. It will answer with the agent name.
 
     private final String SUPERVISOR_AGENT_SINGLETURN_SYSTEM_MESSAGE = """
@@ -49,9 +53,31 @@ public class SupervisorRoutingAgent {
     }
 
 
+    public void setIntentRouter(IntentRouter intentRouter) {
+        if (intentRouter == null) {
+            throw new IllegalArgumentException("intentRouter cannot be null");
+        }
+        this.intentRouter = intentRouter;
+    }
+
     public List<ChatMessage> invoke(List<ChatMessage> chatHistory) {
+        return invoke(chatHistory, AgentEventListener.NOOP);
+    }
+
+    public List<ChatMessage> invoke(List<ChatMessage> chatHistory, AgentEventListener listener) {
         LOGGER.info("------------- SupervisorAgent -------------");
 
+        String nextAgent = intentRouter.route(chatHistory)
+                .filter(agentsMetadata::containsKey)
+                .orElseGet(() -> selectAgent(chatHistory));
+        LOGGER.info("Supervisor Agent handoff to [{}]", nextAgent);
+
+        return singleTurnRouting(nextAgent, chatHistory, listener);
+
+    }
+
+
+    private String selectAgent(List<ChatMessage> chatHistory) {
         var internalChatMemory = buildInternalChat(chatHistory);
 
         ChatRequest request = ChatRequest.builder()
@@ -59,16 +85,10 @@ public class SupervisorRoutingAgent {
                 .build();
 
         AiMessage aiMessage = chatLanguageModel.chat(request).aiMessage();
-
-        String nextAgent = aiMessage.text();
-        LOGGER.info("Supervisor Agent handoff to [{}]", nextAgent);
-
-        return singleTurnRouting(nextAgent, chatHistory);
-
+        return aiMessage.text();
     }
 
-
-    protected List<ChatMessage> singleTurnRouting(String nextAgent, List<ChatMessage> chatHistory) {
+    protected List<ChatMessage> singleTurnRouting(String nextAgent, List<ChatMessage> chatHistory, AgentEventListener listener) {
 
             if("none".equalsIgnoreCase(nextAgent)){
                 LOGGER.info("Gracefully handle clarification.. ");
@@ -76,6 +96,7 @@ public class SupervisorRoutingAgent {
                         text(" I'm not sure about your request. Can you please clarify?")
                         .build();
                 chatHistory.add(clarificationMessage);
+                listener.onPartialResponse(clarificationMessage.text());
                 return chatHistory;
             }
 
@@ -84,7 +105,8 @@ public class SupervisorRoutingAgent {
                 .findFirst()
                 .orElseThrow(() -> new AgentExecutionException("Agent not found: " + nextAgent));
 
-        return agent.invoke(chatHistory);
+        listener.onAgentSelected(nextAgent);
+        return agent.invoke(chatHistory, listener);
     }
 
     private ChatMemory buildInternalChat(List<ChatMessage> chatHistory) {
@@ -1,6 +1,8 @@
 package com.microsoft.openai.samples.assistant.langchain4j.agent.mcp;
 
+import com.microsoft.langchain4j.agent.AgentExecutionException;
 import com.microsoft.langchain4j.agent.AgentMetadata;
+import com.microsoft.langchain4j.agent.mcp.MCPClientRegistry;
 import com.microsoft.langchain4j.agent.mcp.MCPProtocolType;
 import com.microsoft.langchain4j.agent.mcp.MCPServerMetadata;
 import com.microsoft.langchain4j.agent.mcp.MCPToolAgent;
@@ -24,13 +26,39 @@ public class AccountMCPAgent extends MCPToolAgent {
 
     public AccountMCPAgent(ChatLanguageModel chatModel, String loggedUserName, String accountMCPServerUrl) {
         super(chatModel, List.of(new MCPServerMetadata("account",  accountMCPServerUrl, MCPProtocolType.SSE)));
+        this.agentPrompt = buildPrompt(loggedUserName);
+        this.loggedUserName = loggedUserName;
+    }
+
+    /**
+     * Creates an agent not bound to any user. It connects to the MCP server and it's meant to be shared:
+     * use {@link #forUser(String)} to get the instance serving a specific user.
+     */
+    public AccountMCPAgent(ChatLanguageModel chatModel, MCPClientRegistry mcpClientRegistry, String accountMCPServerUrl) {
+        super(chatModel, List.of(new MCPServerMetadata("account",  accountMCPServerUrl, MCPProtocolType.SSE)), mcpClientRegistry);
+        this.agentPrompt = null;
+    }
+
+    private AccountMCPAgent(AccountMCPAgent prototype, String loggedUserName) {
+        super(prototype);
+        this.agentPrompt = buildPrompt(loggedUserName);
+        this.loggedUserName = loggedUserName;
+    }
+
+    /**
+     * Returns an agent bound to the given user, sharing the MCP clients of this one.
+     */
+    public AccountMCPAgent forUser(String loggedUserName) {
+        return new AccountMCPAgent(this, loggedUserName);
+    }
 
+    private static Prompt buildPrompt(String loggedUserName) {
         if (loggedUserName == null || loggedUserName.isEmpty()) {
             throw new IllegalArgumentException("loggedUserName cannot be null or empty");
         }
 
         PromptTemplate promptTemplate = PromptTemplate.from(ACCOUNT_AGENT_SYSTEM_MESSAGE);
-        this.agentPrompt = promptTemplate.apply(Map.of("loggedUserName", loggedUserName));
+        return promptTemplate.apply(Map.of("loggedUserName", loggedUserName));
     }
 
     @Override
@@ -48,6 +76,9 @@ public class AccountMCPAgent extends MCPToolAgent {
 
     @Override
     protected String getSystemMessage() {
+        if (agentPrompt == null) {
+            throw new AgentExecutionException("Agent [%s] is not bound to a logged user. Use forUser() before invoking it".formatted(getName()));
+        }
         return agentPrompt.text();
     }
 
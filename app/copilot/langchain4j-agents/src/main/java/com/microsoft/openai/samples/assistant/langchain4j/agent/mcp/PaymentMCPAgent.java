@@ -2,6 +2,7 @@ package com.microsoft.openai.samples.assistant.langchain4j.agent.mcp;
 
 import com.microsoft.langchain4j.agent.AgentExecutionException;
 import com.microsoft.langchain4j.agent.AgentMetadata;
+import com.microsoft.langchain4j.agent.mcp.MCPClientRegistry;
 import com.microsoft.langchain4j.agent.mcp.MCPProtocolType;
 import com.microsoft.langchain4j.agent.mcp.MCPServerMetadata;
 import com.microsoft.langchain4j.agent.mcp.MCPToolAgent;
@@ -81,16 +82,46 @@ public class PaymentMCPAgent extends MCPToolAgent {
                 new MCPServerMetadata("transaction", transactionMCPServerURL, MCPProtocolType.SSE),
                 new MCPServerMetadata("account", accountMCPServerUrl, MCPProtocolType.SSE)));
 
+        this.agentPrompt = buildPrompt(loggedUserName);
+        this.loggedUserName = loggedUserName;
+        extendToolMap(documentIntelligenceInvoiceScanHelper);
+    }
+
+    /**
+     * Creates an agent not bound to any user. It connects to the MCP servers and it's meant to be shared:
+     * use {@link #forUser(String)} to get the instance serving a specific user.
+     */
+    public PaymentMCPAgent(ChatLanguageModel chatModel, DocumentIntelligenceInvoiceScanHelper documentIntelligenceInvoiceScanHelper, MCPClientRegistry mcpClientRegistry, String transactionMCPServerURL, String accountMCPServerUrl, String paymentsMCPServerUrl) {
+        super(chatModel, List.of(new MCPServerMetadata("payment", paymentsMCPServerUrl, MCPProtocolType.SSE),
+                new MCPServerMetadata("transaction", transactionMCPServerURL, MCPProtocolType.SSE),
+                new MCPServerMetadata("account", accountMCPServerUrl, MCPProtocolType.SSE)), mcpClientRegistry);
+
+        this.agentPrompt = null;
+        extendToolMap(documentIntelligenceInvoiceScanHelper);
+    }
+
+    private PaymentMCPAgent(PaymentMCPAgent prototype, String loggedUserName) {
+        super(prototype);
+        this.agentPrompt = buildPrompt(loggedUserName);
+        this.loggedUserName = loggedUserName;
+    }
+
+    /**
+     * Returns an agent bound to the given user, sharing the MCP clients and the invoice scan tool of this one.
+     */
+    public PaymentMCPAgent forUser(String loggedUserName) {
+        return new PaymentMCPAgent(this, loggedUserName);
+    }
+
+    private static Prompt buildPrompt(String loggedUserName) {
         if (loggedUserName == null || loggedUserName.isEmpty()) {
             throw new IllegalArgumentException("loggedUserName cannot be null or empty");
         }
 
-        extendToolMap(documentIntelligenceInvoiceScanHelper);
-
         PromptTemplate promptTemplate = PromptTemplate.from(PAYMENT_AGENT_SYSTEM_MESSAGE);
         var datetimeIso8601 = ZonedDateTime.now(ZoneId.of("UTC")).toInstant().toString();
 
-        this.agentPrompt = promptTemplate.apply(Map.of(
+        return promptTemplate.apply(Map.of(
                 "loggedUserName", loggedUserName,
                 "currentDateTime", datetimeIso8601
         ));
@@ -111,6 +142,9 @@ public class PaymentMCPAgent extends MCPToolAgent {
 
     @Override
     protected String getSystemMessage() {
+        if (agentPrompt == null) {
+            throw new AgentExecutionException("Agent [%s] is not bound to a logged user. Use forUser() before invoking it".formatted(getName()));
+        }
         return agentPrompt.text();
     }
 
@@ -119,7 +153,7 @@ public class PaymentMCPAgent extends MCPToolAgent {
             Method scanInvoiceMethod = InvoiceScanTool.class.getMethod("scanInvoice", String.class);
             InvoiceScanTool invoiceScanTool = new InvoiceScanTool(documentIntelligenceInvoiceScanHelper);
 
-            this.toolSpecifications.addAll(ToolSpecifications.toolSpecificationsFrom(InvoiceScanTool.class));
+            this.extendedToolSpecifications.addAll(ToolSpecifications.toolSpecificationsFrom(InvoiceScanTool.class));
             this.extendedExecutorMap.put("scanInvoice", new DefaultToolExecutor(invoiceScanTool, scanInvoiceMethod));
         } catch (NoSuchMethodException e) {
             throw new AgentExecutionException("scanInvoice method not found in InvoiceScanTool class. Align class code to be used by Payment Agent", e);
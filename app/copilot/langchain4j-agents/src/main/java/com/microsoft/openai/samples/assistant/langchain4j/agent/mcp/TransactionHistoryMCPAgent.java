@@ -1,6 +1,8 @@
 package com.microsoft.openai.samples.assistant.langchain4j.agent.mcp;
 
+import com.microsoft.langchain4j.agent.AgentExecutionException;
 import com.microsoft.langchain4j.agent.AgentMetadata;
+import com.microsoft.langchain4j.agent.mcp.MCPClientRegistry;
 import com.microsoft.langchain4j.agent.mcp.MCPProtocolType;
 import com.microsoft.langchain4j.agent.mcp.MCPServerMetadata;
 import com.microsoft.langchain4j.agent.mcp.MCPToolAgent;
@@ -29,7 +31,34 @@ public class TransactionHistoryMCPAgent extends MCPToolAgent {
     public TransactionHistoryMCPAgent(ChatLanguageModel chatModel, String loggedUserName, String transactionMCPServerUrl, String accountMCPServerUrl) {
         super(chatModel, List.of(new MCPServerMetadata("transaction-history", transactionMCPServerUrl, MCPProtocolType.SSE),
                                  new MCPServerMetadata("account", accountMCPServerUrl, MCPProtocolType.SSE)));
+        this.agentPrompt = buildPrompt(loggedUserName);
+        this.loggedUserName = loggedUserName;
+    }
 
+    /**
+     * Creates an agent not bound to any user. It connects to the MCP servers and it's meant to be shared:
+     * use {@link #forUser(String)} to get the instance serving a specific user.
+     */
+    public TransactionHistoryMCPAgent(ChatLanguageModel chatModel, MCPClientRegistry mcpClientRegistry, String transactionMCPServerUrl, String accountMCPServerUrl) {
+        super(chatModel, List.of(new MCPServerMetadata("transaction-history", transactionMCPServerUrl, MCPProtocolType.SSE),
+                                 new MCPServerMetadata("account", accountMCPServerUrl, MCPProtocolType.SSE)), mcpClientRegistry);
+        this.agentPrompt = null;
+    }
+
+    private TransactionHistoryMCPAgent(TransactionHistoryMCPAgent prototype, String loggedUserName) {
+        super(prototype);
+        this.agentPrompt = buildPrompt(loggedUserName);
+        this.loggedUserName = loggedUserName;
+    }
+
+    /**
+     * Returns an agent bound to the given user, sharing the MCP clients of this one.
+     */
+    public TransactionHistoryMCPAgent forUser(String loggedUserName) {
+        return new TransactionHistoryMCPAgent(this, loggedUserName);
+    }
+
+    private static Prompt buildPrompt(String loggedUserName) {
         if (loggedUserName == null || loggedUserName.isEmpty()) {
             throw new IllegalArgumentException("loggedUserName cannot be null or empty");
         }
@@ -37,7 +66,7 @@ public class TransactionHistoryMCPAgent extends MCPToolAgent {
         PromptTemplate promptTemplate = PromptTemplate.from(TRANSACTION_HISTORY_AGENT_SYSTEM_MESSAGE);
         var datetimeIso8601 = java.time.ZonedDateTime.now(java.time.ZoneId.of("UTC")).toInstant().toString();
 
-        this.agentPrompt = promptTemplate.apply(Map.of(
+        return promptTemplate.apply(Map.of(
                 "loggedUserName", loggedUserName,
                 "currentDateTime", datetimeIso8601
         ));
@@ -58,6 +87,9 @@ public class TransactionHistoryMCPAgent extends MCPToolAgent {
 
     @Override
     protected String getSystemMessage() {
+        if (agentPrompt == null) {
+            throw new AgentExecutionException("Agent [%s] is not bound to a logged user. Use forUser() before invoking it".formatted(getName()));
+        }
         return agentPrompt.text();
     }
 
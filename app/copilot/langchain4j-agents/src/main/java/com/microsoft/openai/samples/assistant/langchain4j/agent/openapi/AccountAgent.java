@@ -28,6 +28,8 @@ public class AccountAgent extends OpenAPIToolAgent {
             throw new IllegalArgumentException("loggedUserName cannot be null or empty");
         }
 
+        this.loggedUserName = loggedUserName;
+
         PromptTemplate promptTemplate = PromptTemplate.from(ACCOUNT_AGENT_SYSTEM_MESSAGE);
         this.agentPrompt = promptTemplate.apply(Map.of("loggedUserName", loggedUserName));
     }
@@ -62,6 +62,8 @@ public class PaymentAgent extends OpenAPIToolAgent {
             throw new IllegalArgumentException("loggedUserName cannot be null or empty");
         }
 
+        this.loggedUserName = loggedUserName;
+
         PromptTemplate promptTemplate = PromptTemplate.from(PAYMENT_AGENT_SYSTEM_MESSAGE);
         var datetimeIso8601 = ZonedDateTime.now(ZoneId.of("UTC")).toInstant().toString();
 
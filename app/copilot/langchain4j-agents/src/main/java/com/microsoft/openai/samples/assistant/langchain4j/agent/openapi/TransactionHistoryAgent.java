@@ -35,6 +35,8 @@ public class TransactionHistoryAgent extends OpenAPIToolAgent {
             throw new IllegalArgumentException("loggedUserName cannot be null or empty");
         }
 
+        this.loggedUserName = loggedUserName;
+
         PromptTemplate promptTemplate = PromptTemplate.from(TRANSACTION_AGENT_SYSTEM_MESSAGE);
         var datetimeIso8601 = java.time.ZonedDateTime.now(java.time.ZoneId.of("UTC")).toInstant().toString();
 
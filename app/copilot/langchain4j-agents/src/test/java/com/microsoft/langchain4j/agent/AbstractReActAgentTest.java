@@ -0,0 +1,113 @@
+package com.microsoft.langchain4j.agent;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.service.tool.ToolExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AbstractReActAgentTest {
+
+    // the agent under test never reaches the model, its answers are scripted
+    private static final ChatLanguageModel UNUSED_MODEL = (ChatLanguageModel) Proxy.newProxyInstance(
+            ChatLanguageModel.class.getClassLoader(),
+            new Class<?>[]{ChatLanguageModel.class},
+            (proxy, method, args) -> {
+                throw new UnsupportedOperationException(method.getName());
+            });
+
+    private static class ScriptedAgent extends AbstractReActAgent {
+
+        private final Queue<AiMessage> answers;
+        private final String toolResult;
+        private final List<ChatRequest> requests = new ArrayList<>();
+
+        ScriptedAgent(List<AiMessage> answers, String toolResult) {
+            super(UNUSED_MODEL);
+            this.answers = new ArrayDeque<>(answers);
+            this.toolResult = toolResult;
+        }
+
+        @Override
+        protected AiMessage chat(ChatRequest request, AgentEventListener listener) {
+            requests.add(request);
+            return answers.remove();
+        }
+
+        @Override
+        public String getName() {
+            return "ScriptedAgent";
+        }
+
+        @Override
+        public AgentMetadata getMetadata() {
+            return null;
+        }
+
+        @Override
+        protected String getSystemMessage() {
+            return "you are a personal financial advisor";
+        }
+
+        @Override
+        protected List<ToolSpecification> getToolSpecifications() {
+            return List.of();
+        }
+
+        @Override
+        protected ToolExecutor getToolExecutor(String toolName) {
+            return (request, memoryId) -> toolResult;
+        }
+    }
+
+    private static AiMessage toolCall(String id) {
+        return AiMessage.from(ToolExecutionRequest.builder().id(id).name("getTransactions").arguments("{}").build());
+    }
+
+    @Test
+    void compactionOnlyAppliesToTheMessagesSentToTheModel() {
+        var history = List.<ChatMessage>of(
+                UserMessage.from("hello"),
+                AiMessage.from("hi, how can I help you?"),
+                UserMessage.from("show my transactions"));
+        var firstCall = toolCall("first");
+        var secondCall = toolCall("second");
+        var answer = AiMessage.from("here they are");
+        var agent = new ScriptedAgent(List.of(firstCall, secondCall, answer), "t".repeat(8000));
+        agent.setMemoryMaxTokens(2500);
+
+        var response = agent.invoke(history);
+
+        // the model has read the chat compacted to fit the budget: the first turn dropped and the first result digested
+        var lastRequest = agent.requests.get(agent.requests.size() - 1).messages();
+        assertThat(lastRequest).doesNotContain(history.get(0), history.get(1));
+        var compacted = lastRequest.stream()
+                .filter(m -> m instanceof ToolExecutionResultMessage toolResult && toolResult.id().equals("first"))
+                .map(ToolExecutionResultMessage.class::cast)
+                .findFirst()
+                .orElseThrow();
+        assertThat(compacted.text()).contains("truncated");
+
+        // while the conversation keeps the messages of the turn as they are
+        assertThat(response).hasSize(8);
+        assertThat(response.subList(0, 3)).isEqualTo(history);
+        assertThat(response.get(3)).isSameAs(firstCall);
+        assertThat(((ToolExecutionResultMessage) response.get(4)).text()).hasSize(8000);
+        assertThat(response.get(5)).isSameAs(secondCall);
+        assertThat(((ToolExecutionResultMessage) response.get(6)).text()).hasSize(8000);
+        assertThat(response.get(7)).isSameAs(answer);
+    }
+}
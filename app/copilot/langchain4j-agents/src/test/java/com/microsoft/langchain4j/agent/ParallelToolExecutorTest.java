@@ -0,0 +1,176 @@
+package com.microsoft.langchain4j.agent;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelToolExecutorTest {
+
+    private static ToolExecutionRequest request(String name) {
+        return ToolExecutionRequest.builder().id(name).name(name).arguments("{}").build();
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String sleepAndEcho(ToolExecutionRequest request, long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return request.name();
+    }
+
+    @Test
+    void resultsKeepRequestsOrder() {
+        var executor = new ParallelToolExecutor(4, Duration.ofSeconds(5));
+        var requests = List.of(request("slow"), request("fast"), request("medium"));
+
+        List<String> results = executor.executeAllAsync(requests, r -> executor.submit(() -> switch (r.name()) {
+            case "slow" -> sleepAndEcho(r, 300);
+            case "medium" -> sleepAndEcho(r, 100);
+            default -> sleepAndEcho(r, 0);
+        }));
+
+        assertThat(results).containsExactly("slow", "fast", "medium");
+    }
+
+    @Test
+    void toolsRunConcurrently() {
+        var executor = new ParallelToolExecutor(4, Duration.ofSeconds(5));
+        var requests = List.of(request("a"), request("b"), request("c"));
+        // each tool waits for the others to start: run one after the other they would time out
+        var allStarted = new CyclicBarrier(requests.size());
+
+        List<String> results = executor.executeAllAsync(requests, r -> executor.submit(() -> {
+            try {
+                allStarted.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException("Tool " + r.name() + " didn't run with the others", e);
+            }
+            return r.name();
+        }));
+
+        assertThat(results).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void slowToolFailsWithTimeoutAndIsInterrupted() {
+        var executor = new ParallelToolExecutor(2, Duration.ofMillis(100));
+        var interrupted = new CountDownLatch(1);
+
+        assertThatThrownBy(() -> executor.executeAllAsync(List.of(request("slow")), r -> executor.submit(() -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return r.name();
+        })))
+                .isInstanceOf(AgentExecutionException.class)
+                .hasMessageContaining("slow");
+        assertThat(await(interrupted)).isTrue();
+    }
+
+    @Test
+    void saturatedPoolRejectsTools() {
+        var executor = new ParallelToolExecutor(1, Duration.ofSeconds(5));
+        var release = new CountDownLatch(1);
+        try {
+            // the single thread and the 16 places of the queue
+            for (int i = 0; i < 17; i++) {
+                executor.submit(() -> await(release));
+            }
+
+            // instead of running on the caller thread
+            assertThatThrownBy(() -> executor.executeAllAsync(List.of(request("a")),
+                    r -> executor.submit(() -> Thread.currentThread().getName())))
+                    .isInstanceOf(AgentExecutionException.class)
+                    .hasMessageContaining("Too many tools");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void toolErrorIsPropagated() {
+        var executor = new ParallelToolExecutor(2, Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> executor.executeAllAsync(List.of(request("broken")), r -> executor.submit(() -> {
+            throw new IllegalArgumentException("No MCP executor found for tool name: broken");
+        })))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void asyncToolsDontTakePoolThreads() throws Exception {
+        // the single pool thread is busy until the tools complete, as they would do on the http client threads
+        var executor = new ParallelToolExecutor(1, Duration.ofSeconds(5));
+        var toolsCompleted = new CountDownLatch(1);
+        CompletableFuture<Boolean> poolBusy = executor.submit(() -> await(toolsCompleted));
+        ExecutorService httpClient = Executors.newSingleThreadExecutor();
+        try {
+            var requests = List.of(request("a"), request("b"), request("c"), request("d"));
+            // the tools complete only once all of them are started, so none of them is waited before starting the next
+            var allStarted = new CountDownLatch(requests.size());
+
+            List<String> results = executor.executeAllAsync(requests, r -> {
+                allStarted.countDown();
+                return CompletableFuture.supplyAsync(() -> await(allStarted) ? r.name() : "not started", httpClient);
+            });
+            toolsCompleted.countDown();
+
+            assertThat(results).containsExactly("a", "b", "c", "d");
+            assertThat(poolBusy.get(5, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            httpClient.shutdownNow();
+        }
+    }
+
+    @Test
+    void asyncToolErrorIsPropagated() {
+        var executor = new ParallelToolExecutor(2, Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> executor.executeAllAsync(List.of(request("broken")),
+                r -> CompletableFuture.failedFuture(new IllegalStateException("Http request failed"))))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void asyncToolFailsWithTimeout() {
+        var executor = new ParallelToolExecutor(2, Duration.ofMillis(100));
+
+        assertThatThrownBy(() -> executor.executeAllAsync(List.of(request("slow")), r -> new CompletableFuture<>()))
+                .isInstanceOf(AgentExecutionException.class)
+                .hasMessageContaining("slow");
+    }
+
+    @Test
+    void blockingToolsAreSubmittedToPool() {
+        var executor = new ParallelToolExecutor(2, Duration.ofSeconds(5));
+
+        assertThat(executor.submit(() -> Thread.currentThread().getName()).join()).startsWith("agent-tool-");
+        assertThatThrownBy(() -> executor.submit(() -> {
+            throw new IllegalArgumentException("broken");
+        }).join()).isInstanceOf(CompletionException.class);
+    }
+}
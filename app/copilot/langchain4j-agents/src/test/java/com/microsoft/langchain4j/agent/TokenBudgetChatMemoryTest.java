@@ -0,0 +1,103 @@
+package com.microsoft.langchain4j.agent;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBudgetChatMemoryTest {
+
+    private static final SystemMessage SYSTEM = SystemMessage.from("you are a personal financial advisor");
+
+    private static List<ChatMessage> toolTurn(String question, String toolName, String result, String answer) {
+        var request = ToolExecutionRequest.builder().id(toolName + "-id").name(toolName).arguments("{}").build();
+        return List.of(
+                UserMessage.from(question),
+                AiMessage.from(request),
+                ToolExecutionResultMessage.from(request, result),
+                AiMessage.from(answer));
+    }
+
+    private static TokenBudgetChatMemory memory(int maxTokens, List<ChatMessage> history) {
+        var memory = TokenBudgetChatMemory.builder()
+                .withMaxTokens(maxTokens)
+                .withToolResultDigestTokens(50)
+                .build();
+        memory.add(SYSTEM);
+        history.forEach(memory::add);
+        return memory;
+    }
+
+    @Test
+    void messagesWithinBudgetAreKept() {
+        var history = toolTurn("show my transactions", "getTransactions", "x".repeat(400), "here they are");
+
+        var memory = memory(1000, history);
+
+        assertThat(memory.messages()).hasSize(5);
+        assertThat(memory.messages().get(0)).isEqualTo(SYSTEM);
+        assertThat(memory.messages().subList(1, 5)).isEqualTo(history);
+    }
+
+    @Test
+    void toolResultsOfPreviousTurnsAreCompactedFirst() {
+        var firstTurn = toolTurn("show my transactions", "getTransactions", "t".repeat(4000), "here they are");
+        var secondTurn = toolTurn("show my account", "getAccountDetails", "a".repeat(400), "here it is");
+
+        var memory = memory(400, concat(firstTurn, secondTurn));
+
+        var messages = memory.messages();
+        assertThat(messages).hasSize(9);
+        var digest = (ToolExecutionResultMessage) messages.get(3);
+        assertThat(digest.id()).isEqualTo("getTransactions-id");
+        assertThat(digest.toolName()).isEqualTo("getTransactions");
+        assertThat(digest.text()).startsWith("ttt").contains("characters omitted");
+        assertThat(((ToolExecutionResultMessage) messages.get(7)).text()).isEqualTo("a".repeat(400));
+        assertThat(memory.tokens()).isLessThanOrEqualTo(400);
+    }
+
+    @Test
+    void oldestTurnsAreDroppedWhole() {
+        var firstTurn = toolTurn("show my transactions", "getTransactions", "t".repeat(400), "x".repeat(800));
+        var secondTurn = toolTurn("show my account", "getAccountDetails", "a".repeat(400), "here it is");
+
+        var memory = memory(300, concat(firstTurn, secondTurn));
+
+        var messages = memory.messages();
+        assertThat(messages.get(0)).isEqualTo(SYSTEM);
+        assertThat(messages.get(1)).isEqualTo(UserMessage.from("show my account"));
+        assertThat(messages).hasSize(5);
+    }
+
+    @Test
+    void lastToolResultsAreNotCompacted() {
+        var request = ToolExecutionRequest.builder().id("1").name("getTransactions").arguments("{}").build();
+        var history = List.<ChatMessage>of(
+                UserMessage.from("show my transactions"),
+                AiMessage.from(request),
+                ToolExecutionResultMessage.from(request, "t".repeat(4000)));
+
+        var memory = memory(100, history);
+
+        assertThat(memory.messages()).hasSize(4);
+        assertThat(((ToolExecutionResultMessage) memory.messages().get(3)).text()).hasSize(4000);
+    }
+
+    @Test
+    void invalidBudgetIsRejected() {
+        assertThatThrownBy(() -> TokenBudgetChatMemory.builder().withMaxTokens(0).build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<ChatMessage> concat(List<ChatMessage> first, List<ChatMessage> second) {
+        return java.util.stream.Stream.concat(first.stream(), second.stream()).toList();
+    }
+}
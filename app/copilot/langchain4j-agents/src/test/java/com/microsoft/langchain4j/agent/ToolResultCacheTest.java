@@ -0,0 +1,135 @@
+package com.microsoft.langchain4j.agent;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ToolResultCacheTest {
+
+    private static final String BOB = "bob.user@contoso.com";
+    private static final String ALICE = "alice.user@contoso.com";
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final Function<ToolExecutionRequest, CompletableFuture<String>> executor =
+            request -> CompletableFuture.completedFuture(request.name() + "-" + executions.incrementAndGet());
+
+    private static ToolExecutionRequest request(String name, String arguments) {
+        return ToolExecutionRequest.builder().id(name).name(name).arguments(arguments).build();
+    }
+
+    private static ToolResultCache.Builder cacheBuilder(UserBoundAgentCacheTest.MutableClock clock) {
+        return ToolResultCache.builder()
+                .withToolTtl("getAccountDetails", Duration.ofMinutes(1))
+                .withToolTtl("getAccountsByUserName", Duration.ofMinutes(10))
+                .withInvalidatingTool("processPayment")
+                .withClock(clock);
+    }
+
+    @Test
+    void repeatedLookupIsExecutedOnce() {
+        var cache = cacheBuilder(new UserBoundAgentCacheTest.MutableClock()).build();
+
+        var first = cache.execute(BOB, request("getAccountDetails", "{\"accountId\": \"1010\", \"currency\": \"EUR\"}"), executor).join();
+        var second = cache.execute(BOB, request("getAccountDetails", "{\"currency\":\"EUR\",\"accountId\":\"1010\",}"), executor).join();
+
+        assertThat(second).isEqualTo(first);
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void resultsAreNotSharedAmongUsersOrArguments() {
+        var cache = cacheBuilder(new UserBoundAgentCacheTest.MutableClock()).build();
+
+        cache.execute(BOB, request("getAccountDetails", "{\"accountId\": \"1010\"}"), executor).join();
+        cache.execute(ALICE, request("getAccountDetails", "{\"accountId\": \"1010\"}"), executor).join();
+        cache.execute(BOB, request("getAccountDetails", "{\"accountId\": \"2020\"}"), executor).join();
+
+        assertThat(executions).hasValue(3);
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    @Test
+    void resultExpiresAfterToolTtl() {
+        var clock = new UserBoundAgentCacheTest.MutableClock();
+        var cache = cacheBuilder(clock).build();
+        var details = request("getAccountDetails", "{\"accountId\": \"1010\"}");
+        var accounts = request("getAccountsByUserName", "{\"userName\": \"bob\"}");
+
+        cache.execute(BOB, details, executor).join();
+        cache.execute(BOB, accounts, executor).join();
+        clock.now = clock.now.plus(Duration.ofMinutes(2));
+        cache.execute(BOB, details, executor).join();
+        cache.execute(BOB, accounts, executor).join();
+
+        assertThat(executions).hasValue(3);
+    }
+
+    @Test
+    void successfulPaymentInvalidatesUserResults() {
+        var cache = cacheBuilder(new UserBoundAgentCacheTest.MutableClock()).build();
+
+        cache.execute(BOB, request("getAccountDetails", "{\"accountId\": \"1010\"}"), executor).join();
+        cache.execute(ALICE, request("getAccountDetails", "{\"accountId\": \"2020\"}"), executor).join();
+        cache.execute(BOB, request("payment-api-processPayment", "{\"amount\": 10}"), executor).join();
+
+        assertThat(cache.size()).isEqualTo(1);
+        cache.execute(BOB, request("getAccountDetails", "{\"accountId\": \"1010\"}"), executor).join();
+        assertThat(executions).hasValue(4);
+    }
+
+    @Test
+    void openApiToolsUseOperationSettings() {
+        var cache = cacheBuilder(new UserBoundAgentCacheTest.MutableClock()).build();
+
+        cache.execute(BOB, request("account-api-getAccountDetails", "{\"accountId\": \"1010\"}"), executor).join();
+        cache.execute(BOB, request("account-api-getAccountDetails", "{\"accountId\": \"1010\"}"), executor).join();
+        cache.execute(BOB, request("transaction-api-getTransactions", "{\"accountId\": \"1010\"}"), executor).join();
+        cache.execute(BOB, request("transaction-api-getTransactions", "{\"accountId\": \"1010\"}"), executor).join();
+
+        assertThat(executions).hasValue(3);
+    }
+
+    @Test
+    void failuresAndErrorResultsAreNotCached() {
+        var cache = cacheBuilder(new UserBoundAgentCacheTest.MutableClock())
+                .withErrorResultPrefix("There was a timeout")
+                .build();
+        var details = request("getAccountDetails", "{\"accountId\": \"1010\"}");
+
+        var failed = cache.execute(BOB, details, request -> CompletableFuture.failedFuture(new RuntimeException("down")));
+        var timedOut = cache.execute(BOB, details, request -> CompletableFuture.completedFuture("There was a timeout executing the tool"));
+
+        assertThat(failed).isCompletedExceptionally();
+        assertThat(timedOut.join()).startsWith("There was a timeout");
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void leastRecentlyUsedResultIsEvicted() {
+        var cache = cacheBuilder(new UserBoundAgentCacheTest.MutableClock()).withMaxSize(2).build();
+
+        cache.execute(BOB, request("getAccountDetails", "{\"accountId\": \"1\"}"), executor).join();
+        cache.execute(BOB, request("getAccountDetails", "{\"accountId\": \"2\"}"), executor).join();
+        cache.execute(BOB, request("getAccountDetails", "{\"accountId\": \"1\"}"), executor).join();
+        cache.execute(BOB, request("getAccountDetails", "{\"accountId\": \"3\"}"), executor).join();
+        cache.execute(BOB, request("getAccountDetails", "{\"accountId\": \"1\"}"), executor).join();
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(executions).hasValue(3);
+    }
+
+    @Test
+    void invalidSettingsAreRejected() {
+        assertThatThrownBy(() -> ToolResultCache.builder().withToolTtl("getAccountDetails", Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ToolResultCache.builder().withMaxSize(0).build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
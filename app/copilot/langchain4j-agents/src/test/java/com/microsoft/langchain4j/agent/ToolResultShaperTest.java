@@ -0,0 +1,101 @@
+package com.microsoft.langchain4j.agent;
+
+import com.microsoft.langchain4j.agent.ToolResultShaper.ToolResultShape;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ToolResultShaperTest {
+
+    private static String transactions(int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> """
+                        {"id": "%d", "description": "Payment of the bill %d", "recipientName": "contoso",
+                         "accountId": "1010", "amount": "%d.00"}""".formatted(i, i, i * 10))
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    @Test
+    void rowsAreProjectedLimitedAndEncodedAsTable() {
+        var shaper = ToolResultShaper.builder()
+                .withToolShape("getLastTransactions", new ToolResultShape(List.of("id", "recipientName", "amount"), 2, true))
+                .build();
+
+        String shaped = shaper.shape("getLastTransactions", transactions(5));
+
+        assertThat(shaped).isEqualTo("""
+                id|recipientName|amount
+                1|contoso|10.00
+                2|contoso|20.00
+                ... 3 more rows""");
+    }
+
+    @Test
+    void rowsCanBeKeptAsCompactJson() {
+        var shaper = ToolResultShaper.builder()
+                .withToolShape("getTransactionsByRecipientName", new ToolResultShape(List.of("id", "amount"), 1, false))
+                .build();
+
+        String shaped = shaper.shape("transaction-api-getTransactionsByRecipientName", transactions(2));
+
+        assertThat(shaped).isEqualTo("[{\"id\":\"1\",\"amount\":\"10.00\"}]\n... 1 more rows");
+    }
+
+    @Test
+    void objectsAreProjected() {
+        var shaper = ToolResultShaper.builder()
+                .withToolShape("getAccountDetails", new ToolResultShape(List.of("id", "balance"), 10, true))
+                .build();
+
+        String shaped = shaper.shape("getAccountDetails", "{ \"id\": \"1010\", \"balance\": 100, \"userName\": \"bob\" }");
+
+        assertThat(shaped).isEqualTo("{\"id\":\"1010\",\"balance\":100}");
+    }
+
+    @Test
+    void tableValuesAreEscaped() {
+        var shaper = ToolResultShaper.builder()
+                .withToolShape("getLastTransactions", new ToolResultShape(List.of(), 10, true))
+                .build();
+
+        String shaped = shaper.shape("getLastTransactions", "[{\"id\": \"1\", \"description\": \"a|b\\nc\", \"tags\": [\"x\"], \"note\": null}]");
+
+        assertThat(shaped).isEqualTo("id|description|tags|note\n1|a\\|b c|[\"x\"]|");
+    }
+
+    @Test
+    void resultsAreCappedWithMarker() {
+        var shaper = ToolResultShaper.builder().withMaxCharacters(10).build();
+
+        assertThat(shaper.shape("scanInvoice", "0123456789abcdef")).isEqualTo("0123456789\n... [6 more characters]");
+        assertThat(shaper.shape("scanInvoice", "short")).isEqualTo("short");
+    }
+
+    @Test
+    void resultsNotJsonAreOnlyCapped() {
+        var shaper = ToolResultShaper.builder()
+                .withToolShape("getLastTransactions", new ToolResultShape(List.of("id"), 1, true))
+                .build();
+
+        assertThat(shaper.shape("getLastTransactions", "There was a timeout executing the tool"))
+                .isEqualTo("There was a timeout executing the tool");
+    }
+
+    @Test
+    void noneKeepsResults() {
+        String result = transactions(100);
+
+        assertThat(ToolResultShaper.NONE.shape("getLastTransactions", result)).isSameAs(result);
+    }
+
+    @Test
+    void invalidShapeIsRejected() {
+        assertThatThrownBy(() -> new ToolResultShape(List.of(), 0, true)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ToolResultShaper.builder().withMaxCharacters(0).build()).isInstanceOf(IllegalArgumentException.class);
+    }
+}
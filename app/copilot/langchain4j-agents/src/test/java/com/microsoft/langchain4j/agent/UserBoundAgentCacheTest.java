@@ -0,0 +1,80 @@
+package com.microsoft.langchain4j.agent;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UserBoundAgentCacheTest {
+
+    static class MutableClock extends Clock {
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @Test
+    void agentIsBoundOncePerUser() {
+        var created = new AtomicInteger();
+        var cache = new UserBoundAgentCache<>(user -> user + "-" + created.incrementAndGet(), 10, Duration.ofMinutes(30));
+
+        assertThat(cache.get("bob.user@contoso.com")).isEqualTo("bob.user@contoso.com-1");
+        assertThat(cache.get("bob.user@contoso.com")).isEqualTo("bob.user@contoso.com-1");
+        assertThat(cache.get("alice.user@contoso.com")).isEqualTo("alice.user@contoso.com-2");
+        assertThat(created).hasValue(2);
+    }
+
+    @Test
+    void leastRecentlyUsedUserIsEvicted() {
+        var created = new AtomicInteger();
+        var cache = new UserBoundAgentCache<>(user -> user + "-" + created.incrementAndGet(), 2, Duration.ofMinutes(30));
+
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.get("c");
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo("a-1");
+        assertThat(cache.get("b")).isEqualTo("b-4");
+    }
+
+    @Test
+    void expiredAgentIsBoundAgain() {
+        var clock = new MutableClock();
+        var created = new AtomicInteger();
+        var cache = new UserBoundAgentCache<>(user -> user + "-" + created.incrementAndGet(), 10, Duration.ofMinutes(30), clock);
+
+        cache.get("a");
+        clock.now = clock.now.plus(Duration.ofMinutes(31));
+
+        assertThat(cache.get("a")).isEqualTo("a-2");
+    }
+
+    @Test
+    void userNameIsRequired() {
+        var cache = new UserBoundAgentCache<>(user -> user, 10, Duration.ofMinutes(30));
+
+        assertThatThrownBy(() -> cache.get(""))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,59 @@
+package com.microsoft.langchain4j.agent.mcp;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.model.chat.request.json.JsonArraySchema;
+import dev.langchain4j.model.chat.request.json.JsonEnumSchema;
+import dev.langchain4j.model.chat.request.json.JsonIntegerSchema;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.request.json.JsonStringSchema;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MCPToolSnapshotStoreTest {
+
+    private static final String SSE_URL = "http://localhost:8070/sse";
+
+    @TempDir
+    Path snapshotDir;
+
+    @Test
+    void toolsAreStoredAndReadBack() {
+        var store = new MCPToolSnapshotStore(snapshotDir);
+        var tool = ToolSpecification.builder()
+                .name("getTransactionsByRecipientName")
+                .description("Get the list of transactions by recipient name")
+                .parameters(JsonObjectSchema.builder()
+                        .addProperty("accountId", JsonStringSchema.builder().description("the account id").build())
+                        .addProperty("limit", JsonIntegerSchema.builder().build())
+                        .addProperty("type", JsonEnumSchema.builder().enumValues("income", "outcome").build())
+                        .addProperty("tags", JsonArraySchema.builder().items(JsonStringSchema.builder().build()).build())
+                        .required("accountId")
+                        .build())
+                .build();
+
+        store.write(SSE_URL, List.of(tool));
+
+        assertThat(store.read(SSE_URL)).containsExactly(tool);
+    }
+
+    @Test
+    void missingSnapshotIsNull() {
+        var store = new MCPToolSnapshotStore(snapshotDir);
+
+        assertThat(store.read(SSE_URL)).isNull();
+    }
+
+    @Test
+    void corruptedSnapshotIsIgnored() throws Exception {
+        var store = new MCPToolSnapshotStore(snapshotDir);
+        Files.writeString(store.snapshotFile(SSE_URL), "{ not json");
+
+        assertThat(store.read(SSE_URL)).isNull();
+    }
+}
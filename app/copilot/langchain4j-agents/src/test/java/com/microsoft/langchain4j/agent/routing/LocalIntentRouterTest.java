@@ -0,0 +1,72 @@
+package com.microsoft.langchain4j.agent.routing;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalIntentRouterTest {
+
+    private final LocalIntentRouter router = LocalIntentRouter.builder()
+            .withTrainingResource("banking-intents.tsv")
+            .build();
+
+    private static List<ChatMessage> ask(String text) {
+        return List.of(UserMessage.from(text));
+    }
+
+    @Test
+    void rulesRouteWithoutClassifier() {
+        assertThat(router.route(ask("Please pay this invoice"))).contains("PaymentAgent");
+        assertThat(router.route(ask("what is my account balance?"))).contains("AccountAgent");
+        assertThat(router.route(ask("show me the last 5 transactions"))).contains("TransactionHistoryAgent");
+        assertThat(router.route(ask("pay the bill in the attachment [invoice.png]"))).contains("PaymentAgent");
+    }
+
+    @Test
+    void historyQuestionsAreNotRoutedByPaymentRules() {
+        assertThat(router.matchRules("when did I pay the gas bill")).isEmpty();
+        assertThat(router.matchRules("did I pay my invoice?")).isEmpty();
+        assertThat(router.matchRules("have I already paid the invoice from contoso")).isEmpty();
+        assertThat(router.route(ask("when did I pay the gas bill")).filter("PaymentAgent"::equals)).isEmpty();
+    }
+
+    @Test
+    void classifierRoutesConfidentMessages() {
+        assertThat(router.route(ask("how much money do I have on my account"))).contains("AccountAgent");
+        assertThat(router.route(ask("how much did I spend on the phone company last month"))).contains("TransactionHistoryAgent");
+    }
+
+    @Test
+    void unknownMessagesAreNotRouted() {
+        assertThat(router.route(ask("hello"))).isEmpty();
+        assertThat(router.route(ask("what's the weather like today"))).isEmpty();
+    }
+
+    @Test
+    void conflictingRulesAreNotRouted() {
+        assertThat(router.route(ask("check my last transactions and pay the invoice"))).isEmpty();
+    }
+
+    @Test
+    void answersToAssistantQuestionsAreNotRouted() {
+        List<ChatMessage> conversation = List.of(
+                UserMessage.from("I want to pay a bill"),
+                AiMessage.from("<p>Which payment method do you want to use?</p>"),
+                UserMessage.from("the visa credit card"));
+
+        assertThat(router.route(conversation)).isEmpty();
+    }
+
+    @Test
+    void classificationIsAProbability() {
+        var classification = router.classify("list my credit cards").orElseThrow();
+
+        assertThat(classification.label()).isEqualTo("AccountAgent");
+        assertThat(classification.confidence()).isBetween(0.0, 1.0);
+    }
+}
@@ -0,0 +1,41 @@
+// Copyright (c) Microsoft. All rights reserved.
+package dev.langchain4j.openapi;
+
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link HttpClient} able to send requests without blocking the calling thread, and to send requests with the http
+ * methods not listed in {@link dev.langchain4j.http.client.HttpMethod}, like PUT and PATCH.
+ * The clients returned by {@link PooledHttpClients} implement it.
+ */
+public interface AsyncHttpClient extends HttpClient {
+
+    /**
+     * Sends the request.
+     *
+     * @return a future completed with the response, or completed exceptionally with a
+     * {@link dev.langchain4j.exception.HttpException} when the server doesn't return a 2xx code.
+     */
+    default CompletableFuture<SuccessfulHttpResponse> executeAsync(HttpRequest request) {
+        return executeAsync(request.method().name(), request);
+    }
+
+    /**
+     * Sends the request with the given http method, ignoring the method of the request.
+     *
+     * @return a future completed with the response, or completed exceptionally with a
+     * {@link dev.langchain4j.exception.HttpException} when the server doesn't return a 2xx code.
+     */
+    CompletableFuture<SuccessfulHttpResponse> executeAsync(String method, HttpRequest request);
+
+    /**
+     * Sends the request with the given http method, ignoring the method of the request, and waits for the response.
+     *
+     * @throws dev.langchain4j.exception.HttpException when the server doesn't return a 2xx code.
+     */
+    SuccessfulHttpResponse execute(String method, HttpRequest request);
+}
@@ -0,0 +1,21 @@
+// Copyright (c) Microsoft. All rights reserved.
+package dev.langchain4j.openapi;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ToolExecutor;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link ToolExecutor} able to execute the tool without blocking the calling thread while the remote call is in
+ * flight.
+ */
+public interface AsyncToolExecutor extends ToolExecutor {
+
+    /**
+     * Starts the execution of the tool.
+     *
+     * @return a future completed with the tool result, or completed exceptionally when the execution fails.
+     */
+    CompletableFuture<String> executeAsync(ToolExecutionRequest toolExecutionRequest, Object memoryId);
+}
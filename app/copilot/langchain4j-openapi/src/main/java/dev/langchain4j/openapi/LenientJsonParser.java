@@ -0,0 +1,437 @@
+// Copyright (c) Microsoft. All rights reserved.
+package dev.langchain4j.openapi;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Single pass parser of the tool arguments generated by the models. It's lenient with the trailing commas before
+ * closing braces and brackets, which the models add now and then, and strict otherwise.
+ * <p>
+ * Besides decoding a whole object, it lets the caller visit the top level fields one by one and decide how to read
+ * each value: decoded, as text for the url parameters, or as compact json to forward a request body without
+ * decoding and encoding it again.
+ */
+final class LenientJsonParser {
+
+    /**
+     * Handles a top level field. The handler must read the value with one of the read methods of the parser.
+     */
+    @FunctionalInterface
+    interface FieldHandler {
+        void onField(String name, LenientJsonParser parser);
+    }
+
+    private final String json;
+    private int pos;
+
+    private LenientJsonParser(String json) {
+        this.json = json;
+    }
+
+    /**
+     * Decodes a json object to a map. Numbers are decoded to Integer, Long or BigInteger when integral, to Double
+     * otherwise.
+     */
+    static Map<String, Object> parseObject(String json) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        visitObject(json, (name, parser) -> result.put(name, parser.readValue()));
+        return result;
+    }
+
+    /**
+     * Calls the handler for each top level field of the json object. Blank arguments are read as an empty object.
+     */
+    static void visitObject(String json, FieldHandler handler) {
+        if (json == null || json.isBlank()) {
+            return;
+        }
+        LenientJsonParser parser = new LenientJsonParser(json);
+        parser.skipWhitespace();
+        parser.expect('{');
+        parser.readFields(name -> {
+            int start = parser.pos;
+            handler.onField(name, parser);
+            if (parser.pos == start) {
+                parser.skipValue();
+            }
+        });
+        parser.skipWhitespace();
+        if (parser.pos < json.length()) {
+            throw parser.error("Unexpected content after the end of the object");
+        }
+    }
+
+    /**
+     * Reads the current value decoded.
+     */
+    Object readValue() {
+        skipWhitespace();
+        char c = peek();
+        switch (c) {
+            case '{':
+                pos++;
+                Map<String, Object> object = new LinkedHashMap<>();
+                readFields(name -> object.put(name, readValue()));
+                return object;
+            case '[':
+                pos++;
+                List<Object> array = new ArrayList<>();
+                readElements(() -> array.add(readValue()));
+                return array;
+            case '"':
+                return readString();
+            case 't':
+                readLiteral("true");
+                return Boolean.TRUE;
+            case 'f':
+                readLiteral("false");
+                return Boolean.FALSE;
+            case 'n':
+                readLiteral("null");
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+    /**
+     * Reads the current value as text: strings are decoded, the other scalars are returned as written and objects and
+     * arrays as compact json. Returns null for a json null.
+     */
+    String readText() {
+        skipWhitespace();
+        char c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == 'n') {
+            readLiteral("null");
+            return null;
+        }
+        return readJson();
+    }
+
+    /**
+     * Reads the current value as compact json, without the whitespace and the trailing commas of the source.
+     */
+    String readJson() {
+        StringBuilder target = new StringBuilder();
+        writeJson(target);
+        return target.toString();
+    }
+
+    private void writeJson(StringBuilder target) {
+        skipWhitespace();
+        char c = peek();
+        switch (c) {
+            case '{': {
+                pos++;
+                target.append('{');
+                boolean[] first = {true};
+                readFields(name -> {
+                    if (!first[0]) {
+                        target.append(',');
+                    }
+                    first[0] = false;
+                    appendQuoted(target, name);
+                    target.append(':');
+                    writeJson(target);
+                });
+                target.append('}');
+                break;
+            }
+            case '[': {
+                pos++;
+                target.append('[');
+                boolean[] first = {true};
+                readElements(() -> {
+                    if (!first[0]) {
+                        target.append(',');
+                    }
+                    first[0] = false;
+                    writeJson(target);
+                });
+                target.append(']');
+                break;
+            }
+            case '"': {
+                int start = pos;
+                skipString();
+                target.append(json, start, pos);
+                break;
+            }
+            case 't':
+                readLiteral("true");
+                target.append("true");
+                break;
+            case 'f':
+                readLiteral("false");
+                target.append("false");
+                break;
+            case 'n':
+                readLiteral("null");
+                target.append("null");
+                break;
+            default: {
+                int start = pos;
+                scanNumber();
+                target.append(json, start, pos);
+            }
+        }
+    }
+
+    private void skipValue() {
+        writeJson(new StringBuilder());
+    }
+
+    /**
+     * Reads the fields of an object whose opening brace is already consumed, up to the closing brace included.
+     */
+    private void readFields(Consumer<String> fieldReader) {
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("Expected a field name");
+            }
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            fieldReader.accept(name);
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+            skipWhitespace();
+            // trailing comma
+            if (peek() == '}') {
+                pos++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the elements of an array whose opening bracket is already consumed, up to the closing bracket included.
+     */
+    private void readElements(Runnable elementReader) {
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return;
+        }
+        while (true) {
+            elementReader.run();
+            skipWhitespace();
+            char c = next();
+            if (c == ']') {
+                return;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or ']'");
+            }
+            skipWhitespace();
+            // trailing comma
+            if (peek() == ']') {
+                pos++;
+                return;
+            }
+        }
+    }
+
+    private String readString() {
+        expect('"');
+        int start = pos;
+        // fast path for the strings without escapes, which are most of them
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c == '"') {
+                return json.substring(start, pos++);
+            }
+            if (c == '\\') {
+                break;
+            }
+            pos++;
+        }
+
+        StringBuilder value = new StringBuilder(json.length() - start);
+        value.append(json, start, pos);
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"', '\\', '/' -> value.append(escaped);
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (pos + 4 > json.length()) {
+                        throw error("Truncated unicode escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(json, pos, pos + 4, 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                    pos += 4;
+                }
+                default -> throw error("Invalid escape '\\" + escaped + "'");
+            }
+        }
+    }
+
+    private void skipString() {
+        expect('"');
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return;
+            }
+            if (c == '\\') {
+                next();
+            }
+        }
+    }
+
+    private Number readNumber() {
+        int start = pos;
+        boolean integral = scanNumber();
+        String number = json.substring(start, pos);
+        if (!integral) {
+            return Double.parseDouble(number);
+        }
+        if (pos - start < 10) {
+            return Integer.parseInt(number);
+        }
+        BigInteger value = new BigInteger(number);
+        if (value.bitLength() < 32) {
+            return value.intValue();
+        }
+        return value.bitLength() < 64 ? (Number) value.longValue() : value;
+    }
+
+    /**
+     * Moves past the number at the current position.
+     *
+     * @return whether the number is integral
+     */
+    private boolean scanNumber() {
+        int start = pos;
+        boolean integral = true;
+        if (pos < json.length() && json.charAt(pos) == '-') {
+            pos++;
+        }
+        int digits = skipDigits();
+        if (pos < json.length() && json.charAt(pos) == '.') {
+            integral = false;
+            pos++;
+            digits = Math.min(digits, skipDigits());
+        }
+        if (pos < json.length() && (json.charAt(pos) == 'e' || json.charAt(pos) == 'E')) {
+            integral = false;
+            pos++;
+            if (pos < json.length() && (json.charAt(pos) == '+' || json.charAt(pos) == '-')) {
+                pos++;
+            }
+            digits = Math.min(digits, skipDigits());
+        }
+        if (digits == 0) {
+            pos = start;
+            throw error("Unexpected character");
+        }
+        return integral;
+    }
+
+    private int skipDigits() {
+        int start = pos;
+        while (pos < json.length() && Character.isDigit(json.charAt(pos))) {
+            pos++;
+        }
+        return pos - start;
+    }
+
+    private void readLiteral(String literal) {
+        if (!json.startsWith(literal, pos)) {
+            throw error("Unexpected character");
+        }
+        pos += literal.length();
+    }
+
+    private void skipWhitespace() {
+        while (pos < json.length()) {
+            char c = json.charAt(pos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private void expect(char expected) {
+        if (next() != expected) {
+            pos--;
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    private char peek() {
+        if (pos >= json.length()) {
+            throw error("Unexpected end of the arguments");
+        }
+        return json.charAt(pos);
+    }
+
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private static void appendQuoted(StringBuilder target, String value) {
+        target.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> target.append("\\\"");
+                case '\\' -> target.append("\\\\");
+                case '\n' -> target.append("\\n");
+                case '\r' -> target.append("\\r");
+                case '\t' -> target.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        target.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        target.append(c);
+                    }
+                }
+            }
+        }
+        target.append('"');
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("%s at position %d of the tool arguments".formatted(message, pos));
+    }
+}
@@ -0,0 +1,238 @@
+// Copyright (c) Microsoft. All rights reserved.
+package dev.langchain4j.openapi;
+
+import dev.langchain4j.model.chat.request.json.JsonArraySchema;
+import dev.langchain4j.model.chat.request.json.JsonBooleanSchema;
+import dev.langchain4j.model.chat.request.json.JsonEnumSchema;
+import dev.langchain4j.model.chat.request.json.JsonIntegerSchema;
+import dev.langchain4j.model.chat.request.json.JsonNumberSchema;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchemaElement;
+import dev.langchain4j.model.chat.request.json.JsonStringSchema;
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.media.ComposedSchema;
+import io.swagger.v3.oas.models.media.ObjectSchema;
+import io.swagger.v3.oas.models.media.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Maps OpenAPI schemas to the json schema of the tool parameters, including nested objects, array items and string
+ * enums. One mapper is used for all the operations of a spec: schemas reused through $ref, or shared by the parser
+ * when the spec is fully resolved, are converted once.
+ * Recursive schemas are cut at the first repetition, which is mapped as an object without properties. Schemas of
+ * types not supported by the tool parameters are dropped.
+ */
+final class OpenAPISchemaMapper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OpenAPISchemaMapper.class);
+    private static final String COMPONENTS_SCHEMAS = "#/components/schemas/";
+
+    private final Components components;
+    private final Map<Schema<?>, JsonSchemaElement> converted = new IdentityHashMap<>();
+    private final Map<String, JsonSchemaElement> convertedRefs = new HashMap<>();
+    private final Set<Schema<?>> inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * @param components the components of the spec, used to resolve the $ref not resolved by the parser.
+     */
+    OpenAPISchemaMapper(@Nullable Components components) {
+        this.components = components;
+    }
+
+    /**
+     * Maps the schema, or returns null when its type is not supported.
+     */
+    JsonSchemaElement map(@Nullable Schema<?> schema) {
+        if (schema == null) {
+            return null;
+        }
+        if (schema.get$ref() != null) {
+            return mapRef(schema.get$ref());
+        }
+
+        JsonSchemaElement element = converted.get(schema);
+        if (element != null) {
+            return element;
+        }
+        if (!inProgress.add(schema)) {
+            return JsonObjectSchema.builder().description(schema.getDescription()).build();
+        }
+        try {
+            element = convert(schema, schema.getDescription());
+        } finally {
+            inProgress.remove(schema);
+        }
+        if (element != null) {
+            converted.put(schema, element);
+        }
+        return element;
+    }
+
+    /**
+     * Maps the schema using the given description instead of the schema one, e.g. the description of a parameter.
+     */
+    JsonSchemaElement map(@Nullable Schema<?> schema, @Nullable String description) {
+        if (schema == null || description == null || schema.get$ref() != null || description.equals(schema.getDescription())) {
+            return map(schema);
+        }
+        return convert(schema, description);
+    }
+
+    private JsonSchemaElement mapRef(String ref) {
+        if (convertedRefs.containsKey(ref)) {
+            return convertedRefs.get(ref);
+        }
+        Schema<?> target = null;
+        if (components != null && components.getSchemas() != null && ref.startsWith(COMPONENTS_SCHEMAS)) {
+            target = components.getSchemas().get(ref.substring(COMPONENTS_SCHEMAS.length()));
+        }
+        if (target == null) {
+            LOGGER.warn("Unable to resolve schema reference [{}]. It will be dropped", ref);
+            return null;
+        }
+        // a recursive reference finds the placeholder and it's mapped as an object without properties
+        convertedRefs.put(ref, JsonObjectSchema.builder().description(target.getDescription()).build());
+        JsonSchemaElement element = map(target);
+        convertedRefs.put(ref, element);
+        return element;
+    }
+
+    private JsonSchemaElement convert(Schema<?> schema, String description) {
+        String type = typeOf(schema);
+
+        if (schema.getEnum() != null && !schema.getEnum().isEmpty() && (type == null || "string".equals(type))) {
+            List<String> values = schema.getEnum().stream()
+                    .filter(Objects::nonNull)
+                    .map(Object::toString)
+                    .toList();
+            return JsonEnumSchema.builder().description(description).enumValues(values).build();
+        }
+
+        if (type == null) {
+            if (schema instanceof ComposedSchema composedSchema) {
+                return convertComposed(composedSchema, description);
+            }
+            if (schema instanceof ObjectSchema || schema.getProperties() != null) {
+                type = "object";
+            } else if (schema.getItems() != null) {
+                type = "array";
+            } else {
+                return null;
+            }
+        }
+
+        switch (type) {
+            case "integer":
+                return JsonIntegerSchema.builder().description(description).build();
+            case "number":
+                return JsonNumberSchema.builder().description(description).build();
+            case "boolean":
+                return JsonBooleanSchema.builder().description(description).build();
+            case "string":
+                return JsonStringSchema.builder().description(description).build();
+            case "array":
+                return JsonArraySchema.builder().description(description).items(map(schema.getItems())).build();
+            case "object":
+                return convertObject(schema.getProperties(), schema.getRequired(), schema.getAdditionalProperties(), description);
+            default:
+                return null;
+        }
+    }
+
+    private JsonSchemaElement convertObject(Map<String, Schema> schemaProperties, List<String> schemaRequired,
+                                            Object additionalProperties, String description) {
+        Map<String, JsonSchemaElement> properties = new LinkedHashMap<>();
+        if (schemaProperties != null) {
+            schemaProperties.forEach((propertyName, propertySchema) -> {
+                JsonSchemaElement property = map(propertySchema);
+                if (property != null) {
+                    properties.put(propertyName, property);
+                } else {
+                    LOGGER.debug("Property [{}] has a schema not supported by tools. It will be dropped", propertyName);
+                }
+            });
+        }
+
+        List<String> required = new ArrayList<>();
+        if (schemaRequired != null) {
+            schemaRequired.stream().filter(properties::containsKey).forEach(required::add);
+        }
+
+        var objectSchema = JsonObjectSchema.builder()
+                .description(description)
+                .addProperties(properties)
+                .required(required);
+        if (additionalProperties instanceof Boolean allowed) {
+            objectSchema.additionalProperties(allowed);
+        }
+        return objectSchema.build();
+    }
+
+    /**
+     * allOf schemas are merged in a single object. For oneOf and anyOf, which tools can't describe, the first
+     * alternative is used.
+     */
+    private JsonSchemaElement convertComposed(ComposedSchema schema, String description) {
+        if (schema.getAllOf() != null && !schema.getAllOf().isEmpty()) {
+            Map<String, Schema> properties = new LinkedHashMap<>();
+            List<String> required = new ArrayList<>();
+            for (Schema<?> part : schema.getAllOf()) {
+                Schema<?> resolved = resolve(part);
+                if (resolved == null) {
+                    continue;
+                }
+                if (resolved.getProperties() != null) {
+                    properties.putAll(resolved.getProperties());
+                }
+                if (resolved.getRequired() != null) {
+                    required.addAll(resolved.getRequired());
+                }
+            }
+            return convertObject(properties, required, null, description);
+        }
+
+        List<Schema> alternatives = schema.getOneOf() != null ? schema.getOneOf() : schema.getAnyOf();
+        if (alternatives != null) {
+            for (Schema<?> alternative : alternatives) {
+                JsonSchemaElement element = map(alternative);
+                if (element != null) {
+                    return element;
+                }
+            }
+        }
+        return null;
+    }
+
+    private Schema<?> resolve(Schema<?> schema) {
+        if (schema.get$ref() == null) {
+            return schema;
+        }
+        if (components == null || components.getSchemas() == null || !schema.get$ref().startsWith(COMPONENTS_SCHEMAS)) {
+            return null;
+        }
+        return components.getSchemas().get(schema.get$ref().substring(COMPONENTS_SCHEMAS.length()));
+    }
+
+    private static String typeOf(Schema<?> schema) {
+        if (schema.getType() != null) {
+            return schema.getType();
+        }
+        // OpenAPI 3.1 lists the types, e.g. [string, null] for a nullable string
+        if (schema.getTypes() != null) {
+            return schema.getTypes().stream().filter(type -> !"null".equals(type)).findFirst().orElse(null);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,184 @@
+// Copyright (c) Microsoft. All rights reserved.
+package dev.langchain4j.openapi;
+
+import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import io.swagger.v3.parser.core.models.ParseOptions;
+import io.swagger.v3.parser.core.models.SwaggerParseResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares the parsed OpenAPI specs and the tools generated from them among the importers, so that agents importing
+ * the same spec parse it once. Specs are keyed by location and by the hash of their content, so a spec changed on
+ * disk or in the classpath is parsed again. Specs that can't be read locally, e.g. remote urls, are keyed by location
+ * only and parsed once for the life of the cache.
+ * When a catalog directory is configured, the generated tools are also stored on disk and the next startups create
+ * them without parsing the specs.
+ */
+public class OpenAPISpecCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OpenAPISpecCache.class);
+
+    private record SpecKey(String location, String contentHash) {
+    }
+
+    private record ToolsKey(SpecKey spec, String toolName) {
+    }
+
+    private static class SharedHolder {
+        private static final OpenAPISpecCache INSTANCE = OpenAPISpecCache.builder().build();
+    }
+
+    private final Map<SpecKey, OpenAPI> specs = new ConcurrentHashMap<>();
+    private final Map<ToolsKey, List<OperationTemplate>> operations = new ConcurrentHashMap<>();
+    private final OpenAPIToolCatalog catalog;
+
+    private OpenAPISpecCache(Builder builder) {
+        this.catalog = builder.catalogDir != null ? new OpenAPIToolCatalog(builder.catalogDir) : null;
+    }
+
+    /**
+     * Cache without catalog, used by the importers that are not given one explicitly.
+     */
+    public static OpenAPISpecCache shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private Path catalogDir;
+
+        /**
+         * Directory where the generated tools are stored. When null, the tools are only cached in memory.
+         */
+        public Builder withCatalogDir(Path catalogDir) {
+            this.catalogDir = catalogDir;
+            return this;
+        }
+
+        public OpenAPISpecCache build() {
+            return new OpenAPISpecCache(this);
+        }
+    }
+
+    /**
+     * Returns the parsed spec at the given location, parsing it only when it's not cached yet or its content
+     * changed. The returned model is shared and must not be modified.
+     */
+    public OpenAPI spec(String specPath) {
+        return spec(specKey(specPath));
+    }
+
+    /**
+     * Drops the cached specs and tools. The catalog on disk is kept.
+     */
+    public void clear() {
+        operations.clear();
+        specs.clear();
+    }
+
+    int parsedSpecs() {
+        return specs.size();
+    }
+
+    /**
+     * Returns the operations of the spec at the given location, with the tool specifications generated for the given
+     * tool name.
+     */
+    List<OperationTemplate> operations(String specPath, String toolName) {
+        return operations.computeIfAbsent(new ToolsKey(specKey(specPath), toolName), this::loadOperations);
+    }
+
+    private List<OperationTemplate> loadOperations(ToolsKey key) {
+        String contentHash = key.spec().contentHash();
+        if (catalog != null && contentHash != null) {
+            List<OperationTemplate> cataloged = catalog.read(key.toolName(), contentHash);
+            if (cataloged != null) {
+                LOGGER.info("Using {} tools from catalog for OpenAPI spec [{}]", cataloged.size(), key.spec().location());
+                return List.copyOf(cataloged);
+            }
+        }
+
+        List<OperationTemplate> generated = List.copyOf(OpenAPIToolsImporter.operationsOf(key.toolName(), spec(key.spec())));
+        if (catalog != null && contentHash != null) {
+            catalog.write(key.toolName(), contentHash, generated);
+        }
+        return generated;
+    }
+
+    private OpenAPI spec(SpecKey key) {
+        return specs.computeIfAbsent(key, k -> parse(k.location()));
+    }
+
+    private static OpenAPI parse(String specPath) {
+        LOGGER.info("Parsing OpenAPI spec [{}]", specPath);
+        ParseOptions parseOptions = new ParseOptions();
+        parseOptions.setResolve(true);
+        parseOptions.setResolveFully(true);
+
+        SwaggerParseResult result = new OpenAPIV3Parser().readLocation(specPath, null, parseOptions);
+        if (result == null || result.getOpenAPI() == null) {
+            throw new IllegalArgumentException("Unable to parse OpenAPI spec [%s]: %s".formatted(specPath, result != null ? result.getMessages() : null));
+        }
+        return result.getOpenAPI();
+    }
+
+    private static SpecKey specKey(String specPath) {
+        if (specPath == null) {
+            throw new IllegalArgumentException("specPath cannot be null");
+        }
+        byte[] content = readLocalContent(specPath);
+        return new SpecKey(specPath, content != null ? sha256(content) : null);
+    }
+
+    /**
+     * Reads the spec from the file system or the classpath, the same locations tried by the parser before the urls.
+     */
+    private static byte[] readLocalContent(String specPath) {
+        try {
+            Path file = Path.of(specPath);
+            if (Files.isRegularFile(file)) {
+                return Files.readAllBytes(file);
+            }
+        } catch (InvalidPathException | IOException e) {
+            LOGGER.debug("OpenAPI spec [{}] is not a readable file", specPath, e);
+        }
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        if (classLoader == null) {
+            classLoader = OpenAPISpecCache.class.getClassLoader();
+        }
+        String resourceName = specPath.startsWith("/") ? specPath.substring(1) : specPath;
+        try (InputStream resource = classLoader.getResourceAsStream(resourceName)) {
+            return resource != null ? resource.readAllBytes() : null;
+        } catch (IOException e) {
+            LOGGER.debug("OpenAPI spec [{}] is not a readable classpath resource", specPath, e);
+            return null;
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+// Copyright (c) Microsoft. All rights reserved.
+package dev.langchain4j.openapi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.parameters.PathParameter;
+import io.swagger.v3.oas.models.parameters.QueryParameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores on disk the tools generated from an OpenAPI spec, so that next startups create the tools without parsing
+ * the spec. One json file is written for each tool name and spec content, and it's used only while the content
+ * hash of the spec and the {@link #FORMAT_VERSION format version} don't change.
+ * Only what the executors need is stored for the operations: the method, the path and the names of the path and
+ * query parameters.
+ */
+class OpenAPIToolCatalog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OpenAPIToolCatalog.class);
+
+    /**
+     * Version of the stored catalogs. It must be increased whenever the stored fields or the way the tools are
+     * generated from the spec change, so that catalogs written by a previous version are generated again.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    private final Path catalogDir;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    OpenAPIToolCatalog(Path catalogDir) {
+        if (catalogDir == null) {
+            throw new IllegalArgumentException("catalogDir cannot be null");
+        }
+        this.catalogDir = catalogDir;
+    }
+
+    /**
+     * Returns the operations stored for the given tool and spec content or null when there is no usable catalog.
+     */
+    List<OperationTemplate> read(String toolName, String contentHash) {
+        Path catalogFile = catalogFile(toolName, contentHash);
+        if (!Files.exists(catalogFile)) {
+            return null;
+        }
+        try {
+            JsonNode catalog = objectMapper.readTree(catalogFile.toFile());
+            if (catalog.path("formatVersion").asInt() != FORMAT_VERSION) {
+                LOGGER.info("OpenAPI tool catalog [{}] has another format version. It will be ignored", catalogFile);
+                return null;
+            }
+            if (!contentHash.equals(catalog.path("contentHash").asText())) {
+                return null;
+            }
+            List<OperationTemplate> operations = new ArrayList<>();
+            for (JsonNode operationNode : catalog.path("operations")) {
+                Operation operation = new Operation();
+                operationNode.path("pathParameters").forEach(name -> {
+                    PathParameter parameter = new PathParameter();
+                    parameter.setName(name.asText());
+                    operation.addParametersItem(parameter);
+                });
+                operationNode.path("queryParameters").forEach(name -> {
+                    QueryParameter parameter = new QueryParameter();
+                    parameter.setName(name.asText());
+                    operation.addParametersItem(parameter);
+                });
+                operations.add(new OperationTemplate(
+                        ToolSpecificationJson.fromJson(operationNode.path("tool")),
+                        PathItem.HttpMethod.valueOf(operationNode.path("method").asText()),
+                        operationNode.path("path").asText(),
+                        new PathItem(),
+                        operation));
+            }
+            return operations;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to read OpenAPI tool catalog [{}]. It will be ignored", catalogFile, e);
+            return null;
+        }
+    }
+
+    void write(String toolName, String contentHash, List<OperationTemplate> operations) {
+        Path catalogFile = catalogFile(toolName, contentHash);
+        try {
+            ObjectNode catalog = objectMapper.createObjectNode();
+            catalog.put("formatVersion", FORMAT_VERSION);
+            catalog.put("toolName", toolName);
+            catalog.put("contentHash", contentHash);
+            ArrayNode operationsNode = catalog.putArray("operations");
+            for (OperationTemplate operation : operations) {
+                ObjectNode operationNode = operationsNode.addObject();
+                operationNode.put("method", operation.method().name());
+                operationNode.put("path", operation.path());
+                ArrayNode pathParameters = operationNode.putArray("pathParameters");
+                ArrayNode queryParameters = operationNode.putArray("queryParameters");
+                if (operation.operation().getParameters() != null) {
+                    for (Parameter parameter : operation.operation().getParameters()) {
+                        if (parameter instanceof PathParameter) {
+                            pathParameters.add(parameter.getName());
+                        } else if (parameter instanceof QueryParameter) {
+                            queryParameters.add(parameter.getName());
+                        }
+                    }
+                }
+                operationNode.set("tool", ToolSpecificationJson.toJson(objectMapper, operation.toolSpecification()));
+            }
+
+            Files.createDirectories(catalogDir);
+            Path tempFile = Files.createTempFile(catalogDir, catalogFile.getFileName().toString(), ".tmp");
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(tempFile.toFile(), catalog);
+            Files.move(tempFile, catalogFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to write OpenAPI tool catalog [{}]", catalogFile, e);
+        }
+    }
+
+    Path catalogFile(String toolName, String contentHash) {
+        // the version is part of the name too, so that applications of different versions sharing the directory
+        // don't replace each other's catalogs
+        return catalogDir.resolve(toolName.replaceAll("[^A-Za-z0-9.-]", "_") + "-v" + FORMAT_VERSION + "-"
+                + contentHash.substring(0, 16) + ".json");
+    }
+}
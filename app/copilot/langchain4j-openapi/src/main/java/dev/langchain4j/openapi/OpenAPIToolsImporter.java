@@ -3,28 +3,24 @@ package dev.langchain4j.openapi;
 
 import dev.langchain4j.agent.tool.ToolSpecification;
 import dev.langchain4j.http.client.HttpClient;
-import dev.langchain4j.http.client.HttpClientBuilder;
-import dev.langchain4j.http.client.HttpClientBuilderLoader;
-import dev.langchain4j.http.client.HttpMethod;
 import dev.langchain4j.model.chat.request.json.*;
 import dev.langchain4j.service.tool.ToolExecutor;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.Operation;
 import io.swagger.v3.oas.models.PathItem;
-import io.swagger.v3.oas.models.Paths;
 import io.swagger.v3.oas.models.media.*;
 import io.swagger.v3.oas.models.parameters.Parameter;
 import io.swagger.v3.oas.models.parameters.RequestBody;
 
-import io.swagger.v3.parser.OpenAPIV3Parser;
-import io.swagger.v3.parser.core.models.ParseOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static java.time.Duration.ofSeconds;
 
@@ -33,6 +29,14 @@ public class OpenAPIToolsImporter {
     private static final Logger LOGGER = LoggerFactory.getLogger(
             OpenAPIToolsImporter.class);
 
+    // OPTIONS, HEAD and TRACE are not exposed as tools
+    private static final Set<PathItem.HttpMethod> SUPPORTED_METHODS = EnumSet.of(
+            PathItem.HttpMethod.GET,
+            PathItem.HttpMethod.POST,
+            PathItem.HttpMethod.PUT,
+            PathItem.HttpMethod.PATCH,
+            PathItem.HttpMethod.DELETE);
+
     private final Map<String , ToolSpecification> toolSpecificationsMap;
     private final Map<String, ToolExecutor> toolExecutorMap;
     private final Map<ToolSpecification, ToolExecutor> specificationsMap;
@@ -47,7 +51,9 @@ public class OpenAPIToolsImporter {
                 builder.client,
                 builder.connectionTimeout,
                 builder.readTimeout,
-                builder.serverUrl);
+                builder.serverUrl,
+                builder.executionMode,
+                builder.specCache);
 
         specificationsMap.forEach((k,v) -> {
             toolSpecificationsMap.put(k.name(),k);
@@ -69,6 +75,8 @@ public class OpenAPIToolsImporter {
         private Integer readTimeout;
 
         private String serverUrl;
+        private RestClientToolExecutor.ExecutionMode executionMode = RestClientToolExecutor.ExecutionMode.LIVE;
+        private OpenAPISpecCache specCache = OpenAPISpecCache.shared();
 
         public Builder withToolName(String toolName) {
             this.toolName = toolName;
@@ -105,7 +113,26 @@ public class OpenAPIToolsImporter {
             return this;
         }
 
+        /**
+         * Whether the tools call the server (the default) or return canned responses.
+         */
+        public Builder withExecutionMode(RestClientToolExecutor.ExecutionMode executionMode) {
+            this.executionMode = executionMode;
+            return this;
+        }
+
+        /**
+         * Cache of the parsed specs and of the generated tools. By default the cache shared by all the importers.
+         */
+        public Builder withSpecCache(OpenAPISpecCache specCache) {
+            this.specCache = specCache;
+            return this;
+        }
+
         public OpenAPIToolsImporter build(){
+            if (specCache == null) {
+                throw new IllegalArgumentException("specCache cannot be null");
+            }
             return new OpenAPIToolsImporter(this);
         }
 
@@ -138,133 +165,105 @@ public class OpenAPIToolsImporter {
         @Nullable HttpClient client,
         @Nullable Integer connectionTimeout,
         @Nullable Integer readTimeout,
-        String serverUrl) {
-
-        ParseOptions parseOptions = new ParseOptions();
-        parseOptions.setResolve(true);
-        parseOptions.setResolveFully(true);
+        String serverUrl,
+        RestClientToolExecutor.ExecutionMode executionMode,
+        OpenAPISpecCache specCache) {
 
-        OpenAPI openAPI = new OpenAPIV3Parser().readLocation(specPath, null, parseOptions).getOpenAPI();
+        List<OperationTemplate> operations = specCache.operations(specPath, toolName);
 
         client = getHttpClient(client, connectionTimeout, readTimeout);
 
-
-       return getSpecifications(
-            client,
-            toolName,
-            openAPI.getPaths(),
-            serverUrl,
-            httpHeaders);
+        HashMap<ToolSpecification, ToolExecutor> specifications = new HashMap<>();
+        for (OperationTemplate operation : operations) {
+            specifications.put(
+                    operation.toolSpecification(),
+                    new RestClientToolExecutor(operation.method(),serverUrl,operation.path(),operation.pathItem(),client,httpHeaders,operation.operation(),executionMode));
+        }
+        return specifications;
 
     }
 
+    /**
+     * Returns the given client or the pooled client shared by all the importers with the same timeouts.
+     */
     private static HttpClient getHttpClient(
         @Nullable HttpClient client,
         @Nullable Integer connectionTimeout,
         @Nullable Integer readTimeout) {
 
-
-        //TODO - Http connection pooling
-
         if( client == null){
-            LOGGER.debug("Creating langchain4j default HttpClient");
-            HttpClientBuilder httpClientBuilder  = HttpClientBuilderLoader.loadHttpClientBuilder();
-            client = httpClientBuilder
-                    .connectTimeout( connectionTimeout == null ? ofSeconds(15) : ofSeconds(connectionTimeout))
-                    .readTimeout( readTimeout == null ? ofSeconds(60) : ofSeconds(readTimeout))
+            LOGGER.debug("Using pooled HttpClient");
+            client = PooledHttpClients.builder()
+                    .withConnectTimeout( connectionTimeout == null ? ofSeconds(15) : ofSeconds(connectionTimeout))
+                    .withReadTimeout( readTimeout == null ? ofSeconds(60) : ofSeconds(readTimeout))
                     .build();
         }
 
         return client;
     }
 
-    private static  Map<ToolSpecification, ToolExecutor> getSpecifications(
-        HttpClient client,
-        String toolName,
-        Paths paths,
-        String serverUrl,
-        Map<String, List<String>> headers) {
+    /**
+     * Generates the tools of all the operations of the spec. Used by {@link OpenAPISpecCache} when the tools of a spec
+     * are not cached.
+     */
+    static List<OperationTemplate> operationsOf(String toolName, OpenAPI openAPI) {
 
-        HashMap<ToolSpecification, ToolExecutor> specifications = new HashMap<>();
+        List<OperationTemplate> operations = new ArrayList<>();
+        OpenAPISchemaMapper schemaMapper = new OpenAPISchemaMapper(openAPI.getComponents());
 
-        for (Map.Entry<String, PathItem> entry : paths.entrySet()) {
+        for (Map.Entry<String, PathItem> entry : openAPI.getPaths().entrySet()) {
             String path = entry.getKey();
             PathItem pathItem = entry.getValue();
 
-            specifications.putAll(buildSpecificationEntries(
-                client,
+            operations.addAll(buildOperationTemplates(
                 toolName,
-                serverUrl,
                 path,
                 pathItem,
-                headers));
+                schemaMapper));
 
 
         }
 
-        return specifications;
+        return operations;
 
     }
 
-    private static Map<ToolSpecification,ToolExecutor> buildSpecificationEntries(
-        HttpClient client,
+    private static List<OperationTemplate> buildOperationTemplates(
         String toolName,
-        String serverUrl,
         String path,
         PathItem pathItem,
-        Map<String, List<String>> headers) {
-
+        OpenAPISchemaMapper schemaMapper) {
 
-        ToolSpecification toolSpecification = null;
-        RestClientToolExecutor toolExecutor = null;
-        HashMap <ToolSpecification,ToolExecutor> specificationEntries = new HashMap<>();
 
-        if (pathItem.getGet() != null) {
-            checkOperationId(path,"get",pathItem.getGet());
-            specificationEntries.put(
-                    getToolSpecificationFromRequest(toolName,pathItem.getGet()),
-                    new RestClientToolExecutor(HttpMethod.GET,serverUrl,path,pathItem,client,headers,pathItem.getGet())) ;
-        }
-        if (pathItem.getPost() != null) {
-            checkOperationId(path,"post",pathItem.getPost());
-            specificationEntries.put(
-                    getToolSpecificationFromRequest(toolName,pathItem.getPost()),
-                    new RestClientToolExecutor(HttpMethod.POST,serverUrl,path,pathItem,client,headers,pathItem.getPost())) ;
-
-        }
-        if (pathItem.getDelete() != null) {
-            checkOperationId(path,"delete",pathItem.getDelete());
-            specificationEntries.put(
-                    getToolSpecificationFromRequest(toolName,pathItem.getDelete()),
-                    new RestClientToolExecutor(HttpMethod.DELETE,serverUrl,path,pathItem,client,headers,pathItem.getDelete())) ;
-        }
-        if (pathItem.getPut() != null) {
-            // toolSpecification = getToolSpecificationFromRequest(pluginName,pathItem.getPost());
-            // toolExecutor = new RestClientToolExecutor(HttpMethod.PUT,serverUrl,path,pathItem,null,headers,pathItem.getPost());
+        List<OperationTemplate> operationTemplates = new ArrayList<>();
 
-            throw new IllegalArgumentException ("PUT method not supported by langchain4j HTTP client");
-        }
-        if (pathItem.getPatch() != null) {
-           // toolSpecification = getToolSpecificationFromRequest(pluginName,pathItem.getPost());
-           // toolExecutor = new RestClientToolExecutor(HttpMethod.PUT,serverUrl,path,pathItem,null,headers,pathItem.getPost());
-            throw new IllegalArgumentException ("PATCH method not supported by langchain4j HTTP client");
-        }
+        pathItem.readOperationsMap().forEach((method, operation) -> {
+            if (!SUPPORTED_METHODS.contains(method)) {
+                LOGGER.debug("Skipping {} {}: method not supported by tools", method, path);
+                return;
+            }
+            checkOperationId(path, method.name().toLowerCase(), operation);
+            operationTemplates.add(new OperationTemplate(
+                    getToolSpecificationFromRequest(toolName, operation, schemaMapper),
+                    method, path, pathItem, operation));
+        });
 
-        return  specificationEntries;
+        return  operationTemplates;
 
 
     }
 
-    private static void checkOperationId(String path, String get, Operation operation) {
+    private static void checkOperationId(String path, String method, Operation operation) {
         if(operation.getOperationId() == null){
-            throw new IllegalArgumentException("OperationId for path["+path+"] is not defined");
+            throw new IllegalArgumentException("OperationId for "+method+" path["+path+"] is not defined");
         }
     }
 
 
     private static ToolSpecification getToolSpecificationFromRequest(
         String toolName,
-        Operation operation
+        Operation operation,
+        OpenAPISchemaMapper schemaMapper
        ) {
 
         List<Parameter> parameters = operation.getParameters();
@@ -274,24 +273,29 @@ public class OpenAPIToolsImporter {
        //create function params for path and query params available in the operation spec.
         if (parameters != null && !parameters.isEmpty()) {
             parameters.forEach(parameter -> {
-                JsonSchemaElement jsonSchemaElement = getJsonSchemaElement(parameter);
+                JsonSchemaElement jsonSchemaElement = schemaMapper.map(parameter.getSchema(), parameter.getDescription());
+                if (jsonSchemaElement == null) {
+                    LOGGER.warn("Parameter [{}] of operation [{}] has a schema not supported by tools. It will be ignored", parameter.getName(), operation.getOperationId());
+                    return;
+                }
                 properties.put(parameter.getName(),jsonSchemaElement);
-                if(parameter.getRequired()) {
+                if(Boolean.TRUE.equals(parameter.getRequired())) {
                     requiredList.add(parameter.getName());
                 }
             });
         }
 
-        //create requestBody params if present. It's serialized as json in a string with description
+        //create requestBody params if present
         RequestBody requestBody = operation.getRequestBody();
 
-        if (requestBody != null) {
-            if (requestBody.getContent().get("application/json") != null) {
-                MediaType mediaType = requestBody.getContent().get("application/json");
-                Schema<?> schema = mediaType.getSchema();
-
-                //properties.put("requestBody",JsonStringSchema.builder().description("Example request body:\n" + RequestBodyUtil.renderJsonExample(schema)).build());
-                properties.put("requestBody",RequestBodyUtil.buildRequestBodySchema(schema));
+        if (requestBody != null && requestBody.getContent() != null) {
+            MediaType mediaType = requestBody.getContent().get("application/json");
+            JsonSchemaElement requestBodySchema = mediaType != null ? schemaMapper.map(mediaType.getSchema()) : null;
+            if (requestBodySchema != null) {
+                properties.put("requestBody", requestBodySchema);
+                if (Boolean.TRUE.equals(requestBody.getRequired())) {
+                    requiredList.add("requestBody");
+                }
             }
 
         }
@@ -306,41 +310,4 @@ public class OpenAPIToolsImporter {
     }
 
 
-
-
-    private static JsonSchemaElement getJsonSchemaElement(Parameter parameter) {
-
-        String t = parameter.getSchema().getType();
-        JsonSchemaElement jsonSchemaElement = null;
-        if (t != null) {
-            switch (t) {
-                case "integer":
-                    jsonSchemaElement = JsonIntegerSchema.builder().description(parameter.getDescription()).build();
-                    break;
-                case "string":
-                    jsonSchemaElement = JsonStringSchema.builder().description(parameter.getDescription()).build();
-                    break;
-                case "number":
-                    jsonSchemaElement = JsonNumberSchema.builder().description(parameter.getDescription()).build();
-                    break;
-                case "boolean":
-                    jsonSchemaElement = JsonBooleanSchema.builder().description(parameter.getDescription()).build();
-                    break;
-                case "array":
-                    jsonSchemaElement = JsonArraySchema.builder().description(parameter.getDescription()).build();
-                    break;
-
-                // Not sure if we can support this
-                case "null":
-                    break;
-                case "object":
-                    jsonSchemaElement = JsonObjectSchema.builder().description(parameter.getDescription()).build();
-                default:
-                    break;
-            }
-        }
-        return jsonSchemaElement;
-    }
-
-
 }
@@ -0,0 +1,13 @@
+// Copyright (c) Microsoft. All rights reserved.
+package dev.langchain4j.openapi;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.PathItem;
+
+/**
+ * An operation of an OpenAPI spec together with the tool specification generated for it. Templates don't depend on
+ * the server url, the client or the headers, so they are shared by all the importers of the same spec.
+ */
+record OperationTemplate(ToolSpecification toolSpecification, PathItem.HttpMethod method, String path, PathItem pathItem, Operation operation) {
+}
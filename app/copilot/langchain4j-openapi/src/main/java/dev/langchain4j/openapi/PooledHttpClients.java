@@ -0,0 +1,285 @@
+// Copyright (c) Microsoft. All rights reserved.
+package dev.langchain4j.openapi;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.jdk.JdkHttpClient;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.time.Duration.ofSeconds;
+
+/**
+ * Shares the http clients used by the tool executors, so that the connections opened by one tool call are kept
+ * alive and reused by the next calls of any tool, instead of paying the TCP/TLS setup on each importer.
+ * Clients are backed by the JDK http client, which negotiates HTTP/2 when the server supports it and otherwise pools
+ * HTTP/1.1 keep-alive connections. One client is created for each distinct configuration.
+ * The clients implement {@link AsyncHttpClient}, so the tool executors can keep many calls in flight without holding
+ * a thread for each of them.
+ * <p>
+ * The JDK connection pool is shared by all the JDK http clients of the JVM, not only by these ones: its keep-alive
+ * timeout, after which idle connections are evicted, and its max number of idle connections are the
+ * jdk.httpclient.keepalive.timeout and jdk.httpclient.connectionPoolSize system properties, read by the JDK when the
+ * first http client of the JVM is created. They are set once, by {@link #configurePool(Duration, Integer)} at startup or
+ * with the defaults when the first client is created, and settings conflicting with them are rejected.
+ */
+public final class PooledHttpClients {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PooledHttpClients.class);
+
+    static final String KEEP_ALIVE_PROPERTY = "jdk.httpclient.keepalive.timeout";
+    static final String POOL_SIZE_PROPERTY = "jdk.httpclient.connectionPoolSize";
+
+    private static final Duration DEFAULT_KEEP_ALIVE = Duration.ofMinutes(5);
+    private static final int DEFAULT_MAX_IDLE_CONNECTIONS = 50;
+
+    private static final Map<ClientKey, HttpClient> CLIENTS = new ConcurrentHashMap<>();
+    private static PoolSettings poolSettings;
+
+    private record ClientKey(Duration connectTimeout, Duration readTimeout, boolean http2) {
+    }
+
+    private record PoolSettings(long keepAliveSeconds, int maxIdleConnections) {
+    }
+
+    private PooledHttpClients() {
+    }
+
+    /**
+     * Returns the client shared by the importers not configuring their own client or timeouts.
+     */
+    public static HttpClient shared() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Configures the JDK connection pool of the JVM. To be called at startup, before any JDK http client is created.
+     * A null setting keeps its system property when it's set, e.g. on the command line, otherwise its default.
+     *
+     * @param keepAlive          time after which an idle pooled connection is closed, or null
+     * @param maxIdleConnections max number of idle connections kept in the pool, 0 for no limit, or null
+     * @throws IllegalStateException when the pool is already configured with different settings
+     */
+    public static void configurePool(Duration keepAlive, Integer maxIdleConnections) {
+        checkPoolSettings(keepAlive == null ? DEFAULT_KEEP_ALIVE : keepAlive,
+                maxIdleConnections == null ? DEFAULT_MAX_IDLE_CONNECTIONS : maxIdleConnections);
+        applyPoolSettings(keepAlive, maxIdleConnections);
+    }
+
+    public static class Builder {
+
+        private Duration connectTimeout = ofSeconds(15);
+        private Duration readTimeout = ofSeconds(60);
+        private Duration keepAlive;
+        private Integer maxIdleConnections;
+        private boolean http2 = true;
+
+        public Builder withConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder withReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+            return this;
+        }
+
+        /**
+         * Time after which an idle pooled connection is closed. Applies to the whole JVM, see
+         * {@link PooledHttpClients#configurePool(Duration, Integer)}.
+         */
+        public Builder withKeepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * Max number of idle connections kept in the pool, 0 for no limit. Applies to the whole JVM, see
+         * {@link PooledHttpClients#configurePool(Duration, Integer)}.
+         */
+        public Builder withMaxIdleConnections(int maxIdleConnections) {
+            this.maxIdleConnections = maxIdleConnections;
+            return this;
+        }
+
+        /**
+         * Whether HTTP/2 is negotiated with the servers supporting it. When disabled HTTP/1.1 is always used.
+         */
+        public Builder withHttp2(boolean http2) {
+            this.http2 = http2;
+            return this;
+        }
+
+        /**
+         * Returns the client for this configuration, creating it on first use.
+         *
+         * @throws IllegalStateException when the keep-alive or the max idle connections conflict with the settings
+         *                               of the JDK connection pool
+         */
+        public HttpClient build() {
+            if (connectTimeout == null || connectTimeout.isNegative() || connectTimeout.isZero()) {
+                throw new IllegalArgumentException("connectTimeout must be a positive duration");
+            }
+            if (readTimeout == null || readTimeout.isNegative() || readTimeout.isZero()) {
+                throw new IllegalArgumentException("readTimeout must be a positive duration");
+            }
+            configurePool(keepAlive, maxIdleConnections);
+            return CLIENTS.computeIfAbsent(new ClientKey(connectTimeout, readTimeout, http2), this::create);
+        }
+
+        private HttpClient create(ClientKey key) {
+            LOGGER.debug("Creating pooled HttpClient with connect timeout {}, read timeout {} and HTTP/2 {}",
+                    key.connectTimeout(), key.readTimeout(), key.http2() ? "enabled" : "disabled");
+            return new PooledHttpClient(key);
+        }
+    }
+
+    private static java.net.http.HttpClient.Builder jdkClientBuilder(ClientKey key) {
+        return java.net.http.HttpClient.newBuilder()
+                .version(key.http2() ? java.net.http.HttpClient.Version.HTTP_2 : java.net.http.HttpClient.Version.HTTP_1_1)
+                .followRedirects(java.net.http.HttpClient.Redirect.NORMAL)
+                .connectTimeout(key.connectTimeout());
+    }
+
+    /**
+     * Sends the requests with the JDK client, synchronously or asynchronously. Server sent events are delegated to
+     * the langchain4j JDK client, created on first use since the tools don't stream.
+     */
+    private static final class PooledHttpClient implements AsyncHttpClient {
+
+        private final ClientKey key;
+        private final java.net.http.HttpClient delegate;
+        private volatile HttpClient streamingClient;
+
+        private PooledHttpClient(ClientKey key) {
+            this.key = key;
+            this.delegate = jdkClientBuilder(key).build();
+        }
+
+        @Override
+        public SuccessfulHttpResponse execute(HttpRequest request) throws HttpException {
+            return execute(request.method().name(), request);
+        }
+
+        @Override
+        public SuccessfulHttpResponse execute(String method, HttpRequest request) {
+            try {
+                return toResponse(delegate.send(toJdkRequest(method, request), HttpResponse.BodyHandlers.ofString()));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public CompletableFuture<SuccessfulHttpResponse> executeAsync(String method, HttpRequest request) {
+            return delegate.sendAsync(toJdkRequest(method, request), HttpResponse.BodyHandlers.ofString())
+                    .thenApply(PooledHttpClient::toResponse);
+        }
+
+        @Override
+        public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+            streamingClient().execute(request, parser, listener);
+        }
+
+        private HttpClient streamingClient() {
+            HttpClient client = streamingClient;
+            if (client == null) {
+                synchronized (this) {
+                    client = streamingClient;
+                    if (client == null) {
+                        client = JdkHttpClient.builder()
+                                .httpClientBuilder(jdkClientBuilder(key))
+                                .connectTimeout(key.connectTimeout())
+                                .readTimeout(key.readTimeout())
+                                .build();
+                        streamingClient = client;
+                    }
+                }
+            }
+            return client;
+        }
+
+        private java.net.http.HttpRequest toJdkRequest(String method, HttpRequest request) {
+            java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder()
+                    .uri(URI.create(request.url()))
+                    .timeout(key.readTimeout());
+
+            if (request.headers() != null) {
+                request.headers().forEach((name, values) -> {
+                    if (values != null) {
+                        values.forEach(value -> builder.header(name, value));
+                    }
+                });
+            }
+
+            java.net.http.HttpRequest.BodyPublisher bodyPublisher = request.body() != null
+                    ? java.net.http.HttpRequest.BodyPublishers.ofString(request.body())
+                    : java.net.http.HttpRequest.BodyPublishers.noBody();
+            return builder.method(method, bodyPublisher).build();
+        }
+
+        private static SuccessfulHttpResponse toResponse(HttpResponse<String> response) {
+            if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                throw new HttpException(response.statusCode(), response.body());
+            }
+            return SuccessfulHttpResponse.builder()
+                    .statusCode(response.statusCode())
+                    .headers(response.headers().map())
+                    .body(response.body())
+                    .build();
+        }
+    }
+
+    private static void checkPoolSettings(Duration keepAlive, int maxIdleConnections) {
+        if (keepAlive == null || keepAlive.isNegative() || keepAlive.isZero()) {
+            throw new IllegalArgumentException("keepAlive must be a positive duration");
+        }
+        if (maxIdleConnections < 0) {
+            throw new IllegalArgumentException("maxIdleConnections cannot be negative");
+        }
+    }
+
+    /**
+     * Sets the system properties of the JDK connection pool the first time, checks that the given settings match them
+     * afterward. Null settings match any value and are set to the defaults. Properties set before, e.g. on the command
+     * line, are kept.
+     */
+    private static synchronized void applyPoolSettings(Duration keepAlive, Integer maxIdleConnections) {
+        Long keepAliveSeconds = keepAlive == null ? null : Math.max(1, keepAlive.toSeconds());
+        Long currentKeepAlive = poolSettings != null ? Long.valueOf(poolSettings.keepAliveSeconds()) : Long.getLong(KEEP_ALIVE_PROPERTY);
+        Integer currentMaxIdle = poolSettings != null ? Integer.valueOf(poolSettings.maxIdleConnections()) : Integer.getInteger(POOL_SIZE_PROPERTY);
+        if ((keepAliveSeconds != null && currentKeepAlive != null && !keepAliveSeconds.equals(currentKeepAlive))
+                || (maxIdleConnections != null && currentMaxIdle != null && !maxIdleConnections.equals(currentMaxIdle))) {
+            throw new IllegalStateException(("The JDK connection pool applies to the whole JVM and is already configured with a keep-alive "
+                    + "of %ss and %s max idle connections").formatted(currentKeepAlive, currentMaxIdle));
+        }
+        if (poolSettings == null) {
+            poolSettings = new PoolSettings(
+                    currentKeepAlive != null ? currentKeepAlive : keepAliveSeconds != null ? keepAliveSeconds : DEFAULT_KEEP_ALIVE.toSeconds(),
+                    currentMaxIdle != null ? currentMaxIdle : maxIdleConnections != null ? maxIdleConnections : DEFAULT_MAX_IDLE_CONNECTIONS);
+            System.setProperty(KEEP_ALIVE_PROPERTY, String.valueOf(poolSettings.keepAliveSeconds()));
+            System.setProperty(POOL_SIZE_PROPERTY, String.valueOf(poolSettings.maxIdleConnections()));
+            LOGGER.info("JDK connection pool configured with a keep-alive of {}s and {} max idle connections",
+                    poolSettings.keepAliveSeconds(), poolSettings.maxIdleConnections());
+        }
+    }
+}
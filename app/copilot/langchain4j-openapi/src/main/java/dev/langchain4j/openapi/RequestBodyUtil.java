@@ -3,58 +3,17 @@ package dev.langchain4j.openapi;
 import dev.langchain4j.model.chat.request.json.*;
 import io.swagger.v3.oas.models.media.*;
 
-import java.util.HashMap;
-
-import java.util.Map;
-
 public class RequestBodyUtil {
 
     private static final org.slf4j.Logger LOGGER = org.slf4j.LoggerFactory.getLogger(RequestBodyUtil.class);
 
 
+    /**
+     * Maps the request body schema, including its nested objects, array items and enums, to the json schema of the
+     * tool parameter.
+     */
     public static JsonSchemaElement buildRequestBodySchema(Schema<?> schema) {
-
-        Map<String, JsonSchemaElement> properties = new HashMap<>();
-                Map<String,Schema> schemaProperties = schema.getProperties();
-        schemaProperties.forEach((propertyName, propertySchema) -> {
-            properties.put(propertyName,getJsonSchemaElement(propertySchema,propertySchema.getDescription()));
-        });
-
-        return JsonObjectSchema.builder().addProperties(properties).required(schema.getRequired()).build();
-
-    }
-
-    private static JsonSchemaElement getJsonSchemaElement(Schema schema, String description) {
-
-        String t = schema.getType();
-        JsonSchemaElement jsonSchemaElement = null;
-        if (t != null) {
-            switch (t) {
-                case "integer":
-                    jsonSchemaElement = JsonIntegerSchema.builder().description(description).build();
-                    break;
-                case "string":
-                    jsonSchemaElement = JsonStringSchema.builder().description(description).build();
-                    break;
-                case "number":
-                    jsonSchemaElement = JsonNumberSchema.builder().description(description).build();
-                    break;
-                case "boolean":
-                    jsonSchemaElement = JsonBooleanSchema.builder().description(description).build();
-                    break;
-                case "array":
-                    jsonSchemaElement = JsonArraySchema.builder().description(description).build();
-                    break;
-                // Not sure if we can support this
-                case "null":
-                    break;
-                case "object":
-                    jsonSchemaElement = JsonObjectSchema.builder().description(description).build();
-                default:
-                    break;
-            }
-        }
-        return jsonSchemaElement;
+        return new OpenAPISchemaMapper(null).map(schema);
     }
 
 
@@ -2,16 +2,12 @@
 package dev.langchain4j.openapi;
 
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.exception.HttpException;
 import dev.langchain4j.http.client.HttpClient;
 import dev.langchain4j.http.client.HttpMethod;
 import dev.langchain4j.http.client.HttpRequest;
 import dev.langchain4j.http.client.SuccessfulHttpResponse;
-import dev.langchain4j.service.tool.ToolExecutor;
 import io.swagger.v3.oas.models.Operation;
 import io.swagger.v3.oas.models.PathItem;
 import io.swagger.v3.oas.models.parameters.Parameter;
@@ -20,8 +16,8 @@ import io.swagger.v3.oas.models.parameters.QueryParameter;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,18 +25,39 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Plugin for making HTTP requests specifically to endpoints discovered via OpenAPI.
+ * The url template, the lookup of the operation parameters and the headers are prepared once when the executor is
+ * created, so that each call only renders the arguments.
+ * When the http client is an {@link AsyncHttpClient} the tool can be executed without blocking the caller thread
+ * through {@link #executeAsync(ToolExecutionRequest, Object)}.
  */
-public class RestClientToolExecutor implements ToolExecutor {
+public class RestClientToolExecutor implements AsyncToolExecutor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(RestClientToolExecutor.class);
+    private static final String REQUEST_BODY_ARGUMENT = "requestbody";
+
+    /**
+     * How the tool calls are executed. FAKE returns canned responses without calling the server, which is useful to
+     * try the agents without the business APIs running.
+     */
+    public enum ExecutionMode {
+        LIVE,
+        FAKE
+    }
 
     private final String serverUrl;
     private final String path;
     private final PathItem pathItem;
     private final HttpClient client;
+    private final PathItem.HttpMethod operationMethod;
+    // null for the methods not listed in langchain4j HttpMethod, which are sent through AsyncHttpClient
     private final HttpMethod method;
     private final Operation operation;
+    private final ExecutionMode executionMode;
     private final Map<String, List<String>>  httpHeaders;
+    private final Map<String, List<String>>  jsonHttpHeaders;
+    private final PathTemplate pathTemplate;
+    // operation parameters by lower case name, as the model doesn't always respect the case of the parameter names
+    private final Map<String, Parameter> parametersByName;
 
     public RestClientToolExecutor(
         HttpMethod method,
@@ -50,22 +67,101 @@ public class RestClientToolExecutor implements ToolExecutor {
         HttpClient client,
         Map<String, List<String>>  httpHeaders,
         Operation operation) {
-        this.method = method;
+        this(method, serverUrl, path, pathItem, client, httpHeaders, operation, ExecutionMode.LIVE);
+    }
+
+    public RestClientToolExecutor(
+        HttpMethod method,
+        String serverUrl,
+        String path,
+        PathItem pathItem,
+        HttpClient client,
+        Map<String, List<String>>  httpHeaders,
+        Operation operation,
+        ExecutionMode executionMode) {
+        this(PathItem.HttpMethod.valueOf(method.name()), serverUrl, path, pathItem, client, httpHeaders, operation, executionMode);
+    }
+
+    /**
+     * Creates the executor of an operation with any of the OpenAPI methods. PUT and PATCH, not supported by the
+     * langchain4j http clients, require an {@link AsyncHttpClient}, like the clients of {@link PooledHttpClients}.
+     */
+    public RestClientToolExecutor(
+        PathItem.HttpMethod operationMethod,
+        String serverUrl,
+        String path,
+        PathItem pathItem,
+        HttpClient client,
+        Map<String, List<String>>  httpHeaders,
+        Operation operation,
+        ExecutionMode executionMode) {
+        this.operationMethod = Objects.requireNonNull(operationMethod, "operationMethod cannot be null");
+        this.method = langchain4jMethodOf(operationMethod);
+        if (method == null && client != null && !(client instanceof AsyncHttpClient)) {
+            throw new IllegalArgumentException(operationMethod + " method requires an AsyncHttpClient, e.g. one of PooledHttpClients");
+        }
         this.serverUrl = serverUrl;
         this.path = path;
         this.pathItem = pathItem;
         this.client = client;
         this.operation = operation;
-
-        this.httpHeaders = Objects.requireNonNullElseGet(httpHeaders, HashMap::new);
+        this.executionMode = Objects.requireNonNull(executionMode, "executionMode cannot be null");
+
+        Map<String, List<String>> headers = Objects.requireNonNullElseGet(httpHeaders, HashMap::new);
+        this.httpHeaders = Map.copyOf(headers);
+        Map<String, List<String>> jsonHeaders = new HashMap<>(headers);
+        jsonHeaders.put("Content-Type", Collections.singletonList("application/json"));
+        this.jsonHttpHeaders = Map.copyOf(jsonHeaders);
+
+        this.pathTemplate = PathTemplate.compile(path);
+        this.parametersByName = new HashMap<>();
+        if (operation.getParameters() != null) {
+            operation.getParameters().forEach(parameter ->
+                    parametersByName.putIfAbsent(parameter.getName().toLowerCase(Locale.ROOT), parameter));
+        }
     }
 
     public String execute(ToolExecutionRequest toolExecutionRequest, Object memoryId) {
-        return executeFake( toolExecutionRequest, memoryId );
+        if (executionMode == ExecutionMode.FAKE) {
+            return executeFake( toolExecutionRequest, memoryId );
+        }
+        return executeLive( toolExecutionRequest, memoryId );
     }
 
     /**
-     * Executes the HTTP request and return the body of the response.
+     * Executes the HTTP request without waiting for the response. Clients not supporting asynchronous calls are
+     * called on the caller thread.
+     */
+    @Override
+    public CompletableFuture<String> executeAsync(ToolExecutionRequest toolExecutionRequest, Object memoryId) {
+        if (executionMode == ExecutionMode.FAKE) {
+            return CompletableFuture.completedFuture(executeFake( toolExecutionRequest, memoryId ));
+        }
+        if (!(client instanceof AsyncHttpClient asyncClient)) {
+            try {
+                return CompletableFuture.completedFuture(executeLive( toolExecutionRequest, memoryId ));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        HttpRequest request;
+        try {
+            request = buildRequest(toolExecutionRequest);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return asyncClient.executeAsync(operationMethod.name(), request)
+                .handle((response, e) -> {
+                    if (e != null) {
+                        throw toolFailure(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                    }
+                    return response.body();
+                });
+    }
+
+    /**
+     * Returns canned responses for the account api tools.
      */
     private String executeFake(ToolExecutionRequest toolExecutionRequest, Object memoryId) {
 
@@ -98,146 +194,166 @@ public class RestClientToolExecutor implements ToolExecutor {
 
     }
 
-    private String executeOriginal(ToolExecutionRequest toolExecutionRequest, Object memoryId) {
-
-
-        // Use jackson to convert the json string to a Map<string,Object>
-        Map<String,Object> arguments = ToolExecutionRequestUtil.argumentsAsMap(toolExecutionRequest.arguments());
-
+    /**
+     * Executes the HTTP request and return the body of the response.
+     */
+    private String executeLive(ToolExecutionRequest toolExecutionRequest, Object memoryId) {
+        HttpRequest request = buildRequest(toolExecutionRequest);
 
-        String body = getBody(arguments);
-        String query = buildQueryString(arguments);
-        String path = buildQueryPath(arguments);
+        SuccessfulHttpResponse response = null;
 
-        String url;
-        if (!query.isEmpty()) {
-            url = serverUrl + path + "?" + query;
-        } else {
-            url = serverUrl + path;
+        try {
+            response = method != null ? client.execute(request) : ((AsyncHttpClient) client).execute(operationMethod.name(), request);
+        } catch (RuntimeException e) {
+            throw toolFailure(e);
         }
+        return response.body();
 
+    }
+
+    private HttpRequest buildRequest(ToolExecutionRequest toolExecutionRequest) {
+        RequestArguments arguments = decodeArguments(toolExecutionRequest.arguments());
+        String body = arguments.body();
+        String url = arguments.url();
 
         HttpRequest request = null;
 
         if (body != null) {
-            httpHeaders.put("Content-Type", Collections.singletonList("application/json"));
             request = HttpRequest.builder()
-                    .method(method)
+                    .method(requestMethod())
                     .url(url)
-                    .headers(httpHeaders)
+                    .headers(jsonHttpHeaders)
                     .body(body)
                     .build();
         } else {
             request = HttpRequest.builder()
-                    .method(method)
+                    .method(requestMethod())
                     .url(url)
                     .headers(httpHeaders)
                     .build();
         }
 
 
-        LOGGER.debug("Executing {} {}", method.name(), url);
+        LOGGER.debug("Executing {} {}", operationMethod, url);
         if (body != null) {
             LOGGER.debug("Body: {}", body);
         }
+        return request;
+    }
 
-        SuccessfulHttpResponse response = null;
-
-        try {
-            response = client.execute(request);
-        } catch (HttpException e){
-            throw new RuntimeException("Http request failed. Server returned code ["+e.statusCode()+"] with error : " + e.getMessage());
+    /**
+     * Decodes the tool arguments straight into the url and the body of the request, in a single pass over the json:
+     * path and query parameters are read as text and encoded, the request body is copied as json, without decoding
+     * it to a map and serializing it again, and the other arguments are skipped.
+     */
+    RequestArguments decodeArguments(String arguments) {
+        Map<String, String> pathValues = new HashMap<>();
+        StringBuilder query = new StringBuilder();
+        String[] body = {null};
+        LenientJsonParser.visitObject(arguments, (name, parser) -> {
+            if (name.equalsIgnoreCase(REQUEST_BODY_ARGUMENT)) {
+                body[0] = parser.readJson();
+                return;
+            }
+            Parameter parameter = parametersByName.get(name.toLowerCase(Locale.ROOT));
+            if (parameter instanceof PathParameter) {
+                pathValues.put(parameter.getName(), encodePathSegment(parameter.getName(), parser.readText()));
+            } else if (parameter instanceof QueryParameter) {
+                if (!query.isEmpty()) {
+                    query.append('&');
+                }
+                query.append(parameter.getName()).append('=').append(encodeQueryValue(parameter.getName(), parser.readText()));
+            }
+        });
 
-        } catch (RuntimeException e) {
-            throw new RuntimeException("Http request failed with generic error : " + e.getMessage());
+        StringBuilder url = new StringBuilder(serverUrl.length() + path.length() + 64).append(serverUrl);
+        pathTemplate.render(url, pathValues);
+        if (!query.isEmpty()) {
+            url.append('?').append(query);
         }
-        return response.body();
+        return new RequestArguments(url.toString(), body[0]);
+    }
 
+    // the request needs a method also when it's overridden when sent
+    private HttpMethod requestMethod() {
+        return method != null ? method : HttpMethod.POST;
     }
 
-    protected String getBody(Map<String,Object> arguments) {
-        String body = null;
-        if (arguments.containsKey("requestBody")) {
-            Object requestBody = arguments.get("requestBody");
-            if (requestBody != null) body = requestBody.toString();
-            try {
-                body = new ObjectMapper().writeValueAsString(requestBody);
-            } catch (JsonProcessingException e) {
-                throw new IllegalArgumentException("Failed to serialize to JSON the request body map:"+requestBody, e);
-            }
-            arguments.remove("requestBody");
+    private static HttpMethod langchain4jMethodOf(PathItem.HttpMethod operationMethod) {
+        return switch (operationMethod) {
+            case GET -> HttpMethod.GET;
+            case POST -> HttpMethod.POST;
+            case DELETE -> HttpMethod.DELETE;
+            default -> null;
+        };
+    }
+
+    private static RuntimeException toolFailure(Throwable e) {
+        if (e instanceof HttpException httpException) {
+            return new RuntimeException("Http request failed. Server returned code ["+httpException.statusCode()+"] with error : " + e.getMessage());
         }
-        return body;
+        return new RuntimeException("Http request failed with generic error : " + e.getMessage());
     }
 
-    /**
-     * Builds the query string for the HTTP request.
-     * @param arguments The arguments to the HTTP request.
-     * @return The query string.
-     */
-    protected String buildQueryString(Map<String,Object> arguments) {
-        return getParameterStreamOfArguments(arguments)
-                .filter(p -> p instanceof QueryParameter)
-                .map(parameter -> {
-                    String name = parameter.getName();
-                    String rendered = encodeParameter(arguments, name);
-                    return name + "=" + rendered;
-                })
-                .collect(Collectors.joining("&"));
+    private static String encodeQueryValue(String name, Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Missing value for parameter: " + name);
+        }
+        return URLEncoder.encode(value.toString(), StandardCharsets.UTF_8);
+    }
+
+    private static String encodePathSegment(String name, Object value) {
+        // URLEncoder encodes for forms, where spaces are rendered as '+'
+        return encodeQueryValue(name, value).replace("+", "%20");
     }
 
     /**
-     * Builds the path string for the HTTP request.
-     * @param arguments The arguments to the HTTP request.
-     * @return The path string.
+     * The arguments of a tool call decoded for this operation.
+     *
+     * @param url  the full url, with the path and query parameters rendered
+     * @param body the request body as json, or null when there is none
      */
-    protected String buildQueryPath(Map<String,Object> arguments) {
-        return getParameterStreamOfArguments(arguments)
-                .filter(p -> p instanceof PathParameter)
-                .reduce(path, (path, parameter) -> {
-                    String name = parameter.getName();
-                    String rendered = encodeParameter(arguments, name);
-
-                    return path.replaceAll("\\{" + name + "}", rendered);
-                }, (a, b) -> a + b);
+    record RequestArguments(String url, String body) {
     }
 
-/**
- * For all the arguments contained in the arguments map, return the parameters in OpenAPI specification that match the arguments names.
- *
- * @param arguments The map of arguments to match against the OpenAPI parameters.
- * @return A stream of parameters that match the argument names.
- */
-protected Stream<Parameter> getParameterStreamOfArguments(
-            Map<String,Object> arguments) {
-        if (operation.getParameters() == null) {
-            return Stream.empty();
-        }
-        return arguments
-                .keySet()
-                .stream()
-                .map(toolArgumentName -> operation
-                        .getParameters()
-                        .stream()
-                        .filter(param -> param.getName().equalsIgnoreCase(toolArgumentName)).findFirst())
-                .filter(Optional::isPresent)
-                .map(Optional::get);
-    }
-
-    protected static String encodeParameter(
-            Map<String,Object> arguments, String name) {
-        Object value = arguments.get(name);
-
-        if (value == null) {
-            throw new IllegalArgumentException("Missing value for path parameter: " + name);
+    /**
+     * Path split once in literal parts and parameter names, e.g. /accounts/{accountId}/transactions.
+     */
+    record PathTemplate(List<String> literals, List<String> parameterNames) {
+
+        static PathTemplate compile(String path) {
+            List<String> literals = new ArrayList<>();
+            List<String> parameterNames = new ArrayList<>();
+            int start = 0;
+            int open;
+            while ((open = path.indexOf('{', start)) >= 0) {
+                int close = path.indexOf('}', open);
+                if (close < 0) {
+                    break;
+                }
+                literals.add(path.substring(start, open));
+                parameterNames.add(path.substring(open + 1, close));
+                start = close + 1;
+            }
+            literals.add(path.substring(start));
+            return new PathTemplate(List.copyOf(literals), List.copyOf(parameterNames));
         }
-        String rendered = value.toString();
 
-        if (rendered == null) {
-            throw new IllegalArgumentException("Path parameter value is null: " + name);
+        /**
+         * Appends the path with the encoded values of its parameters. Parameters without value are left as
+         * placeholders.
+         */
+        void render(StringBuilder target, Map<String, String> encodedValues) {
+            for (int i = 0; i < parameterNames.size(); i++) {
+                target.append(literals.get(i));
+                String value = encodedValues.get(parameterNames.get(i));
+                if (value != null) {
+                    target.append(value);
+                } else {
+                    target.append('{').append(parameterNames.get(i)).append('}');
+                }
+            }
+            target.append(literals.get(literals.size() - 1));
         }
-        return URLEncoder.encode(rendered, StandardCharsets.US_ASCII);
     }
-
-
-}
\ No newline at end of file
+}
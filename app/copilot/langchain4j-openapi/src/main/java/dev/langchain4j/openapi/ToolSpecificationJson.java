@@ -0,0 +1,139 @@
+// Copyright (c) Microsoft. All rights reserved.
+package dev.langchain4j.openapi;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.model.chat.request.json.JsonArraySchema;
+import dev.langchain4j.model.chat.request.json.JsonBooleanSchema;
+import dev.langchain4j.model.chat.request.json.JsonEnumSchema;
+import dev.langchain4j.model.chat.request.json.JsonIntegerSchema;
+import dev.langchain4j.model.chat.request.json.JsonNumberSchema;
+import dev.langchain4j.model.chat.request.json.JsonObjectSchema;
+import dev.langchain4j.model.chat.request.json.JsonSchemaElement;
+import dev.langchain4j.model.chat.request.json.JsonStringSchema;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts tool specifications to json and back, to store them on disk.
+ * Schemas using elements not supported here are rejected with an IllegalArgumentException, rather than converted
+ * partially.
+ */
+public final class ToolSpecificationJson {
+
+    private ToolSpecificationJson() {
+    }
+
+    public static ObjectNode toJson(ObjectMapper objectMapper, ToolSpecification tool) {
+        ObjectNode toolNode = objectMapper.createObjectNode();
+        toolNode.put("name", tool.name());
+        toolNode.put("description", tool.description());
+        toolNode.set("parameters", toJson(objectMapper, tool.parameters() != null ? tool.parameters() : JsonObjectSchema.builder().build()));
+        return toolNode;
+    }
+
+    public static ToolSpecification fromJson(JsonNode tool) {
+        return ToolSpecification.builder()
+                .name(tool.path("name").asText())
+                .description(textOrNull(tool, "description"))
+                .parameters((JsonObjectSchema) schemaFromJson(tool.path("parameters")))
+                .build();
+    }
+
+    private static ObjectNode toJson(ObjectMapper objectMapper, JsonSchemaElement element) {
+        ObjectNode node = objectMapper.createObjectNode();
+        if (element instanceof JsonObjectSchema objectSchema) {
+            node.put("type", "object");
+            node.put("description", objectSchema.description());
+            ObjectNode properties = node.putObject("properties");
+            if (objectSchema.properties() != null) {
+                objectSchema.properties().forEach((name, property) -> properties.set(name, toJson(objectMapper, property)));
+            }
+            ArrayNode required = node.putArray("required");
+            if (objectSchema.required() != null) {
+                objectSchema.required().forEach(required::add);
+            }
+            if (objectSchema.additionalProperties() != null) {
+                node.put("additionalProperties", objectSchema.additionalProperties());
+            }
+        } else if (element instanceof JsonEnumSchema enumSchema) {
+            node.put("type", "string");
+            node.put("description", enumSchema.description());
+            ArrayNode values = node.putArray("enum");
+            enumSchema.enumValues().forEach(values::add);
+        } else if (element instanceof JsonArraySchema arraySchema) {
+            node.put("type", "array");
+            node.put("description", arraySchema.description());
+            if (arraySchema.items() != null) {
+                node.set("items", toJson(objectMapper, arraySchema.items()));
+            }
+        } else if (element instanceof JsonStringSchema stringSchema) {
+            node.put("type", "string");
+            node.put("description", stringSchema.description());
+        } else if (element instanceof JsonIntegerSchema integerSchema) {
+            node.put("type", "integer");
+            node.put("description", integerSchema.description());
+        } else if (element instanceof JsonNumberSchema numberSchema) {
+            node.put("type", "number");
+            node.put("description", numberSchema.description());
+        } else if (element instanceof JsonBooleanSchema booleanSchema) {
+            node.put("type", "boolean");
+            node.put("description", booleanSchema.description());
+        } else {
+            throw new IllegalArgumentException("Json schema element not supported: " + (element == null ? null : element.getClass().getSimpleName()));
+        }
+        return node;
+    }
+
+    private static JsonSchemaElement schemaFromJson(JsonNode node) {
+        String description = textOrNull(node, "description");
+        String type = node.path("type").asText();
+        switch (type) {
+            case "object":
+                Map<String, JsonSchemaElement> properties = new LinkedHashMap<>();
+                node.path("properties").fields().forEachRemaining(entry -> properties.put(entry.getKey(), schemaFromJson(entry.getValue())));
+                List<String> required = new ArrayList<>();
+                node.path("required").forEach(name -> required.add(name.asText()));
+                var objectSchema = JsonObjectSchema.builder()
+                        .description(description)
+                        .addProperties(properties)
+                        .required(required);
+                if (node.has("additionalProperties")) {
+                    objectSchema.additionalProperties(node.get("additionalProperties").asBoolean());
+                }
+                return objectSchema.build();
+            case "array":
+                var arraySchema = JsonArraySchema.builder().description(description);
+                if (node.has("items")) {
+                    arraySchema.items(schemaFromJson(node.get("items")));
+                }
+                return arraySchema.build();
+            case "string":
+                if (node.has("enum")) {
+                    List<String> values = new ArrayList<>();
+                    node.get("enum").forEach(value -> values.add(value.asText()));
+                    return JsonEnumSchema.builder().description(description).enumValues(values).build();
+                }
+                return JsonStringSchema.builder().description(description).build();
+            case "integer":
+                return JsonIntegerSchema.builder().description(description).build();
+            case "number":
+                return JsonNumberSchema.builder().description(description).build();
+            case "boolean":
+                return JsonBooleanSchema.builder().description(description).build();
+            default:
+                throw new IllegalArgumentException("Json schema type not supported: " + type);
+        }
+    }
+
+    static String textOrNull(JsonNode node, String fieldName) {
+        JsonNode field = node.get(fieldName);
+        return field == null || field.isNull() ? null : field.asText();
+    }
+}
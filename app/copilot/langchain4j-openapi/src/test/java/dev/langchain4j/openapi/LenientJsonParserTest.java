@@ -0,0 +1,87 @@
+package dev.langchain4j.openapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LenientJsonParserTest {
+
+    @Test
+    void decodesLikeJackson() throws Exception {
+        String json = """
+                {
+                  "accountId": "1010",
+                  "amount": 10.5,
+                  "count": 3,
+                  "big": 12345678901,
+                  "negative": -2e3,
+                  "active": true,
+                  "note": null,
+                  "description": "line\\nbreak \\"quoted\\" \\u00e9",
+                  "tags": ["a", "b"],
+                  "payment": {"type": "Visa", "items": [{"id": 1}]}
+                }
+                """;
+
+        assertEquals(new ObjectMapper().readValue(json, Map.class), LenientJsonParser.parseObject(json));
+    }
+
+    @Test
+    void acceptsTrailingCommas() {
+        Map<String, Object> arguments = LenientJsonParser.parseObject("""
+                {
+                  "tags": ["a", "b",],
+                  "payment": {"type": "Visa",},
+                }
+                """);
+
+        assertEquals(List.of("a", "b"), arguments.get("tags"));
+        assertEquals(Map.of("type", "Visa"), arguments.get("payment"));
+    }
+
+    @Test
+    void readsBlankArgumentsAsEmptyObject() {
+        assertTrue(LenientJsonParser.parseObject("").isEmpty());
+        assertTrue(LenientJsonParser.parseObject(null).isEmpty());
+    }
+
+    @Test
+    void rejectsMalformedJson() {
+        assertThrows(IllegalArgumentException.class, () -> LenientJsonParser.parseObject("{\"a\": 1"));
+        assertThrows(IllegalArgumentException.class, () -> LenientJsonParser.parseObject("{\"a\": 1,,}"));
+        assertThrows(IllegalArgumentException.class, () -> LenientJsonParser.parseObject("{\"a\": tru}"));
+        assertThrows(IllegalArgumentException.class, () -> LenientJsonParser.parseObject("{\"a\": 1} {"));
+        assertThrows(IllegalArgumentException.class, () -> LenientJsonParser.parseObject("[1]"));
+    }
+
+    @Test
+    void visitsFieldsAsTextAndCompactJson() {
+        Map<String, String> fields = new LinkedHashMap<>();
+        List<String> skipped = new ArrayList<>();
+        LenientJsonParser.visitObject("""
+                {
+                  "accountId": "10 10",
+                  "limit": 20,
+                  "ignored": {"nested": [1, 2,]},
+                  "requestBody": { "amount" : 10.50, "tags": [ "a", ], },
+                }
+                """, (name, parser) -> {
+            switch (name) {
+                case "accountId", "limit" -> fields.put(name, parser.readText());
+                case "requestBody" -> fields.put(name, parser.readJson());
+                default -> skipped.add(name);
+            }
+        });
+
+        assertEquals("10 10", fields.get("accountId"));
+        assertEquals("20", fields.get("limit"));
+        assertEquals("{\"amount\":10.50,\"tags\":[\"a\"]}", fields.get("requestBody"));
+        assertEquals(List.of("ignored"), skipped);
+    }
+}
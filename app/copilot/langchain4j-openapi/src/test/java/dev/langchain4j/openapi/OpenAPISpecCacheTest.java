@@ -0,0 +1,131 @@
+package dev.langchain4j.openapi;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenAPISpecCacheTest {
+
+    private static Set<String> toolNames(List<OperationTemplate> operations) {
+        return operations.stream().map(operation -> operation.toolSpecification().name()).collect(Collectors.toSet());
+    }
+
+    private static Path copyOfResource(Path dir, String resource) throws IOException {
+        Path file = dir.resolve(resource);
+        try (InputStream input = OpenAPISpecCacheTest.class.getClassLoader().getResourceAsStream(resource)) {
+            Files.copy(input, file);
+        }
+        return file;
+    }
+
+    @Test
+    void specIsParsedOnceForAllImporters() {
+        var cache = OpenAPISpecCache.builder().build();
+
+        var first = OpenAPIToolsImporter.builder()
+                .withToolName("users-api")
+                .withSpecPath("example-get-pathparams.yaml")
+                .withServerUrl("http://localhost:8080")
+                .withSpecCache(cache)
+                .build();
+        var second = OpenAPIToolsImporter.builder()
+                .withToolName("users-api")
+                .withSpecPath("example-get-pathparams.yaml")
+                .withServerUrl("http://localhost:9090")
+                .withSpecCache(cache)
+                .build();
+
+        assertEquals(1, cache.parsedSpecs());
+        assertEquals(
+                first.getToolSpecifications().stream().map(ToolSpecification::name).collect(Collectors.toSet()),
+                second.getToolSpecifications().stream().map(ToolSpecification::name).collect(Collectors.toSet()));
+        assertNotSame(first.getToolExecutor("users-api-getUsers"), second.getToolExecutor("users-api-getUsers"));
+        assertSame(cache.spec("example-get-pathparams.yaml"), cache.spec("example-get-pathparams.yaml"));
+    }
+
+    @Test
+    void toolsAreGeneratedForEachToolName() {
+        var cache = OpenAPISpecCache.builder().build();
+
+        assertTrue(toolNames(cache.operations("example-get-pathparams.yaml", "users-api")).contains("users-api-getUsers"));
+        assertTrue(toolNames(cache.operations("example-get-pathparams.yaml", "people-api")).contains("people-api-getUsers"));
+        assertEquals(1, cache.parsedSpecs());
+    }
+
+    @Test
+    void changedSpecIsParsedAgain(@TempDir Path dir) throws IOException {
+        var cache = OpenAPISpecCache.builder().build();
+        Path spec = copyOfResource(dir, "example-get-pathparams.yaml");
+
+        var before = cache.operations(spec.toString(), "users-api");
+        Files.writeString(spec, Files.readString(spec).replace("operationId: getUsers", "operationId: listUsers"));
+        var after = cache.operations(spec.toString(), "users-api");
+
+        assertEquals(2, cache.parsedSpecs());
+        assertTrue(toolNames(before).contains("users-api-getUsers"));
+        assertTrue(toolNames(after).contains("users-api-listUsers"));
+    }
+
+    @Test
+    void toolsAreRestoredFromCatalog(@TempDir Path dir) {
+        Path catalogDir = dir.resolve("catalog");
+        var generated = OpenAPISpecCache.builder().withCatalogDir(catalogDir).build()
+                .operations("example-get-pathparams.yaml", "users-api");
+
+        var startup = OpenAPISpecCache.builder().withCatalogDir(catalogDir).build();
+        var restored = startup.operations("example-get-pathparams.yaml", "users-api");
+
+        assertEquals(0, startup.parsedSpecs());
+        assertEquals(
+                generated.stream().map(OperationTemplate::toolSpecification).collect(Collectors.toSet()),
+                restored.stream().map(OperationTemplate::toolSpecification).collect(Collectors.toSet()));
+        assertEquals(
+                generated.stream().map(operation -> operation.method() + " " + operation.path()).collect(Collectors.toSet()),
+                restored.stream().map(operation -> operation.method() + " " + operation.path()).collect(Collectors.toSet()));
+    }
+
+    @Test
+    void catalogOfAnotherFormatVersionIsIgnored(@TempDir Path dir) throws IOException {
+        Path catalogDir = dir.resolve("catalog");
+        OpenAPISpecCache.builder().withCatalogDir(catalogDir).build()
+                .operations("example-get-pathparams.yaml", "users-api");
+
+        Path catalogFile;
+        try (var files = Files.list(catalogDir)) {
+            catalogFile = files.filter(file -> file.getFileName().toString().endsWith(".json")).findFirst().orElseThrow();
+        }
+        assertTrue(catalogFile.getFileName().toString().startsWith("users-api-v" + OpenAPIToolCatalog.FORMAT_VERSION + "-"));
+        var objectMapper = new ObjectMapper();
+        var catalog = (ObjectNode) objectMapper.readTree(catalogFile.toFile());
+        catalog.put("formatVersion", OpenAPIToolCatalog.FORMAT_VERSION + 1);
+        objectMapper.writeValue(catalogFile.toFile(), catalog);
+
+        var startup = OpenAPISpecCache.builder().withCatalogDir(catalogDir).build();
+        var operations = startup.operations("example-get-pathparams.yaml", "users-api");
+
+        assertEquals(1, startup.parsedSpecs());
+        assertTrue(toolNames(operations).contains("users-api-getUsers"));
+        // the catalog is written again with the current version
+        assertEquals(OpenAPIToolCatalog.FORMAT_VERSION, objectMapper.readTree(catalogFile.toFile()).path("formatVersion").asInt());
+    }
+
+    @Test
+    void unknownSpecIsRejected() {
+        var cache = OpenAPISpecCache.builder().build();
+
+        assertThrows(IllegalArgumentException.class, () -> cache.operations("missing.yaml", "missing-api"));
+        assertEquals(0, cache.parsedSpecs());
+    }
+}
@@ -16,6 +16,8 @@ import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.model.openai.OpenAiChatModel;
 import dev.langchain4j.service.tool.ToolExecutor;
 import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.oas.models.media.ObjectSchema;
+import io.swagger.v3.oas.models.media.StringSchema;
 
 import io.swagger.v3.parser.OpenAPIV3Parser;
 import io.swagger.v3.parser.core.models.ParseOptions;
@@ -25,6 +27,7 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -193,6 +196,81 @@ class OpenAPIToolsImporterTest {
 
     }
 
+    @Test
+    void testPutAndPatchWithNestedRequestBody() {
+
+        Map<ToolSpecification, ToolExecutor> specifications = OpenAPIToolsImporter.builder()
+                .withToolName("testTool")
+                .withSpecPath("example-put-patch.yaml")
+                .build()
+                .getSpecificationsMaps();
+
+        // OPTIONS is not exposed as a tool
+        assertEquals(2, specifications.size());
+
+        ToolSpecification replacePayment = specifications.keySet().stream()
+                .filter(spec -> spec.name().equals("testTool-replacePayment"))
+                .findFirst()
+                .orElseThrow();
+
+        JsonObjectSchema parameters = replacePayment.parameters();
+        assertTrue(parameters.required().contains("paymentId"));
+        assertTrue(parameters.required().contains("requestBody"));
+        assertFalse(parameters.required().contains("notify"));
+        assertInstanceOf(JsonBooleanSchema.class, parameters.properties().get("notify"));
+
+        JsonObjectSchema requestBody = (JsonObjectSchema) parameters.properties().get("requestBody");
+        assertEquals(List.of("amount", "recipient"), requestBody.required());
+
+        JsonEnumSchema status = (JsonEnumSchema) requestBody.properties().get("status");
+        assertEquals(List.of("pending", "paid", "cancelled"), status.enumValues());
+
+        JsonObjectSchema recipient = (JsonObjectSchema) requestBody.properties().get("recipient");
+        assertEquals("Recipient of the payment", recipient.description());
+        assertInstanceOf(JsonStringSchema.class, recipient.properties().get("name"));
+        assertEquals(List.of("name"), recipient.required());
+
+        JsonArraySchema tags = (JsonArraySchema) requestBody.properties().get("tags");
+        assertInstanceOf(JsonStringSchema.class, tags.items());
+
+        ToolSpecification updatePaymentStatus = specifications.keySet().stream()
+                .filter(spec -> spec.name().equals("testTool-updatePaymentStatus"))
+                .findFirst()
+                .orElseThrow();
+
+        JsonObjectSchema patchBody = (JsonObjectSchema) updatePaymentStatus.parameters().properties().get("requestBody");
+        assertEquals(status, patchBody.properties().get("status"));
+        assertFalse(updatePaymentStatus.parameters().required().contains("requestBody"));
+    }
+
+    @Test
+    void testSharedSchemaIsConvertedOnce() {
+        var schemaMapper = new OpenAPISchemaMapper(null);
+        var status = new StringSchema();
+        status.setEnum(List.of("pending", "paid"));
+        var payment = new ObjectSchema();
+        payment.addProperty("status", status);
+        payment.addProperty("previousStatus", status);
+
+        JsonObjectSchema mapped = (JsonObjectSchema) schemaMapper.map(payment);
+
+        assertSame(mapped.properties().get("status"), mapped.properties().get("previousStatus"));
+        assertSame(mapped, schemaMapper.map(payment));
+    }
+
+    @Test
+    void testObjectParameterIsNotDropped() {
+        var schemaMapper = new OpenAPISchemaMapper(null);
+        var filter = new ObjectSchema();
+        filter.addProperty("recipientName", new StringSchema());
+
+        JsonSchemaElement mapped = schemaMapper.map(filter, "Transactions filter");
+
+        assertInstanceOf(JsonObjectSchema.class, mapped);
+        assertEquals("Transactions filter", ((JsonObjectSchema) mapped).description());
+        assertInstanceOf(JsonStringSchema.class, ((JsonObjectSchema) mapped).properties().get("recipientName"));
+    }
+
     /** it won't work till we are able to configure an http client for langchain4j which accepts wiremock self signed certificate **/
   //  @Test
     void testOpenAIFlow(){
@@ -0,0 +1,51 @@
+package dev.langchain4j.openapi;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledHttpClientsTest {
+
+    @Test
+    void clientIsSharedForSameConfiguration() {
+        var client = PooledHttpClients.builder()
+                .withConnectTimeout(Duration.ofSeconds(5))
+                .withReadTimeout(Duration.ofSeconds(30))
+                .build();
+
+        assertSame(client, PooledHttpClients.builder()
+                .withConnectTimeout(Duration.ofSeconds(5))
+                .withReadTimeout(Duration.ofSeconds(30))
+                .build());
+        assertSame(PooledHttpClients.shared(), PooledHttpClients.shared());
+        assertNotSame(client, PooledHttpClients.shared());
+    }
+
+    @Test
+    void poolIsConfiguredOnFirstClient() {
+        PooledHttpClients.shared();
+
+        assertNotNull(System.getProperty(PooledHttpClients.KEEP_ALIVE_PROPERTY));
+        assertNotNull(System.getProperty(PooledHttpClients.POOL_SIZE_PROPERTY));
+    }
+
+    @Test
+    void conflictingPoolSettingsAreRejected() {
+        PooledHttpClients.shared();
+        long keepAlive = Long.getLong(PooledHttpClients.KEEP_ALIVE_PROPERTY);
+        int maxIdleConnections = Integer.getInteger(PooledHttpClients.POOL_SIZE_PROPERTY);
+
+        assertDoesNotThrow(() -> PooledHttpClients.configurePool(Duration.ofSeconds(keepAlive), maxIdleConnections));
+        assertDoesNotThrow(() -> PooledHttpClients.configurePool(null, null));
+        assertThrows(IllegalStateException.class, () -> PooledHttpClients.configurePool(Duration.ofSeconds(keepAlive + 1), maxIdleConnections));
+        assertThrows(IllegalStateException.class, () -> PooledHttpClients.builder().withMaxIdleConnections(maxIdleConnections + 1).build());
+    }
+
+    @Test
+    void invalidConfigurationIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> PooledHttpClients.builder().withReadTimeout(Duration.ZERO).build());
+        assertThrows(IllegalArgumentException.class, () -> PooledHttpClients.builder().withMaxIdleConnections(-1).build());
+    }
+}
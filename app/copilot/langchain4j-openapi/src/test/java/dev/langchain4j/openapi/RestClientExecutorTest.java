@@ -13,6 +13,8 @@ import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
 
 import static java.time.Duration.ofSeconds;
 import static org.junit.jupiter.api.Assertions.*;
@@ -47,7 +49,7 @@ class RestClientExecutorTest {
     }
 
     @Test
-    void testBuildQueryString() {
+    void testDecodeQueryParameters() {
         // Setup
         PathItem pathItem = new PathItem();
         Operation operation = new Operation();
@@ -72,20 +74,19 @@ class RestClientExecutorTest {
                 operation
         );
 
-        Map<String, Object> arguments = new HashMap<>();
-        arguments.put("param1", "value1");
-        arguments.put("param2", "value2");
+        String arguments = "{\"param1\": \"value1\", \"param2\": \"value2\"}";
 
         // Execute
-        String queryString = executor.buildQueryString(arguments);
+        String url = executor.decodeArguments(arguments).url();
 
         // Verify
-        assertTrue(queryString.contains("param1=value1"));
-        assertTrue(queryString.contains("param2=value2"));
+        assertTrue(url.startsWith("http://example.com/path?"));
+        assertTrue(url.contains("param1=value1"));
+        assertTrue(url.contains("param2=value2"));
     }
 
     @Test
-    void testBuildQueryPath() {
+    void testDecodePathParameters() {
         // Setup
         PathItem pathItem = new PathItem();
         Operation operation = new Operation();
@@ -110,22 +111,19 @@ class RestClientExecutorTest {
                 operation
         );
 
-        Map<String, Object> arguments = new HashMap<>();
-        arguments.put("param1", "value1");
-        arguments.put("param2", "value2");
+        String arguments = "{\"param1\": \"value1\", \"param2\": \"value2\"}";
 
         // Execute
-        String queryPath = executor.buildQueryPath(arguments);
+        String url = executor.decodeArguments(arguments).url();
 
         // Verify
-        assertEquals("/path/value1/value2", queryPath);
+        assertEquals("http://example.com/path/value1/value2", url);
     }
 
     @Test
-    void testGetBody() {
+    void testDecodeRequestBody() {
         // Setup
-        Map<String, Object> arguments = new HashMap<>();
-        arguments.put("requestbody", "{\"key1\":\"value1\",\"key2\":\"value2\"}");
+        String arguments = "{\"requestbody\": \"{\\\"key1\\\":\\\"value1\\\",\\\"key2\\\":\\\"value2\\\"}\"}";
 
         RestClientToolExecutor executor = new RestClientToolExecutor(
                 HttpMethod.POST,
@@ -138,7 +136,7 @@ class RestClientExecutorTest {
         );
 
         // Execute
-        String body = executor.getBody(arguments);
+        String body = executor.decodeArguments(arguments).body();
 
         // Verify
 
@@ -259,5 +257,186 @@ class RestClientExecutorTest {
         assertEquals("Success", response);
     }
 
+    @Test
+    void testDecodePathParametersEncodesValuesAndIgnoresArgumentCase() {
+        Operation operation = new Operation();
+        PathParameter param1 = new PathParameter();
+        param1.setName("accountId");
+        operation.addParametersItem(param1);
+
+        RestClientToolExecutor executor = new RestClientToolExecutor(
+                HttpMethod.GET,
+                "http://example.com",
+                "/accounts/{accountId}/transactions",
+                new PathItem(),
+                null,
+                new HashMap<>(),
+                operation
+        );
+
+        String arguments = "{\"accountid\": \"10 10/a\"}";
+
+        assertEquals("http://example.com/accounts/10%2010%2Fa/transactions", executor.decodeArguments(arguments).url());
+    }
+
+    @Test
+    void testExecuteInFakeModeDoesNotCallServer() {
+        RestClientToolExecutor executor = new RestClientToolExecutor(
+                HttpMethod.GET,
+                "http://localhost:8080",
+                "/unknown",
+                new PathItem(),
+                httpClient,
+                new HashMap<>(),
+                new Operation(),
+                RestClientToolExecutor.ExecutionMode.FAKE
+        );
+
+        ToolExecutionRequest toolExecutionRequest = ToolExecutionRequest.builder()
+                .name("account-api-getAccountsByUserName")
+                .arguments("{}")
+                .build();
 
+        assertTrue(executor.execute(toolExecutionRequest, null).contains("1234567"));
+        wireMockServer.verify(0, getRequestedFor(urlEqualTo("/unknown")));
+    }
+
+    @Test
+    void testExecuteAsyncWithPooledClient() {
+        wireMockServer.stubFor(get(urlPathEqualTo("/accounts/1010"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withFixedDelay(200)
+                        .withBody("Success")));
+
+        Operation operation = new Operation();
+        PathParameter accountId = new PathParameter();
+        accountId.setName("accountId");
+        operation.addParametersItem(accountId);
+
+        RestClientToolExecutor executor = new RestClientToolExecutor(
+                HttpMethod.GET,
+                "http://localhost:8080",
+                "/accounts/{accountId}",
+                new PathItem(),
+                PooledHttpClients.shared(),
+                new HashMap<>(),
+                operation
+        );
+
+        ToolExecutionRequest toolExecutionRequest = ToolExecutionRequest.builder().arguments("{\"accountId\": \"1010\"}").build();
+
+        var futures = IntStream.range(0, 10)
+                .mapToObj(i -> executor.executeAsync(toolExecutionRequest, null))
+                .toList();
+
+        futures.forEach(future -> assertEquals("Success", future.join()));
+    }
+
+    @Test
+    void testExecuteAsyncFailsOnServerError() {
+        wireMockServer.stubFor(get(urlPathEqualTo("/broken"))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("Boom")));
+
+        RestClientToolExecutor executor = new RestClientToolExecutor(
+                HttpMethod.GET,
+                "http://localhost:8080",
+                "/broken",
+                new PathItem(),
+                PooledHttpClients.shared(),
+                new HashMap<>(),
+                new Operation()
+        );
+
+        var future = executor.executeAsync(ToolExecutionRequest.builder().arguments("{}").build(), null);
+
+        var exception = assertThrows(CompletionException.class, future::join);
+        assertTrue(exception.getCause().getMessage().contains("[500]"));
+    }
+
+    @Test
+    void testExecutePutWithPooledClient() {
+        wireMockServer.stubFor(put(urlPathEqualTo("/payments/42"))
+                .withRequestBody(equalToJson("{\"amount\":10.5}"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("Replaced")));
+
+        Operation operation = new Operation();
+        PathParameter paymentId = new PathParameter();
+        paymentId.setName("paymentId");
+        operation.addParametersItem(paymentId);
+
+        RestClientToolExecutor executor = new RestClientToolExecutor(
+                PathItem.HttpMethod.PUT,
+                "http://localhost:8080",
+                "/payments/{paymentId}",
+                new PathItem(),
+                PooledHttpClients.shared(),
+                new HashMap<>(),
+                operation,
+                RestClientToolExecutor.ExecutionMode.LIVE
+        );
+
+        ToolExecutionRequest toolExecutionRequest = ToolExecutionRequest.builder()
+                .arguments("{\"paymentId\": \"42\", \"requestBody\": {\"amount\": 10.5}}")
+                .build();
+
+        assertEquals("Replaced", executor.execute(toolExecutionRequest, null));
+        assertEquals("Replaced", executor.executeAsync(toolExecutionRequest, null).join());
+    }
+
+    @Test
+    void testPatchRequiresAsyncHttpClient() {
+        assertThrows(IllegalArgumentException.class, () -> new RestClientToolExecutor(
+                PathItem.HttpMethod.PATCH,
+                "http://localhost:8080",
+                "/payments",
+                new PathItem(),
+                httpClient,
+                new HashMap<>(),
+                new Operation(),
+                RestClientToolExecutor.ExecutionMode.LIVE
+        ));
+    }
+
+    @Test
+    void testExecuteWithTrailingCommasInArguments() {
+        wireMockServer.stubFor(post(urlPathEqualTo("/accounts/1010/payments"))
+                .withQueryParam("notify", equalTo("true"))
+                .withRequestBody(equalToJson("{\"amount\":10.5,\"tags\":[\"rent\"]}"))
+                .willReturn(aResponse()
+                        .withStatus(200)
+                        .withBody("Paid")));
+
+        Operation operation = new Operation();
+        PathParameter accountId = new PathParameter();
+        accountId.setName("accountId");
+        QueryParameter notify = new QueryParameter();
+        notify.setName("notify");
+        operation.addParametersItem(accountId);
+        operation.addParametersItem(notify);
+
+        RestClientToolExecutor executor = new RestClientToolExecutor(
+                HttpMethod.POST,
+                "http://localhost:8080",
+                "/accounts/{accountId}/payments",
+                new PathItem(),
+                httpClient,
+                new HashMap<>(),
+                operation
+        );
+
+        ToolExecutionRequest toolExecutionRequest = ToolExecutionRequest.builder().arguments("""
+                {
+                  "accountId": 1010,
+                  "notify": true,
+                  "requestBody": {"amount": 10.5, "tags": ["rent",],},
+                }
+                """).build();
+
+        assertEquals("Paid", executor.execute(toolExecutionRequest, null));
+    }
 }
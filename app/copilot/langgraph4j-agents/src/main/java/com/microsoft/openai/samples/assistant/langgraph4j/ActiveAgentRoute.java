@@ -0,0 +1,61 @@
+package com.microsoft.openai.samples.assistant.langgraph4j;
+
+import com.microsoft.langchain4j.agent.routing.Conversations;
+import com.microsoft.langchain4j.agent.routing.IntentRouter;
+import org.bsc.langgraph4j.action.AsyncEdgeAction;
+import org.bsc.langgraph4j.action.EdgeAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import static org.bsc.langgraph4j.action.AsyncEdgeAction.edge_async;
+
+/**
+ * Entry point of the workflow. Follow-up turns of a thread go straight to the agent that answered the previous turn,
+ * skipping the supervisor, unless the topic changed. The topic is considered changed when the intent router
+ * confidently resolves a different agent, or when the user is not answering a question asked by the active agent.
+ */
+public class ActiveAgentRoute implements EdgeAction<AgentWorkflowState> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActiveAgentRoute.class);
+
+    private final String supervisorNode;
+    private final IntentRouter intentRouter;
+
+    public static AsyncEdgeAction<AgentWorkflowState> of(String supervisorNode, IntentRouter intentRouter) {
+        return edge_async( new ActiveAgentRoute( supervisorNode, intentRouter ) );
+    }
+
+    public ActiveAgentRoute(String supervisorNode, IntentRouter intentRouter) {
+        this.supervisorNode = Objects.requireNonNull( supervisorNode, "supervisorNode cannot be null");
+        this.intentRouter = Objects.requireNonNull( intentRouter, "intentRouter cannot be null");
+    }
+
+    @Override
+    public String apply(AgentWorkflowState state) {
+        Optional<String> activeAgent = state.activeAgent()
+                .filter( agent -> Intent.names().contains( agent ) );
+        if (activeAgent.isEmpty()) {
+            return supervisorNode;
+        }
+
+        var messages = state.messages();
+        Optional<String> routedAgent = intentRouter.route( messages );
+        if (routedAgent.isPresent()) {
+            if (routedAgent.get().equals( activeAgent.get() )) {
+                LOGGER.info("Continuing with active agent [{}]", activeAgent.get());
+                return activeAgent.get();
+            }
+            LOGGER.info("Topic changed from active agent [{}] to [{}]", activeAgent.get(), routedAgent.get());
+            return supervisorNode;
+        }
+
+        if (Conversations.assistantAskedQuestion( messages )) {
+            LOGGER.info("Continuing with active agent [{}]", activeAgent.get());
+            return activeAgent.get();
+        }
+        return supervisorNode;
+    }
+}
@@ -0,0 +1,43 @@
+package com.microsoft.openai.samples.assistant.langgraph4j;
+
+import com.microsoft.langchain4j.agent.AgentEventListener;
+import org.bsc.langgraph4j.RunnableConfig;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the {@link AgentEventListener} attached to a running workflow thread.
+ * The graph is compiled once and shared across requests, so the nodes look up the listener of the
+ * current invocation through the threadId available in the {@link RunnableConfig}.
+ * A thread has at most one listener: a second run of the same thread can't be told apart by the nodes, so it is
+ * rejected while the first one is running.
+ */
+public class AgentEventListenerRegistry {
+
+    private final Map<String, AgentEventListener> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * Attaches the listener to the thread.
+     *
+     * @return false when a listener is already attached to the thread, i.e. the thread is already running
+     */
+    public boolean register(String threadId, AgentEventListener listener) {
+        return listeners.putIfAbsent(Objects.requireNonNull(threadId, "threadId cannot be null"),
+                                     Objects.requireNonNull(listener, "listener cannot be null")) == null;
+    }
+
+    /**
+     * Detaches the listener from the thread, if it's still the one attached.
+     */
+    public void remove(String threadId, AgentEventListener listener) {
+        listeners.remove(threadId, listener);
+    }
+
+    public AgentEventListener listenerOf(RunnableConfig config) {
+        return config.threadId()
+                .map(listeners::get)
+                .orElse(AgentEventListener.NOOP);
+    }
+}
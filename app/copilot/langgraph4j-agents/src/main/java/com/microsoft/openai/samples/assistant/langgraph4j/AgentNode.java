@@ -1,34 +1,52 @@
 package com.microsoft.openai.samples.assistant.langgraph4j;
 
 import com.microsoft.langchain4j.agent.Agent;
-import org.bsc.langgraph4j.action.AsyncNodeAction;
-import org.bsc.langgraph4j.action.NodeAction;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.action.AsyncNodeActionWithConfig;
+import org.bsc.langgraph4j.action.NodeActionWithConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
-import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+import static org.bsc.langgraph4j.action.AsyncNodeActionWithConfig.node_async;
 
-public  class AgentNode<A extends Agent> implements NodeAction<AgentWorkflowState> {
+public  class AgentNode<A extends Agent> implements NodeActionWithConfig<AgentWorkflowState> {
     private static final Logger LOGGER = LoggerFactory.getLogger(AgentNode.class);
 
-    private final Agent agent;
+    private final Function<String, A> agentForUser;
+    private final AgentEventListenerRegistry listenerRegistry;
 
-    public static <A extends Agent> AsyncNodeAction<AgentWorkflowState> of( A agent ) {
-        return node_async( new AgentNode<>( agent ));
+    public static <A extends Agent> AsyncNodeActionWithConfig<AgentWorkflowState> of( A agent ) {
+        return of( agent, new AgentEventListenerRegistry() );
     }
 
-    public AgentNode( A agent ) {
-        this.agent = Objects.requireNonNull( agent, "agent cannot be null");
+    public static <A extends Agent> AsyncNodeActionWithConfig<AgentWorkflowState> of( A agent, AgentEventListenerRegistry listenerRegistry ) {
+        Objects.requireNonNull( agent, "agent cannot be null");
+        return node_async( new AgentNode<>( loggedUserName -> agent, listenerRegistry ));
+    }
+
+    /**
+     * The agent is resolved on each execution from the "loggedUserName" of the workflow state,
+     * so the same compiled graph can serve different users.
+     */
+    public static <A extends Agent> AsyncNodeActionWithConfig<AgentWorkflowState> perUser( Function<String, A> agentForUser, AgentEventListenerRegistry listenerRegistry ) {
+        return node_async( new AgentNode<>( agentForUser, listenerRegistry ));
+    }
+
+    public AgentNode( Function<String, A> agentForUser, AgentEventListenerRegistry listenerRegistry ) {
+        this.agentForUser = Objects.requireNonNull( agentForUser, "agentForUser cannot be null");
+        this.listenerRegistry = Objects.requireNonNull( listenerRegistry, "listenerRegistry cannot be null");
     }
 
     @Override
-    public Map<String, Object> apply(AgentWorkflowState state) throws Exception {
+    public Map<String, Object> apply(AgentWorkflowState state, RunnableConfig config) throws Exception {
 
-        var messages = agent.invoke( state.messages() );
+        var agent = agentForUser.apply( state.loggedUserName().orElse( null ) );
+        var messages = agent.invoke( state.messages(), listenerRegistry.listenerOf( config ) );
 
-        return Map.of( "messages", messages );
+        return Map.of( "messages", messages, "activeAgent", agent.getName() );
     }
 }
@@ -22,4 +22,15 @@ public class AgentWorkflowState extends MessagesState<ChatMessage>  {
            return value("nextAgent");
     }
 
+    /**
+     * The agent that answered the last turn of the thread. Follow-up turns are routed to it directly.
+     */
+    public Optional<String> activeAgent() {
+           return value("activeAgent");
+    }
+
+    public Optional<String> loggedUserName() {
+           return value("loggedUserName");
+    }
+
 }
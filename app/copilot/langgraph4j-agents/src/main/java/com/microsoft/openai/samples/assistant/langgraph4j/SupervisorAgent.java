@@ -3,6 +3,7 @@ package com.microsoft.openai.samples.assistant.langgraph4j;
 
 import com.microsoft.langchain4j.agent.Agent;
 import com.microsoft.langchain4j.agent.AgentMetadata;
+import com.microsoft.langchain4j.agent.routing.IntentRouter;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.ChatMessage;
 import dev.langchain4j.data.message.SystemMessage;
@@ -26,6 +27,8 @@ public class SupervisorAgent {
     private final ChatLanguageModel chatLanguageModel;
     private final Map<String, AgentMetadata> agentsMetadata;
     private final Prompt agentPrompt;
+    //optional fast path resolving the next agent without calling the model
+    private IntentRouter intentRouter = IntentRouter.NONE;
     //When false only detect the next agent but doesn't route to it. It will answer with the agent name.
 
    private final String SUPERVISOR_AGENT_SINGLETURN_SYSTEM_MESSAGE = """
@@ -48,9 +51,22 @@ public class SupervisorAgent {
     }
 
 
+    public void setIntentRouter(IntentRouter intentRouter) {
+        if (intentRouter == null) {
+            throw new IllegalArgumentException("intentRouter cannot be null");
+        }
+        this.intentRouter = intentRouter;
+    }
+
     public List<ChatMessage> invoke(List<ChatMessage> chatHistory) {
         LOGGER.info("------------- SupervisorAgent -------------");
 
+        var routedAgent = intentRouter.route(chatHistory)
+                .filter(agentsMetadata::containsKey);
+        if (routedAgent.isPresent()) {
+            return List.of( AiMessage.from( routedAgent.get() ) );
+        }
+
         var internalChatMemory = buildInternalChat(chatHistory);
 
         ChatRequest request = ChatRequest.builder()
@@ -22,19 +22,26 @@ public class SupervisorAgentNode implements NodeActionWithConfig<AgentWorkflowSt
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SupervisorAgentNode.class);
     final SupervisorAgent agent;
+    final AgentEventListenerRegistry listenerRegistry;
 
     public static AsyncNodeActionWithConfig<AgentWorkflowState> of(SupervisorAgent agent) {
-        return node_async( new SupervisorAgentNode(agent) );
+        return of( agent, new AgentEventListenerRegistry() );
     }
 
-    private SupervisorAgentNode(SupervisorAgent agent) {
+    public static AsyncNodeActionWithConfig<AgentWorkflowState> of(SupervisorAgent agent, AgentEventListenerRegistry listenerRegistry) {
+        return node_async( new SupervisorAgentNode(agent, listenerRegistry) );
+    }
+
+    private SupervisorAgentNode(SupervisorAgent agent, AgentEventListenerRegistry listenerRegistry) {
         this.agent = Objects.requireNonNull( agent, "agent cannot be null");
+        this.listenerRegistry = Objects.requireNonNull( listenerRegistry, "listenerRegistry cannot be null");
     }
 
     @Override
     public Map<String, Object> apply(AgentWorkflowState state, RunnableConfig config) {
 
         var messages = agent.invoke(state.messages());
+        var listener = listenerRegistry.listenerOf(config);
 
         if (messages.get(0) instanceof AiMessage nextAgentMessage) {
             LOGGER.info("Supervisor Agent handoff to [{}]", nextAgentMessage.text());
@@ -44,9 +51,11 @@ public class SupervisorAgentNode implements NodeActionWithConfig<AgentWorkflowSt
                 AiMessage clarificationMessage = AiMessage.builder().
                                                    text(" I'm not sure about your request. Can you please clarify?")
                                                    .build();
+                listener.onPartialResponse(clarificationMessage.text());
 
-                return Map.of("nextAgent", "none", "messages", clarificationMessage);
+                return Map.of("nextAgent", "none", "activeAgent", "none", "messages", clarificationMessage);
             }
+            listener.onAgentSelected(nextAgentMessage.text());
             return Map.of("nextAgent", nextAgentMessage.text());
         }
 
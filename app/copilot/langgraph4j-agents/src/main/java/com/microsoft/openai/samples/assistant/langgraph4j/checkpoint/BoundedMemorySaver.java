@@ -0,0 +1,421 @@
+package com.microsoft.openai.samples.assistant.langgraph4j.checkpoint;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.BaseCheckpointSaver;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In memory checkpoint saver with bounded footprint. Unlike {@link org.bsc.langgraph4j.checkpoint.MemorySaver}, which
+ * keeps every checkpoint of every thread, it keeps only the latest checkpoints of each thread and evicts whole threads
+ * when they are idle for longer than the ttl or, least recently used first, when the number of threads or the
+ * estimated size of their states grows over the configured limits. The thread being saved is never evicted to make
+ * room for itself. A periodic sweep drops the idle threads and logs the {@link #stats() stats} of the saver: at info
+ * level when threads were dropped since the previous sweep, at debug level otherwise.
+ */
+public class BoundedMemorySaver implements BaseCheckpointSaver, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundedMemorySaver.class);
+    private static final String DEFAULT_THREAD_ID = "$default";
+    private static final long OBJECT_OVERHEAD = 16;
+
+    private final int maxThreads;
+    private final long maxBytes;
+    private final Duration idleTtl;
+    private final int maxCheckpointsPerThread;
+    private final Clock clock;
+    private final LinkedHashMap<String, ThreadCheckpoints> threads = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private long estimatedBytes;
+    private final AtomicLong trimmedCheckpoints = new AtomicLong();
+    private final AtomicLong expiredThreads = new AtomicLong();
+    private final AtomicLong evictedThreads = new AtomicLong();
+    private final ScheduledExecutorService sweeper;
+    private Stats lastSweepStats;
+
+    private static class ThreadCheckpoints {
+        final LinkedList<Checkpoint> checkpoints = new LinkedList<>();
+        final LinkedList<Long> sizes = new LinkedList<>();
+        long bytes;
+        long lastAccess;
+    }
+
+    /**
+     * Point in time view of the saver size and of the evictions done since its creation.
+     *
+     * @param threads          threads currently held
+     * @param checkpoints      checkpoints currently held
+     * @param estimatedBytes   estimated size of the held checkpoint states
+     * @param trimmedCheckpoints checkpoints dropped because their thread had too many
+     * @param expiredThreads   threads dropped because idle for longer than the ttl
+     * @param evictedThreads   threads dropped, least recently used first, to stay within the limits
+     */
+    public record Stats(int threads, long checkpoints, long estimatedBytes, long trimmedCheckpoints, long expiredThreads, long evictedThreads) {
+    }
+
+    private BoundedMemorySaver(Builder builder) {
+        if (builder.maxThreads <= 0) {
+            throw new IllegalArgumentException("maxThreads must be greater than 0");
+        }
+        if (builder.maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be greater than 0");
+        }
+        if (builder.idleTtl == null || builder.idleTtl.isNegative() || builder.idleTtl.isZero()) {
+            throw new IllegalArgumentException("idleTtl must be a positive duration");
+        }
+        if (builder.maxCheckpointsPerThread <= 0) {
+            throw new IllegalArgumentException("maxCheckpointsPerThread must be greater than 0");
+        }
+        this.maxThreads = builder.maxThreads;
+        this.maxBytes = builder.maxBytes;
+        this.idleTtl = builder.idleTtl;
+        this.maxCheckpointsPerThread = builder.maxCheckpointsPerThread;
+        this.clock = builder.clock;
+
+        long sweepInterval = Math.max(Duration.ofMinutes(1).toMillis(), Math.min(idleTtl.toMillis(), Duration.ofHours(1).toMillis()));
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "memory-checkpoint-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sweeper.scheduleWithFixedDelay(this::sweep, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+
+        private int maxThreads = 10_000;
+        private long maxBytes = 256L * 1024 * 1024;
+        private Duration idleTtl = Duration.ofHours(1);
+        private int maxCheckpointsPerThread = 10;
+        private Clock clock = Clock.systemUTC();
+
+        public Builder withMaxThreads(int maxThreads) {
+            this.maxThreads = maxThreads;
+            return this;
+        }
+
+        /**
+         * Limit of the estimated size of the checkpoint states held by the saver.
+         */
+        public Builder withMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        public Builder withIdleTtl(Duration idleTtl) {
+            this.idleTtl = idleTtl;
+            return this;
+        }
+
+        public Builder withMaxCheckpointsPerThread(int maxCheckpointsPerThread) {
+            this.maxCheckpointsPerThread = maxCheckpointsPerThread;
+            return this;
+        }
+
+        Builder withClock(Clock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public BoundedMemorySaver build() {
+            return new BoundedMemorySaver(this);
+        }
+    }
+
+    @Override
+    public Collection<Checkpoint> list(RunnableConfig config) {
+        lock.lock();
+        try {
+            ThreadCheckpoints thread = access(threadIdOf(config));
+            return thread == null ? List.of() : List.copyOf(thread.checkpoints);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Checkpoint> get(RunnableConfig config) {
+        lock.lock();
+        try {
+            ThreadCheckpoints thread = access(threadIdOf(config));
+            if (thread == null) {
+                return Optional.empty();
+            }
+            if (config.checkPointId().isPresent()) {
+                String checkPointId = config.checkPointId().get();
+                return thread.checkpoints.stream()
+                        .filter(checkpoint -> checkpoint.getId().equals(checkPointId))
+                        .findFirst();
+            }
+            return Optional.ofNullable(thread.checkpoints.peekFirst());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public RunnableConfig put(RunnableConfig config, Checkpoint checkpoint) throws Exception {
+        String threadId = threadIdOf(config);
+        long size = estimateSize(checkpoint.getState());
+        lock.lock();
+        try {
+            ThreadCheckpoints thread = access(threadId);
+            if (config.checkPointId().isPresent()) {
+                String checkPointId = config.checkPointId().get();
+                int index = thread == null ? -1 : indexOf(thread, checkPointId);
+                if (index < 0) {
+                    throw new NoSuchElementException("Checkpoint with id %s not found!".formatted(checkPointId));
+                }
+                // the replacement keeps the id of the replaced checkpoint, so that the returned config still refers to it
+                thread.checkpoints.set(index, Checkpoint.builder()
+                        .id(checkPointId)
+                        .state(checkpoint.getState())
+                        .nodeId(checkpoint.getNodeId())
+                        .nextNodeId(checkpoint.getNextNodeId())
+                        .build());
+                long previousSize = thread.sizes.set(index, size);
+                resize(thread, size - previousSize);
+                evictOverLimits(threadId);
+                return config;
+            }
+
+            if (thread == null) {
+                thread = new ThreadCheckpoints();
+                thread.lastAccess = clock.millis();
+                threads.put(threadId, thread);
+            }
+            thread.checkpoints.addFirst(checkpoint);
+            thread.sizes.addFirst(size);
+            resize(thread, size);
+            while (thread.checkpoints.size() > maxCheckpointsPerThread) {
+                thread.checkpoints.removeLast();
+                resize(thread, -thread.sizes.removeLast());
+                trimmedCheckpoints.incrementAndGet();
+            }
+            evictOverLimits(threadId);
+            return RunnableConfig.builder(config)
+                    .checkPointId(checkpoint.getId())
+                    .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean clear(RunnableConfig config) {
+        lock.lock();
+        try {
+            ThreadCheckpoints thread = threads.remove(threadIdOf(config));
+            if (thread == null) {
+                return false;
+            }
+            estimatedBytes -= thread.bytes;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the threads idle for longer than the ttl. Threads are kept in access order, so the idle ones are
+     * the first ones.
+     */
+    public void evictExpired() {
+        lock.lock();
+        try {
+            evictIdle(clock.millis());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Drops the expired threads and logs the stats of the saver.
+     */
+    void sweep() {
+        try {
+            evictExpired();
+            Stats stats = stats();
+            if (lastSweepStats != null && stats.expiredThreads() == lastSweepStats.expiredThreads()
+                    && stats.evictedThreads() == lastSweepStats.evictedThreads()) {
+                LOGGER.debug("Memory checkpoints: {}", stats);
+            } else {
+                LOGGER.info("Memory checkpoints: {}", stats);
+            }
+            lastSweepStats = stats;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Unable to sweep memory checkpoints", e);
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            long checkpoints = threads.values().stream().mapToLong(thread -> thread.checkpoints.size()).sum();
+            return new Stats(threads.size(), checkpoints, estimatedBytes, trimmedCheckpoints.get(), expiredThreads.get(), evictedThreads.get());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the checkpoints of the thread marking them as used, or null when missing or expired.
+     */
+    private ThreadCheckpoints access(String threadId) {
+        ThreadCheckpoints thread = threads.get(threadId);
+        if (thread == null) {
+            return null;
+        }
+        long now = clock.millis();
+        if (isExpired(thread, now)) {
+            threads.remove(threadId);
+            estimatedBytes -= thread.bytes;
+            expiredThreads.incrementAndGet();
+            LOGGER.debug("Checkpoints of thread [{}] expired", threadId);
+            return null;
+        }
+        thread.lastAccess = now;
+        return thread;
+    }
+
+    private void evictIdle(long now) {
+        Iterator<ThreadCheckpoints> iterator = threads.values().iterator();
+        while (iterator.hasNext()) {
+            ThreadCheckpoints thread = iterator.next();
+            if (!isExpired(thread, now)) {
+                break;
+            }
+            iterator.remove();
+            estimatedBytes -= thread.bytes;
+            expiredThreads.incrementAndGet();
+        }
+    }
+
+    private void evictOverLimits(String currentThreadId) {
+        evictIdle(clock.millis());
+        Iterator<Map.Entry<String, ThreadCheckpoints>> iterator = threads.entrySet().iterator();
+        while ((threads.size() > maxThreads || estimatedBytes > maxBytes) && iterator.hasNext()) {
+            Map.Entry<String, ThreadCheckpoints> eldest = iterator.next();
+            if (eldest.getKey().equals(currentThreadId)) {
+                continue;
+            }
+            iterator.remove();
+            estimatedBytes -= eldest.getValue().bytes;
+            evictedThreads.incrementAndGet();
+            LOGGER.debug("Evicted checkpoints of least recently used thread [{}]", eldest.getKey());
+        }
+    }
+
+    private void resize(ThreadCheckpoints thread, long delta) {
+        thread.bytes += delta;
+        estimatedBytes += delta;
+    }
+
+    private boolean isExpired(ThreadCheckpoints thread, long now) {
+        return thread.lastAccess + idleTtl.toMillis() < now;
+    }
+
+    private static int indexOf(ThreadCheckpoints thread, String checkPointId) {
+        for (int i = 0; i < thread.checkpoints.size(); i++) {
+            if (thread.checkpoints.get(i).getId().equals(checkPointId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String threadIdOf(RunnableConfig config) {
+        return config.threadId().orElse(DEFAULT_THREAD_ID);
+    }
+
+    /**
+     * Rough estimate of the heap retained by a state value, driven by the text it holds. Messages are shared
+     * between the checkpoints of a thread, so the estimate is an upper bound.
+     */
+    static long estimateSize(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof CharSequence text) {
+            return OBJECT_OVERHEAD + 2L * text.length();
+        }
+        if (value instanceof Map<?, ?> map) {
+            long size = OBJECT_OVERHEAD;
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += OBJECT_OVERHEAD + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        if (value instanceof Collection<?> collection) {
+            long size = OBJECT_OVERHEAD;
+            for (Object element : collection) {
+                size += estimateSize(element);
+            }
+            return size;
+        }
+        if (value instanceof UserMessage userMessage) {
+            long size = OBJECT_OVERHEAD + estimateSize(userMessage.name());
+            for (Content content : userMessage.contents()) {
+                size += estimateSize(content);
+            }
+            return size;
+        }
+        if (value instanceof AiMessage aiMessage) {
+            long size = OBJECT_OVERHEAD + estimateSize(aiMessage.text());
+            if (aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    size += OBJECT_OVERHEAD + estimateSize(request.id()) + estimateSize(request.name()) + estimateSize(request.arguments());
+                }
+            }
+            return size;
+        }
+        if (value instanceof ToolExecutionResultMessage resultMessage) {
+            return OBJECT_OVERHEAD + estimateSize(resultMessage.id()) + estimateSize(resultMessage.toolName()) + estimateSize(resultMessage.text());
+        }
+        if (value instanceof SystemMessage systemMessage) {
+            return OBJECT_OVERHEAD + estimateSize(systemMessage.text());
+        }
+        if (value instanceof TextContent textContent) {
+            return OBJECT_OVERHEAD + estimateSize(textContent.text());
+        }
+        if (value instanceof ImageContent imageContent) {
+            var image = imageContent.image();
+            return OBJECT_OVERHEAD + estimateSize(image.base64Data()) + estimateSize(image.url() != null ? image.url().toString() : null);
+        }
+        return OBJECT_OVERHEAD;
+    }
+}
@@ -0,0 +1,686 @@
+package com.microsoft.openai.samples.assistant.langgraph4j.checkpoint;
+
+import com.microsoft.openai.samples.assistant.langgraph4j.AgentWorkflowState;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.BaseCheckpointSaver;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.bsc.langgraph4j.serializer.StateSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Checkpoint saver keeping the checkpoints of each workflow thread in an append-only file, so that conversations
+ * survive restarts and can be shared by several replicas mounting the same directory.
+ * New and replaced checkpoints are appended as records; files are read through a memory mapping and rewritten
+ * with the latest checkpoints only when they grow over twice the configured limit. Threads not updated for longer
+ * than the ttl are deleted, both on access and by a periodic sweep.
+ * <p>
+ * Threads are locked through a fixed number of stripes, each one an in-process lock and a lock file shared with the
+ * other replicas. Lock files are never deleted, so that all the replicas always lock the same file.
+ * <p>
+ * To keep the cost of a checkpoint proportional to the new messages rather than to the whole conversation, a
+ * checkpoint whose messages extend the ones of the previous checkpoint only stores the appended messages, together
+ * with the id of the previous checkpoint and the number of messages taken from it. A full snapshot is stored every
+ * {@link #setFullSnapshotInterval(int) few checkpoints} to bound the chain of records to read back. The saver
+ * remembers the size, modification time and number of records of the file it last wrote for a thread: while the file
+ * is unchanged, a new checkpoint is appended without reading the file back. A file changed by another replica is read
+ * again.
+ */
+public class FileCheckpointSaver implements BaseCheckpointSaver, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileCheckpointSaver.class);
+    private static final String DEFAULT_THREAD_ID = "$default";
+    private static final String FILE_EXTENSION = ".ckpt";
+    private static final String LOCK_FILE_NAME = "stripe-%02d.lock";
+    private static final int LOCK_STRIPES = 64;
+    private static final byte FULL_RECORD_VERSION = 1;
+    private static final byte RECORD_VERSION = 2;
+    private static final String MESSAGES = "messages";
+    private static final int MAX_CACHED_THREADS = 1024;
+    private static final int MAX_FILE_NAME_LENGTH = 128;
+
+    private final Path dir;
+    private final StateSerializer<AgentWorkflowState> serializer;
+    private final Duration ttl;
+    private final int maxCheckpointsPerThread;
+    private final Clock clock;
+    private final ReentrantLock[] lockStripes = new ReentrantLock[LOCK_STRIPES];
+    private final ScheduledExecutorService sweeper;
+    private final Map<String, LastCheckpoint> lastCheckpoints = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LastCheckpoint> eldest) {
+            return size() > MAX_CACHED_THREADS;
+        }
+    });
+    private int fullSnapshotInterval = 10;
+
+    /**
+     * Raw checkpoint as stored in a record. The state is deserialized only when the checkpoint is returned.
+     * Delta records hold only the messages appended to the first baseMessageCount messages of the base checkpoint.
+     */
+    private record CheckpointRecord(String id, String nodeId, String nextNodeId, String baseId, int baseMessageCount, byte[] state) {
+
+        boolean isDelta() {
+            return baseId != null;
+        }
+    }
+
+    /**
+     * Messages of the last checkpoint written for a thread, used to store the next checkpoint as a delta without
+     * reading the previous one back.
+     *
+     * @param deltas number of delta records written since the last full snapshot
+     * @param file   the thread file ending with the checkpoint, or null when it's not known to be complete
+     * @param frames number of records in the file
+     */
+    private record LastCheckpoint(String id, List<?> messages, int deltas, FileState file, long frames) {
+    }
+
+    /**
+     * Attributes telling whether a file changed since it was last read or written.
+     */
+    private record FileState(long length, long lastModified, Object fileKey) {
+    }
+
+    /**
+     * Records of a thread file, in insertion order.
+     *
+     * @param frames number of records in the file, including the invalid ones
+     * @param file   the state of the file, or null when it ends with an incomplete record
+     */
+    private record ThreadRecords(Map<String, CheckpointRecord> records, long frames, FileState file) {
+    }
+
+    public FileCheckpointSaver(Path dir, StateSerializer<AgentWorkflowState> serializer, Duration ttl) {
+        this(dir, serializer, ttl, 10);
+    }
+
+    public FileCheckpointSaver(Path dir, StateSerializer<AgentWorkflowState> serializer, Duration ttl, int maxCheckpointsPerThread) {
+        this(dir, serializer, ttl, maxCheckpointsPerThread, Clock.systemUTC(), true);
+    }
+
+    FileCheckpointSaver(Path dir, StateSerializer<AgentWorkflowState> serializer, Duration ttl, int maxCheckpointsPerThread, Clock clock, boolean sweep) {
+        if (dir == null) {
+            throw new IllegalArgumentException("dir cannot be null");
+        }
+        if (serializer == null) {
+            throw new IllegalArgumentException("serializer cannot be null");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("ttl must be positive");
+        }
+        if (maxCheckpointsPerThread <= 0) {
+            throw new IllegalArgumentException("maxCheckpointsPerThread must be positive");
+        }
+        this.dir = dir;
+        this.serializer = serializer;
+        this.ttl = ttl;
+        this.maxCheckpointsPerThread = maxCheckpointsPerThread;
+        this.clock = clock;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            lockStripes[i] = new ReentrantLock();
+        }
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create checkpoint directory " + dir, e);
+        }
+
+        if (sweep) {
+            long sweepInterval = Math.max(Duration.ofMinutes(1).toMillis(), Math.min(ttl.toMillis(), Duration.ofHours(1).toMillis()));
+            this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "checkpoint-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.sweeper.scheduleWithFixedDelay(this::evictExpired, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweeper = null;
+        }
+    }
+
+    /**
+     * Sets how often a checkpoint is stored in full rather than as a delta of the previous one. 1 stores every
+     * checkpoint in full.
+     */
+    public void setFullSnapshotInterval(int fullSnapshotInterval) {
+        if (fullSnapshotInterval <= 0) {
+            throw new IllegalArgumentException("fullSnapshotInterval must be positive");
+        }
+        this.fullSnapshotInterval = fullSnapshotInterval;
+    }
+
+    @Override
+    public Collection<Checkpoint> list(RunnableConfig config) {
+        String threadId = threadIdOf(config);
+        return withThreadLock(threadId, () -> {
+            List<Checkpoint> checkpoints = resolveAll(readRecords(threadId).records());
+            Collections.reverse(checkpoints);
+            return checkpoints;
+        });
+    }
+
+    @Override
+    public Optional<Checkpoint> get(RunnableConfig config) {
+        String threadId = threadIdOf(config);
+        return withThreadLock(threadId, () -> {
+            ThreadRecords threadRecords = readRecords(threadId);
+            Map<String, CheckpointRecord> records = threadRecords.records();
+            Map<String, Map<String, Object>> resolved = new HashMap<>();
+            if (config.checkPointId().isPresent()) {
+                return Optional.ofNullable(records.get(config.checkPointId().get()))
+                        .map(record -> toCheckpoint(record, records, resolved));
+            }
+            Optional<CheckpointRecord> last = lastOf(records);
+            if (last.isEmpty()) {
+                return Optional.empty();
+            }
+            Checkpoint checkpoint = toCheckpoint(last.get(), records, resolved);
+            // the next put of the thread is likely to extend the last checkpoint, as when resuming after a restart
+            lastCheckpoints.put(threadId, lastCheckpointOf(checkpoint, last.get(), threadRecords));
+            return Optional.of(checkpoint);
+        });
+    }
+
+    @Override
+    public RunnableConfig put(RunnableConfig config, Checkpoint checkpoint) throws Exception {
+        String threadId = threadIdOf(config);
+        return withThreadLock(threadId, () -> {
+            Path file = fileOf(threadId);
+            LastCheckpoint previous = lastCheckpoints.get(threadId);
+            if (config.checkPointId().isEmpty() && previous != null && isUnchanged(file, previous)) {
+                // the file ends with the previous checkpoint, the new one is appended without reading the file
+                CheckpointRecord record = toRecord(checkpoint, checkpoint.getId(), previous);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.position(previous.file().length());
+                    writeFully(channel, encode(record));
+                }
+                lastCheckpoints.put(threadId, nextLastCheckpoint(checkpoint, record, previous, fileStateOf(file), previous.frames() + 1));
+                return RunnableConfig.builder(config)
+                        .checkPointId(checkpoint.getId())
+                        .build();
+            }
+
+            Map<String, CheckpointRecord> records = readRecords(threadId).records();
+            if (config.checkPointId().isPresent()) {
+                String checkPointId = config.checkPointId().get();
+                if (!records.containsKey(checkPointId)) {
+                    throw new NoSuchElementException("Checkpoint with id %s not found!".formatted(checkPointId));
+                }
+                // later records may be deltas of the replaced one, so the whole chain is written again
+                List<Checkpoint> checkpoints = resolveAll(records);
+                checkpoints.replaceAll(stored -> stored.getId().equals(checkPointId) ? withId(checkpoint, checkPointId) : stored);
+                rewrite(file, checkpoints);
+                lastCheckpoints.remove(threadId);
+                return config;
+            }
+
+            String lastId = lastOf(records).map(CheckpointRecord::id).orElse(null);
+            if (previous != null && !previous.id().equals(lastId)) {
+                // the thread was updated by another replica
+                previous = null;
+            }
+            CheckpointRecord record = toRecord(checkpoint, checkpoint.getId(), previous);
+            records.put(record.id(), record);
+            long frames = append(file, record, records);
+            lastCheckpoints.put(threadId, nextLastCheckpoint(checkpoint, record, previous, fileStateOf(file), frames));
+            return RunnableConfig.builder(config)
+                    .checkPointId(checkpoint.getId())
+                    .build();
+        });
+    }
+
+    @Override
+    public boolean clear(RunnableConfig config) {
+        String threadId = threadIdOf(config);
+        return withThreadLock(threadId, () -> {
+            try {
+                lastCheckpoints.remove(threadId);
+                return Files.deleteIfExists(fileOf(threadId));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to clear checkpoints of thread " + threadId, e);
+            }
+        });
+    }
+
+    /**
+     * Deletes the files of the threads not updated within the ttl. Each file is deleted holding the lock of its thread,
+     * and only if it has not been updated in the meantime.
+     */
+    public void evictExpired() {
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(file -> file.getFileName().toString().endsWith(FILE_EXTENSION))
+                    .filter(this::isExpired)
+                    .forEach(file -> {
+                        try {
+                            withFileLock(file, () -> {
+                                if (isExpired(file) && Files.deleteIfExists(file)) {
+                                    LOGGER.debug("Deleted expired checkpoints [{}]", file.getFileName());
+                                }
+                                return null;
+                            });
+                        } catch (UncheckedIOException e) {
+                            LOGGER.warn("Unable to delete expired checkpoints [{}]", file, e);
+                        }
+                    });
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to sweep checkpoint directory [{}]", dir, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask<T> {
+        T run() throws IOException;
+    }
+
+    private <T> T withThreadLock(String threadId, ThreadTask<T> task) {
+        return withFileLock(fileOf(threadId), task);
+    }
+
+    /**
+     * Runs the task holding both the in-process lock of the stripe of the thread file and the file lock shared with
+     * other replicas. The in-process lock comes first, as a file lock is held by the whole JVM.
+     */
+    private <T> T withFileLock(Path file, ThreadTask<T> task) {
+        // String.hashCode is the same on all the replicas
+        int stripe = Math.floorMod(file.getFileName().toString().hashCode(), LOCK_STRIPES);
+        ReentrantLock lock = lockStripes[stripe];
+        lock.lock();
+        try (FileChannel lockChannel = FileChannel.open(dir.resolve(LOCK_FILE_NAME.formatted(stripe)), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock ignored = lockChannel.lock()) {
+            return task.run();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to access checkpoints " + file.getFileName(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the records of the thread in insertion order. A record replacing an existing checkpoint takes its
+     * position. An incomplete record at the end of the file, left by an interrupted write, is ignored.
+     */
+    private ThreadRecords readRecords(String threadId) throws IOException {
+        Map<String, CheckpointRecord> records = new LinkedHashMap<>();
+        Path file = fileOf(threadId);
+        if (!Files.exists(file)) {
+            return new ThreadRecords(records, 0, null);
+        }
+        if (isExpired(file)) {
+            LOGGER.debug("Checkpoints of thread [{}] expired", threadId);
+            Files.deleteIfExists(file);
+            return new ThreadRecords(records, 0, null);
+        }
+
+        long frames = 0;
+        boolean complete = true;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.hasRemaining()) {
+                int length = buffer.remaining() >= Integer.BYTES ? buffer.getInt() : 0;
+                if (length <= 0 || length > buffer.remaining()) {
+                    LOGGER.warn("Ignoring truncated checkpoint record at the end of [{}]", file.getFileName());
+                    complete = false;
+                    break;
+                }
+                ByteBuffer frame = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                frames++;
+                try {
+                    CheckpointRecord record = decode(frame);
+                    records.put(record.id(), record);
+                } catch (BufferUnderflowException | IllegalArgumentException e) {
+                    LOGGER.warn("Ignoring invalid checkpoint record in [{}]", file.getFileName(), e);
+                }
+            }
+        }
+        return new ThreadRecords(records, frames, complete ? fileStateOf(file) : null);
+    }
+
+    /**
+     * Returns true when the thread file is still as the last checkpoint left it, and the next record doesn't need a
+     * compaction.
+     */
+    private boolean isUnchanged(Path file, LastCheckpoint last) throws IOException {
+        return last.file() != null
+                && last.frames() + 1 <= 2L * maxCheckpointsPerThread
+                && last.file().lastModified() + ttl.toMillis() >= clock.millis()
+                && last.file().equals(fileStateOf(file));
+    }
+
+    private static FileState fileStateOf(Path file) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileState(attributes.size(), attributes.lastModifiedTime().toMillis(), attributes.fileKey());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Appends the record to the thread file, or rewrites the file with the latest checkpoints when it holds
+     * too many records. An incomplete record left at the end of the file is overwritten.
+     *
+     * @return the number of records in the file
+     */
+    private long append(Path file, CheckpointRecord record, Map<String, CheckpointRecord> records) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FrameScan scan = scanFrames(channel);
+            if (scan.frames() + 1 > 2L * maxCheckpointsPerThread) {
+                return compact(file, records);
+            }
+            if (scan.validLength() < channel.size()) {
+                channel.truncate(scan.validLength());
+            }
+            channel.position(scan.validLength());
+            writeFully(channel, encode(record));
+            return scan.frames() + 1;
+        }
+    }
+
+    private long compact(Path file, Map<String, CheckpointRecord> records) throws IOException {
+        List<Checkpoint> checkpoints = resolveAll(records);
+        List<Checkpoint> latest = checkpoints.subList(Math.max(0, checkpoints.size() - maxCheckpointsPerThread), checkpoints.size());
+        rewrite(file, latest);
+        LOGGER.debug("Compacted checkpoints [{}] to {} records", file.getFileName(), latest.size());
+        return latest.size();
+    }
+
+    /**
+     * Replaces the thread file with the given checkpoints, starting with a full snapshot.
+     */
+    private void rewrite(Path file, List<Checkpoint> checkpoints) throws IOException {
+        Path tempFile = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            LastCheckpoint previous = null;
+            for (Checkpoint checkpoint : checkpoints) {
+                CheckpointRecord record = toRecord(checkpoint, checkpoint.getId(), previous);
+                writeFully(channel, encode(record));
+                previous = nextLastCheckpoint(checkpoint, record, previous, null, 0);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private record FrameScan(long frames, long validLength) {
+    }
+
+    private static FrameScan scanFrames(FileChannel channel) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        long frames = 0;
+        while (buffer.remaining() >= Integer.BYTES) {
+            int length = buffer.getInt(buffer.position());
+            if (length <= 0 || length > buffer.remaining() - Integer.BYTES) {
+                break;
+            }
+            buffer.position(buffer.position() + Integer.BYTES + length);
+            frames++;
+        }
+        return new FrameScan(frames, buffer.position());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Frames the record as its length followed by the version, the ids, the base of delta records and the
+     * serialized state.
+     */
+    private static ByteBuffer encode(CheckpointRecord record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(record.state().length + 128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeByte(RECORD_VERSION);
+            writeString(out, record.id());
+            writeNullableString(out, record.nodeId());
+            writeNullableString(out, record.nextNodeId());
+            writeNullableString(out, record.baseId());
+            out.writeInt(record.baseMessageCount());
+            out.writeInt(record.state().length);
+            out.write(record.state());
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.putInt(0, buffer.capacity() - Integer.BYTES);
+        return buffer;
+    }
+
+    private static CheckpointRecord decode(ByteBuffer frame) {
+        byte version = frame.get();
+        if (version != RECORD_VERSION && version != FULL_RECORD_VERSION) {
+            throw new IllegalArgumentException("Unsupported checkpoint record version " + version);
+        }
+        String id = readString(frame);
+        String nodeId = frame.get() != 0 ? readString(frame) : null;
+        String nextNodeId = frame.get() != 0 ? readString(frame) : null;
+        String baseId = null;
+        int baseMessageCount = 0;
+        if (version == RECORD_VERSION) {
+            baseId = frame.get() != 0 ? readString(frame) : null;
+            baseMessageCount = frame.getInt();
+        }
+        byte[] state = new byte[frame.getInt()];
+        frame.get(state);
+        return new CheckpointRecord(id, nodeId, nextNodeId, baseId, baseMessageCount, state);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("Checkpoint id or node id too long");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer frame) {
+        byte[] bytes = new byte[Short.toUnsignedInt(frame.getShort())];
+        frame.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Serializes the checkpoint, as a delta of the previous one when its messages extend the previous messages and
+     * the full snapshot interval is not reached.
+     */
+    private CheckpointRecord toRecord(Checkpoint checkpoint, String id, LastCheckpoint previous) throws IOException {
+        Map<String, Object> state = checkpoint.getState();
+        if (previous != null && previous.deltas() + 1 < fullSnapshotInterval
+                && state.get(MESSAGES) instanceof List<?> messages && extendsMessages(messages, previous.messages())) {
+            Map<String, Object> delta = new HashMap<>(state);
+            delta.put(MESSAGES, new ArrayList<>(messages.subList(previous.messages().size(), messages.size())));
+            return new CheckpointRecord(id, checkpoint.getNodeId(), checkpoint.getNextNodeId(), previous.id(), previous.messages().size(), serialize(delta));
+        }
+        return new CheckpointRecord(id, checkpoint.getNodeId(), checkpoint.getNextNodeId(), null, 0, serialize(state));
+    }
+
+    private static LastCheckpoint nextLastCheckpoint(Checkpoint checkpoint, CheckpointRecord record, LastCheckpoint previous, FileState file, long frames) {
+        List<?> messages = checkpoint.getState().get(MESSAGES) instanceof List<?> list ? list : null;
+        return new LastCheckpoint(record.id(), messages, record.isDelta() ? previous.deltas() + 1 : 0, file, frames);
+    }
+
+    private static LastCheckpoint lastCheckpointOf(Checkpoint checkpoint, CheckpointRecord record, ThreadRecords threadRecords) {
+        Map<String, CheckpointRecord> records = threadRecords.records();
+        int deltas = 0;
+        for (CheckpointRecord current = record; current != null && current.isDelta() && deltas <= records.size(); current = records.get(current.baseId())) {
+            deltas++;
+        }
+        List<?> messages = checkpoint.getState().get(MESSAGES) instanceof List<?> list ? list : null;
+        return new LastCheckpoint(record.id(), messages, deltas, threadRecords.file(), threadRecords.frames());
+    }
+
+    private static boolean extendsMessages(List<?> messages, List<?> previousMessages) {
+        if (previousMessages == null || messages.size() < previousMessages.size()) {
+            return false;
+        }
+        for (int i = 0; i < previousMessages.size(); i++) {
+            Object message = messages.get(i);
+            Object previousMessage = previousMessages.get(i);
+            if (message != previousMessage && (message == null || !message.equals(previousMessage))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] serialize(Map<String, Object> state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            serializer.write(serializer.stateOf(state), out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Map<String, Object> deserialize(CheckpointRecord record) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(record.state()))) {
+            return serializer.read(in).data();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Unable to deserialize checkpoint " + record.id(), e);
+        }
+    }
+
+    /**
+     * Returns the full state of the record, rebuilding the messages of delta records from their base.
+     */
+    private Map<String, Object> resolveState(CheckpointRecord record, Map<String, CheckpointRecord> records, Map<String, Map<String, Object>> resolved) {
+        Map<String, Object> state = resolved.get(record.id());
+        if (state != null) {
+            return state;
+        }
+        state = deserialize(record);
+        if (record.isDelta()) {
+            CheckpointRecord base = records.get(record.baseId());
+            if (base == null || base == record) {
+                throw new IllegalStateException("Base checkpoint %s of checkpoint %s not found".formatted(record.baseId(), record.id()));
+            }
+            List<?> baseMessages = (List<?>) resolveState(base, records, resolved).get(MESSAGES);
+            List<Object> messages = new ArrayList<>(baseMessages.subList(0, record.baseMessageCount()));
+            messages.addAll((List<?>) state.get(MESSAGES));
+            state = new HashMap<>(state);
+            state.put(MESSAGES, messages);
+        }
+        resolved.put(record.id(), state);
+        return state;
+    }
+
+    private Checkpoint toCheckpoint(CheckpointRecord record, Map<String, CheckpointRecord> records, Map<String, Map<String, Object>> resolved) {
+        return Checkpoint.builder()
+                .id(record.id())
+                .state(resolveState(record, records, resolved))
+                .nodeId(record.nodeId())
+                .nextNodeId(record.nextNodeId())
+                .build();
+    }
+
+    /**
+     * Returns the checkpoints of all the records, in insertion order.
+     */
+    private List<Checkpoint> resolveAll(Map<String, CheckpointRecord> records) {
+        Map<String, Map<String, Object>> resolved = new HashMap<>();
+        List<Checkpoint> checkpoints = new ArrayList<>(records.size());
+        for (CheckpointRecord record : records.values()) {
+            checkpoints.add(toCheckpoint(record, records, resolved));
+        }
+        return checkpoints;
+    }
+
+    private static Optional<CheckpointRecord> lastOf(Map<String, CheckpointRecord> records) {
+        CheckpointRecord last = null;
+        for (CheckpointRecord record : records.values()) {
+            last = record;
+        }
+        return Optional.ofNullable(last);
+    }
+
+    private static Checkpoint withId(Checkpoint checkpoint, String id) {
+        return Checkpoint.builder()
+                .id(id)
+                .state(checkpoint.getState())
+                .nodeId(checkpoint.getNodeId())
+                .nextNodeId(checkpoint.getNextNodeId())
+                .build();
+    }
+
+    private boolean isExpired(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis() + ttl.toMillis() < clock.millis();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String threadIdOf(RunnableConfig config) {
+        return config.threadId().orElse(DEFAULT_THREAD_ID);
+    }
+
+    /**
+     * Maps the thread id to a file name valid on any file system, hashing the ids too long to be encoded.
+     * Names are lowercase hex, so that ids differing only in case don't share a file on a case-insensitive mount.
+     */
+    Path fileOf(String threadId) {
+        byte[] threadIdBytes = threadId.getBytes(StandardCharsets.UTF_8);
+        String name = HexFormat.of().formatHex(threadIdBytes);
+        if (name.length() > MAX_FILE_NAME_LENGTH) {
+            try {
+                name = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(threadIdBytes));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return dir.resolve(name + FILE_EXTENSION);
+    }
+}
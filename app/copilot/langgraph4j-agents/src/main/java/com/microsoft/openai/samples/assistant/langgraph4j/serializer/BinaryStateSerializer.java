@@ -0,0 +1,458 @@
+package com.microsoft.openai.samples.assistant.langgraph4j.serializer;
+
+import com.microsoft.openai.samples.assistant.langgraph4j.AgentWorkflowState;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.image.Image;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.bsc.langgraph4j.serializer.StateSerializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact binary serializer of the workflow state, used both to clone the state at each step and to store the
+ * checkpoints. Values are written as type tagged records; map keys, message roles and tool, agent and user names are
+ * written once per state and then referenced by index. Payloads larger than the compression threshold are deflated;
+ * cloning the state in memory gains nothing from it, so the serializer of the graph should never compress.
+ * Only the value types found in {@link AgentWorkflowState} are supported: strings, numbers, booleans, lists, maps
+ * and text, image, tool request and tool result messages.
+ */
+public class BinaryStateSerializer extends StateSerializer<AgentWorkflowState> {
+
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte FLAG_DEFLATED = 1;
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte SYMBOL = 2;
+    private static final byte INTEGER = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte BOOLEAN = 6;
+    private static final byte LIST = 7;
+    private static final byte MAP = 8;
+    private static final byte USER_MESSAGE = 9;
+    private static final byte AI_MESSAGE = 10;
+    private static final byte SYSTEM_MESSAGE = 11;
+    private static final byte TOOL_RESULT_MESSAGE = 12;
+
+    private static final byte TEXT_CONTENT = 1;
+    private static final byte IMAGE_CONTENT = 2;
+
+    /**
+     * String values of these keys are few distinct names repeated across checkpoints, so they are interned.
+     */
+    private static final List<String> SYMBOL_KEYS = List.of("nextAgent", "activeAgent", "loggedUserName");
+
+    private final int compressionThreshold;
+
+    public BinaryStateSerializer() {
+        this(DEFAULT_COMPRESSION_THRESHOLD);
+    }
+
+    /**
+     * @param compressionThreshold size in bytes over which the serialized state is deflated, or a negative value to
+     *                             never compress
+     */
+    public BinaryStateSerializer(int compressionThreshold) {
+        super(AgentWorkflowState::new);
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public void write(AgentWorkflowState state, ObjectOutput out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream data = new DataOutputStream(bytes)) {
+            new Writer(data).writeMap(state.data());
+        }
+        byte[] payload = bytes.toByteArray();
+        int rawLength = payload.length;
+        byte flags = 0;
+        if (compressionThreshold >= 0 && rawLength > compressionThreshold) {
+            byte[] deflated = deflate(payload);
+            if (deflated.length < rawLength) {
+                payload = deflated;
+                flags |= FLAG_DEFLATED;
+            }
+        }
+
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(flags);
+        out.writeInt(rawLength);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    @Override
+    public AgentWorkflowState read(ObjectInput in) throws IOException, ClassNotFoundException {
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported binary state format version " + version);
+        }
+        byte flags = in.readByte();
+        int rawLength = in.readInt();
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        if ((flags & FLAG_DEFLATED) != 0) {
+            payload = inflate(payload, rawLength);
+        }
+
+        try (DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload))) {
+            return stateOf(new Reader(data).readMap());
+        }
+    }
+
+    private static byte[] deflate(byte[] payload) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload.length / 2);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] payload, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload);
+            byte[] raw = new byte[rawLength];
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, length, rawLength - length);
+                if (inflated == 0 && inflater.needsInput()) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != rawLength) {
+                throw new IOException("Corrupted binary state: expected %d bytes, inflated %d".formatted(rawLength, length));
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted binary state", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Writes the values of a single state. Symbols are written in full the first time and then by index.
+     */
+    private static class Writer {
+
+        private final DataOutputStream out;
+        private final Map<String, Integer> symbols = new HashMap<>();
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void writeMap(Map<?, ?> map) throws IOException {
+            writeVarInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                if (!(entry.getKey() instanceof String key)) {
+                    throw new IOException("Unsupported state key type " + entry.getKey().getClass().getName());
+                }
+                writeSymbol(key);
+                if (entry.getValue() instanceof String value && SYMBOL_KEYS.contains(key)) {
+                    out.writeByte(SYMBOL);
+                    writeSymbol(value);
+                } else {
+                    writeValue(entry.getValue());
+                }
+            }
+        }
+
+        void writeValue(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof String string) {
+                out.writeByte(STRING);
+                writeString(string);
+            } else if (value instanceof Integer number) {
+                out.writeByte(INTEGER);
+                out.writeInt(number);
+            } else if (value instanceof Long number) {
+                out.writeByte(LONG);
+                out.writeLong(number);
+            } else if (value instanceof Double number) {
+                out.writeByte(DOUBLE);
+                out.writeDouble(number);
+            } else if (value instanceof Boolean bool) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean(bool);
+            } else if (value instanceof List<?> list) {
+                out.writeByte(LIST);
+                writeVarInt(list.size());
+                for (Object element : list) {
+                    writeValue(element);
+                }
+            } else if (value instanceof Map<?, ?> map) {
+                out.writeByte(MAP);
+                writeMap(map);
+            } else if (value instanceof ChatMessage message) {
+                writeMessage(message);
+            } else {
+                throw new IOException("Unsupported state value type " + value.getClass().getName());
+            }
+        }
+
+        private void writeMessage(ChatMessage message) throws IOException {
+            if (message instanceof UserMessage userMessage) {
+                out.writeByte(USER_MESSAGE);
+                writeNullableSymbol(userMessage.name());
+                writeVarInt(userMessage.contents().size());
+                for (Content content : userMessage.contents()) {
+                    writeContent(content);
+                }
+            } else if (message instanceof AiMessage aiMessage) {
+                out.writeByte(AI_MESSAGE);
+                writeNullableString(aiMessage.text());
+                List<ToolExecutionRequest> requests = aiMessage.hasToolExecutionRequests() ? aiMessage.toolExecutionRequests() : List.of();
+                writeVarInt(requests.size());
+                for (ToolExecutionRequest request : requests) {
+                    writeNullableString(request.id());
+                    writeSymbol(request.name());
+                    writeNullableString(request.arguments());
+                }
+            } else if (message instanceof ToolExecutionResultMessage resultMessage) {
+                out.writeByte(TOOL_RESULT_MESSAGE);
+                writeNullableString(resultMessage.id());
+                writeSymbol(resultMessage.toolName());
+                writeString(resultMessage.text());
+            } else if (message instanceof SystemMessage systemMessage) {
+                out.writeByte(SYSTEM_MESSAGE);
+                writeString(systemMessage.text());
+            } else {
+                throw new IOException("Unsupported chat message type " + message.getClass().getName());
+            }
+        }
+
+        private void writeContent(Content content) throws IOException {
+            if (content instanceof TextContent textContent) {
+                out.writeByte(TEXT_CONTENT);
+                writeString(textContent.text());
+            } else if (content instanceof ImageContent imageContent) {
+                out.writeByte(IMAGE_CONTENT);
+                Image image = imageContent.image();
+                writeNullableString(image.url() != null ? image.url().toString() : null);
+                writeNullableString(image.base64Data());
+                writeNullableSymbol(image.mimeType());
+                writeNullableString(image.revisedPrompt());
+                writeNullableSymbol(imageContent.detailLevel() != null ? imageContent.detailLevel().name() : null);
+            } else {
+                throw new IOException("Unsupported message content type " + content.getClass().getName());
+            }
+        }
+
+        private void writeSymbol(String symbol) throws IOException {
+            Integer index = symbols.get(symbol);
+            if (index != null) {
+                writeVarInt(index + 1);
+                return;
+            }
+            writeVarInt(0);
+            writeString(symbol);
+            symbols.put(symbol, symbols.size());
+        }
+
+        private void writeNullableSymbol(String symbol) throws IOException {
+            out.writeBoolean(symbol != null);
+            if (symbol != null) {
+                writeSymbol(symbol);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeNullableString(String value) throws IOException {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                writeString(value);
+            }
+        }
+
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    private static class Reader {
+
+        private final DataInputStream in;
+        private final List<String> symbols = new ArrayList<>();
+
+        Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        Map<String, Object> readMap() throws IOException {
+            int size = readVarInt();
+            Map<String, Object> map = new LinkedHashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                String key = readSymbol();
+                map.put(key, readValue());
+            }
+            return map;
+        }
+
+        Object readValue() throws IOException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL:
+                    return null;
+                case STRING:
+                    return readString();
+                case SYMBOL:
+                    return readSymbol();
+                case INTEGER:
+                    return in.readInt();
+                case LONG:
+                    return in.readLong();
+                case DOUBLE:
+                    return in.readDouble();
+                case BOOLEAN:
+                    return in.readBoolean();
+                case LIST:
+                    int size = readVarInt();
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(readValue());
+                    }
+                    return list;
+                case MAP:
+                    return readMap();
+                case USER_MESSAGE:
+                    String name = readNullableSymbol();
+                    int contentsSize = readVarInt();
+                    List<Content> contents = new ArrayList<>(contentsSize);
+                    for (int i = 0; i < contentsSize; i++) {
+                        contents.add(readContent());
+                    }
+                    return name != null ? UserMessage.from(name, contents) : UserMessage.from(contents);
+                case AI_MESSAGE:
+                    String text = readNullableString();
+                    int requestsSize = readVarInt();
+                    List<ToolExecutionRequest> requests = new ArrayList<>(requestsSize);
+                    for (int i = 0; i < requestsSize; i++) {
+                        requests.add(ToolExecutionRequest.builder()
+                                .id(readNullableString())
+                                .name(readSymbol())
+                                .arguments(readNullableString())
+                                .build());
+                    }
+                    if (requests.isEmpty()) {
+                        return AiMessage.from(text);
+                    }
+                    return text != null ? AiMessage.from(text, requests) : AiMessage.from(requests);
+                case TOOL_RESULT_MESSAGE:
+                    String id = readNullableString();
+                    String toolName = readSymbol();
+                    return ToolExecutionResultMessage.from(id, toolName, readString());
+                case SYSTEM_MESSAGE:
+                    return SystemMessage.from(readString());
+                default:
+                    throw new IOException("Unknown binary state value tag " + tag);
+            }
+        }
+
+        private Content readContent() throws IOException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case TEXT_CONTENT:
+                    return TextContent.from(readString());
+                case IMAGE_CONTENT:
+                    String url = readNullableString();
+                    Image image = Image.builder()
+                            .url(url != null ? URI.create(url) : null)
+                            .base64Data(readNullableString())
+                            .mimeType(readNullableSymbol())
+                            .revisedPrompt(readNullableString())
+                            .build();
+                    String detailLevel = readNullableSymbol();
+                    return detailLevel != null
+                            ? ImageContent.from(image, ImageContent.DetailLevel.valueOf(detailLevel))
+                            : ImageContent.from(image);
+                default:
+                    throw new IOException("Unknown binary state content tag " + tag);
+            }
+        }
+
+        private String readSymbol() throws IOException {
+            int index = readVarInt();
+            if (index > 0) {
+                if (index > symbols.size()) {
+                    throw new IOException("Unknown binary state symbol " + index);
+                }
+                return symbols.get(index - 1);
+            }
+            String symbol = readString();
+            symbols.add(symbol);
+            return symbol;
+        }
+
+        private String readNullableSymbol() throws IOException {
+            return in.readBoolean() ? readSymbol() : null;
+        }
+
+        private String readString() throws IOException {
+            byte[] bytes = new byte[readVarInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private String readNullableString() throws IOException {
+            return in.readBoolean() ? readString() : null;
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = in.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed binary state varint");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.microsoft.openai.samples.assistant.langgraph4j;
+
+import com.microsoft.langchain4j.agent.routing.IntentRouter;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ActiveAgentRouteTest {
+
+    private static final String SUPERVISOR = "Supervisor";
+
+    private static final List<ChatMessage> ANSWERED_QUESTION = List.of(
+            UserMessage.from("I want to pay a bill"),
+            AiMessage.from("<p>Which payment method do you want to use?</p>"),
+            UserMessage.from("the visa credit card"));
+
+    private static final List<ChatMessage> NEW_REQUEST = List.of(
+            UserMessage.from("I want to pay a bill"),
+            AiMessage.from("<p>The payment has been submitted.</p>"),
+            UserMessage.from("thanks, and what about my savings"));
+
+    private static AgentWorkflowState state(String activeAgent, List<ChatMessage> messages) {
+        return new AgentWorkflowState(activeAgent == null
+                ? Map.of("messages", messages)
+                : Map.of("messages", messages, "activeAgent", activeAgent));
+    }
+
+    private static ActiveAgentRoute route(String routedAgent) {
+        IntentRouter intentRouter = chatHistory -> Optional.ofNullable(routedAgent);
+        return new ActiveAgentRoute(SUPERVISOR, intentRouter);
+    }
+
+    @Test
+    void firstTurnGoesToSupervisor() {
+        assertEquals(SUPERVISOR, route(null).apply(state(null, ANSWERED_QUESTION)));
+    }
+
+    @Test
+    void answerToActiveAgentQuestionContinuesWithIt() {
+        assertEquals("PaymentAgent", route(null).apply(state("PaymentAgent", ANSWERED_QUESTION)));
+    }
+
+    @Test
+    void routerResolvingActiveAgentContinuesWithIt() {
+        assertEquals("PaymentAgent", route("PaymentAgent").apply(state("PaymentAgent", NEW_REQUEST)));
+    }
+
+    @Test
+    void routerResolvingAnotherAgentOverridesActiveAgent() {
+        assertEquals(SUPERVISOR, route("AccountAgent").apply(state("PaymentAgent", NEW_REQUEST)));
+        // even when the assistant asked a question, the user may not answer it
+        assertEquals(SUPERVISOR, route("TransactionHistoryAgent").apply(state("PaymentAgent", ANSWERED_QUESTION)));
+    }
+
+    @Test
+    void newRequestWithoutQuestionGoesToSupervisor() {
+        assertEquals(SUPERVISOR, route(null).apply(state("PaymentAgent", NEW_REQUEST)));
+    }
+
+    @Test
+    void clarificationOfSupervisorGoesBackToSupervisor() {
+        // the supervisor sets the active agent to none when it asks the user to clarify
+        var messages = List.<ChatMessage>of(
+                UserMessage.from("hello"),
+                AiMessage.from(" I'm not sure about your request. Can you please clarify?"),
+                UserMessage.from("I'd like to pay my phone bill"));
+
+        assertEquals(SUPERVISOR, route(null).apply(state("none", messages)));
+        assertEquals(SUPERVISOR, route("PaymentAgent").apply(state("none", messages)));
+    }
+}
@@ -0,0 +1,169 @@
+package com.microsoft.openai.samples.assistant.langgraph4j.checkpoint;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedMemorySaverTest {
+
+    static class MutableClock extends Clock {
+        Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private final MutableClock clock = new MutableClock();
+
+    private static RunnableConfig thread(String threadId) {
+        return RunnableConfig.builder().threadId(threadId).build();
+    }
+
+    private static Checkpoint checkpoint(String answer) {
+        return Checkpoint.builder()
+                .state(Map.of("messages", List.of(UserMessage.from("what is my account balance?"), AiMessage.from(answer))))
+                .nodeId("AccountAgent")
+                .nextNodeId("__END__")
+                .build();
+    }
+
+    @Test
+    void onlyLatestCheckpointsOfThreadAreKept() throws Exception {
+        var saver = BoundedMemorySaver.builder().withMaxCheckpointsPerThread(2).withClock(clock).build();
+        var first = checkpoint("first");
+        var second = checkpoint("second");
+        var third = checkpoint("third");
+        saver.put(thread("t1"), first);
+        saver.put(thread("t1"), second);
+        saver.put(thread("t1"), third);
+
+        var ids = saver.list(thread("t1")).stream().map(Checkpoint::getId).toList();
+
+        assertEquals(List.of(third.getId(), second.getId()), ids);
+        assertEquals(third.getId(), saver.get(thread("t1")).orElseThrow().getId());
+        assertEquals(1, saver.stats().trimmedCheckpoints());
+    }
+
+    @Test
+    void leastRecentlyUsedThreadIsEvicted() throws Exception {
+        var saver = BoundedMemorySaver.builder().withMaxThreads(2).withClock(clock).build();
+        saver.put(thread("t1"), checkpoint("answer"));
+        saver.put(thread("t2"), checkpoint("answer"));
+        saver.get(thread("t1"));
+
+        saver.put(thread("t3"), checkpoint("answer"));
+
+        assertTrue(saver.get(thread("t2")).isEmpty());
+        assertTrue(saver.get(thread("t1")).isPresent());
+        assertTrue(saver.get(thread("t3")).isPresent());
+        assertEquals(1, saver.stats().evictedThreads());
+        assertEquals(2, saver.stats().threads());
+    }
+
+    @Test
+    void threadsAreEvictedToStayWithinMaxBytes() throws Exception {
+        var checkpoint = checkpoint("a".repeat(1000));
+        long checkpointSize = BoundedMemorySaver.estimateSize(checkpoint.getState());
+        var saver = BoundedMemorySaver.builder().withMaxBytes(checkpointSize * 2 + 1).withClock(clock).build();
+
+        saver.put(thread("t1"), checkpoint);
+        saver.put(thread("t2"), checkpoint("a".repeat(1000)));
+        saver.put(thread("t3"), checkpoint("a".repeat(1000)));
+
+        var stats = saver.stats();
+        assertEquals(2, stats.threads());
+        assertTrue(stats.estimatedBytes() <= checkpointSize * 2 + 1);
+        assertTrue(saver.get(thread("t1")).isEmpty());
+    }
+
+    @Test
+    void currentThreadIsNotEvictedForItself() throws Exception {
+        var saver = BoundedMemorySaver.builder().withMaxBytes(1).withClock(clock).build();
+
+        saver.put(thread("t1"), checkpoint("answer"));
+
+        assertTrue(saver.get(thread("t1")).isPresent());
+    }
+
+    @Test
+    void idleThreadsExpire() throws Exception {
+        var saver = BoundedMemorySaver.builder().withIdleTtl(Duration.ofMinutes(30)).withClock(clock).build();
+        saver.put(thread("t1"), checkpoint("answer"));
+        saver.put(thread("t2"), checkpoint("answer"));
+
+        clock.now = clock.now.plus(Duration.ofMinutes(20));
+        saver.get(thread("t2"));
+        clock.now = clock.now.plus(Duration.ofMinutes(20));
+        saver.evictExpired();
+
+        assertEquals(1, saver.stats().threads());
+        assertEquals(1, saver.stats().expiredThreads());
+        assertTrue(saver.get(thread("t2")).isPresent());
+    }
+
+    @Test
+    void sweepDropsIdleThreads() throws Exception {
+        try (var saver = BoundedMemorySaver.builder().withIdleTtl(Duration.ofMinutes(30)).withClock(clock).build()) {
+            saver.put(thread("t1"), checkpoint("answer"));
+
+            clock.now = clock.now.plus(Duration.ofMinutes(40));
+            saver.sweep();
+
+            assertEquals(0, saver.stats().threads());
+            assertEquals(1, saver.stats().expiredThreads());
+        }
+    }
+
+    @Test
+    void replacedCheckpointKeepsItsPosition() throws Exception {
+        var saver = BoundedMemorySaver.builder().withClock(clock).build();
+        var first = checkpoint("first");
+        var firstConfig = saver.put(thread("t1"), first);
+        saver.put(thread("t1"), checkpoint("second"));
+
+        saver.put(firstConfig, checkpoint("replaced"));
+
+        var checkpoints = List.copyOf(saver.list(thread("t1")));
+        assertEquals(2, checkpoints.size());
+        assertEquals(first.getId(), checkpoints.get(1).getId());
+        assertEquals(AiMessage.from("replaced"), ((List<?>) checkpoints.get(1).getState().get("messages")).get(1));
+        assertThrows(NoSuchElementException.class,
+                () -> saver.put(RunnableConfig.builder(thread("t1")).checkPointId("unknown").build(), checkpoint("answer")));
+    }
+
+    @Test
+    void clearReleasesThreadSize() throws Exception {
+        var saver = BoundedMemorySaver.builder().withClock(clock).build();
+        saver.put(thread("t1"), checkpoint("answer"));
+
+        assertTrue(saver.clear(thread("t1")));
+        assertEquals(0, saver.stats().estimatedBytes());
+        assertEquals(0, saver.stats().threads());
+    }
+}
@@ -0,0 +1,297 @@
+package com.microsoft.openai.samples.assistant.langgraph4j.checkpoint;
+
+import com.microsoft.openai.samples.assistant.langgraph4j.AgentWorkflowState;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.bsc.langgraph4j.langchain4j.serializer.jackson.LC4jJacksonStateSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileCheckpointSaverTest {
+
+    private static final RunnableConfig THREAD = RunnableConfig.builder().threadId("thread-1").build();
+
+    @TempDir
+    Path dir;
+
+    private FileCheckpointSaver saver(Clock clock, int maxCheckpoints) {
+        return new FileCheckpointSaver(dir, new LC4jJacksonStateSerializer<>(AgentWorkflowState::new), Duration.ofMinutes(30), maxCheckpoints, clock, false);
+    }
+
+    private static Checkpoint checkpoint(String answer) {
+        return Checkpoint.builder()
+                .state(Map.of(
+                        "messages", List.of(UserMessage.from("what is my account balance?"), AiMessage.from(answer)),
+                        "activeAgent", "AccountAgent"))
+                .nodeId("AccountAgent")
+                .nextNodeId("__END__")
+                .build();
+    }
+
+    private static List<Checkpoint> conversation(int turns) {
+        List<Checkpoint> checkpoints = new ArrayList<>();
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < turns; i++) {
+            messages.add(UserMessage.from("question " + i));
+            messages.add(AiMessage.from("answer " + i));
+            checkpoints.add(Checkpoint.builder()
+                    .state(Map.of("messages", List.copyOf(messages), "activeAgent", "AccountAgent"))
+                    .nodeId("AccountAgent")
+                    .nextNodeId("__END__")
+                    .build());
+        }
+        return checkpoints;
+    }
+
+    private static void assertSameCheckpoints(List<Checkpoint> expected, List<Checkpoint> newestFirst) {
+        assertEquals(expected.size(), newestFirst.size());
+        for (int i = 0; i < expected.size(); i++) {
+            var actual = newestFirst.get(expected.size() - 1 - i);
+            assertEquals(expected.get(i).getId(), actual.getId());
+            assertEquals(expected.get(i).getState().get("messages"), actual.getState().get("messages"));
+            assertEquals("AccountAgent", actual.getState().get("activeAgent"));
+        }
+    }
+
+    @Test
+    void checkpointsSurviveRestart() throws Exception {
+        var checkpoint = checkpoint("Your balance is 10000 EUR");
+        var config = saver(Clock.systemUTC(), 10).put(THREAD, checkpoint);
+
+        var restarted = saver(Clock.systemUTC(), 10);
+        var restored = restarted.get(THREAD).orElseThrow();
+
+        assertEquals(checkpoint.getId(), config.checkPointId().orElseThrow());
+        assertEquals(checkpoint.getId(), restored.getId());
+        assertEquals("AccountAgent", restored.getNodeId());
+        assertEquals("__END__", restored.getNextNodeId());
+        assertEquals("AccountAgent", restored.getState().get("activeAgent"));
+        assertEquals(checkpoint.getState().get("messages"), restored.getState().get("messages"));
+    }
+
+    @Test
+    void checkpointsAreListedNewestFirst() throws Exception {
+        var saver = saver(Clock.systemUTC(), 10);
+        var first = checkpoint("first");
+        var second = checkpoint("second");
+        saver.put(THREAD, first);
+        saver.put(THREAD, second);
+
+        var ids = saver.list(THREAD).stream().map(Checkpoint::getId).toList();
+
+        assertEquals(List.of(second.getId(), first.getId()), ids);
+        assertEquals(second.getId(), saver.get(THREAD).orElseThrow().getId());
+    }
+
+    @Test
+    void replacedCheckpointKeepsItsPosition() throws Exception {
+        var saver = saver(Clock.systemUTC(), 10);
+        var first = checkpoint("first");
+        var second = checkpoint("second");
+        var firstConfig = saver.put(THREAD, first);
+        saver.put(THREAD, second);
+
+        saver.put(firstConfig, checkpoint("replaced"));
+
+        var checkpoints = List.copyOf(saver.list(THREAD));
+        assertEquals(2, checkpoints.size());
+        assertEquals(second.getId(), checkpoints.get(0).getId());
+        assertEquals(first.getId(), checkpoints.get(1).getId());
+        assertEquals(AiMessage.from("replaced"), ((List<?>) checkpoints.get(1).getState().get("messages")).get(1));
+    }
+
+    @Test
+    void replacingUnknownCheckpointFails() {
+        var saver = saver(Clock.systemUTC(), 10);
+        var config = RunnableConfig.builder(THREAD).checkPointId("unknown").build();
+
+        assertThrows(NoSuchElementException.class, () -> saver.put(config, checkpoint("answer")));
+    }
+
+    @Test
+    void fileIsCompactedToTheLatestCheckpoints() throws Exception {
+        var saver = saver(Clock.systemUTC(), 2);
+        String lastId = null;
+        for (int i = 0; i < 7; i++) {
+            var checkpoint = checkpoint("answer " + i);
+            saver.put(THREAD, checkpoint);
+            lastId = checkpoint.getId();
+        }
+
+        var checkpoints = saver.list(THREAD);
+        assertTrue(checkpoints.size() <= 4);
+        assertEquals(lastId, checkpoints.iterator().next().getId());
+    }
+
+    @Test
+    void expiredThreadsAreDeleted() throws Exception {
+        saver(Clock.systemUTC(), 10).put(THREAD, checkpoint("answer"));
+
+        var later = saver(Clock.offset(Clock.systemUTC(), Duration.ofHours(1)), 10);
+
+        assertTrue(later.get(THREAD).isEmpty());
+        assertFalse(Files.exists(later.fileOf("thread-1")));
+    }
+
+    @Test
+    void sweepDeletesExpiredThreads() throws Exception {
+        saver(Clock.systemUTC(), 10).put(THREAD, checkpoint("answer"));
+
+        var later = saver(Clock.offset(Clock.systemUTC(), Duration.ofHours(1)), 10);
+        later.evictExpired();
+
+        assertFalse(Files.exists(later.fileOf("thread-1")));
+    }
+
+    @Test
+    void lockFilesAreSharedByThreadsAndKept() throws Exception {
+        var saver = saver(Clock.systemUTC(), 10);
+        for (int i = 0; i < 200; i++) {
+            saver.put(RunnableConfig.builder().threadId("thread-" + i).build(), checkpoint("answer"));
+        }
+
+        saver(Clock.offset(Clock.systemUTC(), Duration.ofHours(1)), 10).evictExpired();
+
+        try (var files = Files.list(dir)) {
+            var names = files.map(file -> file.getFileName().toString()).toList();
+            assertTrue(names.stream().noneMatch(name -> name.endsWith(".ckpt")));
+            long lockFiles = names.stream().filter(name -> name.endsWith(".lock")).count();
+            assertTrue(lockFiles > 0 && lockFiles <= 64);
+        }
+    }
+
+    @Test
+    void threadIdsDifferingInCaseHaveDistinctLowercaseFiles() throws Exception {
+        var saver = saver(Clock.systemUTC(), 10);
+        var lower = checkpoint("lower");
+        var upper = checkpoint("upper");
+        saver.put(RunnableConfig.builder().threadId("thread-a").build(), lower);
+        saver.put(RunnableConfig.builder().threadId("THREAD-A").build(), upper);
+
+        String lowerName = saver.fileOf("thread-a").getFileName().toString();
+        String upperName = saver.fileOf("THREAD-A").getFileName().toString();
+        assertFalse(lowerName.equalsIgnoreCase(upperName));
+        assertEquals(lowerName.toLowerCase(), lowerName);
+        assertEquals(upperName.toLowerCase(), upperName);
+        assertEquals(lower.getId(), saver.get(RunnableConfig.builder().threadId("thread-a").build()).orElseThrow().getId());
+        assertEquals(upper.getId(), saver.get(RunnableConfig.builder().threadId("THREAD-A").build()).orElseThrow().getId());
+
+        String longName = saver.fileOf("thread-".repeat(20)).getFileName().toString();
+        assertEquals(longName.toLowerCase(), longName);
+    }
+
+    @Test
+    void truncatedRecordIsIgnored() throws Exception {
+        var saver = saver(Clock.systemUTC(), 10);
+        var checkpoint = checkpoint("answer");
+        saver.put(THREAD, checkpoint);
+        Files.write(saver.fileOf("thread-1"), new byte[] {0, 0, 1, 0, 1, 2}, StandardOpenOption.APPEND);
+
+        assertEquals(checkpoint.getId(), saver.get(THREAD).orElseThrow().getId());
+        var next = checkpoint("next");
+        saver.put(THREAD, next);
+        var ids = saver.list(THREAD).stream().map(Checkpoint::getId).toList();
+        assertEquals(List.of(next.getId(), checkpoint.getId()), ids);
+    }
+
+    @Test
+    void clearDeletesThread() throws Exception {
+        var saver = saver(Clock.systemUTC(), 10);
+        saver.put(THREAD, checkpoint("answer"));
+
+        assertTrue(saver.clear(THREAD));
+        assertTrue(saver.list(THREAD).isEmpty());
+    }
+
+    @Test
+    void deltaCheckpointsAreRebuilt() throws Exception {
+        var saver = saver(Clock.systemUTC(), 100);
+        saver.setFullSnapshotInterval(4);
+        var checkpoints = conversation(10);
+        for (var checkpoint : checkpoints) {
+            saver.put(THREAD, checkpoint);
+        }
+
+        assertSameCheckpoints(checkpoints, List.copyOf(saver.list(THREAD)));
+        var restarted = saver(Clock.systemUTC(), 100);
+        assertSameCheckpoints(checkpoints, List.copyOf(restarted.list(THREAD)));
+        assertEquals(checkpoints.get(4).getState().get("messages"),
+                restarted.get(RunnableConfig.builder(THREAD).checkPointId(checkpoints.get(4).getId()).build()).orElseThrow().getState().get("messages"));
+    }
+
+    @Test
+    void deltaCheckpointsAreSmallerThanFullSnapshots() throws Exception {
+        var checkpoints = conversation(20);
+        var deltas = new FileCheckpointSaver(dir.resolve("deltas"), new LC4jJacksonStateSerializer<>(AgentWorkflowState::new), Duration.ofMinutes(30), 100, Clock.systemUTC(), false);
+        var snapshots = new FileCheckpointSaver(dir.resolve("snapshots"), new LC4jJacksonStateSerializer<>(AgentWorkflowState::new), Duration.ofMinutes(30), 100, Clock.systemUTC(), false);
+        snapshots.setFullSnapshotInterval(1);
+        for (var checkpoint : checkpoints) {
+            deltas.put(THREAD, checkpoint);
+            snapshots.put(THREAD, checkpoint);
+        }
+
+        assertTrue(Files.size(deltas.fileOf("thread-1")) < Files.size(snapshots.fileOf("thread-1")) / 2);
+        assertSameCheckpoints(checkpoints, List.copyOf(deltas.list(THREAD)));
+    }
+
+    @Test
+    void checkpointsAppendedByAnotherReplicaAreKept() throws Exception {
+        var replica1 = saver(Clock.systemUTC(), 100);
+        var replica2 = saver(Clock.systemUTC(), 100);
+        var checkpoints = conversation(9);
+        for (int i = 0; i < checkpoints.size(); i++) {
+            (i % 3 == 2 ? replica2 : replica1).put(THREAD, checkpoints.get(i));
+        }
+
+        assertSameCheckpoints(checkpoints, List.copyOf(saver(Clock.systemUTC(), 100).list(THREAD)));
+    }
+
+    @Test
+    void compactedDeltaCheckpointsAreRebuilt() throws Exception {
+        var saver = saver(Clock.systemUTC(), 3);
+        saver.setFullSnapshotInterval(4);
+        var checkpoints = conversation(11);
+        for (var checkpoint : checkpoints) {
+            saver.put(THREAD, checkpoint);
+        }
+
+        var stored = List.copyOf(saver(Clock.systemUTC(), 3).list(THREAD));
+        assertSameCheckpoints(checkpoints.subList(checkpoints.size() - stored.size(), checkpoints.size()), stored);
+    }
+
+    @Test
+    void replacingBaseCheckpointKeepsLaterDeltas() throws Exception {
+        var saver = saver(Clock.systemUTC(), 10);
+        var checkpoints = conversation(3);
+        var firstConfig = saver.put(THREAD, checkpoints.get(0));
+        saver.put(THREAD, checkpoints.get(1));
+        saver.put(THREAD, checkpoints.get(2));
+
+        saver.put(firstConfig, Checkpoint.builder()
+                .state(Map.of("messages", List.of(UserMessage.from("replaced")), "activeAgent", "AccountAgent"))
+                .build());
+
+        var stored = List.copyOf(saver.list(THREAD));
+        assertEquals(List.of(UserMessage.from("replaced")), stored.get(2).getState().get("messages"));
+        assertEquals(checkpoints.get(2).getState().get("messages"), stored.get(0).getState().get("messages"));
+        assertEquals(checkpoints.get(1).getState().get("messages"), stored.get(1).getState().get("messages"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.microsoft.openai.samples.assistant.langgraph4j.serializer;
+
+import com.microsoft.openai.samples.assistant.langgraph4j.AgentWorkflowState;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.image.Image;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ImageContent;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.bsc.langgraph4j.langchain4j.serializer.jackson.LC4jJacksonStateSerializer;
+import org.bsc.langgraph4j.serializer.StateSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryStateSerializerTest {
+
+    private static List<ChatMessage> conversation(int turns) {
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < turns; i++) {
+            messages.add(UserMessage.from("how much did I spend on the phone company last month?"));
+            messages.add(AiMessage.from(List.of(ToolExecutionRequest.builder()
+                    .id("call_" + i)
+                    .name("getTransactionsByRecipientName")
+                    .arguments("{\"accountId\":\"1010\",\"name\":\"contoso mobile\"}")
+                    .build())));
+            messages.add(ToolExecutionResultMessage.from("call_" + i, "getTransactionsByRecipientName",
+                    "[{\"id\":\"%d\",\"description\":\"phone bill\",\"type\":\"outcome\",\"amount\":49.99}]".formatted(i)));
+            messages.add(AiMessage.from("<p>You spent 49.99 EUR on Contoso Mobile.</p>"));
+        }
+        return messages;
+    }
+
+    private static AgentWorkflowState state(List<ChatMessage> messages) {
+        return new AgentWorkflowState(Map.of(
+                "messages", messages,
+                "activeAgent", "TransactionHistoryAgent",
+                "nextAgent", "TransactionHistoryAgent",
+                "loggedUserName", "bob.user@contoso.com"));
+    }
+
+    private static byte[] write(StateSerializer<AgentWorkflowState> serializer, AgentWorkflowState state) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            serializer.write(state, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static AgentWorkflowState read(StateSerializer<AgentWorkflowState> serializer, byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return serializer.read(in);
+        }
+    }
+
+    @Test
+    void stateRoundTrips() throws Exception {
+        var serializer = new BinaryStateSerializer();
+        var state = state(conversation(3));
+
+        var restored = read(serializer, write(serializer, state));
+
+        assertEquals(state.data(), restored.data());
+        assertEquals(state.messages(), restored.messages());
+        assertEquals(state.activeAgent(), restored.activeAgent());
+    }
+
+    @Test
+    void uncompressedStateRoundTrips() throws Exception {
+        var serializer = new BinaryStateSerializer(-1);
+        var state = state(conversation(3));
+
+        assertEquals(state.data(), read(serializer, write(serializer, state)).data());
+    }
+
+    @Test
+    void imagesRoundTrip() throws Exception {
+        var serializer = new BinaryStateSerializer();
+        var message = UserMessage.from("bob.user@contoso.com", List.of(
+                TextContent.from("pay this bill"),
+                ImageContent.from(Image.builder().base64Data("iVBORw0KGgo=").mimeType("image/png").build(), ImageContent.DetailLevel.HIGH),
+                ImageContent.from("https://contoso.com/invoice.png")));
+        var state = state(List.of(message));
+
+        assertEquals(state.messages(), read(serializer, write(serializer, state)).messages());
+    }
+
+    @Test
+    void binaryStateIsSmallerThanJson() throws Exception {
+        var state = state(conversation(40));
+
+        int binarySize = write(new BinaryStateSerializer(-1), state).length;
+        int compressedSize = write(new BinaryStateSerializer(), state).length;
+        int jsonSize = write(new LC4jJacksonStateSerializer<>(AgentWorkflowState::new), state).length;
+
+        assertTrue(binarySize < jsonSize, "binary %d bytes, json %d bytes".formatted(binarySize, jsonSize));
+        assertTrue(compressedSize < binarySize, "compressed %d bytes, binary %d bytes".formatted(compressedSize, binarySize));
+    }
+}